@@ -0,0 +1,88 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.testing.MigrationTestHelper
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner
+import androidx.test.platform.app.InstrumentationRegistry
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Migrates databases created by earlier SDK versions using the schemas exported to
+ * `BraintreeCore/schemas`.
+ */
+@RunWith(AndroidJUnit4ClassRunner::class)
+class AnalyticsDatabaseMigrationTest {
+
+    @get:Rule
+    val helper = MigrationTestHelper(
+        InstrumentationRegistry.getInstrumentation(),
+        AnalyticsDatabase::class.java,
+        listOf(AnalyticsDatabase.DeleteAnalyticsEventTableAutoMigration()),
+        FrameworkSQLiteOpenHelperFactory()
+    )
+
+    @Test(timeout = 10000)
+    fun migrate8To12_keepsJSONEventsReadableAlongsideEncodedEvents() {
+        val legacyJSON = JSONObject()
+            .put("event_name", "android.legacy-event")
+            .put("t", 123L)
+            .toString()
+        helper.createDatabase(TEST_DATABASE_NAME, 8).apply {
+            execSQL(
+                "INSERT INTO analytics_event_blob (json_string, sessionId) VALUES (?, ?)",
+                arrayOf(legacyJSON, "session-id")
+            )
+            close()
+        }
+
+        helper.runMigrationsAndValidate(TEST_DATABASE_NAME, 12, true).apply {
+            query(
+                "SELECT name FROM sqlite_master WHERE type = 'table' AND name = ?",
+                arrayOf("analytics_session")
+            ).use { assertEquals(1, it.count) }
+            close()
+        }
+
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        val database = Room.databaseBuilder(
+            context,
+            AnalyticsDatabase::class.java,
+            TEST_DATABASE_NAME
+        ).build()
+        helper.closeWhenFinished(database)
+        val dao = database.analyticsEventBlobDao()
+        val event = AnalyticsEvent(name = "android.new-event", timestamp = 456L)
+        dao.insertEventBlob(
+            AnalyticsEventBlob(
+                jsonString = "",
+                sessionId = "session-id",
+                timestamp = 456L,
+                payload = AnalyticsEventCodec.encode(event)
+            )
+        )
+
+        val eventBlobs = dao.getEventBlobs(0L, 10)
+        assertEquals(2, eventBlobs.size)
+
+        val legacyEventBlob = eventBlobs[0]
+        assertEquals(legacyJSON, legacyEventBlob.jsonString)
+        assertEquals("session-id", legacyEventBlob.sessionId)
+        assertEquals(0L, legacyEventBlob.timestamp)
+        assertNull(legacyEventBlob.payload)
+
+        val encodedEventBlob = eventBlobs[1]
+        assertEquals(event, AnalyticsEventCodec.decode(encodedEventBlob.payload!!))
+    }
+
+    companion object {
+        private const val TEST_DATABASE_NAME = "analytics_database_migration_test"
+    }
+}
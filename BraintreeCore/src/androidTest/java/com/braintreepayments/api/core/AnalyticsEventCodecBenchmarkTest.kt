@@ -0,0 +1,119 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import android.os.SystemClock
+import android.util.Log
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.internal.runner.junit4.AndroidJUnit4ClassRunner
+import org.json.JSONObject
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the size and the insert and read throughput of analytics events stored as FPTI JSON
+ * and as [AnalyticsEventCodec] payloads. Timings are logged under [TAG].
+ */
+@RunWith(AndroidJUnit4ClassRunner::class)
+class AnalyticsEventCodecBenchmarkTest {
+
+    private lateinit var database: AnalyticsDatabase
+    private lateinit var dao: AnalyticsEventBlobDao
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        database = Room.inMemoryDatabaseBuilder(context, AnalyticsDatabase::class.java).build()
+        dao = database.analyticsEventBlobDao()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test(timeout = 60000)
+    fun encodedEvents_areSmallerThanJSONEvents() {
+        val events = createEvents()
+
+        val jsonSize = measure("json") {
+            events.map { AnalyticsEventBlob(jsonString = toJSON(it), sessionId = SESSION_ID) }
+        }
+        val encodedSize = measure("encoded") {
+            events.map {
+                AnalyticsEventBlob(
+                    jsonString = "",
+                    sessionId = SESSION_ID,
+                    payload = AnalyticsEventCodec.encode(it)
+                )
+            }
+        }
+
+        assertTrue(encodedSize < jsonSize)
+    }
+
+    private fun measure(label: String, createBlobs: () -> List<AnalyticsEventBlob>): Long {
+        val insertStart = SystemClock.elapsedRealtimeNanos()
+        dao.insertEventBlobs(createBlobs())
+        val insertNanos = SystemClock.elapsedRealtimeNanos() - insertStart
+
+        val size = dao.getEventBlobsSize()
+
+        val readStart = SystemClock.elapsedRealtimeNanos()
+        var readCount = 0
+        var afterId = 0L
+        do {
+            val page = dao.getEventBlobs(afterId, PAGE_SIZE)
+            page.forEach { blob ->
+                blob.payload?.let { AnalyticsEventCodec.decode(it) } ?: JSONObject(blob.jsonString)
+            }
+            readCount += page.size
+            afterId = page.lastOrNull()?.id ?: afterId
+        } while (page.size == PAGE_SIZE)
+        val readNanos = SystemClock.elapsedRealtimeNanos() - readStart
+
+        assertEquals(EVENT_COUNT, readCount)
+        dao.deleteEventBlobsUpTo(afterId)
+
+        Log.i(
+            TAG,
+            "$label: $size bytes, insert ${insertNanos / NANOS_PER_MICRO / EVENT_COUNT} us/event, " +
+                "read ${readNanos / NANOS_PER_MICRO / EVENT_COUNT} us/event"
+        )
+        return size
+    }
+
+    private fun createEvents() = (0 until EVENT_COUNT).map {
+        AnalyticsEvent(
+            name = "core:api-request-latency",
+            timestamp = 1_700_000_000_000L + it,
+            payPalContextId = "EC-$it",
+            startTime = 1_700_000_000_000L + it,
+            endTime = 1_700_000_000_250L + it,
+            endpoint = "/v1/configuration"
+        )
+    }
+
+    private fun toJSON(event: AnalyticsEvent) = JSONObject()
+        .put("event_name", event.name)
+        .put("t", event.timestamp)
+        .put("is_vault", event.isVaultRequest)
+        .put("tenant_name", "Braintree")
+        .putOpt("paypal_context_id", event.payPalContextId)
+        .putOpt("start_time", event.startTime)
+        .putOpt("end_time", event.endTime)
+        .putOpt("endpoint", event.endpoint)
+        .toString()
+
+    companion object {
+        private const val TAG = "AnalyticsEventCodec"
+        private const val SESSION_ID = "sample-session-id"
+        private const val EVENT_COUNT = 5000
+        private const val PAGE_SIZE = 100
+        private const val NANOS_PER_MICRO = 1000
+    }
+}
@@ -2,15 +2,22 @@ package com.braintreepayments.api.core
 
 import android.content.Context
 import androidx.annotation.RestrictTo
+import androidx.work.BackoffPolicy
+import androidx.work.Constraints
 import androidx.work.Data
 import androidx.work.ExistingWorkPolicy
 import androidx.work.ListenableWorker
+import androidx.work.NetworkType
 import androidx.work.OneTimeWorkRequest
 import androidx.work.WorkManager
+import com.braintreepayments.api.sharedutils.HttpRequest
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.sharedutils.Time
-import org.json.JSONArray
 import org.json.JSONException
-import org.json.JSONObject
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.io.StringWriter
 import java.util.*
 import java.util.concurrent.TimeUnit
 
@@ -23,8 +30,12 @@ class AnalyticsClient internal constructor(
     private val deviceInspector: DeviceInspector = DeviceInspector(),
     private val analyticsParamRepository: AnalyticsParamRepository = AnalyticsParamRepository.instance,
     private val time: Time = Time(),
-    private val configurationLoader: ConfigurationLoader = ConfigurationLoader.instance,
-    private val merchantRepository: MerchantRepository = MerchantRepository.instance
+    private val configurationCache: ConfigurationCache =
+        ConfigurationCacheProvider().configurationCache,
+    private val merchantRepository: MerchantRepository = MerchantRepository.instance,
+    private val analyticsEventBuffer: AnalyticsEventBuffer = AnalyticsEventBuffer.instance,
+    private val analyticsEventSampler: AnalyticsEventSampler = AnalyticsEventSampler.instance,
+    private val isPayloadCompressionEnabled: Boolean = false
 ) {
 
     private val applicationContext: Context
@@ -34,6 +45,10 @@ class AnalyticsClient internal constructor(
         eventName: String,
         analyticsEventParams: AnalyticsEventParams = AnalyticsEventParams()
     ) {
+        // drop sampled out events before paying for the event serialization
+        if (!analyticsEventSampler.shouldSend(eventName, analyticsParamRepository.sessionId)) {
+            return
+        }
         val analyticsEvent = AnalyticsEvent(
             name = eventName,
             timestamp = time.currentTime,
@@ -48,39 +63,54 @@ class AnalyticsClient internal constructor(
             shopperSessionId = analyticsEventParams.shopperSessionId,
             buttonType = analyticsEventParams.buttonType,
             buttonOrder = analyticsEventParams.buttonOrder,
-            pageType = analyticsEventParams.pageType
+            pageType = analyticsEventParams.pageType,
+            queueDuration = analyticsEventParams.queueDuration,
+            poolWaitDuration = analyticsEventParams.poolWaitDuration,
+            connectDuration = analyticsEventParams.connectDuration,
+            requestWriteDuration = analyticsEventParams.requestWriteDuration,
+            timeToFirstByte = analyticsEventParams.timeToFirstByte,
+            responseReadDuration = analyticsEventParams.responseReadDuration,
+            sampleRate = analyticsEventSampler.getSampleRate(eventName)
         )
-        configurationLoader.loadConfiguration { result ->
-            if (result is ConfigurationLoaderResult.Success) {
-                scheduleAnalyticsWriteInBackground(analyticsEvent, merchantRepository.authorization)
-                scheduleAnalyticsUploadInBackground(
-                    configuration = result.configuration,
-                    authorization = merchantRepository.authorization,
-                    integration = merchantRepository.integrationType
-                )
-            }
+        val authorization = merchantRepository.authorization
+        // events recorded without a valid authorization could never be uploaded
+        if (authorization is InvalidAuthorization) {
+            return
         }
+        // the upload is scheduled once the buffer writes the event, see onAnalyticsEventsFlushed
+        bufferAnalyticsEvent(analyticsEvent, authorization)
     }
 
-    private fun scheduleAnalyticsWriteInBackground(
-        event: AnalyticsEvent,
-        authorization: Authorization
-    ) {
-        val json = mapAnalyticsEventToFPTIEventJSON(event)
-        val inputData = Data.Builder()
-            .putString(WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
-            .putString(WORK_INPUT_KEY_ANALYTICS_JSON, json)
-            .putString(WORK_INPUT_KEY_SESSION_ID, analyticsParamRepository.sessionId)
-            .build()
+    /**
+     * Schedules the upload of the events written by an [AnalyticsEventBuffer] flush. Scheduling
+     * runs a WorkManager database transaction, so it is done once per flush instead of per event.
+     */
+    internal fun onAnalyticsEventsFlushed(sessions: List<AnalyticsSession>) {
+        val authorization = sessions.lastOrNull()
+            ?.let { Authorization.fromString(it.authorization) }
+            ?.takeIf { it !is InvalidAuthorization }
+            ?: return
+        scheduleAnalyticsUploadInBackground(
+            authorization = authorization,
+            integration = merchantRepository.integrationType
+        )
+    }
 
-        val analyticsWorkRequest = OneTimeWorkRequest.Builder(AnalyticsWriteToDbWorker::class.java)
-            .setInputData(inputData)
-            .build()
-        workManager.enqueueUniqueWork(
-            WORK_NAME_ANALYTICS_WRITE, ExistingWorkPolicy.APPEND_OR_REPLACE, analyticsWorkRequest
+    private fun bufferAnalyticsEvent(event: AnalyticsEvent, authorization: Authorization) {
+        val eventBlob = AnalyticsEventBlob(
+            jsonString = "",
+            sessionId = analyticsParamRepository.sessionId,
+            timestamp = event.timestamp,
+            payload = AnalyticsEventCodec.encode(event)
         )
+        analyticsEventBuffer.add(eventBlob, authorization.toString())
     }
 
+    /**
+     * Writes a single event to the database. Events are now written in batches by
+     * [AnalyticsEventBuffer]; this is kept for [AnalyticsWriteToDbWorker] jobs that were enqueued
+     * by previous versions of the SDK.
+     */
     fun performAnalyticsWrite(inputData: Data): ListenableWorker.Result {
         val analyticsJSON = inputData.getString(WORK_INPUT_KEY_ANALYTICS_JSON)
         val sessionId = inputData.getString(WORK_INPUT_KEY_SESSION_ID)
@@ -89,7 +119,8 @@ class AnalyticsClient internal constructor(
         } else {
             val eventBlob = AnalyticsEventBlob(
                 jsonString = analyticsJSON,
-                sessionId = sessionId
+                sessionId = sessionId,
+                timestamp = time.currentTime
             )
             val analyticsBlobDao = analyticsDatabase.analyticsEventBlobDao()
             analyticsBlobDao.insertEventBlob(eventBlob)
@@ -97,71 +128,165 @@ class AnalyticsClient internal constructor(
         }
     }
 
+    /**
+     * Schedules a single upload job for all stored events. Scheduling again while the job is
+     * pending is a no-op, so the job coalesces the events of every session recorded until it runs.
+     * Events recorded while the job is running are uploaded by a job that it schedules once done.
+     *
+     * The configuration is not part of the job input; the job reads the few fields it needs from
+     * [ConfigurationCache.getAnalyticsConfiguration] when it runs. The [authorization] of the job
+     * is only used for events stored without the authorization of their session.
+     */
     private fun scheduleAnalyticsUploadInBackground(
-        configuration: Configuration,
         authorization: Authorization,
-        integration: IntegrationType?
+        integration: IntegrationType?,
+        existingWorkPolicy: ExistingWorkPolicy = ExistingWorkPolicy.KEEP
     ): UUID {
-        val sessionId = analyticsParamRepository.sessionId
         val inputData = Data.Builder()
             .putString(WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
-            .putString(WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
-            .putString(WORK_INPUT_KEY_SESSION_ID, sessionId)
             .putString(WORK_INPUT_KEY_INTEGRATION, integration?.stringValue)
             .build()
 
+        val constraints = Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .setRequiresBatteryNotLow(true)
+            .build()
+
         val analyticsWorkRequest = OneTimeWorkRequest.Builder(AnalyticsUploadWorker::class.java)
             .setInitialDelay(DELAY_TIME_SECONDS, TimeUnit.SECONDS)
+            .setConstraints(constraints)
+            .setBackoffCriteria(
+                BackoffPolicy.EXPONENTIAL,
+                BACKOFF_DELAY_SECONDS,
+                TimeUnit.SECONDS
+            )
             .setInputData(inputData)
             .build()
         workManager.enqueueUniqueWork(
-            WORK_NAME_ANALYTICS_UPLOAD + sessionId,
-            ExistingWorkPolicy.KEEP,
+            WORK_NAME_ANALYTICS_UPLOAD,
+            existingWorkPolicy,
             analyticsWorkRequest
         )
         return analyticsWorkRequest.id
     }
 
-    fun performAnalyticsUpload(inputData: Data): ListenableWorker.Result {
-        val configuration = getConfigurationFromData(inputData)
+    /**
+     * Uploads the stored events of every session, including events left behind by sessions whose
+     * upload failed earlier. When the upload fails, the job is retried with exponential backoff
+     * until [MAX_UPLOAD_ATTEMPTS] is reached; the events are kept for the next job either way.
+     *
+     * Scheduling an upload is a no-op while this job runs, so when events were recorded during the
+     * upload, another job is appended to upload them.
+     */
+    fun performAnalyticsUpload(
+        inputData: Data,
+        runAttemptCount: Int = 0
+    ): ListenableWorker.Result {
         val authorization = getAuthorizationFromData(inputData)
-        val sessionId = inputData.getString(WORK_INPUT_KEY_SESSION_ID)
         val integration = inputData.getString(WORK_INPUT_KEY_INTEGRATION)
+        // jobs enqueued by previous versions of the SDK carry the whole configuration
+        val analyticsConfiguration = configurationCache.getAnalyticsConfiguration()
+            ?: getConfigurationFromData(inputData)?.let {
+                AnalyticsConfiguration(it.environment, it.merchantId)
+            }
         return when (null) {
-            configuration, authorization, sessionId, integration -> {
+            authorization, integration -> {
                 ListenableWorker.Result.failure()
             }
 
+            // no configuration has been fetched yet; try again once one has
+            analyticsConfiguration -> retryOrFail(runAttemptCount)
+
             else -> {
                 try {
-                    val analyticsEventBlobDao = analyticsDatabase.analyticsEventBlobDao()
-                    val eventBlobs = analyticsEventBlobDao.getBlobsBySessionId(sessionId)
-                    if (eventBlobs.isNotEmpty()) {
-                        val metadata = deviceInspector.getDeviceMetadata(
-                            applicationContext,
-                            configuration,
-                            sessionId,
-                            IntegrationType.fromString(integration)
+                    val integrationType = IntegrationType.fromString(integration)
+                    uploadPendingEvents(analyticsConfiguration, authorization, integrationType)
+                    if (hasPendingEvents()) {
+                        scheduleAnalyticsUploadInBackground(
+                            authorization,
+                            integrationType,
+                            ExistingWorkPolicy.APPEND_OR_REPLACE
                         )
-                        val analyticsRequest =
-                            createFPTIPayload(authorization, eventBlobs, metadata)
-
-                        httpClient.post(
-                            FPTI_ANALYTICS_URL,
-                            analyticsRequest.toString(),
-                            configuration,
-                            authorization
-                        )
-                        analyticsEventBlobDao.deleteEventBlobs(eventBlobs)
                     }
                     ListenableWorker.Result.success()
                 } catch (e: Exception) {
-                    ListenableWorker.Result.failure()
+                    retryOrFail(runAttemptCount)
                 }
             }
         }
     }
 
+    private fun retryOrFail(runAttemptCount: Int): ListenableWorker.Result =
+        if (runAttemptCount + 1 < MAX_UPLOAD_ATTEMPTS) {
+            ListenableWorker.Result.retry()
+        } else {
+            ListenableWorker.Result.failure()
+        }
+
+    private fun hasPendingEvents(): Boolean =
+        analyticsEventBuffer.size > 0 ||
+            analyticsDatabase.analyticsEventBlobDao().getEventBlobCount() > 0
+
+    /**
+     * @param authorization the authorization to upload events with when their session has none
+     * stored, e.g. events stored by previous versions of the SDK
+     */
+    @Throws(Exception::class)
+    private fun uploadPendingEvents(
+        analyticsConfiguration: AnalyticsConfiguration,
+        authorization: Authorization,
+        integration: IntegrationType?
+    ) {
+        // events of this process may still be waiting to be written
+        analyticsEventBuffer.flush()
+        val analyticsEventBlobDao = analyticsDatabase.analyticsEventBlobDao()
+        val metadataBySessionId = HashMap<String, DeviceMetadata>()
+        val authorizationBySessionId = HashMap<String, Authorization>()
+        var afterId = 0L
+        // read the events in bounded batches, oldest first, regardless of their session
+        do {
+            val eventBlobs = analyticsEventBlobDao.getEventBlobs(afterId, UPLOAD_BATCH_SIZE)
+            if (eventBlobs.isEmpty()) break
+
+            // batch params are per session, so each session of the batch is posted on its own
+            eventBlobs.groupBy { it.sessionId }.forEach { (sessionId, sessionEventBlobs) ->
+                val deviceMetadata = metadataBySessionId.getOrPut(sessionId) {
+                    deviceInspector.getDeviceMetadata(
+                        applicationContext,
+                        analyticsConfiguration.environment,
+                        analyticsConfiguration.merchantId,
+                        sessionId,
+                        integration
+                    )
+                }
+                val sessionAuthorization = authorizationBySessionId.getOrPut(sessionId) {
+                    analyticsEventBlobDao.getSessionAuthorization(sessionId)
+                        ?.let { Authorization.fromString(it) }
+                        ?.takeIf { it !is InvalidAuthorization }
+                        ?: authorization
+                }
+                val analyticsRequest =
+                    createFPTIPayload(sessionAuthorization, sessionEventBlobs, deviceMetadata)
+
+                httpClient.post(
+                    FPTI_ANALYTICS_URL,
+                    analyticsRequest,
+                    if (isPayloadCompressionEnabled) HttpRequest.CONTENT_ENCODING_GZIP else null,
+                    null,
+                    sessionAuthorization,
+                    TaskPriority.TELEMETRY
+                )
+                analyticsEventBlobDao.deleteEventBlobsInRange(
+                    sessionId,
+                    sessionEventBlobs.first().id,
+                    sessionEventBlobs.last().id
+                )
+            }
+            afterId = eventBlobs.last().id
+        } while (eventBlobs.size == UPLOAD_BATCH_SIZE)
+        analyticsEventBlobDao.deleteSessionsWithoutEvents()
+    }
+
     fun reportCrash(
         context: Context?,
         configuration: Configuration?,
@@ -181,99 +306,130 @@ class AnalyticsClient internal constructor(
             name = "crash",
             timestamp = time.currentTime
         )
-        val eventJSON = mapAnalyticsEventToFPTIEventJSON(event)
-        val eventBlobs = listOf(
-            AnalyticsEventBlob(
-                jsonString = eventJSON,
-                sessionId = ""
-            )
+        val jsonWriter = FPTIJSONWriter()
+        val batchParamsJSON = writeFPTIBatchParams(jsonWriter, authorization, metadata).toString()
+        val analyticsRequest = StringWriter()
+        FPTIPayloadWriter.write(
+            analyticsRequest,
+            batchParamsJSON,
+            sequenceOf(writeFPTIEvent(jsonWriter, event).json)
+        )
+        httpClient.post(
+            path = FPTI_ANALYTICS_URL,
+            data = analyticsRequest.toString(),
+            configuration = null,
+            authorization = authorization,
+            priority = TaskPriority.TELEMETRY,
+            callback = null
         )
-        try {
-            val analyticsRequest = createFPTIPayload(authorization, eventBlobs, metadata)
-            httpClient.post(
-                path = FPTI_ANALYTICS_URL,
-                data = analyticsRequest.toString(),
-                configuration = null,
-                authorization = authorization,
-                callback = null
-            )
-        } catch (e: JSONException) { /* ignored */
-        }
     }
 
-    @Throws(JSONException::class)
+    /**
+     * Serializes a batch of [eventBlobs] as UTF-8 JSON. Stored JSON is copied into the payload as
+     * is and encoded events are converted to JSON one at a time in a single reused buffer; see
+     * [FPTIPayloadWriter].
+     */
+    @Throws(IOException::class)
     private fun createFPTIPayload(
-        authorization: Authorization?,
+        authorization: Authorization,
         eventBlobs: List<AnalyticsEventBlob>,
         metadata: DeviceMetadata
-    ): JSONObject {
-        val batchParamsJSON = mapDeviceMetadataToFPTIBatchParamsJSON(metadata)
-        authorization?.let {
-            if (it is ClientToken) {
-                batchParamsJSON.put(FPTI_KEY_AUTH_FINGERPRINT, it.bearer)
-            } else {
-                batchParamsJSON.put(FPTI_KEY_TOKENIZATION_KEY, it.bearer)
-            }
+    ): ByteArray {
+        val jsonWriter = FPTIJSONWriter()
+        val batchParamsJSON = writeFPTIBatchParams(jsonWriter, authorization, metadata).toString()
+        val eventJSONs = eventBlobs.asSequence().mapNotNull { getEventJSON(jsonWriter, it) }
+        val estimatedSize = eventBlobs.sumOf {
+            if (it.payload != null) ENCODED_EVENT_JSON_SIZE else it.jsonString.length + 1
+        } + BATCH_PARAMS_SIZE
+        val outputStream = ByteArrayOutputStream(estimatedSize)
+        OutputStreamWriter(outputStream, Charsets.UTF_8).use { writer ->
+            FPTIPayloadWriter.write(
+                writer,
+                batchParamsJSON,
+                eventJSONs,
+                (authorization as? ClientToken)?.authorizationFingerprint
+            )
         }
+        return outputStream.toByteArray()
+    }
 
-        val eventsContainerJSON = JSONObject()
-        eventsContainerJSON.put(FPTI_KEY_BATCH_PARAMS, batchParamsJSON)
-
-        val eventParamsJSON = JSONArray()
-        for (blob in eventBlobs) {
-            eventParamsJSON.put(JSONObject(blob.jsonString))
+    /**
+     * @return the FPTI JSON of [eventBlob], or null if its encoded payload cannot be decoded. The
+     * JSON of encoded events is only valid until [jsonWriter] writes the next object.
+     */
+    private fun getEventJSON(
+        jsonWriter: FPTIJSONWriter,
+        eventBlob: AnalyticsEventBlob
+    ): CharSequence? {
+        val payload = eventBlob.payload ?: return eventBlob.jsonString
+        return try {
+            writeFPTIEvent(jsonWriter, AnalyticsEventCodec.decode(payload)).json
+        } catch (e: IOException) {
+            // drop the corrupt event instead of failing every upload of its batch
+            null
         }
-        eventsContainerJSON.put(FPTI_KEY_EVENT_PARAMS, eventParamsJSON)
-
-        // Single-element "events" array required by FPTI formatting
-        val eventsArray = JSONArray(arrayOf(eventsContainerJSON))
-        return JSONObject().put(FPTI_KEY_EVENTS, eventsArray)
     }
 
-    private fun mapAnalyticsEventToFPTIEventJSON(event: AnalyticsEvent): String {
-        val json = JSONObject()
-            .put(FPTI_KEY_EVENT_NAME, event.name)
-            .put(FPTI_KEY_TIMESTAMP, event.timestamp)
-            .put(FPTI_KEY_IS_VAULT, event.isVaultRequest)
-            .put(FPTI_KEY_TENANT_NAME, "Braintree")
-            .putOpt(FPTI_KEY_PAYPAL_CONTEXT_ID, event.payPalContextId)
-            .putOpt(FPTI_KEY_LINK_TYPE, event.linkType)
-            .putOpt(FPTI_KEY_START_TIME, event.startTime)
-            .putOpt(FPTI_KEY_END_TIME, event.endTime)
-            .putOpt(FPTI_KEY_ENDPOINT, event.endpoint)
-            .putOpt(FPTI_KEY_MERCHANT_EXPERIMENT, event.experiment)
-            .putOpt(FPTI_KEY_URL, event.appSwitchUrl)
-            .putOpt(FPTI_KEY_SHOPPER_SESSION_ID, event.shopperSessionId)
-            .putOpt(FPTI_KEY_BUTTON_TYPE, event.buttonType)
-            .putOpt(FPTI_KEY_BUTTON_POSITION, event.buttonOrder)
-            .putOpt(FPTI_KEY_PAGE_TYPE, event.pageType)
-        return json.toString()
-    }
+    private fun writeFPTIEvent(jsonWriter: FPTIJSONWriter, event: AnalyticsEvent): FPTIJSONWriter =
+        jsonWriter.beginObject()
+            .field(FPTI_KEY_EVENT_NAME, event.name)
+            .field(FPTI_KEY_TIMESTAMP, event.timestamp)
+            .field(FPTI_KEY_IS_VAULT, event.isVaultRequest)
+            .field(FPTI_KEY_TENANT_NAME, "Braintree")
+            .field(FPTI_KEY_PAYPAL_CONTEXT_ID, event.payPalContextId)
+            .field(FPTI_KEY_LINK_TYPE, event.linkType)
+            .field(FPTI_KEY_START_TIME, event.startTime)
+            .field(FPTI_KEY_END_TIME, event.endTime)
+            .field(FPTI_KEY_ENDPOINT, event.endpoint)
+            .field(FPTI_KEY_MERCHANT_EXPERIMENT, event.experiment)
+            .field(FPTI_KEY_URL, event.appSwitchUrl)
+            .field(FPTI_KEY_SHOPPER_SESSION_ID, event.shopperSessionId)
+            .field(FPTI_KEY_BUTTON_TYPE, event.buttonType)
+            .field(FPTI_KEY_BUTTON_POSITION, event.buttonOrder)
+            .field(FPTI_KEY_PAGE_TYPE, event.pageType)
+            .field(FPTI_KEY_QUEUE_DURATION, event.queueDuration)
+            .field(FPTI_KEY_POOL_WAIT_DURATION, event.poolWaitDuration)
+            .field(FPTI_KEY_CONNECT_DURATION, event.connectDuration)
+            .field(FPTI_KEY_REQUEST_WRITE_DURATION, event.requestWriteDuration)
+            .field(FPTI_KEY_TIME_TO_FIRST_BYTE, event.timeToFirstByte)
+            .field(FPTI_KEY_RESPONSE_READ_DURATION, event.responseReadDuration)
+            .field(FPTI_KEY_SAMPLE_RATE, event.sampleRate)
+            .endObject()
 
-    @Throws(JSONException::class)
-    private fun mapDeviceMetadataToFPTIBatchParamsJSON(metadata: DeviceMetadata): JSONObject {
+    private fun writeFPTIBatchParams(
+        jsonWriter: FPTIJSONWriter,
+        authorization: Authorization,
+        metadata: DeviceMetadata
+    ): FPTIJSONWriter {
         val isVenmoInstalled = deviceInspector.isVenmoInstalled(applicationContext)
         val isPayPalInstalled = deviceInspector.isPayPalInstalled(applicationContext)
+        val authorizationKey = if (authorization is ClientToken) {
+            FPTI_KEY_AUTH_FINGERPRINT
+        } else {
+            FPTI_KEY_TOKENIZATION_KEY
+        }
         return metadata.run {
-            JSONObject()
-                .put(FPTI_BATCH_KEY_APP_ID, appId)
-                .put(FPTI_BATCH_KEY_APP_NAME, appName)
-                .put(FPTI_BATCH_KEY_CLIENT_SDK_VERSION, clientSDKVersion)
-                .put(FPTI_BATCH_KEY_CLIENT_OS, clientOs)
-                .put(FPTI_BATCH_KEY_COMPONENT, component)
-                .put(FPTI_BATCH_KEY_DEVICE_MANUFACTURER, deviceManufacturer)
-                .put(FPTI_BATCH_KEY_DEVICE_MODEL, deviceModel)
-                .put(FPTI_BATCH_KEY_DROP_IN_SDK_VERSION, dropInSDKVersion)
-                .put(FPTI_BATCH_KEY_EVENT_SOURCE, eventSource)
-                .put(FPTI_BATCH_KEY_ENVIRONMENT, environment)
-                .put(FPTI_BATCH_KEY_INTEGRATION_TYPE, integrationType?.stringValue)
-                .put(FPTI_BATCH_KEY_IS_SIMULATOR, isSimulator)
-                .put(FPTI_BATCH_KEY_MERCHANT_APP_VERSION, merchantAppVersion)
-                .put(FPTI_BATCH_KEY_MERCHANT_ID, merchantId)
-                .put(FPTI_BATCH_KEY_PLATFORM, platform)
-                .put(FPTI_BATCH_KEY_SESSION_ID, sessionId)
-                .put(FPTI_BATCH_KEY_VENMO_INSTALLED, isVenmoInstalled)
-                .put(FPTI_BATCH_KEY_PAYPAL_INSTALLED, isPayPalInstalled)
+            jsonWriter.beginObject()
+                .field(FPTI_BATCH_KEY_APP_ID, appId)
+                .field(FPTI_BATCH_KEY_APP_NAME, appName)
+                .field(FPTI_BATCH_KEY_CLIENT_SDK_VERSION, clientSDKVersion)
+                .field(FPTI_BATCH_KEY_CLIENT_OS, clientOs)
+                .field(FPTI_BATCH_KEY_COMPONENT, component)
+                .field(FPTI_BATCH_KEY_DEVICE_MANUFACTURER, deviceManufacturer)
+                .field(FPTI_BATCH_KEY_DEVICE_MODEL, deviceModel)
+                .field(FPTI_BATCH_KEY_DROP_IN_SDK_VERSION, dropInSDKVersion)
+                .field(FPTI_BATCH_KEY_EVENT_SOURCE, eventSource)
+                .field(FPTI_BATCH_KEY_ENVIRONMENT, environment)
+                .field(FPTI_BATCH_KEY_INTEGRATION_TYPE, integrationType?.stringValue)
+                .field(FPTI_BATCH_KEY_IS_SIMULATOR, isSimulator)
+                .field(FPTI_BATCH_KEY_MERCHANT_APP_VERSION, merchantAppVersion)
+                .field(FPTI_BATCH_KEY_MERCHANT_ID, merchantId)
+                .field(FPTI_BATCH_KEY_PLATFORM, platform)
+                .field(FPTI_BATCH_KEY_SESSION_ID, sessionId)
+                .field(FPTI_BATCH_KEY_VENMO_INSTALLED, isVenmoInstalled)
+                .field(FPTI_BATCH_KEY_PAYPAL_INSTALLED, isPayPalInstalled)
+                .field(authorizationKey, authorization.bearer)
+                .endObject()
         }
     }
 
@@ -288,9 +444,6 @@ class AnalyticsClient internal constructor(
         private const val FPTI_KEY_LINK_TYPE = "link_type"
         private const val FPTI_KEY_TOKENIZATION_KEY = "tokenization_key"
         private const val FPTI_KEY_AUTH_FINGERPRINT = "authorization_fingerprint"
-        private const val FPTI_KEY_EVENTS = "events"
-        private const val FPTI_KEY_BATCH_PARAMS = "batch_params"
-        private const val FPTI_KEY_EVENT_PARAMS = "event_params"
         private const val FPTI_KEY_EVENT_NAME = "event_name"
         private const val FPTI_KEY_TIMESTAMP = "t"
         private const val FPTI_KEY_TENANT_NAME = "tenant_name"
@@ -304,6 +457,13 @@ class AnalyticsClient internal constructor(
         private const val FPTI_KEY_BUTTON_TYPE = "button_type"
         private const val FPTI_KEY_BUTTON_POSITION = "button_position"
         private const val FPTI_KEY_PAGE_TYPE = "page_type"
+        private const val FPTI_KEY_QUEUE_DURATION = "queue_duration"
+        private const val FPTI_KEY_CONNECT_DURATION = "connect_duration"
+        private const val FPTI_KEY_REQUEST_WRITE_DURATION = "request_write_duration"
+        private const val FPTI_KEY_TIME_TO_FIRST_BYTE = "time_to_first_byte"
+        private const val FPTI_KEY_POOL_WAIT_DURATION = "pool_wait_duration"
+        private const val FPTI_KEY_RESPONSE_READ_DURATION = "response_read_duration"
+        private const val FPTI_KEY_SAMPLE_RATE = "sample_rate"
 
         private const val FPTI_BATCH_KEY_VENMO_INSTALLED = "venmo_installed"
         private const val FPTI_BATCH_KEY_PAYPAL_INSTALLED = "paypal_installed"
@@ -334,6 +494,11 @@ class AnalyticsClient internal constructor(
         const val WORK_INPUT_KEY_ANALYTICS_JSON = "analyticsJson"
 
         private const val DELAY_TIME_SECONDS = 30L
+        private const val BACKOFF_DELAY_SECONDS = 30L
+        private const val UPLOAD_BATCH_SIZE = 100
+        private const val BATCH_PARAMS_SIZE = 1024
+        private const val ENCODED_EVENT_JSON_SIZE = 256
+        private const val MAX_UPLOAD_ATTEMPTS = 5
 
         private fun getAuthorizationFromData(inputData: Data?): Authorization? =
             inputData?.getString(WORK_INPUT_KEY_AUTHORIZATION)?.let {
@@ -0,0 +1,13 @@
+package com.braintreepayments.api.core
+
+/**
+ * The fields of a [Configuration] needed to upload analytics events. They are cached on their own
+ * so that uploads do not have to load, store or parse the whole configuration.
+ *
+ * @property environment the current environment
+ * @property merchantId the current Braintree merchant id
+ */
+internal data class AnalyticsConfiguration(
+    val environment: String,
+    val merchantId: String
+)
@@ -10,8 +10,8 @@ import androidx.room.migration.AutoMigrationSpec
 
 // Ref: https://developer.android.com/training/data-storage/room/migrating-db-versions
 @Database(
-    version = 8,
-    entities = [AnalyticsEventBlob::class],
+    version = 12,
+    entities = [AnalyticsEventBlob::class, AnalyticsSession::class],
     autoMigrations = [
         AutoMigration(from = 1, to = 2),
         AutoMigration(from = 2, to = 3),
@@ -19,7 +19,11 @@ import androidx.room.migration.AutoMigrationSpec
         AutoMigration(from = 4, to = 5),
         AutoMigration(from = 5, to = 6),
         AutoMigration(from = 6, to = 7, spec = AnalyticsDatabase.DeleteAnalyticsEventTableAutoMigration::class),
-        AutoMigration(from = 7, to = 8)
+        AutoMigration(from = 7, to = 8),
+        AutoMigration(from = 8, to = 9),
+        AutoMigration(from = 9, to = 10),
+        AutoMigration(from = 10, to = 11),
+        AutoMigration(from = 11, to = 12)
     ]
 )
 internal abstract class AnalyticsDatabase : RoomDatabase() {
@@ -19,5 +19,12 @@ internal data class AnalyticsEvent(
     val shopperSessionId: String? = null,
     val buttonType: String? = null,
     val buttonOrder: String? = null,
-    val pageType: String? = null
+    val pageType: String? = null,
+    val queueDuration: Long? = null,
+    val poolWaitDuration: Long? = null,
+    val connectDuration: Long? = null,
+    val requestWriteDuration: Long? = null,
+    val timeToFirstByte: Long? = null,
+    val responseReadDuration: Long? = null,
+    val sampleRate: Double? = null
 )
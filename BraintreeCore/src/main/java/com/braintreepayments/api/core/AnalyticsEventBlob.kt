@@ -2,15 +2,44 @@ package com.braintreepayments.api.core
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
 /**
  * Store Analytics as a JSON string. The schema of the Analytics data is enforced JSON
  * at the JSON level. JSON encoded events can be sent directly to the analytics server.
+ * The timestamp is the time the event was recorded and is used to evict expired events; it is 0
+ * for events stored before the column existed.
+ *
+ * Events recorded by [AnalyticsClient] are stored in the compact [AnalyticsEventCodec] encoding
+ * in [payload] instead, with an empty [jsonString], and are converted to JSON when uploaded.
  */
-@Entity(tableName = "analytics_event_blob")
+@Entity(
+    tableName = "analytics_event_blob",
+    indices = [Index(value = ["sessionId"])]
+)
 internal data class AnalyticsEventBlob(
     @PrimaryKey(autoGenerate = true) @ColumnInfo(name = "_id") val id: Long = 0L,
     @ColumnInfo(name = "json_string") val jsonString: String,
     @ColumnInfo(defaultValue = "") val sessionId: String,
-)
+    @ColumnInfo(defaultValue = "0") val timestamp: Long = 0L,
+    @ColumnInfo(typeAffinity = ColumnInfo.BLOB) val payload: ByteArray? = null,
+) {
+
+    override fun equals(other: Any?): Boolean =
+        other is AnalyticsEventBlob &&
+            id == other.id &&
+            jsonString == other.jsonString &&
+            sessionId == other.sessionId &&
+            timestamp == other.timestamp &&
+            payload.contentEquals(other.payload)
+
+    override fun hashCode(): Int {
+        var result = id.hashCode()
+        result = 31 * result + jsonString.hashCode()
+        result = 31 * result + sessionId.hashCode()
+        result = 31 * result + timestamp.hashCode()
+        result = 31 * result + payload.contentHashCode()
+        return result
+    }
+}
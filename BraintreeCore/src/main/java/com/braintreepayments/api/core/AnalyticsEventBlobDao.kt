@@ -1,8 +1,8 @@
 package com.braintreepayments.api.core
 
 import androidx.room.Dao
-import androidx.room.Delete
 import androidx.room.Insert
+import androidx.room.OnConflictStrategy
 import androidx.room.Query
 
 @Dao
@@ -11,9 +11,98 @@ internal interface AnalyticsEventBlobDao {
     @Insert
     fun insertEventBlob(eventBlob: AnalyticsEventBlob)
 
-    @Query("SELECT * FROM analytics_event_blob WHERE sessionId = :sessionId")
-    fun getBlobsBySessionId(sessionId: String): List<AnalyticsEventBlob>
+    /**
+     * Inserts [eventBlobs] in a single transaction.
+     */
+    @Insert
+    fun insertEventBlobs(eventBlobs: List<AnalyticsEventBlob>)
+
+    /**
+     * Returns at most [limit] events of any session with an id greater than [afterId], in
+     * insertion order, so that the table can be read in bounded pages.
+     */
+    @Query("SELECT * FROM analytics_event_blob WHERE _id > :afterId ORDER BY _id LIMIT :limit")
+    fun getEventBlobs(afterId: Long, limit: Int): List<AnalyticsEventBlob>
+
+    /**
+     * Deletes the events of [sessionId] whose id is between [fromId] and [toId], inclusive.
+     *
+     * @return the number of deleted events
+     */
+    @Query(
+        "DELETE FROM analytics_event_blob WHERE sessionId = :sessionId " +
+            "AND _id BETWEEN :fromId AND :toId"
+    )
+    fun deleteEventBlobsInRange(sessionId: String, fromId: Long, toId: Long): Int
+
+    @Query("SELECT COUNT(*) FROM analytics_event_blob")
+    fun getEventBlobCount(): Int
+
+    @Query("SELECT COUNT(*) FROM analytics_event_blob WHERE sessionId = :sessionId")
+    fun getEventBlobCountBySessionId(sessionId: String): Int
+
+    /**
+     * @return the size in bytes of all stored events, JSON and encoded
+     */
+    @Query(
+        "SELECT COALESCE(SUM(LENGTH(CAST(json_string AS BLOB)) + COALESCE(LENGTH(payload), 0)), 0) " +
+            "FROM analytics_event_blob"
+    )
+    fun getEventBlobsSize(): Long
+
+    /**
+     * Returns the id and size in bytes of the [limit] oldest events.
+     */
+    @Query(
+        "SELECT _id, LENGTH(CAST(json_string AS BLOB)) + COALESCE(LENGTH(payload), 0) AS size " +
+            "FROM analytics_event_blob ORDER BY _id LIMIT :limit"
+    )
+    fun getOldestEventBlobSizes(limit: Int): List<AnalyticsEventBlobSize>
+
+    /**
+     * Deletes the events recorded before [timestamp]. Events stored without a timestamp are kept.
+     *
+     * @return the number of deleted events
+     */
+    @Query("DELETE FROM analytics_event_blob WHERE timestamp > 0 AND timestamp < :timestamp")
+    fun deleteEventBlobsOlderThan(timestamp: Long): Int
+
+    /**
+     * Deletes the [count] oldest events.
+     *
+     * @return the number of deleted events
+     */
+    @Query(
+        "DELETE FROM analytics_event_blob WHERE _id IN " +
+            "(SELECT _id FROM analytics_event_blob ORDER BY _id LIMIT :count)"
+    )
+    fun deleteOldestEventBlobs(count: Int): Int
+
+    /**
+     * Deletes every event whose id is lower than or equal to [id].
+     *
+     * @return the number of deleted events
+     */
+    @Query("DELETE FROM analytics_event_blob WHERE _id <= :id")
+    fun deleteEventBlobsUpTo(id: Long): Int
+
+    /**
+     * Stores the authorization of each of [sessions], replacing the one stored earlier.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insertSessions(sessions: List<AnalyticsSession>)
+
+    @Query("SELECT authorization FROM analytics_session WHERE sessionId = :sessionId")
+    fun getSessionAuthorization(sessionId: String): String?
 
-    @Delete
-    fun deleteEventBlobs(blobs: List<AnalyticsEventBlob>)
+    /**
+     * Deletes the sessions that no longer have any stored event.
+     *
+     * @return the number of deleted sessions
+     */
+    @Query(
+        "DELETE FROM analytics_session WHERE sessionId NOT IN " +
+            "(SELECT sessionId FROM analytics_event_blob)"
+    )
+    fun deleteSessionsWithoutEvents(): Int
 }
@@ -0,0 +1,11 @@
+package com.braintreepayments.api.core
+
+import androidx.room.ColumnInfo
+
+/**
+ * Size in bytes of the JSON of the [AnalyticsEventBlob] with the given id.
+ */
+internal data class AnalyticsEventBlobSize(
+    @ColumnInfo(name = "_id") val id: Long,
+    @ColumnInfo(name = "size") val size: Long,
+)
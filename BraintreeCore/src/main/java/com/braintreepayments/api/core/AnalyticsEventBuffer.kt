@@ -0,0 +1,215 @@
+package com.braintreepayments.api.core
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration as DeviceConfiguration
+import android.os.Handler
+import android.os.Looper
+import androidx.lifecycle.DefaultLifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.ProcessLifecycleOwner
+import com.braintreepayments.api.sharedutils.Time
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Process-wide buffer that coalesces analytics events and writes them to the [AnalyticsDatabase]
+ * in batches, instead of running one database transaction per event.
+ *
+ * Buffered events are flushed in a single insert when [flushThreshold] events are pending, when
+ * [flushDelayMillis] have passed since the first pending event was added, or when the app goes
+ * to the background. A failed flush is retried with an exponential backoff. When the database
+ * cannot keep up, the buffer holds at most [capacity] events and drops the oldest ones.
+ *
+ * The [onFlushListener] is notified once per successful flush, so that the upload of the written
+ * events is scheduled once per batch rather than once per event.
+ */
+internal class AnalyticsEventBuffer(
+    private val analyticsDatabaseProvider: () -> AnalyticsDatabase = {
+        AnalyticsDatabaseProvider().analyticsDatabase
+    },
+    private val executor: ScheduledExecutorService = createDefaultExecutor(),
+    private val capacity: Int = DEFAULT_CAPACITY,
+    private val flushThreshold: Int = DEFAULT_FLUSH_THRESHOLD,
+    private val flushDelayMillis: Long = DEFAULT_FLUSH_DELAY_MILLIS,
+    private val retention: AnalyticsEventRetention = AnalyticsEventRetention(),
+    private val time: Time = Time(),
+    private val processLifecycleOwnerProvider: () -> LifecycleOwner = {
+        ProcessLifecycleOwner.get()
+    },
+    private val mainThreadExecutor: Executor = Executor {
+        Handler(Looper.getMainLooper()).post(it)
+    }
+) {
+
+    private val events = ArrayDeque<AnalyticsEventBlob>()
+    private val sessionAuthorizations = LinkedHashMap<String, String>()
+    private var scheduledFlush: ScheduledFuture<*>? = null
+    private var consecutiveFailureCount = 0
+    private val isLifecycleCallbacksRegistered = AtomicBoolean(false)
+
+    /**
+     * Number of events dropped because the buffer was full.
+     */
+    var droppedEventCount = 0L
+        private set
+
+    /**
+     * Called on the flushing thread with the sessions of the events written by a flush.
+     */
+    @Volatile
+    var onFlushListener: ((sessions: List<AnalyticsSession>) -> Unit)? = null
+
+    val size: Int
+        get() = synchronized(events) { events.size }
+
+    /**
+     * Number of stored events evicted by the [AnalyticsEventRetention] policy.
+     */
+    val evictedEventCount: Long
+        get() = retention.evictedEventCount
+
+    /**
+     * @param authorization the authorization to upload the events of the session of [eventBlob]
+     * with; it is stored with the session when the event is flushed
+     */
+    fun add(eventBlob: AnalyticsEventBlob, authorization: String) {
+        val shouldFlush = synchronized(events) {
+            addWithinCapacity(eventBlob)
+            sessionAuthorizations[eventBlob.sessionId] = authorization
+            if (events.size >= flushThreshold) {
+                true
+            } else {
+                if (scheduledFlush == null) {
+                    scheduledFlush =
+                        executor.schedule({ flush() }, flushDelayMillis, TimeUnit.MILLISECONDS)
+                }
+                false
+            }
+        }
+        if (shouldFlush) {
+            executor.execute { flush() }
+        }
+    }
+
+    /**
+     * Writes every buffered event to the database in a single transaction on the calling thread,
+     * evicting events that exceed the [AnalyticsEventRetention] limits in the same transaction.
+     * Events that could not be written are kept, and another flush is scheduled for them.
+     */
+    @Suppress("TooGenericExceptionCaught", "SwallowedException")
+    fun flush() {
+        val batch: List<AnalyticsEventBlob>
+        val sessions: List<AnalyticsSession>
+        synchronized(events) {
+            scheduledFlush?.cancel(false)
+            scheduledFlush = null
+            if (events.isEmpty()) return
+            batch = events.toList()
+            sessions = sessionAuthorizations.map { (sessionId, authorization) ->
+                AnalyticsSession(sessionId, authorization)
+            }
+            events.clear()
+            sessionAuthorizations.clear()
+        }
+        try {
+            val analyticsDatabase = analyticsDatabaseProvider()
+            analyticsDatabase.runInTransaction(Runnable {
+                val analyticsEventBlobDao = analyticsDatabase.analyticsEventBlobDao()
+                analyticsEventBlobDao.insertSessions(sessions)
+                analyticsEventBlobDao.insertEventBlobs(batch)
+                retention.evict(analyticsEventBlobDao, time.currentTime)
+            })
+            synchronized(events) { consecutiveFailureCount = 0 }
+        } catch (e: Exception) {
+            synchronized(events) {
+                // keep the failed batch ahead of events added in the meantime
+                val pending = batch + events
+                events.clear()
+                pending.forEach { addWithinCapacity(it) }
+                // authorizations recorded in the meantime are more recent
+                sessions.forEach { session ->
+                    sessionAuthorizations.getOrPut(session.sessionId) { session.authorization }
+                }
+                scheduleRetry()
+            }
+            return
+        }
+        onFlushListener?.invoke(sessions)
+    }
+
+    /**
+     * Flushes buffered events when the app goes to the background or the system is low on memory,
+     * since the process may be killed afterwards.
+     */
+    fun registerLifecycleCallbacks(context: Context) {
+        if (isLifecycleCallbacksRegistered.compareAndSet(false, true)) {
+            context.applicationContext.registerComponentCallbacks(object : ComponentCallbacks2 {
+                override fun onTrimMemory(level: Int) {
+                    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                        executor.execute { flush() }
+                    }
+                }
+
+                override fun onConfigurationChanged(newConfig: DeviceConfiguration) = Unit
+
+                override fun onLowMemory() {
+                    executor.execute { flush() }
+                }
+            })
+            // lifecycle observers can only be added on the main thread
+            mainThreadExecutor.execute {
+                processLifecycleOwnerProvider().lifecycle.addObserver(
+                    object : DefaultLifecycleObserver {
+                        override fun onStop(owner: LifecycleOwner) {
+                            executor.execute { flush() }
+                        }
+                    }
+                )
+            }
+        }
+    }
+
+    private fun scheduleRetry() {
+        consecutiveFailureCount++
+        if (scheduledFlush == null) {
+            val backoffShift = minOf(consecutiveFailureCount - 1, MAX_RETRY_BACKOFF_SHIFT)
+            scheduledFlush = executor.schedule(
+                { flush() },
+                flushDelayMillis shl backoffShift,
+                TimeUnit.MILLISECONDS
+            )
+        }
+    }
+
+    private fun addWithinCapacity(eventBlob: AnalyticsEventBlob) {
+        if (events.size >= capacity) {
+            events.removeFirst()
+            droppedEventCount++
+        }
+        events.addLast(eventBlob)
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 100
+        private const val DEFAULT_FLUSH_THRESHOLD = 20
+        private const val DEFAULT_FLUSH_DELAY_MILLIS = 5_000L
+
+        // retries back off up to 32 times the flush delay
+        private const val MAX_RETRY_BACKOFF_SHIFT = 5
+
+        private fun createDefaultExecutor(): ScheduledExecutorService =
+            Executors.newSingleThreadScheduledExecutor { runnable ->
+                Thread(runnable, "braintree-analytics").apply { isDaemon = true }
+            }
+
+        /**
+         * Singleton instance of the AnalyticsEventBuffer.
+         */
+        val instance: AnalyticsEventBuffer by lazy { AnalyticsEventBuffer() }
+    }
+}
@@ -0,0 +1,193 @@
+package com.braintreepayments.api.core
+
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+
+/**
+ * Compact binary encoding of [AnalyticsEvent] stored in [AnalyticsEventBlob.payload].
+ *
+ * An encoded event is a version byte followed by the fields that are set. Each field is a one
+ * byte field id and its value: strings are a varint byte length and their UTF-8 bytes, numbers
+ * are zigzag varints, decimals are 8 byte IEEE 754 values and `is_vault` is stored by the presence
+ * of its id. FPTI keys and constant
+ * values such as the tenant name are not stored; they are added back when the event is converted
+ * to FPTI JSON for upload.
+ */
+internal object AnalyticsEventCodec {
+
+    private const val VERSION = 1
+    private const val INITIAL_CAPACITY = 64
+
+    private const val FIELD_NAME = 1
+    private const val FIELD_TIMESTAMP = 2
+    private const val FIELD_IS_VAULT = 3
+    private const val FIELD_PAYPAL_CONTEXT_ID = 4
+    private const val FIELD_LINK_TYPE = 5
+    private const val FIELD_START_TIME = 6
+    private const val FIELD_END_TIME = 7
+    private const val FIELD_ENDPOINT = 8
+    private const val FIELD_EXPERIMENT = 9
+    private const val FIELD_APP_SWITCH_URL = 10
+    private const val FIELD_SHOPPER_SESSION_ID = 11
+    private const val FIELD_BUTTON_TYPE = 12
+    private const val FIELD_BUTTON_ORDER = 13
+    private const val FIELD_PAGE_TYPE = 14
+    private const val FIELD_QUEUE_DURATION = 15
+    private const val FIELD_CONNECT_DURATION = 16
+    private const val FIELD_REQUEST_WRITE_DURATION = 17
+    private const val FIELD_TIME_TO_FIRST_BYTE = 18
+    private const val FIELD_RESPONSE_READ_DURATION = 19
+    private const val FIELD_SAMPLE_RATE = 20
+    private const val FIELD_POOL_WAIT_DURATION = 21
+
+    private const val VARINT_PAYLOAD_BITS = 7
+    private const val VARINT_PAYLOAD_MASK = 0x7FL
+    private const val VARINT_CONTINUATION_BIT = 0x80L
+    private const val MAX_VARINT_SHIFT = 63
+    private const val BYTE_BITS = 8
+    private const val BYTE_MASK = 0xFFL
+
+    fun encode(event: AnalyticsEvent): ByteArray {
+        val output = ByteArrayOutputStream(INITIAL_CAPACITY)
+        output.write(VERSION)
+        writeString(output, FIELD_NAME, event.name)
+        writeLong(output, FIELD_TIMESTAMP, event.timestamp)
+        if (event.isVaultRequest) {
+            output.write(FIELD_IS_VAULT)
+        }
+        writeString(output, FIELD_PAYPAL_CONTEXT_ID, event.payPalContextId)
+        writeString(output, FIELD_LINK_TYPE, event.linkType)
+        writeLong(output, FIELD_START_TIME, event.startTime)
+        writeLong(output, FIELD_END_TIME, event.endTime)
+        writeString(output, FIELD_ENDPOINT, event.endpoint)
+        writeString(output, FIELD_EXPERIMENT, event.experiment)
+        writeString(output, FIELD_APP_SWITCH_URL, event.appSwitchUrl)
+        writeString(output, FIELD_SHOPPER_SESSION_ID, event.shopperSessionId)
+        writeString(output, FIELD_BUTTON_TYPE, event.buttonType)
+        writeString(output, FIELD_BUTTON_ORDER, event.buttonOrder)
+        writeString(output, FIELD_PAGE_TYPE, event.pageType)
+        writeLong(output, FIELD_QUEUE_DURATION, event.queueDuration)
+        writeLong(output, FIELD_CONNECT_DURATION, event.connectDuration)
+        writeLong(output, FIELD_REQUEST_WRITE_DURATION, event.requestWriteDuration)
+        writeLong(output, FIELD_TIME_TO_FIRST_BYTE, event.timeToFirstByte)
+        writeLong(output, FIELD_RESPONSE_READ_DURATION, event.responseReadDuration)
+        writeDouble(output, FIELD_SAMPLE_RATE, event.sampleRate)
+        writeLong(output, FIELD_POOL_WAIT_DURATION, event.poolWaitDuration)
+        return output.toByteArray()
+    }
+
+    /**
+     * @throws IOException if [payload] is not an event encoded by [encode]
+     */
+    @Suppress("CyclomaticComplexMethod")
+    @Throws(IOException::class)
+    fun decode(payload: ByteArray): AnalyticsEvent {
+        val input = ByteBuffer.wrap(payload)
+        var event = AnalyticsEvent(name = "", timestamp = 0L)
+        try {
+            val version = input.get().toInt()
+            if (version != VERSION) {
+                throw IOException("Unsupported analytics event encoding version: $version")
+            }
+            while (input.hasRemaining()) {
+                event = when (val fieldId = input.get().toInt()) {
+                    FIELD_NAME -> event.copy(name = readString(input))
+                    FIELD_TIMESTAMP -> event.copy(timestamp = readLong(input))
+                    FIELD_IS_VAULT -> event.copy(isVaultRequest = true)
+                    FIELD_PAYPAL_CONTEXT_ID -> event.copy(payPalContextId = readString(input))
+                    FIELD_LINK_TYPE -> event.copy(linkType = readString(input))
+                    FIELD_START_TIME -> event.copy(startTime = readLong(input))
+                    FIELD_END_TIME -> event.copy(endTime = readLong(input))
+                    FIELD_ENDPOINT -> event.copy(endpoint = readString(input))
+                    FIELD_EXPERIMENT -> event.copy(experiment = readString(input))
+                    FIELD_APP_SWITCH_URL -> event.copy(appSwitchUrl = readString(input))
+                    FIELD_SHOPPER_SESSION_ID -> event.copy(shopperSessionId = readString(input))
+                    FIELD_BUTTON_TYPE -> event.copy(buttonType = readString(input))
+                    FIELD_BUTTON_ORDER -> event.copy(buttonOrder = readString(input))
+                    FIELD_PAGE_TYPE -> event.copy(pageType = readString(input))
+                    FIELD_QUEUE_DURATION -> event.copy(queueDuration = readLong(input))
+                    FIELD_CONNECT_DURATION -> event.copy(connectDuration = readLong(input))
+                    FIELD_REQUEST_WRITE_DURATION ->
+                        event.copy(requestWriteDuration = readLong(input))
+                    FIELD_TIME_TO_FIRST_BYTE -> event.copy(timeToFirstByte = readLong(input))
+                    FIELD_RESPONSE_READ_DURATION ->
+                        event.copy(responseReadDuration = readLong(input))
+                    FIELD_SAMPLE_RATE -> event.copy(sampleRate = input.double)
+                    FIELD_POOL_WAIT_DURATION -> event.copy(poolWaitDuration = readLong(input))
+                    else -> throw IOException("Unknown analytics event field: $fieldId")
+                }
+            }
+        } catch (e: BufferUnderflowException) {
+            throw IOException("Truncated analytics event", e)
+        }
+        return event
+    }
+
+    private fun writeString(output: ByteArrayOutputStream, fieldId: Int, value: String?) {
+        if (value == null) return
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        output.write(fieldId)
+        writeVarint(output, bytes.size.toLong())
+        output.write(bytes, 0, bytes.size)
+    }
+
+    private fun writeLong(output: ByteArrayOutputStream, fieldId: Int, value: Long?) {
+        if (value == null) return
+        output.write(fieldId)
+        // zigzag encoding keeps small negative values short
+        writeVarint(output, (value shl 1) xor (value shr MAX_VARINT_SHIFT))
+    }
+
+    private fun writeDouble(output: ByteArrayOutputStream, fieldId: Int, value: Double?) {
+        if (value == null) return
+        output.write(fieldId)
+        // big-endian, as read by ByteBuffer.getDouble
+        val bits = value.toRawBits()
+        for (shift in Long.SIZE_BITS - BYTE_BITS downTo 0 step BYTE_BITS) {
+            output.write(((bits ushr shift) and BYTE_MASK).toInt())
+        }
+    }
+
+    private fun writeVarint(output: ByteArrayOutputStream, value: Long) {
+        var remaining = value
+        while (remaining and VARINT_PAYLOAD_MASK.inv() != 0L) {
+            output.write(((remaining and VARINT_PAYLOAD_MASK) or VARINT_CONTINUATION_BIT).toInt())
+            remaining = remaining ushr VARINT_PAYLOAD_BITS
+        }
+        output.write(remaining.toInt())
+    }
+
+    @Throws(IOException::class)
+    private fun readString(input: ByteBuffer): String {
+        val length = readVarint(input)
+        if (length < 0 || length > input.remaining()) {
+            throw IOException("Invalid analytics event string length: $length")
+        }
+        val string = String(input.array(), input.position(), length.toInt(), Charsets.UTF_8)
+        input.position(input.position() + length.toInt())
+        return string
+    }
+
+    @Throws(IOException::class)
+    private fun readLong(input: ByteBuffer): Long {
+        val zigzag = readVarint(input)
+        return (zigzag ushr 1) xor -(zigzag and 1L)
+    }
+
+    @Throws(IOException::class)
+    private fun readVarint(input: ByteBuffer): Long {
+        var result = 0L
+        var shift = 0
+        while (shift <= MAX_VARINT_SHIFT) {
+            val byte = input.get().toLong()
+            result = result or ((byte and VARINT_PAYLOAD_MASK) shl shift)
+            if (byte and VARINT_CONTINUATION_BIT == 0L) {
+                return result
+            }
+            shift += VARINT_PAYLOAD_BITS
+        }
+        throw IOException("Malformed analytics event varint")
+    }
+}
@@ -20,6 +20,12 @@ import androidx.annotation.RestrictTo
  * @property buttonType buttonType Represents the tapped button type.
  * @property buttonOrder The order or ranking in which payment buttons appear.
  * @property pageType The page or view that a button is displayed on.
+ * @property queueDuration [HttpResponseTiming] time the request waited for a thread, in ms.
+ * @property connectDuration [HttpResponseTiming] time spent obtaining a connection, in ms.
+ * @property requestWriteDuration [HttpResponseTiming] time spent writing the request, in ms.
+ * @property timeToFirstByte [HttpResponseTiming] time until the response status, in ms.
+ * @property responseReadDuration [HttpResponseTiming] time spent reading the response, in ms.
+ * @property poolWaitDuration [HttpResponseTiming] time spent waiting for a connection, in ms.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 data class AnalyticsEventParams @JvmOverloads constructor(
@@ -34,5 +40,11 @@ data class AnalyticsEventParams @JvmOverloads constructor(
     val shopperSessionId: String? = null,
     val buttonType: String? = null,
     val buttonOrder: String? = null,
-    val pageType: String? = null
+    val pageType: String? = null,
+    val queueDuration: Long? = null,
+    val connectDuration: Long? = null,
+    val requestWriteDuration: Long? = null,
+    val timeToFirstByte: Long? = null,
+    val responseReadDuration: Long? = null,
+    val poolWaitDuration: Long? = null
 )
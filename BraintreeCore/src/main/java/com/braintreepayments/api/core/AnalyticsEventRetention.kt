@@ -0,0 +1,78 @@
+package com.braintreepayments.api.core
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Keeps the analytics database bounded when events cannot be uploaded, e.g. while the device is
+ * offline. Events older than [maxAgeMillis] are evicted first, then the oldest events are evicted
+ * until at most [maxRows] events and [maxBytes] bytes of event JSON remain.
+ */
+internal class AnalyticsEventRetention(
+    private val maxRows: Int = DEFAULT_MAX_ROWS,
+    private val maxBytes: Long = DEFAULT_MAX_BYTES,
+    private val maxAgeMillis: Long = DEFAULT_MAX_AGE_MILLIS
+) {
+
+    private val expiredCount = AtomicLong()
+    private val rowLimitCount = AtomicLong()
+    private val sizeLimitCount = AtomicLong()
+
+    /**
+     * Number of events evicted because they were older than the maximum age.
+     */
+    val expiredEventCount: Long
+        get() = expiredCount.get()
+
+    /**
+     * Number of events evicted to stay within the maximum number of rows.
+     */
+    val rowLimitEvictedEventCount: Long
+        get() = rowLimitCount.get()
+
+    /**
+     * Number of events evicted to stay within the maximum number of bytes.
+     */
+    val sizeLimitEvictedEventCount: Long
+        get() = sizeLimitCount.get()
+
+    val evictedEventCount: Long
+        get() = expiredEventCount + rowLimitEvictedEventCount + sizeLimitEvictedEventCount
+
+    /**
+     * Evicts events that exceed the retention limits. Callers should run this in the same
+     * transaction as the write that added events.
+     */
+    fun evict(analyticsEventBlobDao: AnalyticsEventBlobDao, currentTime: Long) {
+        expiredCount.addAndGet(
+            analyticsEventBlobDao.deleteEventBlobsOlderThan(currentTime - maxAgeMillis).toLong()
+        )
+
+        val excessRows = analyticsEventBlobDao.getEventBlobCount() - maxRows
+        if (excessRows > 0) {
+            rowLimitCount.addAndGet(
+                analyticsEventBlobDao.deleteOldestEventBlobs(excessRows).toLong()
+            )
+        }
+
+        var excessBytes = analyticsEventBlobDao.getEventBlobsSize() - maxBytes
+        if (excessBytes > 0) {
+            // at most maxRows events remain, so a single bounded read finds the cut-off
+            var lastEvictedId: Long? = null
+            for (eventBlobSize in analyticsEventBlobDao.getOldestEventBlobSizes(maxRows)) {
+                lastEvictedId = eventBlobSize.id
+                excessBytes -= eventBlobSize.size
+                if (excessBytes <= 0) break
+            }
+            lastEvictedId?.let {
+                sizeLimitCount.addAndGet(analyticsEventBlobDao.deleteEventBlobsUpTo(it).toLong())
+            }
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_ROWS = 1_000
+        private const val DEFAULT_MAX_BYTES = 1024L * 1024L
+        private val DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7)
+    }
+}
@@ -0,0 +1,95 @@
+package com.braintreepayments.api.core
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Decides which analytics events are sent, so that high volume telemetry such as
+ * [CoreAnalytics.API_REQUEST_LATENCY] does not grow linearly with the number of requests made.
+ *
+ * Sampling is deterministic per session: a session either sends an event name or it does not, so
+ * the sampled sessions keep a consistent picture. Events without an [AnalyticsSamplingRule], such
+ * as conversion funnel events, are always sent.
+ */
+internal class AnalyticsEventSampler(
+    private val rules: Map<String, AnalyticsSamplingRule> = DEFAULT_RULES
+) {
+
+    private var countedSessionId: String? = null
+    private val eventCounts = HashMap<String, Int>()
+    private val sampledOutCount = AtomicLong()
+
+    /**
+     * Number of events that were not sent because of sampling or a rate limit.
+     */
+    val sampledOutEventCount: Long
+        get() = sampledOutCount.get()
+
+    /**
+     * @return true if the event named [eventName] should be sent for [sessionId]
+     */
+    fun shouldSend(eventName: String, sessionId: String): Boolean {
+        val rule = rules[eventName] ?: return true
+        val shouldSend = isSessionSampled(sessionId, rule.sampleRate) &&
+            incrementEventCount(eventName, sessionId) <= rule.maxEventsPerSession
+        if (!shouldSend) {
+            sampledOutCount.incrementAndGet()
+        }
+        return shouldSend
+    }
+
+    /**
+     * @return the fraction of sessions that send the event named [eventName], or null if it is
+     * not sampled. Sent events carry it so that their counts can be scaled back up.
+     */
+    fun getSampleRate(eventName: String): Double? = rules[eventName]?.sampleRate
+
+    @Synchronized
+    private fun incrementEventCount(eventName: String, sessionId: String): Int {
+        // counts are only kept for the current session
+        if (sessionId != countedSessionId) {
+            eventCounts.clear()
+            countedSessionId = sessionId
+        }
+        val count = (eventCounts[eventName] ?: 0) + 1
+        eventCounts[eventName] = count
+        return count
+    }
+
+    companion object {
+
+        private const val API_REQUEST_LATENCY_SAMPLE_RATE = 0.25
+        private const val API_REQUEST_LATENCY_MAX_EVENTS_PER_SESSION = 20
+
+        private val DEFAULT_RULES = mapOf(
+            CoreAnalytics.API_REQUEST_LATENCY to AnalyticsSamplingRule(
+                sampleRate = API_REQUEST_LATENCY_SAMPLE_RATE,
+                maxEventsPerSession = API_REQUEST_LATENCY_MAX_EVENTS_PER_SESSION
+            )
+        )
+
+        private fun isSessionSampled(sessionId: String, sampleRate: Double): Boolean = when {
+            sampleRate >= 1.0 -> true
+            sampleRate <= 0.0 -> false
+            else -> getSessionBucket(sessionId) < sampleRate
+        }
+
+        /**
+         * Maps [sessionId] to a stable value between 0, inclusive, and 1, exclusive.
+         */
+        internal fun getSessionBucket(sessionId: String): Double {
+            // mix the bits of the hash so that similar session ids land in different buckets
+            var hash = sessionId.hashCode()
+            hash = hash xor (hash ushr 16)
+            hash *= 0x85ebca6b.toInt()
+            hash = hash xor (hash ushr 13)
+            hash *= 0xc2b2ae35.toInt()
+            hash = hash xor (hash ushr 16)
+            return (hash.toLong() and 0xffffffffL).toDouble() / (1L shl 32)
+        }
+
+        /**
+         * Process-wide sampler, so that rate limits hold across [AnalyticsClient] instances.
+         */
+        val instance: AnalyticsEventSampler by lazy { AnalyticsEventSampler() }
+    }
+}
@@ -0,0 +1,12 @@
+package com.braintreepayments.api.core
+
+/**
+ * Sampling and rate limit applied to the analytics events with a given name.
+ *
+ * @property sampleRate the fraction of sessions, between 0 and 1, that send the event
+ * @property maxEventsPerSession the maximum number of times a sampled session sends the event
+ */
+internal data class AnalyticsSamplingRule(
+    val sampleRate: Double = 1.0,
+    val maxEventsPerSession: Int = Int.MAX_VALUE
+)
@@ -0,0 +1,16 @@
+package com.braintreepayments.api.core
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * The authorization that the events of [sessionId] are uploaded with. It is stored once per
+ * session instead of with every [AnalyticsEventBlob], since a client token is much larger than an
+ * encoded event. When several authorizations record events in the same session, the last one is
+ * kept.
+ */
+@Entity(tableName = "analytics_session")
+internal data class AnalyticsSession(
+    @PrimaryKey val sessionId: String,
+    val authorization: String
+)
@@ -1,6 +1,9 @@
 package com.braintreepayments.api.core
 
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.CancellationToken
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -14,16 +17,22 @@ class ApiClient(
 ) {
 
     fun tokenizeGraphQL(tokenizePayload: JSONObject, callback: TokenizeCallback) =
-        braintreeClient.run {
-            sendGraphQLPOST(tokenizePayload) { responseBody, httpError ->
-                parseResponseToJSON(responseBody)?.let { json ->
-                    callback.onResult(json, null)
-                } ?: httpError?.let { error ->
-                    callback.onResult(null, error)
-                }
-            }
+        braintreeClient.sendGraphQLPOST(tokenizePayload) { responseBody, httpError ->
+            notifyTokenizeResult(responseBody, httpError, callback)
         }
 
+    /**
+     * Equivalent of [tokenizeGraphQL] that is aborted when [cancellationToken] is cancelled. Once
+     * cancelled, [callback] is not invoked.
+     */
+    fun tokenizeGraphQL(
+        tokenizePayload: JSONObject,
+        cancellationToken: CancellationToken?,
+        callback: TokenizeCallback
+    ) = braintreeClient.sendGraphQLPOST(tokenizePayload, cancellationToken) { body, httpError ->
+        notifyTokenizeResult(body, httpError, callback)
+    }
+
     fun tokenizeREST(paymentMethod: PaymentMethod, callback: TokenizeCallback) =
         braintreeClient.run {
             val url = versionedPath("$PAYMENT_METHOD_ENDPOINT/${paymentMethod.apiPath}")
@@ -33,14 +42,75 @@ class ApiClient(
                 url = url,
                 data = paymentMethod.buildJSON().toString(),
             ) { responseBody, httpError ->
-                parseResponseToJSON(responseBody)?.let { json ->
-                    callback.onResult(json, null)
-                } ?: httpError?.let { error ->
-                    callback.onResult(null, error)
-                }
+                notifyTokenizeResult(responseBody, httpError, callback)
             }
         }
 
+    /**
+     * Equivalent of [tokenizeREST] that is aborted when [cancellationToken] is cancelled. Once
+     * cancelled, [callback] is not invoked.
+     */
+    fun tokenizeREST(
+        paymentMethod: PaymentMethod,
+        cancellationToken: CancellationToken?,
+        callback: TokenizeCallback
+    ) = braintreeClient.run {
+        val url = versionedPath("$PAYMENT_METHOD_ENDPOINT/${paymentMethod.apiPath}")
+        paymentMethod.sessionId = analyticsParamRepository.sessionId
+
+        sendPOST(
+            url = url,
+            data = paymentMethod.buildJSON().toString(),
+            additionalHeaders = emptyMap(),
+            deadline = null,
+            cancellationToken = cancellationToken
+        ) { responseBody, httpError ->
+            notifyTokenizeResult(responseBody, httpError, callback)
+        }
+    }
+
+    /**
+     * Suspending equivalent of [tokenizeGraphQL]. The request and response parsing run on a
+     * background dispatcher.
+     *
+     * @throws JSONException if the response is not valid JSON
+     */
+    suspend fun tokenizeGraphQL(tokenizePayload: JSONObject): JSONObject =
+        withContext(Dispatchers.IO) {
+            JSONObject(braintreeClient.sendGraphQLPOST(tokenizePayload))
+        }
+
+    /**
+     * Suspending equivalent of [tokenizeREST]. The request and response parsing run on a
+     * background dispatcher.
+     *
+     * @throws JSONException if the response is not valid JSON
+     */
+    suspend fun tokenizeREST(paymentMethod: PaymentMethod): JSONObject =
+        withContext(Dispatchers.IO) {
+            val url = versionedPath("$PAYMENT_METHOD_ENDPOINT/${paymentMethod.apiPath}")
+            paymentMethod.sessionId = analyticsParamRepository.sessionId
+
+            JSONObject(
+                braintreeClient.sendPOST(
+                    url = url,
+                    data = paymentMethod.buildJSON().toString(),
+                )
+            )
+        }
+
+    private fun notifyTokenizeResult(
+        responseBody: String?,
+        httpError: Exception?,
+        callback: TokenizeCallback
+    ) {
+        parseResponseToJSON(responseBody)?.let { json ->
+            callback.onResult(json, null)
+        } ?: httpError?.let { error ->
+            callback.onResult(null, error)
+        }
+    }
+
     private fun parseResponseToJSON(responseBody: String?): JSONObject? =
         responseBody?.let {
             try {
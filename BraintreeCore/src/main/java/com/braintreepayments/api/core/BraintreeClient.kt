@@ -4,9 +4,15 @@ import android.content.Context
 import android.content.pm.ActivityInfo
 import android.net.Uri
 import androidx.annotation.RestrictTo
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.Deadline
+import com.braintreepayments.api.sharedutils.DeadlineExceededException
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
 import com.braintreepayments.api.sharedutils.HttpResponseTiming
 import com.braintreepayments.api.sharedutils.ManifestValidator
+import com.braintreepayments.api.sharedutils.TaskPriority
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -29,6 +35,10 @@ class BraintreeClient internal constructor(
     private val manifestValidator: ManifestValidator = ManifestValidator(),
     private val merchantRepository: MerchantRepository = MerchantRepository.instance,
     private val analyticsClient: AnalyticsClient = AnalyticsClient(),
+    private val prewarmer: Prewarmer =
+        Prewarmer(configurationLoader, sdkComponent.analyticsDatabase),
+    analyticsEventBuffer: AnalyticsEventBuffer = AnalyticsEventBuffer.instance,
+    configurationCachePolicy: ConfigurationCachePolicy? = null,
 ) {
 
     private val crashReporter: CrashReporter
@@ -38,6 +48,10 @@ class BraintreeClient internal constructor(
         "${getAppPackageNameWithoutUnderscores(applicationContext)}.braintree.deeplinkhandler"
 
     /**
+     * @param configurationCachePolicy [ConfigurationCachePolicy] for the configuration shared by
+     * every client of the process, or null to keep the current one. The default policy serves a
+     * configuration for up to 1 hour while it is refreshed after 5 minutes.
+     *
      * @suppress
      */
     constructor (
@@ -47,6 +61,7 @@ class BraintreeClient internal constructor(
         appLinkReturnUri: Uri? = null,
         integrationType: IntegrationType? = null,
         deepLinkFallbackUrlScheme: String? = null,
+        configurationCachePolicy: ConfigurationCachePolicy? = null,
     ) : this(
         applicationContext = context.applicationContext,
         authorization = Authorization.fromString(authorization),
@@ -54,7 +69,8 @@ class BraintreeClient internal constructor(
             ?: "${getAppPackageNameWithoutUnderscores(context.applicationContext)}.braintree",
         appLinkReturnUri = appLinkReturnUri,
         integrationType = integrationType ?: IntegrationType.CUSTOM,
-        deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme
+        deepLinkFallbackUrlScheme = deepLinkFallbackUrlScheme,
+        configurationCachePolicy = configurationCachePolicy
     )
 
     init {
@@ -66,6 +82,10 @@ class BraintreeClient internal constructor(
         crashReporter = CrashReporter(this)
         crashReporter.start()
 
+        analyticsEventBuffer.registerLifecycleCallbacks(applicationContext)
+        analyticsEventBuffer.onFlushListener = analyticsClient::onAnalyticsEventsFlushed
+        configurationCachePolicy?.let { configurationLoader.cachePolicy = it }
+
         merchantRepository.let {
             it.applicationContext = applicationContext
             it.integrationType = integrationType
@@ -86,18 +106,51 @@ class BraintreeClient internal constructor(
      * @param callback [ConfigurationCallback]
      */
     fun getConfiguration(callback: ConfigurationCallback) {
-        configurationLoader.loadConfiguration { result ->
-            when (result) {
-                is ConfigurationLoaderResult.Success -> {
-                    callback.onResult(result.configuration, null)
-                    result.timing?.let { sendAnalyticsTimingEvent("/v1/configuration", it) }
-                }
+        configurationLoader.loadConfiguration { result -> notifyConfiguration(result, callback) }
+    }
 
-                is ConfigurationLoaderResult.Failure -> callback.onResult(null, result.error)
+    /**
+     * Retrieves configuration for a request bound to [deadline]: waiting on configuration stops
+     * with a [DeadlineExceededException] once the deadline passes.
+     */
+    private fun getConfiguration(deadline: Deadline?, callback: ConfigurationCallback) {
+        if (deadline == null) {
+            getConfiguration(callback)
+        } else {
+            configurationLoader.loadConfiguration(TaskPriority.USER_INITIATED, deadline) { result ->
+                notifyConfiguration(result, callback)
             }
         }
     }
 
+    private fun notifyConfiguration(
+        result: ConfigurationLoaderResult,
+        callback: ConfigurationCallback
+    ) {
+        when (result) {
+            is ConfigurationLoaderResult.Success -> {
+                callback.onResult(result.configuration, null)
+                result.timing?.let { sendAnalyticsTimingEvent("/v1/configuration", it) }
+            }
+
+            is ConfigurationLoaderResult.Failure -> callback.onResult(null, result.error)
+        }
+    }
+
+    /**
+     * Prepares the SDK for the first payment request ahead of time: on a background thread,
+     * initializes the TLS context, opens the analytics database and loads configuration.
+     * Call this when the user is likely to reach checkout soon, e.g. at app start.
+     *
+     * @param preconnect also open a connection to the Braintree hosts of the configuration
+     * @param callback optional [PrewarmCallback] notified on the main thread with the outcome and
+     * duration of each step
+     */
+    @JvmOverloads
+    fun prewarm(preconnect: Boolean = false, callback: PrewarmCallback? = null) {
+        prewarmer.prewarm(preconnect, callback)
+    }
+
     /**
      * @suppress
      */
@@ -111,10 +164,57 @@ class BraintreeClient internal constructor(
     /**
      * @suppress
      */
-    fun sendGET(url: String, responseCallback: HttpResponseCallback) {
-        getConfiguration { configuration, configError ->
-            if (configuration != null) {
-                httpClient.get(url, configuration, merchantRepository.authorization) { response, httpError ->
+    fun sendGET(url: String, responseCallback: HttpResponseCallback) =
+        sendGET(url, null, null, responseCallback)
+
+    /**
+     * Sends a GET request that is aborted when [cancellationToken] is cancelled. Once cancelled,
+     * [responseCallback] is not invoked.
+     *
+     * @suppress
+     */
+    fun sendGET(
+        url: String,
+        cancellationToken: CancellationToken?,
+        responseCallback: HttpResponseCallback
+    ) = sendGET(url, null, cancellationToken, responseCallback)
+
+    /**
+     * Sends a GET request that must complete before [deadline], including the time spent loading
+     * the configuration.
+     *
+     * @suppress
+     */
+    fun sendGET(url: String, deadline: Deadline, responseCallback: HttpResponseCallback) =
+        sendGET(url, deadline, null, responseCallback)
+
+    /**
+     * Sends a GET request bound to an optional [deadline] (see the overload taking a [Deadline])
+     * that is aborted when [cancellationToken] is cancelled. Once cancelled, [responseCallback] is
+     * not invoked.
+     *
+     * @suppress
+     */
+    fun sendGET(
+        url: String,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        responseCallback: HttpResponseCallback
+    ) {
+        getConfiguration(deadline) { configuration, configError ->
+            if (cancellationToken?.isCancelled == true) return@getConfiguration
+            if (configuration == null) {
+                responseCallback.onResult(null, configError)
+            } else if (deadline?.isExpired == true) {
+                responseCallback.onResult(null, createConfigurationDeadlineExceededException())
+            } else {
+                httpClient.get(
+                    url,
+                    configuration,
+                    merchantRepository.authorization,
+                    deadline,
+                    cancellationToken
+                ) { response, httpError ->
                     response?.let {
                         try {
                             sendAnalyticsTimingEvent(url, response.timing)
@@ -126,8 +226,6 @@ class BraintreeClient internal constructor(
                         responseCallback.onResult(null, error)
                     }
                 }
-            } else {
-                responseCallback.onResult(null, configError)
             }
         }
     }
@@ -141,15 +239,53 @@ class BraintreeClient internal constructor(
         data: String,
         additionalHeaders: Map<String, String> = emptyMap(),
         responseCallback: HttpResponseCallback,
+    ) = sendPOST(url, data, additionalHeaders, null, null, responseCallback)
+
+    /**
+     * Sends a POST request that must complete before [deadline]. The time spent loading the
+     * configuration counts against the deadline: loading fails once it has passed, and the
+     * request is aborted if it is still in flight when the deadline passes.
+     *
+     * @suppress
+     */
+    fun sendPOST(
+        url: String,
+        data: String,
+        additionalHeaders: Map<String, String>,
+        deadline: Deadline,
+        responseCallback: HttpResponseCallback,
+    ) = sendPOST(url, data, additionalHeaders, deadline, null, responseCallback)
+
+    /**
+     * Sends a POST request bound to an optional [deadline] (see the overload taking a [Deadline])
+     * that is aborted when [cancellationToken] is cancelled. Once cancelled, [responseCallback] is
+     * not invoked.
+     *
+     * @suppress
+     */
+    fun sendPOST(
+        url: String,
+        data: String,
+        additionalHeaders: Map<String, String>,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        responseCallback: HttpResponseCallback,
     ) {
-        getConfiguration { configuration, configError ->
-            if (configuration != null) {
+        getConfiguration(deadline) { configuration, configError ->
+            if (cancellationToken?.isCancelled == true) return@getConfiguration
+            if (configuration == null) {
+                responseCallback.onResult(null, configError)
+            } else if (deadline?.isExpired == true) {
+                responseCallback.onResult(null, createConfigurationDeadlineExceededException())
+            } else {
                 httpClient.post(
                     path = url,
                     data = data,
                     configuration = configuration,
                     authorization = merchantRepository.authorization,
-                    additionalHeaders = additionalHeaders
+                    additionalHeaders = additionalHeaders,
+                    deadline = deadline,
+                    cancellationToken = cancellationToken
                 ) { response, httpError ->
                     response?.let {
                         try {
@@ -162,8 +298,6 @@ class BraintreeClient internal constructor(
                         responseCallback.onResult(null, error)
                     }
                 }
-            } else {
-                responseCallback.onResult(null, configError)
             }
         }
     }
@@ -171,30 +305,63 @@ class BraintreeClient internal constructor(
     /**
      * @suppress
      */
-    fun sendGraphQLPOST(json: JSONObject?, responseCallback: HttpResponseCallback) {
-        getConfiguration { configuration, configError ->
-            if (configuration != null) {
+    fun sendGraphQLPOST(json: JSONObject?, responseCallback: HttpResponseCallback) =
+        sendGraphQLPOST(json, null, null, responseCallback)
+
+    /**
+     * Sends a GraphQL request that is aborted when [cancellationToken] is cancelled. Once
+     * cancelled, [responseCallback] is not invoked.
+     *
+     * @suppress
+     */
+    fun sendGraphQLPOST(
+        json: JSONObject?,
+        cancellationToken: CancellationToken?,
+        responseCallback: HttpResponseCallback
+    ) = sendGraphQLPOST(json, null, cancellationToken, responseCallback)
+
+    /**
+     * Sends a GraphQL request that must complete before [deadline], including the time spent
+     * loading the configuration.
+     *
+     * @suppress
+     */
+    fun sendGraphQLPOST(
+        json: JSONObject?,
+        deadline: Deadline,
+        responseCallback: HttpResponseCallback
+    ) = sendGraphQLPOST(json, deadline, null, responseCallback)
+
+    /**
+     * Sends a GraphQL request bound to an optional [deadline] (see the overload taking a
+     * [Deadline]) that is aborted when [cancellationToken] is cancelled. Once cancelled,
+     * [responseCallback] is not invoked.
+     *
+     * @suppress
+     */
+    fun sendGraphQLPOST(
+        json: JSONObject?,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        responseCallback: HttpResponseCallback
+    ) {
+        getConfiguration(deadline) { configuration, configError ->
+            if (cancellationToken?.isCancelled == true) return@getConfiguration
+            if (configuration == null) {
+                responseCallback.onResult(null, configError)
+            } else if (deadline?.isExpired == true) {
+                responseCallback.onResult(null, createConfigurationDeadlineExceededException())
+            } else {
                 graphQLClient.post(
                     json?.toString(),
                     configuration,
-                    merchantRepository.authorization
+                    merchantRepository.authorization,
+                    deadline,
+                    cancellationToken
                 ) { response, httpError ->
                     response?.let {
                         try {
-                            json?.optString(GraphQLConstants.Keys.QUERY)
-                                ?.let { query ->
-                                    val queryDiscardHolder = query.replace(Regex("^[^\\(]*"), "")
-                                    val finalQuery = query.replace(queryDiscardHolder, "")
-                                    val params = AnalyticsEventParams(
-                                        startTime = it.timing.startTime,
-                                        endTime = it.timing.endTime,
-                                        endpoint = finalQuery
-                                    )
-                                    sendAnalyticsEvent(
-                                        CoreAnalytics.API_REQUEST_LATENCY,
-                                        params
-                                    )
-                                }
+                            sendGraphQLAnalyticsTimingEvent(json, it.timing)
                             responseCallback.onResult(it.body, null)
                         } catch (jsonException: JSONException) {
                             responseCallback.onResult(null, jsonException)
@@ -203,12 +370,71 @@ class BraintreeClient internal constructor(
                         responseCallback.onResult(null, error)
                     }
                 }
-            } else {
-                responseCallback.onResult(null, configError)
             }
         }
     }
 
+    /**
+     * Retrieve Braintree configuration. Suspending equivalent of [getConfiguration].
+     *
+     * A fetched configuration is returned on the background thread that fetched it rather than
+     * through the main thread. Cancelling the coroutine cancels the fetch unless other callers are
+     * still waiting on it.
+     *
+     * @return the [Configuration]
+     * @throws Exception if configuration cannot be loaded
+     */
+    suspend fun getConfiguration(): Configuration =
+        when (val result = configurationLoader.awaitConfiguration()) {
+            is ConfigurationLoaderResult.Success -> {
+                result.timing?.let { sendAnalyticsTimingEvent("/v1/configuration", it) }
+                result.configuration
+            }
+
+            is ConfigurationLoaderResult.Failure -> throw result.error
+        }
+
+    /**
+     * Suspending equivalent of [sendPOST]. Configuration is loaded and the request is sent
+     * on a background dispatcher; only the response body is returned to the caller's context.
+     *
+     * @suppress
+     */
+    suspend fun sendPOST(
+        url: String,
+        data: String,
+        additionalHeaders: Map<String, String> = emptyMap(),
+    ): String = withContext(Dispatchers.IO) {
+        val configuration = getConfiguration()
+        val response = httpClient.executePost(
+            path = url,
+            data = data,
+            configuration = configuration,
+            authorization = merchantRepository.authorization,
+            additionalHeaders = additionalHeaders
+        )
+        sendAnalyticsTimingEvent(url, response.timing)
+        response.body ?: ""
+    }
+
+    /**
+     * Suspending equivalent of [sendGraphQLPOST]. Configuration is loaded and the request is
+     * sent on a background dispatcher; only the response body is returned to the caller's
+     * context.
+     *
+     * @suppress
+     */
+    suspend fun sendGraphQLPOST(json: JSONObject?): String = withContext(Dispatchers.IO) {
+        val configuration = getConfiguration()
+        val response = graphQLClient.executePost(
+            json?.toString(),
+            configuration,
+            merchantRepository.authorization
+        )
+        sendGraphQLAnalyticsTimingEvent(json, response.timing)
+        response.body ?: ""
+    }
+
     /**
      * @suppress
      */
@@ -256,22 +482,42 @@ class BraintreeClient internal constructor(
         return launchesBrowserSwitchAsNewTask
     }
 
+    private fun createConfigurationDeadlineExceededException() =
+        DeadlineExceededException("The deadline of the request passed while loading configuration.")
+
     private fun sendAnalyticsTimingEvent(endpoint: String, timing: HttpResponseTiming) {
         var cleanedPath = endpoint.replace(Regex("/merchants/([A-Za-z0-9]+)/client_api"), "")
         cleanedPath = cleanedPath.replace(
             Regex("payment_methods/.*/three_d_secure"), "payment_methods/three_d_secure"
         )
 
-        sendAnalyticsEvent(
-            CoreAnalytics.API_REQUEST_LATENCY,
-            AnalyticsEventParams(
-                startTime = timing.startTime,
-                endTime = timing.endTime,
-                endpoint = cleanedPath
+        sendAnalyticsEvent(CoreAnalytics.API_REQUEST_LATENCY, latencyParams(cleanedPath, timing))
+    }
+
+    private fun sendGraphQLAnalyticsTimingEvent(json: JSONObject?, timing: HttpResponseTiming) {
+        json?.optString(GraphQLConstants.Keys.QUERY)?.let { query ->
+            val queryDiscardHolder = query.replace(Regex("^[^\\(]*"), "")
+            val finalQuery = query.replace(queryDiscardHolder, "")
+            sendAnalyticsEvent(
+                CoreAnalytics.API_REQUEST_LATENCY,
+                latencyParams(finalQuery, timing)
             )
-        )
+        }
     }
 
+    private fun latencyParams(endpoint: String, timing: HttpResponseTiming) =
+        AnalyticsEventParams(
+            startTime = timing.startTime,
+            endTime = timing.endTime,
+            endpoint = endpoint,
+            queueDuration = timing.queueDuration,
+            poolWaitDuration = timing.poolWaitDuration,
+            connectDuration = timing.connectDuration,
+            requestWriteDuration = timing.requestWriteDuration,
+            timeToFirstByte = timing.timeToFirstByte,
+            responseReadDuration = timing.responseReadDuration
+        )
+
     /**
      * Set this property to true to allow the SDK to handle deep links on behalf of the host
      * application for browser switched flows.
@@ -1,9 +1,11 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.Deadline
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.HttpRequest
+import com.braintreepayments.api.sharedutils.HttpResponse
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
-import com.braintreepayments.api.sharedutils.TLSSocketFactory
 import java.util.Locale
 import javax.net.ssl.SSLException
 
@@ -40,6 +42,24 @@ internal class BraintreeGraphQLClient(
         configuration: Configuration,
         authorization: Authorization,
         callback: NetworkResponseCallback
+    ) = post(data, configuration, authorization, null, callback)
+
+    fun post(
+        data: String?,
+        configuration: Configuration,
+        authorization: Authorization,
+        cancellationToken: CancellationToken?,
+        callback: NetworkResponseCallback
+    ) = post(data, configuration, authorization, null, cancellationToken, callback)
+
+    @Suppress("LongParameterList")
+    fun post(
+        data: String?,
+        configuration: Configuration,
+        authorization: Authorization,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        callback: NetworkResponseCallback
     ) {
         if (authorization is InvalidAuthorization) {
             val message = authorization.errorMessage
@@ -55,6 +75,8 @@ internal class BraintreeGraphQLClient(
             .addHeader("Authorization",
                 String.format(Locale.US, "Bearer %s", authorization.bearer))
             .addHeader("Braintree-Version", GraphQLConstants.Headers.API_VERSION)
+            .deadline(deadline)
+            .cancellationToken(cancellationToken)
         httpClient.sendRequest(request, callback)
     }
 
@@ -81,11 +103,36 @@ internal class BraintreeGraphQLClient(
         return httpClient.sendRequest(request)
     }
 
+    /**
+     * Makes a synchronous GraphQL request and returns the full [HttpResponse].
+     */
+    @Throws(Exception::class)
+    fun executePost(
+        data: String?,
+        configuration: Configuration,
+        authorization: Authorization
+    ): HttpResponse {
+        if (authorization is InvalidAuthorization) {
+            val message = authorization.errorMessage
+            throw BraintreeException(message)
+        }
+        val request = HttpRequest()
+            .method("POST")
+            .path("")
+            .data(data)
+            .baseUrl(configuration.graphQLUrl)
+            .addHeader("User-Agent", "braintree/android/" + BuildConfig.VERSION_NAME)
+            .addHeader("Authorization",
+                String.format(Locale.US, "Bearer %s", authorization.bearer))
+            .addHeader("Braintree-Version", GraphQLConstants.Headers.API_VERSION)
+        return httpClient.execute(request)
+    }
+
     companion object {
 
         @Throws(SSLException::class)
         private fun createDefaultHttpClient(): HttpClient {
-            val socketFactory = TLSSocketFactory(TLSCertificatePinning.createCertificateInputStream())
+            val socketFactory = TLSSocketFactoryProvider.getSocketFactory()
             return HttpClient(socketFactory, BraintreeGraphQLResponseParser())
         }
     }
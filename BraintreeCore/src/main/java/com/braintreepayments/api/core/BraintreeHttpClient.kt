@@ -1,17 +1,24 @@
 package com.braintreepayments.api.core
 
 import android.net.Uri
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.Deadline
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.HttpClient.RetryStrategy
 import com.braintreepayments.api.sharedutils.HttpRequest
+import com.braintreepayments.api.sharedutils.HttpResponse
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
-import com.braintreepayments.api.sharedutils.TLSSocketFactory
+import com.braintreepayments.api.sharedutils.TaskPriority
 import org.json.JSONException
 import org.json.JSONObject
 import javax.net.ssl.SSLException
 
 /**
  * Network request class that handles Braintree request specifics and threading.
+ *
+ * Timeouts depend on the [TaskPriority] lane of a request: requests the user is waiting on keep
+ * the default timeouts of [HttpRequest], while configuration prefetches and analytics uploads give
+ * up sooner so that a slow network does not hold their connection for long.
  */
 internal class BraintreeHttpClient(
     private val httpClient: HttpClient = createDefaultHttpClient()
@@ -30,7 +37,57 @@ internal class BraintreeHttpClient(
         configuration: Configuration?,
         authorization: Authorization?,
         callback: NetworkResponseCallback
-    ) = get(path, configuration, authorization, RetryStrategy.NO_RETRY, callback)
+    ) = get(path, configuration, authorization, null, callback)
+
+    /**
+     * Make a HTTP GET request to Braintree that is aborted when [cancellationToken] is cancelled.
+     * @param path The path or url to request from the server via GET
+     * @param configuration configuration for the Braintree Android SDK.
+     * @param authorization
+     * @param cancellationToken [CancellationToken] of the request, or null if it cannot be
+     * cancelled
+     * @param callback [NetworkResponseCallback]
+     */
+    fun get(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        cancellationToken: CancellationToken?,
+        callback: NetworkResponseCallback
+    ) = get(path, configuration, authorization, null, cancellationToken, callback)
+
+    /**
+     * Make a HTTP GET request to Braintree that must complete before [deadline] and is aborted
+     * when [cancellationToken] is cancelled.
+     * @param path The path or url to request from the server via GET
+     * @param configuration configuration for the Braintree Android SDK.
+     * @param authorization
+     * @param deadline the [Deadline] of the work the request belongs to, or null if the request
+     * is only bound by its timeouts
+     * @param cancellationToken [CancellationToken] of the request, or null if it cannot be
+     * cancelled
+     * @param callback [NetworkResponseCallback]
+     */
+    @Suppress("LongParameterList")
+    fun get(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        callback: NetworkResponseCallback
+    ) = sendGet(
+        path,
+        configuration,
+        authorization,
+        RetryStrategy.NO_RETRY,
+        TaskPriority.USER_INITIATED,
+        emptyMap(),
+        deadline,
+        cancellationToken,
+        true,
+        callback
+    )
 
     /**
      * Make a HTTP GET request to Braintree using the base url, path and authorization provided.
@@ -39,13 +96,81 @@ internal class BraintreeHttpClient(
      * @param configuration configuration for the Braintree Android SDK.
      * @param authorization
      * @param retryStrategy retry strategy
+     * @param priority the [TaskPriority] lane the request is scheduled in
+     * @param additionalHeaders headers to add to the request
      * @param callback [NetworkResponseCallback]
      */
+    @Suppress("LongParameterList")
     operator fun get(
         path: String,
         configuration: Configuration?,
         authorization: Authorization?,
         retryStrategy: RetryStrategy,
+        priority: TaskPriority = TaskPriority.USER_INITIATED,
+        additionalHeaders: Map<String, String> = emptyMap(),
+        callback: NetworkResponseCallback
+    ) = sendGet(
+        path,
+        configuration,
+        authorization,
+        retryStrategy,
+        priority,
+        additionalHeaders,
+        null,
+        null,
+        true,
+        callback
+    )
+
+    /**
+     * Make a HTTP GET request to Braintree with every option of the other overloads.
+     * @param path The path or url to request from the server via GET
+     * @param configuration configuration for the Braintree Android SDK.
+     * @param authorization
+     * @param retryStrategy retry strategy
+     * @param priority the [TaskPriority] lane the request is scheduled in
+     * @param additionalHeaders headers to add to the request
+     * @param cancellationToken [CancellationToken] of the request, or null if it cannot be
+     * cancelled
+     * @param callbackOnMainThread whether [callback] is notified on the main thread or on the
+     * background thread that sent the request
+     * @param callback [NetworkResponseCallback]
+     */
+    @Suppress("LongParameterList")
+    fun get(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        retryStrategy: RetryStrategy,
+        priority: TaskPriority,
+        additionalHeaders: Map<String, String>,
+        cancellationToken: CancellationToken?,
+        callbackOnMainThread: Boolean,
+        callback: NetworkResponseCallback
+    ) = sendGet(
+        path,
+        configuration,
+        authorization,
+        retryStrategy,
+        priority,
+        additionalHeaders,
+        null,
+        cancellationToken,
+        callbackOnMainThread,
+        callback
+    )
+
+    @Suppress("LongParameterList")
+    private fun sendGet(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        retryStrategy: RetryStrategy,
+        priority: TaskPriority,
+        additionalHeaders: Map<String, String>,
+        deadline: Deadline?,
+        cancellationToken: CancellationToken?,
+        callbackOnMainThread: Boolean,
         callback: NetworkResponseCallback
     ) {
         if (authorization is InvalidAuthorization) {
@@ -68,7 +193,7 @@ internal class BraintreeHttpClient(
         } else {
             path
         }
-        val request = HttpRequest().method("GET").path(targetPath)
+        val request = HttpRequest().method("GET").path(targetPath).withPriority(priority)
             .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
         if (isRelativeURL && configuration != null) {
             request.baseUrl(configuration.clientApiUrl)
@@ -76,6 +201,10 @@ internal class BraintreeHttpClient(
         if (authorization is TokenizationKey) {
             request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
         }
+        additionalHeaders.forEach { (name, value) -> request.addHeader(name, value) }
+        request.deadline(deadline)
+            .cancellationToken(cancellationToken)
+            .callbackOnMainThread(callbackOnMainThread)
         httpClient.sendRequest(request, callback, retryStrategy)
     }
 
@@ -86,56 +215,62 @@ internal class BraintreeHttpClient(
      * @param data The body of the POST request
      * @param configuration configuration for the Braintree Android SDK.
      * @param authorization
+     * @param additionalHeaders headers to add to the request
+     * @param priority the [TaskPriority] lane the request is scheduled in
+     * @param deadline the [Deadline] of the work the request belongs to, or null if the request
+     * is only bound by its timeouts
+     * @param cancellationToken [CancellationToken] of the request, or null if it cannot be
+     * cancelled
      * @param callback [NetworkResponseCallback]
      */
-    @Suppress("CyclomaticComplexMethod")
+    @Suppress("LongParameterList")
     fun post(
         path: String,
         data: String,
         configuration: Configuration?,
         authorization: Authorization?,
         additionalHeaders: Map<String, String> = emptyMap(),
+        priority: TaskPriority = TaskPriority.USER_INITIATED,
+        deadline: Deadline? = null,
+        cancellationToken: CancellationToken? = null,
         callback: NetworkResponseCallback?
     ) {
-        if (authorization is InvalidAuthorization) {
-            val message = authorization.errorMessage
-            callback?.onResult(null, BraintreeException(message))
+        val request = try {
+            createPostRequest(path, data, configuration, authorization, additionalHeaders)
+        } catch (e: BraintreeException) {
+            callback?.onResult(null, e)
             return
-        }
-        val isRelativeURL = !path.startsWith("http")
-        if (configuration == null && isRelativeURL) {
-            val message =
-                "Braintree HTTP GET request without configuration cannot have a relative path."
-            val relativeURLNotAllowedError = BraintreeException(message)
-            callback?.onResult(null, relativeURLNotAllowedError)
+        } catch (e: JSONException) {
+            callback?.onResult(null, e)
             return
         }
-        val requestData = if (authorization is ClientToken) {
-            try {
-                JSONObject(data).put(
-                    AUTHORIZATION_FINGERPRINT_KEY,
-                    authorization.authorizationFingerprint
-                ).toString()
-            } catch (e: JSONException) {
-                callback?.onResult(null, e)
-                return
-            }
-        } else {
-            data
-        }
-        val request = HttpRequest().method("POST").path(path).data(requestData)
-            .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
-        if (isRelativeURL && configuration != null) {
-            request.baseUrl(configuration.clientApiUrl)
-        }
-        if (authorization is TokenizationKey) {
-            request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
-        }
-        authorization?.bearer?.let { token -> request.addHeader("Authorization", "Bearer $token") }
-        additionalHeaders.forEach { (name, value) -> request.addHeader(name, value) }
+        request.withPriority(priority).deadline(deadline).cancellationToken(cancellationToken)
         httpClient.sendRequest(request, callback)
     }
 
+    /**
+     * Makes a synchronous HTTP POST request to Braintree with the same headers as the
+     * asynchronous [post] and returns the full [HttpResponse].
+     *
+     * @param path the path or url to request from the server via HTTP POST
+     * @param data the body of the post request
+     * @param configuration configuration for the Braintree Android SDK.
+     * @param authorization
+     * @param additionalHeaders headers to add to the request
+     * @return the HTTP response
+     */
+    @Throws(Exception::class)
+    fun executePost(
+        path: String,
+        data: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        additionalHeaders: Map<String, String> = emptyMap()
+    ): HttpResponse {
+        val request = createPostRequest(path, data, configuration, authorization, additionalHeaders)
+        return httpClient.execute(request)
+    }
+
     /**
      * Makes a synchronous HTTP POST request to Braintree.
      *
@@ -149,6 +284,56 @@ internal class BraintreeHttpClient(
     fun post(
         path: String, data: String, configuration: Configuration?, authorization: Authorization?
     ): String {
+        val request = createSynchronousPostRequest(path, configuration, authorization)
+        val requestData = if (authorization is ClientToken) {
+            JSONObject(data).put(
+                AUTHORIZATION_FINGERPRINT_KEY,
+                authorization.authorizationFingerprint
+            ).toString()
+        } else {
+            data
+        }
+        return httpClient.sendRequest(request.data(requestData))
+    }
+
+    /**
+     * Makes a synchronous HTTP POST request to Braintree with a body that is already serialized.
+     *
+     * Unlike the [String] variant of [post], [data] is sent as is: it is not parsed to add the
+     * authorization fingerprint of a [ClientToken], so the caller is responsible for including it.
+     *
+     * @param path the path or url to request from the server via HTTP POST
+     * @param data the UTF-8 encoded body of the post request
+     * @param contentEncoding the encoding applied to the body when it is sent, e.g.
+     * [HttpRequest.CONTENT_ENCODING_GZIP], or null to send it as is
+     * @param configuration configuration for the Braintree Android SDK.
+     * @param authorization
+     * @param priority the [TaskPriority] of the request; requests that are not
+     * [TaskPriority.USER_INITIATED] fail fast while the host is failing
+     * @return the HTTP response body
+     */
+    @Throws(Exception::class)
+    fun post(
+        path: String,
+        data: ByteArray,
+        contentEncoding: String?,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        priority: TaskPriority = TaskPriority.USER_INITIATED
+    ): String {
+        val request = createSynchronousPostRequest(path, configuration, authorization)
+            .data(data)
+            .contentEncoding(contentEncoding)
+            .withPriority(priority)
+        return httpClient.sendRequest(request)
+    }
+
+    @Throws(BraintreeException::class)
+    private fun createSynchronousPostRequest(
+        path: String,
+        configuration: Configuration?,
+        authorization: Authorization?
+    ): HttpRequest {
         if (authorization is InvalidAuthorization) {
             val message = authorization.errorMessage
             throw BraintreeException(message)
@@ -159,6 +344,34 @@ internal class BraintreeHttpClient(
                 "Braintree HTTP GET request without configuration cannot have a relative path."
             throw BraintreeException(message)
         }
+        val request = HttpRequest().method("POST").path(path)
+            .addHeader(USER_AGENT_HEADER, "braintree/android/" + BuildConfig.VERSION_NAME)
+        if (isRelativeURL && configuration != null) {
+            request.baseUrl(configuration.clientApiUrl)
+        }
+        if (authorization is TokenizationKey) {
+            request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
+        }
+        return request
+    }
+
+    @Throws(BraintreeException::class, JSONException::class)
+    private fun createPostRequest(
+        path: String,
+        data: String,
+        configuration: Configuration?,
+        authorization: Authorization?,
+        additionalHeaders: Map<String, String>
+    ): HttpRequest {
+        if (authorization is InvalidAuthorization) {
+            throw BraintreeException(authorization.errorMessage)
+        }
+        val isRelativeURL = !path.startsWith("http")
+        if (configuration == null && isRelativeURL) {
+            val message =
+                "Braintree HTTP GET request without configuration cannot have a relative path."
+            throw BraintreeException(message)
+        }
         val requestData = if (authorization is ClientToken) {
             JSONObject(data).put(
                 AUTHORIZATION_FINGERPRINT_KEY,
@@ -175,17 +388,35 @@ internal class BraintreeHttpClient(
         if (authorization is TokenizationKey) {
             request.addHeader(CLIENT_KEY_HEADER, authorization.bearer)
         }
-        return httpClient.sendRequest(request)
+        authorization?.bearer?.let { token -> request.addHeader("Authorization", "Bearer $token") }
+        additionalHeaders.forEach { (name, value) -> request.addHeader(name, value) }
+        return request
+    }
+
+    private fun HttpRequest.withPriority(priority: TaskPriority): HttpRequest {
+        this.priority(priority)
+        when (priority) {
+            TaskPriority.USER_INITIATED -> Unit
+            TaskPriority.PREFETCH -> connectTimeout(BACKGROUND_CONNECT_TIMEOUT_MILLIS)
+                .readTimeout(PREFETCH_READ_TIMEOUT_MILLIS)
+            TaskPriority.TELEMETRY -> connectTimeout(BACKGROUND_CONNECT_TIMEOUT_MILLIS)
+                .readTimeout(TELEMETRY_READ_TIMEOUT_MILLIS)
+        }
+        return this
     }
 
     companion object {
+        private const val BACKGROUND_CONNECT_TIMEOUT_MILLIS = 10_000
+        private const val PREFETCH_READ_TIMEOUT_MILLIS = 20_000
+        private const val TELEMETRY_READ_TIMEOUT_MILLIS = 10_000
+
         private const val AUTHORIZATION_FINGERPRINT_KEY = "authorizationFingerprint"
         private const val USER_AGENT_HEADER = "User-Agent"
         private const val CLIENT_KEY_HEADER = "Client-Key"
 
         @Throws(SSLException::class)
         private fun createDefaultHttpClient(): HttpClient {
-            val socketFactory = TLSSocketFactory(TLSCertificatePinning.createCertificateInputStream())
+            val socketFactory = TLSSocketFactoryProvider.getSocketFactory()
             return HttpClient(socketFactory, BraintreeHttpResponseParser())
         }
     }
@@ -16,11 +16,11 @@ internal class BraintreeHttpResponseParser(
     /**
      * @param responseCode the response code returned when the http request was made.
      * @param connection the connection through which the http request was made.
-     * @return the body of the http response.
+     * @return the body of the http response, or null for a 304 Not Modified response.
      */
     @Throws(Exception::class)
     @Suppress("SwallowedException")
-    override fun parse(responseCode: Int, connection: HttpURLConnection): String = try {
+    override fun parse(responseCode: Int, connection: HttpURLConnection): String? = try {
         baseParser.parse(responseCode, connection)
     } catch (e: AuthorizationException) {
         val errorMessage = ErrorWithResponse(AUTH_ERROR_CODE, e.message).message
@@ -13,16 +13,71 @@ internal class ConfigurationCache(
     }
 
     fun getConfiguration(cacheKey: String, currentTimeMillis: Long): String? {
+        return getConfiguration(cacheKey, currentTimeMillis, TIME_TO_LIVE)
+    }
+
+    /**
+     * @return the cached configuration for [cacheKey] if it was saved less than [timeToLive]
+     * milliseconds before [currentTimeMillis], or null otherwise
+     */
+    fun getConfiguration(cacheKey: String, currentTimeMillis: Long, timeToLive: Long): String? {
         val timestampKey = "${cacheKey}_timestamp"
         if (sharedPreferences.containsKey(timestampKey)) {
             val timeInCache = currentTimeMillis - sharedPreferences.getLong(timestampKey)
-            if (timeInCache < TIME_TO_LIVE) {
+            if (timeInCache < timeToLive) {
                 return sharedPreferences.getString(cacheKey, "")
             }
         }
         return null
     }
 
+    /**
+     * @return the time at which the configuration for [cacheKey] was saved, or null if there is
+     * no cached configuration
+     */
+    fun getConfigurationTimestamp(cacheKey: String): Long? {
+        val timestampKey = "${cacheKey}_timestamp"
+        return if (sharedPreferences.containsKey(timestampKey)) {
+            sharedPreferences.getLong(timestampKey)
+        } else {
+            null
+        }
+    }
+
+    /**
+     * @return the ETag sent with the configuration for [cacheKey], or null if there is none
+     */
+    fun getETag(cacheKey: String): String? =
+        sharedPreferences.getString("${cacheKey}_etag", null)?.takeIf { it.isNotEmpty() }
+
+    /**
+     * @return the Last-Modified date sent with the configuration for [cacheKey], or null if there
+     * is none
+     */
+    fun getLastModified(cacheKey: String): String? =
+        sharedPreferences.getString("${cacheKey}_last_modified", null)?.takeIf { it.isNotEmpty() }
+
+    /**
+     * Stores the validators used to make conditional requests for the configuration saved for
+     * [cacheKey]. Null values remove previously stored validators.
+     */
+    fun saveValidators(cacheKey: String, eTag: String?, lastModified: String?) {
+        sharedPreferences.putString("${cacheKey}_etag", eTag)
+        sharedPreferences.putString("${cacheKey}_last_modified", lastModified)
+    }
+
+    /**
+     * Restarts the time to live of the configuration saved for [cacheKey] after the server
+     * confirmed that it has not changed.
+     *
+     * @return the cached configuration, or null if there is none
+     */
+    fun refreshConfiguration(cacheKey: String, currentTimeMillis: Long): String? {
+        val cachedConfiguration = sharedPreferences.getString(cacheKey, null) ?: return null
+        sharedPreferences.putLong("${cacheKey}_timestamp", currentTimeMillis)
+        return cachedConfiguration
+    }
+
     fun saveConfiguration(configuration: Configuration, cacheKey: String?) {
         saveConfiguration(configuration, cacheKey, System.currentTimeMillis())
     }
@@ -41,8 +96,35 @@ internal class ConfigurationCache(
         )
     }
 
+    /**
+     * Stores the fields of [configuration] needed to upload analytics events.
+     */
+    fun saveAnalyticsConfiguration(configuration: Configuration) {
+        sharedPreferences.putString(ANALYTICS_ENVIRONMENT_KEY, configuration.environment)
+        sharedPreferences.putString(ANALYTICS_MERCHANT_ID_KEY, configuration.merchantId)
+    }
+
+    /**
+     * @return the fields of the last fetched configuration needed to upload analytics events, or
+     * null if no configuration has been fetched yet
+     */
+    fun getAnalyticsConfiguration(): AnalyticsConfiguration? {
+        val environment = sharedPreferences.getString(ANALYTICS_ENVIRONMENT_KEY, null)
+        val merchantId = sharedPreferences.getString(ANALYTICS_MERCHANT_ID_KEY, null)
+        return if (environment != null && merchantId != null) {
+            AnalyticsConfiguration(environment, merchantId)
+        } else {
+            null
+        }
+    }
+
     companion object {
-        private val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+        val TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5)
+
+        private const val ANALYTICS_ENVIRONMENT_KEY =
+            "com.braintreepayments.api.core.ANALYTICS_ENVIRONMENT"
+        private const val ANALYTICS_MERCHANT_ID_KEY =
+            "com.braintreepayments.api.core.ANALYTICS_MERCHANT_ID"
 
         @Volatile
         private var INSTANCE: ConfigurationCache? = null
@@ -0,0 +1,50 @@
+package com.braintreepayments.api.core
+
+import androidx.annotation.RestrictTo
+import java.util.concurrent.TimeUnit
+
+/**
+ * Controls how long a cached [Configuration] is used by [ConfigurationLoader].
+ *
+ * A configuration younger than [softTimeToLive] is fresh and returned as is. A configuration older
+ * than [softTimeToLive] but younger than [hardTimeToLive] is stale: it is returned immediately
+ * while a fresh copy is fetched in the background (stale-while-revalidate). Older configurations
+ * are never used, and callers wait for the network.
+ *
+ * By default a configuration is fresh for 5 minutes and served stale for up to 1 hour. Use
+ * [NO_STALE_CONFIGURATION] to always wait for the network once the 5 minutes have passed. The
+ * policy is set through [BraintreeClient] and applies to every client of the process.
+ *
+ * @property softTimeToLive age in milliseconds after which a cached configuration is revalidated
+ * @property hardTimeToLive age in milliseconds after which a cached configuration is no longer
+ * used
+ * @property isStaleConfigurationAllowed returns false for stale configurations that must not be
+ * served, e.g. when they carry security-sensitive settings that have to be up to date
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+data class ConfigurationCachePolicy @JvmOverloads constructor(
+    val softTimeToLive: Long = ConfigurationCache.TIME_TO_LIVE,
+    val hardTimeToLive: Long = DEFAULT_HARD_TIME_TO_LIVE,
+    val isStaleConfigurationAllowed: (Configuration) -> Boolean = { true }
+) {
+
+    /**
+     * Maximum age of a cached configuration that may still be used.
+     */
+    val maxAge: Long
+        get() = maxOf(softTimeToLive, hardTimeToLive)
+
+    fun isFresh(age: Long) = age < softTimeToLive
+
+    companion object {
+        private val DEFAULT_HARD_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1)
+
+        /**
+         * Policy that never serves a stale configuration.
+         */
+        val NO_STALE_CONFIGURATION = ConfigurationCachePolicy(
+            hardTimeToLive = ConfigurationCache.TIME_TO_LIVE,
+            isStaleConfigurationAllowed = { false }
+        )
+    }
+}
@@ -1,16 +1,34 @@
 package com.braintreepayments.api.core
 
 import android.net.Uri
+import android.os.Handler
+import android.os.Looper
 import android.util.Base64
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.CircuitBreakerOpenException
+import com.braintreepayments.api.sharedutils.Deadline
+import com.braintreepayments.api.sharedutils.DeadlineExceededException
 import com.braintreepayments.api.sharedutils.HttpClient
+import com.braintreepayments.api.sharedutils.HttpResponse
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.sharedutils.Time
+import kotlinx.coroutines.suspendCancellableCoroutine
 import org.json.JSONException
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import kotlin.coroutines.resume
 
 internal class ConfigurationLoader(
     private val httpClient: BraintreeHttpClient = BraintreeHttpClient(),
     private val merchantRepository: MerchantRepository = MerchantRepository.instance,
     private val configurationCache: ConfigurationCache = ConfigurationCacheProvider().configurationCache,
     private val time: Time = Time(),
+    private val inMemoryConfigurationCache: InMemoryConfigurationCache =
+        InMemoryConfigurationCache(time),
+    cachePolicy: ConfigurationCachePolicy = ConfigurationCachePolicy(),
     /**
      * TODO: AnalyticsClient must be lazy due to the circular dependency between ConfigurationLoader and AnalyticsClient
      * This should be refactored to remove the circular dependency.
@@ -18,10 +36,104 @@ internal class ConfigurationLoader(
     lazyAnalyticsClient: Lazy<AnalyticsClient> = lazy {
         AnalyticsClient(httpClient = httpClient)
     },
+    private val mainThreadExecutor: Executor = Executor { runnable ->
+        val mainLooper = Looper.getMainLooper()
+        if (Looper.myLooper() == mainLooper) runnable.run() else Handler(mainLooper).post(runnable)
+    },
+    private val deadlineExecutor: ScheduledExecutorService = createDefaultDeadlineExecutor(),
 ) {
     private val analyticsClient: AnalyticsClient by lazyAnalyticsClient
 
-    fun loadConfiguration(callback: ConfigurationLoaderCallback) {
+    /**
+     * Policy deciding how long cached configurations are used. Changing it affects the loads
+     * that start afterwards.
+     */
+    @Volatile
+    var cachePolicy: ConfigurationCachePolicy = cachePolicy
+
+    /**
+     * A caller waiting on a configuration fetch in the [priority] lane.
+     */
+    private class Waiter(
+        val callback: ConfigurationLoaderCallback,
+        val priority: TaskPriority,
+        val notifyOnMainThread: Boolean
+    ) {
+        @Volatile
+        var deadlineTimeout: ScheduledFuture<*>? = null
+    }
+
+    private class PendingFetch(val isRevalidation: Boolean) {
+        val cancellationToken = CancellationToken()
+        val waiters = mutableListOf<Waiter>()
+    }
+
+    private val pendingFetches = HashMap<String, PendingFetch>()
+
+    fun loadConfiguration(callback: ConfigurationLoaderCallback) =
+        loadConfiguration(TaskPriority.USER_INITIATED, callback)
+
+    /**
+     * Loads the configuration, fetching it in the [priority] lane when it is not cached. Callers
+     * waiting on the configuration should keep the default [TaskPriority.USER_INITIATED];
+     * [TaskPriority.PREFETCH] is meant for speculative loads nobody is waiting on yet.
+     *
+     * A cached configuration is returned on the calling thread, a fetched one on the main thread.
+     *
+     * A [TaskPriority.USER_INITIATED] caller that joins a fetch started in a lower priority lane is
+     * not failed by the circuit breaker rejecting that fetch: the configuration is fetched again
+     * in its own lane, which the circuit breaker lets through.
+     */
+    fun loadConfiguration(priority: TaskPriority, callback: ConfigurationLoaderCallback) {
+        load(Waiter(callback, priority, notifyOnMainThread = true))
+    }
+
+    /**
+     * Loads the configuration like [loadConfiguration], but stops waiting on a fetch once
+     * [deadline] passes and fails with a [DeadlineExceededException] instead. The fetch is
+     * cancelled unless other callers are still waiting on it.
+     */
+    fun loadConfiguration(
+        priority: TaskPriority,
+        deadline: Deadline,
+        callback: ConfigurationLoaderCallback
+    ) {
+        val waiter = Waiter(callback, priority, notifyOnMainThread = true)
+        val cacheKey = load(waiter) ?: return
+        waiter.deadlineTimeout = deadlineExecutor.schedule(
+            Runnable {
+                if (removeWaiter(cacheKey, waiter)) {
+                    val message = "The deadline passed while loading configuration."
+                    notifyWaiter(
+                        waiter,
+                        ConfigurationLoaderResult.Failure(DeadlineExceededException(message))
+                    )
+                }
+            },
+            deadline.remainingMillis,
+            TimeUnit.MILLISECONDS
+        )
+    }
+
+    /**
+     * Suspending equivalent of [loadConfiguration]. A fetched configuration is returned on the
+     * background thread that fetched it, without going through the main thread. Cancelling the
+     * coroutine cancels the fetch unless other callers are still waiting on it.
+     */
+    suspend fun awaitConfiguration(
+        priority: TaskPriority = TaskPriority.USER_INITIATED
+    ): ConfigurationLoaderResult = suspendCancellableCoroutine { continuation ->
+        val waiter = Waiter({ continuation.resume(it) }, priority, notifyOnMainThread = false)
+        load(waiter)?.let { cacheKey ->
+            continuation.invokeOnCancellation { removeWaiter(cacheKey, waiter) }
+        }
+    }
+
+    /**
+     * @return the cache key of the fetch [waiter] is waiting on, or null if it has already been
+     * notified
+     */
+    private fun load(waiter: Waiter): String? {
         val authorization = merchantRepository.authorization
         if (authorization is InvalidAuthorization) {
             val clientSDKSetupURL =
@@ -29,78 +141,291 @@ internal class ConfigurationLoader(
             val message = "Valid authorization required. See $clientSDKSetupURL for more info."
 
             // NOTE: timing information is null when configuration comes from cache
-            callback.onResult(ConfigurationLoaderResult.Failure(BraintreeException(message)))
-            return
+            waiter.callback.onResult(ConfigurationLoaderResult.Failure(BraintreeException(message)))
+            return null
         }
         val configUrl = Uri.parse(authorization.configUrl)
             .buildUpon()
             .appendQueryParameter("configVersion", "3")
             .build()
             .toString()
-        val cachedConfig = getCachedConfiguration(authorization, configUrl)
-
-        cachedConfig?.let {
-            callback.onResult(ConfigurationLoaderResult.Success(it))
-        } ?: run {
-            httpClient.get(
-                configUrl, null, authorization, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES
-            ) { response, httpError ->
-                val responseBody = response?.body
-                val timing = response?.timing
-                if (responseBody != null) {
-                    try {
-                        val configuration = Configuration.fromJson(responseBody)
-                        saveConfigurationToCache(configuration, authorization, configUrl)
-                        callback.onResult(ConfigurationLoaderResult.Success(configuration, timing))
-
-                        analyticsClient.sendEvent(
-                            eventName = CoreAnalytics.API_REQUEST_LATENCY,
-                            analyticsEventParams = AnalyticsEventParams(
-                                startTime = timing?.startTime,
-                                endTime = timing?.endTime,
-                                endpoint = "/v1/configuration"
-                            )
+        val inMemoryCacheKey = "$configUrl${authorization.bearer}"
+        val cacheKey by lazy { createCacheKey(inMemoryCacheKey) }
+        val policy = cachePolicy
+        val cachedEntry = inMemoryConfigurationCache.getEntry(inMemoryCacheKey, policy.maxAge)
+            ?: getCachedConfiguration(cacheKey, inMemoryCacheKey, policy.maxAge)
+
+        if (cachedEntry != null) {
+            val cachedConfiguration = cachedEntry.configuration
+            if (policy.isFresh(time.currentTime - cachedEntry.timestamp)) {
+                waiter.callback.onResult(ConfigurationLoaderResult.Success(cachedConfiguration))
+                return null
+            }
+            if (policy.isStaleConfigurationAllowed(cachedConfiguration)) {
+                // serve the stale configuration right away and refresh it in the background
+                waiter.callback.onResult(ConfigurationLoaderResult.Success(cachedConfiguration))
+                enqueueFetch(
+                    authorization,
+                    configUrl,
+                    cacheKey,
+                    inMemoryCacheKey,
+                    TaskPriority.PREFETCH,
+                    null
+                )
+                return null
+            }
+        }
+        enqueueFetch(authorization, configUrl, cacheKey, inMemoryCacheKey, waiter.priority, waiter)
+        return cacheKey
+    }
+
+    /**
+     * Coalesces concurrent requests for the same configuration into a single fetch. A null
+     * [waiter] starts a background revalidation if no fetch is already in flight.
+     */
+    @Suppress("LongParameterList")
+    private fun enqueueFetch(
+        authorization: Authorization,
+        configUrl: String,
+        cacheKey: String,
+        inMemoryCacheKey: String,
+        priority: TaskPriority,
+        waiter: Waiter?
+    ) {
+        val newFetch = synchronized(pendingFetches) {
+            val pendingFetch = pendingFetches[cacheKey]
+            if (pendingFetch != null) {
+                waiter?.let { pendingFetch.waiters.add(it) }
+                null
+            } else {
+                PendingFetch(isRevalidation = waiter == null).also { fetch ->
+                    waiter?.let { fetch.waiters.add(it) }
+                    pendingFetches[cacheKey] = fetch
+                }
+            }
+        }
+        if (newFetch != null) {
+            fetchConfiguration(
+                authorization,
+                configUrl,
+                cacheKey,
+                inMemoryCacheKey,
+                priority,
+                newFetch
+            )
+        }
+    }
+
+    /**
+     * Stops notifying [waiter] and cancels its fetch if nobody else is waiting on it.
+     *
+     * @return false if [waiter] is no longer waiting, e.g. because it is being notified
+     */
+    private fun removeWaiter(cacheKey: String, waiter: Waiter): Boolean {
+        val abandonedFetch = synchronized(pendingFetches) {
+            val pendingFetch = pendingFetches[cacheKey]
+            if (pendingFetch == null || !pendingFetch.waiters.remove(waiter)) {
+                return false
+            }
+            // a background revalidation is still worth finishing without waiters
+            if (pendingFetch.waiters.isEmpty() && !pendingFetch.isRevalidation) {
+                pendingFetches.remove(cacheKey)
+                pendingFetch
+            } else {
+                null
+            }
+        }
+        abandonedFetch?.cancellationToken?.cancel()
+        return true
+    }
+
+    @Suppress("LongParameterList")
+    private fun fetchConfiguration(
+        authorization: Authorization,
+        configUrl: String,
+        cacheKey: String,
+        inMemoryCacheKey: String,
+        priority: TaskPriority,
+        pendingFetch: PendingFetch
+    ) {
+        // the response is handled on the background thread; waiters are notified where they asked
+        httpClient.get(
+            configUrl,
+            null,
+            authorization,
+            HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+            priority,
+            createConditionalRequestHeaders(cacheKey),
+            pendingFetch.cancellationToken,
+            false
+        ) { response, httpError ->
+            var waiters = synchronized(pendingFetches) {
+                if (pendingFetches[cacheKey] === pendingFetch) {
+                    pendingFetches.remove(cacheKey)
+                }
+                pendingFetch.waiters.toList()
+            }
+            if (httpError is CircuitBreakerOpenException &&
+                priority != TaskPriority.USER_INITIATED
+            ) {
+                // callers that joined a speculative fetch must not fail fast with it
+                val userInitiatedWaiters =
+                    waiters.filter { it.priority == TaskPriority.USER_INITIATED }
+                userInitiatedWaiters.forEach {
+                    enqueueFetch(
+                        authorization,
+                        configUrl,
+                        cacheKey,
+                        inMemoryCacheKey,
+                        TaskPriority.USER_INITIATED,
+                        it
+                    )
+                }
+                waiters = waiters - userInitiatedWaiters.toSet()
+            }
+            val timing = response?.timing
+            try {
+                val configuration = if (response?.isNotModified == true) {
+                    refreshCachedConfiguration(cacheKey, inMemoryCacheKey)
+                } else {
+                    response?.body?.let { responseBody ->
+                        Configuration.fromJson(responseBody).also {
+                            saveConfigurationToCache(it, cacheKey, inMemoryCacheKey, response)
+                        }
+                    }
+                }
+
+                if (configuration != null) {
+                    // only the caller that triggered the fetch reports its timing
+                    waiters.forEachIndexed { index, waiter ->
+                        val waiterTiming = if (index == 0) timing else null
+                        notifyWaiter(
+                            waiter,
+                            ConfigurationLoaderResult.Success(configuration, waiterTiming)
                         )
-                    } catch (jsonException: JSONException) {
-                        callback.onResult(ConfigurationLoaderResult.Failure(jsonException))
                     }
+
+                    analyticsClient.sendEvent(
+                        eventName = CoreAnalytics.API_REQUEST_LATENCY,
+                        analyticsEventParams = AnalyticsEventParams(
+                            startTime = timing?.startTime,
+                            endTime = timing?.endTime,
+                            endpoint = "/v1/configuration"
+                        )
+                    )
                 } else {
-                    httpError?.let { error ->
-                        val errorMessageFormat = "Request for configuration has failed: %s"
-                        val errorMessage = String.format(errorMessageFormat, error.message)
-                        val configurationException = ConfigurationException(errorMessage, error)
-                        callback.onResult(ConfigurationLoaderResult.Failure(configurationException))
+                    val errorMessageFormat = "Request for configuration has failed: %s"
+                    val errorMessage = String.format(
+                        errorMessageFormat,
+                        httpError?.message ?: "no configuration received"
+                    )
+                    val configurationException = ConfigurationException(errorMessage, httpError)
+                    waiters.forEach {
+                        notifyWaiter(it, ConfigurationLoaderResult.Failure(configurationException))
                     }
                 }
+            } catch (jsonException: JSONException) {
+                waiters.forEach {
+                    notifyWaiter(it, ConfigurationLoaderResult.Failure(jsonException))
+                }
             }
         }
     }
 
+    private fun notifyWaiter(waiter: Waiter, result: ConfigurationLoaderResult) {
+        waiter.deadlineTimeout?.cancel(false)
+        if (waiter.notifyOnMainThread) {
+            mainThreadExecutor.execute { waiter.callback.onResult(result) }
+        } else {
+            waiter.callback.onResult(result)
+        }
+    }
+
+    /**
+     * Validators of the previously fetched configuration, so that the server can answer with
+     * 304 Not Modified instead of sending the same configuration again.
+     */
+    private fun createConditionalRequestHeaders(cacheKey: String): Map<String, String> {
+        val headers = mutableMapOf<String, String>()
+        configurationCache.getETag(cacheKey)?.let { headers[IF_NONE_MATCH_HEADER] = it }
+        configurationCache.getLastModified(cacheKey)?.let {
+            headers[IF_MODIFIED_SINCE_HEADER] = it
+        }
+        return headers
+    }
+
+    /**
+     * Restarts the time to live of the cached configuration after a 304 Not Modified response,
+     * reusing the parsed configuration from the in-memory tier when it is still there.
+     */
+    @Throws(JSONException::class)
+    private fun refreshCachedConfiguration(
+        cacheKey: String,
+        inMemoryCacheKey: String
+    ): Configuration? {
+        val currentTime = time.currentTime
+        val cachedConfigResponse =
+            configurationCache.refreshConfiguration(cacheKey, currentTime) ?: return null
+        val configuration =
+            inMemoryConfigurationCache.getEntry(inMemoryCacheKey, Long.MAX_VALUE)?.configuration
+                ?: Configuration.fromJson(cachedConfigResponse)
+        inMemoryConfigurationCache.putConfiguration(inMemoryCacheKey, configuration, currentTime)
+        return configuration
+    }
+
     private fun saveConfigurationToCache(
         configuration: Configuration,
-        authorization: Authorization,
-        configUrl: String
+        cacheKey: String,
+        inMemoryCacheKey: String,
+        response: HttpResponse
     ) {
-        val cacheKey = createCacheKey(authorization, configUrl)
         configurationCache.saveConfiguration(configuration, cacheKey)
+        configurationCache.saveAnalyticsConfiguration(configuration)
+        configurationCache.saveValidators(
+            cacheKey,
+            response.getHeader(ETAG_HEADER),
+            response.getHeader(LAST_MODIFIED_HEADER)
+        )
+        inMemoryConfigurationCache.putConfiguration(
+            inMemoryCacheKey,
+            configuration,
+            time.currentTime
+        )
     }
 
     private fun getCachedConfiguration(
-        authorization: Authorization,
-        configUrl: String
-    ): Configuration? {
-        val cacheKey = createCacheKey(authorization, configUrl)
-        val cachedConfigResponse = configurationCache.getConfiguration(cacheKey) ?: return null
+        cacheKey: String,
+        inMemoryCacheKey: String,
+        maxAge: Long
+    ): InMemoryConfigurationCache.Entry? {
+        val currentTime = time.currentTime
+        val cachedConfigResponse =
+            configurationCache.getConfiguration(cacheKey, currentTime, maxAge)
+                ?: return null
         return try {
-            Configuration.fromJson(cachedConfigResponse)
+            val configuration = Configuration.fromJson(cachedConfigResponse)
+            // promote to the in-memory tier with its original timestamp so it expires on time
+            val timestamp = configurationCache.getConfigurationTimestamp(cacheKey) ?: currentTime
+            inMemoryConfigurationCache.putConfiguration(inMemoryCacheKey, configuration, timestamp)
+            InMemoryConfigurationCache.Entry(configuration, timestamp)
         } catch (e: JSONException) {
             null
         }
     }
 
     companion object {
-        private fun createCacheKey(authorization: Authorization, configUrl: String): String {
-            return Base64.encodeToString("$configUrl${authorization.bearer}".toByteArray(), 0)
+        private const val ETAG_HEADER = "ETag"
+        private const val LAST_MODIFIED_HEADER = "Last-Modified"
+        private const val IF_NONE_MATCH_HEADER = "If-None-Match"
+        private const val IF_MODIFIED_SINCE_HEADER = "If-Modified-Since"
+
+        private fun createDefaultDeadlineExecutor(): ScheduledExecutorService =
+            Executors.newSingleThreadScheduledExecutor { runnable ->
+                Thread(runnable, "braintree-configuration-deadline").apply { isDaemon = true }
+            }
+
+        private fun createCacheKey(inMemoryCacheKey: String): String {
+            return Base64.encodeToString(inMemoryCacheKey.toByteArray(), 0)
         }
 
         /**
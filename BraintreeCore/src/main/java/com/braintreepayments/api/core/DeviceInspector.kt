@@ -10,40 +10,71 @@ import com.braintreepayments.api.sharedutils.AppHelper
 import com.braintreepayments.api.sharedutils.SignatureVerifier
 
 /**
+ * Device and app values are cached for the lifetime of the process in a [DeviceMetadataCache].
+ *
  * @suppress
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class DeviceInspector(
-    private val appHelper: AppHelper = AppHelper(),
-    private val signatureVerifier: SignatureVerifier = SignatureVerifier(),
+class DeviceInspector internal constructor(
+    private val appHelper: AppHelper,
+    private val signatureVerifier: SignatureVerifier,
+    private val deviceMetadataCache: DeviceMetadataCache
 ) {
 
+    @JvmOverloads
+    constructor(
+        appHelper: AppHelper = AppHelper(),
+        signatureVerifier: SignatureVerifier = SignatureVerifier(),
+    ) : this(appHelper, signatureVerifier, DeviceMetadataCache.instance)
+
     internal fun getDeviceMetadata(
         context: Context?,
         configuration: Configuration?,
         sessionId: String?,
         integration: IntegrationType?
+    ): DeviceMetadata = getDeviceMetadata(
+        context,
+        configuration?.environment,
+        configuration?.merchantId,
+        sessionId,
+        integration
+    )
+
+    internal fun getDeviceMetadata(
+        context: Context?,
+        environment: String?,
+        merchantId: String?,
+        sessionId: String?,
+        integration: IntegrationType?
     ): DeviceMetadata {
-        return DeviceMetadata(
-            appId = context?.packageName,
-            appName = getAppName(context),
-            clientSDKVersion = BuildConfig.VERSION_NAME,
-            clientOs = getAPIVersion(),
-            component = "braintreeclientsdk",
-            deviceManufacturer = Build.MANUFACTURER,
-            deviceModel = Build.MODEL,
-            dropInSDKVersion = dropInVersion,
-            environment = configuration?.environment,
-            eventSource = "mobile-native",
+        val deviceMetadata = if (context != null) {
+            deviceMetadataCache.getDeviceMetadata { createDeviceMetadata(context) }
+        } else {
+            createDeviceMetadata(null)
+        }
+        return deviceMetadata.copy(
+            environment = environment,
             integrationType = integration,
-            isSimulator = isDeviceEmulator,
-            merchantAppVersion = getAppVersion(context),
-            merchantId = configuration?.merchantId,
-            platform = "Android",
+            merchantId = merchantId,
             sessionId = sessionId
         )
     }
 
+    private fun createDeviceMetadata(context: Context?) = DeviceMetadata(
+        appId = context?.packageName,
+        appName = getAppName(context),
+        clientSDKVersion = BuildConfig.VERSION_NAME,
+        clientOs = getAPIVersion(),
+        component = "braintreeclientsdk",
+        deviceManufacturer = Build.MANUFACTURER,
+        deviceModel = Build.MODEL,
+        dropInSDKVersion = dropInVersion,
+        eventSource = "mobile-native",
+        isSimulator = isDeviceEmulator,
+        merchantAppVersion = getAppVersion(context),
+        platform = "Android"
+    )
+
     // Analytics payload no longer sends appInstalled info.
     // Leaving logic for upcoming PaymentReady API implementation.
     /**
@@ -59,13 +90,22 @@ class DeviceInspector(
     }
 
     fun isPayPalInstalled(context: Context?): Boolean {
-        return appHelper.isAppInstalled(context, PAYPAL_APP_PACKAGE)
+        return isAppInstalled(context, PAYPAL_APP_PACKAGE)
     }
 
     fun isVenmoInstalled(context: Context?): Boolean {
-        return appHelper.isAppInstalled(context, VENMO_APP_PACKAGE)
+        return isAppInstalled(context, VENMO_APP_PACKAGE)
     }
 
+    private fun isAppInstalled(context: Context?, packageName: String): Boolean =
+        if (context != null) {
+            deviceMetadataCache.isAppInstalled(context, packageName) {
+                appHelper.isAppInstalled(context, packageName)
+            }
+        } else {
+            appHelper.isAppInstalled(null, packageName)
+        }
+
     private val isDeviceEmulator: Boolean
         get() = Build.BRAND.startsWith("generic") &&
             Build.DEVICE.startsWith("generic") ||
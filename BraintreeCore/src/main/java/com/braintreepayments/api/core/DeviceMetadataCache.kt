@@ -0,0 +1,70 @@
+package com.braintreepayments.api.core
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Process-wide cache for the device and app values read by [DeviceInspector].
+ *
+ * The app name and version, the device and Drop-in details do not change while the process is
+ * alive, so they are read from the [android.content.pm.PackageManager] once. Whether another app
+ * is installed can change at any time, so those entries are dropped whenever a package is added,
+ * removed or replaced.
+ */
+internal class DeviceMetadataCache {
+
+    @Volatile
+    private var deviceMetadata: DeviceMetadata? = null
+
+    private val appInstalledByPackageName = ConcurrentHashMap<String, Boolean>()
+    private val isPackageChangeReceiverRegistered = AtomicBoolean(false)
+
+    private val packageChangeReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context?, intent: Intent?) {
+            intent?.data?.schemeSpecificPart?.let { appInstalledByPackageName.remove(it) }
+        }
+    }
+
+    /**
+     * Returns the cached snapshot, creating it with [createDeviceMetadata] on first use.
+     */
+    fun getDeviceMetadata(createDeviceMetadata: () -> DeviceMetadata): DeviceMetadata =
+        deviceMetadata ?: synchronized(this) {
+            deviceMetadata ?: createDeviceMetadata().also { deviceMetadata = it }
+        }
+
+    /**
+     * Returns whether [packageName] is installed, calling [isAppInstalled] only when the value is
+     * not cached or the package has changed since it was cached.
+     */
+    fun isAppInstalled(
+        context: Context,
+        packageName: String,
+        isAppInstalled: () -> Boolean
+    ): Boolean {
+        // register before reading so that a change made while reading invalidates the entry
+        registerPackageChangeReceiver(context)
+        return appInstalledByPackageName.getOrPut(packageName, isAppInstalled)
+    }
+
+    private fun registerPackageChangeReceiver(context: Context) {
+        if (isPackageChangeReceiverRegistered.compareAndSet(false, true)) {
+            val filter = IntentFilter().apply {
+                addAction(Intent.ACTION_PACKAGE_ADDED)
+                addAction(Intent.ACTION_PACKAGE_REMOVED)
+                addAction(Intent.ACTION_PACKAGE_REPLACED)
+                addDataScheme("package")
+            }
+            val applicationContext = context.applicationContext ?: context
+            applicationContext.registerReceiver(packageChangeReceiver, filter)
+        }
+    }
+
+    companion object {
+        val instance: DeviceMetadataCache by lazy { DeviceMetadataCache() }
+    }
+}
@@ -0,0 +1,104 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+
+/**
+ * Writes flat FPTI JSON objects into a reusable buffer.
+ *
+ * The output is identical to [JSONObject.toString] for the same fields put in the same order:
+ * null values are omitted and strings are escaped the way [JSONObject] escapes them. Unlike
+ * [JSONObject], numbers are not boxed and keys are not hashed, and the buffer is kept between
+ * objects so that serializing a batch of events does not allocate one builder per event.
+ */
+internal class FPTIJSONWriter(capacity: Int = DEFAULT_CAPACITY) {
+
+    private val builder = StringBuilder(capacity)
+    private var isFirstField = true
+
+    /**
+     * The object written since the last call to [beginObject]. The returned buffer is reused by
+     * the next object, so it must be consumed before then.
+     */
+    val json: CharSequence
+        get() = builder
+
+    fun beginObject(): FPTIJSONWriter {
+        builder.setLength(0)
+        builder.append('{')
+        isFirstField = true
+        return this
+    }
+
+    fun endObject(): FPTIJSONWriter {
+        builder.append('}')
+        return this
+    }
+
+    fun field(name: String, value: String?): FPTIJSONWriter {
+        if (value != null) {
+            appendName(name)
+            appendQuoted(value)
+        }
+        return this
+    }
+
+    fun field(name: String, value: Long?): FPTIJSONWriter {
+        if (value != null) {
+            appendName(name)
+            builder.append(value)
+        }
+        return this
+    }
+
+    fun field(name: String, value: Double?): FPTIJSONWriter {
+        if (value != null) {
+            appendName(name)
+            builder.append(JSONObject.numberToString(value))
+        }
+        return this
+    }
+
+    fun field(name: String, value: Boolean): FPTIJSONWriter {
+        appendName(name)
+        builder.append(value)
+        return this
+    }
+
+    override fun toString(): String = builder.toString()
+
+    private fun appendName(name: String) {
+        if (!isFirstField) builder.append(',')
+        isFirstField = false
+        appendQuoted(name)
+        builder.append(':')
+    }
+
+    @Suppress("CyclomaticComplexMethod")
+    private fun appendQuoted(value: String) {
+        builder.append('"')
+        for (c in value) {
+            when (c) {
+                '"', '\\', '/' -> builder.append('\\').append(c)
+                '\t' -> builder.append("\\t")
+                '\b' -> builder.append("\\b")
+                '\n' -> builder.append("\\n")
+                '\r' -> builder.append("\\r")
+                '\u000C' -> builder.append("\\f")
+                else -> if (c < ' ') appendUnicodeEscape(c) else builder.append(c)
+            }
+        }
+        builder.append('"')
+    }
+
+    private fun appendUnicodeEscape(c: Char) {
+        builder.append("\\u")
+        val hex = Integer.toHexString(c.code)
+        repeat(UNICODE_ESCAPE_DIGITS - hex.length) { builder.append('0') }
+        builder.append(hex)
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 512
+        private const val UNICODE_ESCAPE_DIGITS = 4
+    }
+}
@@ -0,0 +1,51 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+import java.io.IOException
+import java.io.Writer
+
+/**
+ * Writes FPTI batch payloads without re-parsing the events.
+ *
+ * Events are passed as serialized JSON, so each event is copied into the payload as is instead of
+ * being parsed into a [JSONObject] and serialized again. Events are consumed one at a time, which
+ * allows them to be serialized into a reused [FPTIJSONWriter] buffer.
+ */
+internal object FPTIPayloadWriter {
+
+    private const val FPTI_KEY_EVENTS = "events"
+    private const val FPTI_KEY_BATCH_PARAMS = "batch_params"
+    private const val FPTI_KEY_EVENT_PARAMS = "event_params"
+    private const val AUTHORIZATION_FINGERPRINT_KEY = "authorizationFingerprint"
+
+    /**
+     * Writes a payload holding a single batch of [eventJSONs] to [writer].
+     *
+     * @param batchParams the serialized JSON of the params shared by every event of the batch
+     * @param eventJSONs the serialized JSON of the events of the batch
+     * @param authorizationFingerprint the client token fingerprint Braintree expects at the top
+     * level of the payload, if any
+     */
+    @Throws(IOException::class)
+    fun write(
+        writer: Writer,
+        batchParams: CharSequence,
+        eventJSONs: Sequence<CharSequence>,
+        authorizationFingerprint: String? = null
+    ) {
+        // Single-element "events" array required by FPTI formatting
+        writer.write("{\"$FPTI_KEY_EVENTS\":[{\"$FPTI_KEY_BATCH_PARAMS\":")
+        writer.append(batchParams)
+        writer.write(",\"$FPTI_KEY_EVENT_PARAMS\":[")
+        eventJSONs.forEachIndexed { index, eventJSON ->
+            if (index > 0) writer.write(",")
+            writer.append(eventJSON)
+        }
+        writer.write("]}]")
+        authorizationFingerprint?.let {
+            writer.write(",\"$AUTHORIZATION_FINGERPRINT_KEY\":")
+            writer.write(JSONObject.quote(it))
+        }
+        writer.write("}")
+    }
+}
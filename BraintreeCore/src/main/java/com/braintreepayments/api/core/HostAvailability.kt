@@ -0,0 +1,23 @@
+package com.braintreepayments.api.core
+
+/**
+ * Availability of a Braintree host as observed by the SDK's requests to it.
+ */
+enum class HostAvailability {
+
+    /**
+     * Requests to the host succeed.
+     */
+    AVAILABLE,
+
+    /**
+     * Most recent requests to the host failed. Background requests to it are not sent until it
+     * recovers; requests made on behalf of the customer are still sent.
+     */
+    UNAVAILABLE,
+
+    /**
+     * A request is being sent to find out whether the host has recovered.
+     */
+    PROBING
+}
@@ -0,0 +1,18 @@
+package com.braintreepayments.api.core
+
+import androidx.annotation.WorkerThread
+
+/**
+ * Notified when the [HostAvailability] of a Braintree host changes.
+ */
+fun interface HostAvailabilityListener {
+
+    /**
+     * Called on the background thread of the request that caused the change.
+     *
+     * @param host the host name, e.g. `api.braintreegateway.com`
+     * @param availability the new availability of [host]
+     */
+    @WorkerThread
+    fun onHostAvailabilityChanged(host: String, availability: HostAvailability)
+}
@@ -0,0 +1,53 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.CircuitBreaker
+import com.braintreepayments.api.sharedutils.CircuitBreakerListener
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Reports when Braintree hosts become unavailable and recover, e.g. to show a degraded checkout
+ * state while the gateway is failing. Availability is shared by all clients in the process.
+ */
+class HostAvailabilityMonitor internal constructor(
+    private val circuitBreaker: CircuitBreaker
+) {
+
+    private val circuitBreakerListeners =
+        ConcurrentHashMap<HostAvailabilityListener, CircuitBreakerListener>()
+
+    /**
+     * @return the current availability of [host]
+     */
+    fun getAvailability(host: String): HostAvailability =
+        toHostAvailability(circuitBreaker.getState(host))
+
+    fun addListener(listener: HostAvailabilityListener) {
+        val circuitBreakerListener = CircuitBreakerListener { host, state ->
+            listener.onHostAvailabilityChanged(host, toHostAvailability(state))
+        }
+        if (circuitBreakerListeners.putIfAbsent(listener, circuitBreakerListener) == null) {
+            circuitBreaker.addListener(circuitBreakerListener)
+        }
+    }
+
+    fun removeListener(listener: HostAvailabilityListener) {
+        circuitBreakerListeners.remove(listener)?.let { circuitBreaker.removeListener(it) }
+    }
+
+    companion object {
+
+        private fun toHostAvailability(state: CircuitBreaker.State) = when (state) {
+            CircuitBreaker.State.CLOSED -> HostAvailability.AVAILABLE
+            CircuitBreaker.State.OPEN -> HostAvailability.UNAVAILABLE
+            CircuitBreaker.State.HALF_OPEN -> HostAvailability.PROBING
+        }
+
+        /**
+         * Monitor of the hosts used by all Braintree clients in the process.
+         */
+        @JvmStatic
+        val instance: HostAvailabilityMonitor by lazy {
+            HostAvailabilityMonitor(CircuitBreaker.instance)
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.Time
+
+/**
+ * In-memory tier in front of [ConfigurationCache] that holds already parsed [Configuration]
+ * objects, so that cache hits do not have to read and re-parse the configuration JSON stored in
+ * shared preferences. Entries expire after the time to live requested by the caller, which
+ * defaults to the one of [ConfigurationCache].
+ */
+internal class InMemoryConfigurationCache(
+    private val time: Time = Time()
+) {
+
+    class Entry(val configuration: Configuration, val timestamp: Long)
+
+    private val entries = object : LinkedHashMap<String, Entry>(MAX_ENTRIES, LOAD_FACTOR, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?) =
+            size > MAX_ENTRIES
+    }
+
+    fun getConfiguration(key: String): Configuration? =
+        getEntry(key, ConfigurationCache.TIME_TO_LIVE)?.configuration
+
+    /**
+     * @return the entry for [key] if it is younger than [timeToLive], or null otherwise
+     */
+    fun getEntry(key: String, timeToLive: Long): Entry? = synchronized(entries) {
+        val entry = entries[key] ?: return null
+        if (time.currentTime - entry.timestamp < timeToLive) {
+            entry
+        } else {
+            entries.remove(key)
+            null
+        }
+    }
+
+    /**
+     * @param timestamp the time at which [configuration] was fetched, used to expire the entry
+     */
+    fun putConfiguration(key: String, configuration: Configuration, timestamp: Long) {
+        synchronized(entries) {
+            entries[key] = Entry(configuration, timestamp)
+        }
+    }
+
+    fun clear() {
+        synchronized(entries) {
+            entries.clear()
+        }
+    }
+
+    companion object {
+        private const val MAX_ENTRIES = 4
+        private const val LOAD_FACTOR = 0.75f
+    }
+}
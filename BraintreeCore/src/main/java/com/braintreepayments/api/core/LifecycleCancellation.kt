@@ -0,0 +1,45 @@
+package com.braintreepayments.api.core
+
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import com.braintreepayments.api.sharedutils.CancellationToken
+
+/**
+ * Binds [CancellationToken]s to a [Lifecycle], so that requests started from a screen are
+ * cancelled when the screen is destroyed.
+ */
+object LifecycleCancellation {
+
+    /**
+     * Creates a [CancellationToken] that is cancelled when [lifecycleOwner] is destroyed. Must be
+     * called on the main thread.
+     *
+     * @param lifecycleOwner e.g. the Activity or Fragment that starts the requests
+     * @return a new [CancellationToken], already cancelled if [lifecycleOwner] is destroyed
+     */
+    @JvmStatic
+    fun createToken(lifecycleOwner: LifecycleOwner): CancellationToken =
+        CancellationToken().also { bind(it, lifecycleOwner) }
+
+    /**
+     * Cancels [cancellationToken] when [lifecycleOwner] is destroyed, or immediately if it
+     * already is. Must be called on the main thread.
+     */
+    @JvmStatic
+    fun bind(cancellationToken: CancellationToken, lifecycleOwner: LifecycleOwner) {
+        val lifecycle = lifecycleOwner.lifecycle
+        if (lifecycle.currentState == Lifecycle.State.DESTROYED) {
+            cancellationToken.cancel()
+            return
+        }
+        lifecycle.addObserver(object : LifecycleEventObserver {
+            override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.lifecycle.removeObserver(this)
+                    cancellationToken.cancel()
+                }
+            }
+        })
+    }
+}
@@ -0,0 +1,11 @@
+package com.braintreepayments.api.core
+
+/**
+ * Callback for receiving result of `prewarm` on a payment client, e.g. `CardClient.prewarm`.
+ */
+fun interface PrewarmCallback {
+    /**
+     * @param results the outcome of every [PrewarmStep] performed, in the order they ran
+     */
+    fun onResult(results: List<PrewarmStepResult>)
+}
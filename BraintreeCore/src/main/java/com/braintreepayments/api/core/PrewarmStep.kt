@@ -0,0 +1,28 @@
+package com.braintreepayments.api.core
+
+/**
+ * A unit of work performed by `prewarm` on a payment client, e.g. `CardClient.prewarm`.
+ */
+enum class PrewarmStep {
+
+    /**
+     * Initializes the TLS context shared by all Braintree http clients.
+     */
+    TLS_SOCKET_FACTORY,
+
+    /**
+     * Opens the analytics database, running any pending migration.
+     */
+    ANALYTICS_DATABASE,
+
+    /**
+     * Loads the merchant configuration into the configuration cache.
+     */
+    CONFIGURATION,
+
+    /**
+     * Opens and handshakes a TLS connection to the client API and GraphQL hosts so that later
+     * requests can resume the TLS session.
+     */
+    PRECONNECT
+}
@@ -0,0 +1,17 @@
+package com.braintreepayments.api.core
+
+/**
+ * Outcome of a single [PrewarmStep].
+ *
+ * @property step the step that was performed
+ * @property durationMillis how long the step took, in milliseconds
+ * @property error the exception that made the step fail, or null if it succeeded
+ */
+data class PrewarmStepResult(
+    val step: PrewarmStep,
+    val durationMillis: Long,
+    val error: Exception? = null
+) {
+    val isSuccessful: Boolean
+        get() = error == null
+}
@@ -0,0 +1,112 @@
+package com.braintreepayments.api.core
+
+import android.os.Handler
+import android.os.Looper
+import com.braintreepayments.api.sharedutils.TaskPriority
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.asExecutor
+import java.net.InetSocketAddress
+import java.net.Socket
+import java.net.URL
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import javax.net.ssl.SSLSocket
+import javax.net.ssl.SSLSocketFactory
+
+/**
+ * Performs the work that otherwise happens on the first payment request, so that it can be done
+ * ahead of time, e.g. at app start or when the user enters the checkout flow.
+ */
+internal class Prewarmer(
+    private val configurationLoader: ConfigurationLoader,
+    private val analyticsDatabase: AnalyticsDatabase,
+    private val socketFactoryProvider: () -> SSLSocketFactory = {
+        TLSSocketFactoryProvider.getSocketFactory()
+    },
+    private val backgroundExecutor: Executor = Dispatchers.IO.asExecutor(),
+    private val mainThreadExecutor: Executor = Executor {
+        Handler(Looper.getMainLooper()).post(it)
+    }
+) {
+
+    /**
+     * Runs every [PrewarmStep] in the background and notifies [callback] on the main thread.
+     * Failed steps are reported to [callback] and do not stop the steps that follow.
+     *
+     * No thread waits on the configuration: the steps that follow it are chained from the
+     * configuration callback.
+     *
+     * @param preconnect whether to open a connection to the hosts in the configuration
+     */
+    fun prewarm(preconnect: Boolean, callback: PrewarmCallback?) {
+        backgroundExecutor.execute {
+            val results = mutableListOf<PrewarmStepResult>()
+            results += measure(PrewarmStep.TLS_SOCKET_FACTORY) { socketFactoryProvider() }
+            results += measure(PrewarmStep.ANALYTICS_DATABASE) {
+                analyticsDatabase.openHelper.writableDatabase
+            }
+
+            val configurationStartTime = System.nanoTime()
+            // nobody is waiting on the configuration yet, so it must not delay user requests
+            configurationLoader.loadConfiguration(TaskPriority.PREFETCH) { result ->
+                val error = (result as? ConfigurationLoaderResult.Failure)?.error
+                results += PrewarmStepResult(
+                    PrewarmStep.CONFIGURATION,
+                    elapsedMillis(configurationStartTime),
+                    error
+                )
+
+                val configuration = (result as? ConfigurationLoaderResult.Success)?.configuration
+                if (configuration != null && preconnect) {
+                    // the configuration may be delivered on the main thread
+                    backgroundExecutor.execute {
+                        results += measure(PrewarmStep.PRECONNECT) {
+                            preconnect(setOf(configuration.clientApiUrl, configuration.graphQLUrl))
+                        }
+                        notifyResults(results, callback)
+                    }
+                } else {
+                    notifyResults(results, callback)
+                }
+            }
+        }
+    }
+
+    private fun notifyResults(results: List<PrewarmStepResult>, callback: PrewarmCallback?) {
+        callback?.let { mainThreadExecutor.execute { it.onResult(results) } }
+    }
+
+    private fun preconnect(urls: Set<String>) {
+        val socketFactory = socketFactoryProvider()
+        urls.filter { it.isNotEmpty() }.map { URL(it) }.forEach { url ->
+            val port = if (url.port == -1) url.defaultPort else url.port
+            Socket().use { socket ->
+                socket.connect(InetSocketAddress(url.host, port), PRECONNECT_TIMEOUT_MILLIS)
+                socket.soTimeout = PRECONNECT_TIMEOUT_MILLIS
+                // the handshake stores the TLS session for later requests to resume
+                (socketFactory.createSocket(socket, url.host, port, true) as SSLSocket).use {
+                    it.startHandshake()
+                }
+            }
+        }
+    }
+
+    @Suppress("TooGenericExceptionCaught")
+    private inline fun measure(step: PrewarmStep, block: () -> Unit): PrewarmStepResult {
+        val startTime = System.nanoTime()
+        val error = try {
+            block()
+            null
+        } catch (e: Exception) {
+            e
+        }
+        return PrewarmStepResult(step, elapsedMillis(startTime), error)
+    }
+
+    private fun elapsedMillis(startTime: Long) =
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+
+    companion object {
+        private const val PRECONNECT_TIMEOUT_MILLIS = 10_000
+    }
+}
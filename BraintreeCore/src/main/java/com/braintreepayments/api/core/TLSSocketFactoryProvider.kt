@@ -0,0 +1,28 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.TLSSocketFactory
+import javax.net.ssl.SSLException
+
+/**
+ * Holds the process-wide [TLSSocketFactory] used by [BraintreeHttpClient] and
+ * [BraintreeGraphQLClient].
+ *
+ * Parsing the [TLSCertificatePinning] bundle and initializing the key store and SSL context is
+ * expensive, so it is done once per process instead of once per http client. Callers that need
+ * it ready ahead of time, like `Prewarmer`, call [getSocketFactory] on a background thread.
+ */
+internal object TLSSocketFactoryProvider {
+
+    @Volatile
+    private var socketFactory: TLSSocketFactory? = null
+
+    /**
+     * Returns the shared [TLSSocketFactory], creating it on the calling thread if needed.
+     */
+    @Throws(SSLException::class)
+    fun getSocketFactory(): TLSSocketFactory =
+        socketFactory ?: synchronized(this) {
+            socketFactory ?: TLSSocketFactory(TLSCertificatePinning.createCertificateInputStream())
+                .also { socketFactory = it }
+        }
+}
@@ -8,6 +8,7 @@ import com.braintreepayments.api.core.AnalyticsClient.Companion.WORK_INPUT_KEY_S
 import com.braintreepayments.api.core.AnalyticsClient.Companion.WORK_NAME_ANALYTICS_UPLOAD
 import com.braintreepayments.api.core.Authorization.Companion.fromString
 import com.braintreepayments.api.core.Configuration.Companion.fromJson
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.sharedutils.Time
 import com.braintreepayments.api.testutils.Fixtures
 import io.mockk.*
@@ -40,9 +41,10 @@ class AnalyticsClientUnitTest {
     private lateinit var workManager: WorkManager
     private lateinit var analyticsDatabase: AnalyticsDatabase
     private lateinit var analyticsEventBlobDao: AnalyticsEventBlobDao
+    private lateinit var analyticsEventBuffer: AnalyticsEventBuffer
     private val merchantRepository: MerchantRepository = mockk(relaxed = true)
 
-    private lateinit var configurationLoader: ConfigurationLoader
+    private lateinit var configurationCache: ConfigurationCache
 
     private lateinit var sut: AnalyticsClient
 
@@ -66,6 +68,7 @@ class AnalyticsClientUnitTest {
         analyticsParamRepository = mockk(relaxed = true)
         analyticsDatabase = mockk(relaxed = true)
         analyticsEventBlobDao = mockk(relaxed = true)
+        analyticsEventBuffer = mockk(relaxed = true)
         workManager = mockk(relaxed = true)
         time = mockk(relaxed = true)
 
@@ -77,9 +80,10 @@ class AnalyticsClientUnitTest {
         every { merchantRepository.applicationContext } returns context
         every { merchantRepository.returnUrlScheme } returns returnUrlScheme
 
-        configurationLoader = MockkConfigurationLoaderBuilder()
-            .configuration(configuration)
-            .build()
+        configurationCache = mockk(relaxed = true)
+        every {
+            configurationCache.getAnalyticsConfiguration()
+        } returns AnalyticsConfiguration("fake-environment", "fake-merchant-id")
 
         sut = AnalyticsClient(
             httpClient = httpClient,
@@ -88,41 +92,41 @@ class AnalyticsClientUnitTest {
             deviceInspector = deviceInspector,
             analyticsParamRepository = analyticsParamRepository,
             time = time,
-            configurationLoader = configurationLoader,
-            merchantRepository = merchantRepository
+            configurationCache = configurationCache,
+            merchantRepository = merchantRepository,
+            analyticsEventBuffer = analyticsEventBuffer
         )
     }
 
     @Test
     @Throws(JSONException::class)
-    fun sendEvent_convertsAnalyticsEventWithRequiredParamsToJSONAndEnqueuesItForWriteToDbWorker() {
-        val workRequestSlot = slot<OneTimeWorkRequest>()
+    fun sendEvent_convertsAnalyticsEventWithRequiredParamsToJSONAndAddsItToEventBuffer() {
+        val eventBlobSlot = slot<AnalyticsEventBlob>()
+        val authorizationSlot = slot<String>()
         every {
-            workManager.enqueueUniqueWork(
-                "writeAnalyticsToDb",
-                ExistingWorkPolicy.APPEND_OR_REPLACE,
-                capture(workRequestSlot)
-            )
-        } returns mockk()
+            analyticsEventBuffer.add(capture(eventBlobSlot), capture(authorizationSlot))
+        } returns Unit
 
         sut.sendEvent(eventName, AnalyticsEventParams(appSwitchUrl = returnUrlScheme))
 
-        val workSpec = workRequestSlot.captured.workSpec
-        assertEquals(AnalyticsWriteToDbWorker::class.java.name, workSpec.workerClassName)
-        assertEquals(authorization.toString(), workSpec.input.getString("authorization"))
-
-        // language=JSON
-        val expectedJSON = """
-        {
-          "event_name": "sample-event-name",
-          "t": 123,
-          "is_vault": false,
-          "tenant_name": "Braintree",
-          "url": "$returnUrlScheme"
+        val eventBlob = eventBlobSlot.captured
+        assertEquals(sessionId, eventBlob.sessionId)
+        assertEquals(authorization.toString(), authorizationSlot.captured)
+        verify(exactly = 0) {
+            workManager.enqueueUniqueWork(
+                "writeAnalyticsToDb",
+                any(),
+                any<OneTimeWorkRequest>()
+            )
         }
-        """
-        val actualJSON = workSpec.input.getString(WORK_INPUT_KEY_ANALYTICS_JSON)!!
-        JSONAssert.assertEquals(JSONObject(expectedJSON), JSONObject(actualJSON), true)
+
+        val expectedEvent = AnalyticsEvent(
+            name = eventName,
+            timestamp = timestamp,
+            appSwitchUrl = returnUrlScheme
+        )
+        assertEquals(expectedEvent, AnalyticsEventCodec.decode(eventBlob.payload!!))
+        assertEquals(timestamp, eventBlob.timestamp)
     }
 
     fun sendEvent_convertsAnalyticsEventWithOptionalParamsToJSONAndEnqueuesItForWriteToDbWorker() {
@@ -178,6 +182,62 @@ class AnalyticsClientUnitTest {
         JSONAssert.assertEquals(JSONObject(expectedJSON), JSONObject(actualJSON), true)
     }
 
+    @Test
+    fun sendEvent_whenEventIsSampled_recordsSampleRate() {
+        val analyticsEventSampler = mockk<AnalyticsEventSampler>()
+        every { analyticsEventSampler.shouldSend(eventName, sessionId) } returns true
+        every { analyticsEventSampler.getSampleRate(eventName) } returns 0.25
+        val eventBlobSlot = slot<AnalyticsEventBlob>()
+        every { analyticsEventBuffer.add(capture(eventBlobSlot), any()) } returns Unit
+
+        val sut = AnalyticsClient(
+            httpClient = httpClient,
+            analyticsDatabase = analyticsDatabase,
+            workManager = workManager,
+            analyticsParamRepository = analyticsParamRepository,
+            time = time,
+            configurationCache = configurationCache,
+            merchantRepository = merchantRepository,
+            analyticsEventBuffer = analyticsEventBuffer,
+            analyticsEventSampler = analyticsEventSampler
+        )
+        sut.sendEvent(eventName)
+
+        val event = AnalyticsEventCodec.decode(eventBlobSlot.captured.payload!!)
+        assertEquals(0.25, event.sampleRate!!, 0.0)
+    }
+
+    @Test
+    fun sendEvent_whenEventIsSampledOut_doesNotBufferEvent() {
+        val analyticsEventSampler = mockk<AnalyticsEventSampler>()
+        every { analyticsEventSampler.shouldSend(eventName, sessionId) } returns false
+
+        val sut = AnalyticsClient(
+            httpClient = httpClient,
+            analyticsDatabase = analyticsDatabase,
+            workManager = workManager,
+            analyticsParamRepository = analyticsParamRepository,
+            configurationCache = configurationCache,
+            merchantRepository = merchantRepository,
+            analyticsEventBuffer = analyticsEventBuffer,
+            analyticsEventSampler = analyticsEventSampler
+        )
+        sut.sendEvent(eventName)
+
+        verify { analyticsEventBuffer wasNot Called }
+        verify { workManager wasNot Called }
+    }
+
+    @Test
+    fun sendEvent_whenAuthorizationIsInvalid_doesNotBufferEvent() {
+        every { merchantRepository.authorization } returns InvalidAuthorization("invalid", "error")
+
+        sut.sendEvent(eventName)
+
+        verify { analyticsEventBuffer wasNot Called }
+        verify { workManager wasNot Called }
+    }
+
     @Test
     fun writeAnalytics_whenAnalyticsJSONIsPresent_returnsSuccess() {
         val inputData = Data.Builder()
@@ -226,7 +286,7 @@ class AnalyticsClientUnitTest {
             analyticsDatabase = analyticsDatabase,
             workManager = workManager,
             deviceInspector = deviceInspector,
-            configurationLoader = configurationLoader,
+            configurationCache = configurationCache,
             merchantRepository = merchantRepository
         )
         sut.performAnalyticsUpload(inputData)
@@ -250,23 +310,25 @@ class AnalyticsClientUnitTest {
         every { deviceInspector.isVenmoInstalled(context) } returns true
         every { deviceInspector.isPayPalInstalled(context) } returns true
         every {
-            deviceInspector.getDeviceMetadata(context, any(), sessionId, integration)
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
         } returns metadata
 
         val blobs = listOf(
             AnalyticsEventBlob(jsonString = """{ "fake": "json" }""", sessionId = sessionId)
         )
-        every { analyticsEventBlobDao.getBlobsBySessionId(sessionId) } returns blobs
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
 
-        val analyticsJSONSlot = slot<String>()
+        val analyticsJSONSlot = slot<ByteArray>()
         every {
             httpClient.post(
                 "https://api-m.paypal.com/v1/tracking/batch/events",
                 capture(analyticsJSONSlot),
+                null,
                 any(),
-                any()
+                any(),
+                TaskPriority.TELEMETRY
             )
-        }
+        } returns ""
 
         sut.performAnalyticsUpload(inputData)
 
@@ -302,25 +364,52 @@ class AnalyticsClientUnitTest {
           ]
         }
         """
-        val actualJSON = JSONObject(analyticsJSONSlot.captured)
+        val actualJSON = JSONObject(String(analyticsJSONSlot.captured, Charsets.UTF_8))
         JSONAssert.assertEquals(JSONObject(expectedJSON), actualJSON, true)
     }
 
     @Test
-    fun uploadAnalytics_whenConfigurationIsNull_doesNothing() {
+    fun uploadAnalytics_whenAnalyticsConfigurationIsNotCached_returnsRetry() {
+        every { configurationCache.getAnalyticsConfiguration() } returns null
         val inputData = Data.Builder()
             .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
-            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
             .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
             .build()
 
         val result = sut.performAnalyticsUpload(inputData)
-        assertTrue(result is ListenableWorker.Result.Failure)
+        assertTrue(result is ListenableWorker.Result.Retry)
 
         // or confirmVerified(httpClient)
         verify { httpClient wasNot Called }
     }
 
+    @Test
+    fun uploadAnalytics_whenAnalyticsConfigurationIsNotCached_usesConfigurationOfLegacyJob() {
+        every { configurationCache.getAnalyticsConfiguration() } returns null
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+        val blobs = listOf(
+            AnalyticsEventBlob(jsonString = """{ "fake": "json" }""", sessionId = sessionId)
+        )
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
+
+        val result = sut.performAnalyticsUpload(inputData)
+
+        assertTrue(result is ListenableWorker.Result.Success)
+        verify {
+            deviceInspector.getDeviceMetadata(
+                context,
+                configuration.environment,
+                configuration.merchantId,
+                sessionId,
+                integration
+            )
+        }
+    }
+
     @Test
     @Throws(JSONException::class)
     fun uploadAnalytics_whenAuthorizationIsNull_doesNothing() {
@@ -351,7 +440,7 @@ class AnalyticsClientUnitTest {
             .build()
 
         every {
-            deviceInspector.getDeviceMetadata(context, any(), sessionId, integration)
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
         } returns createSampleDeviceMetadata()
 
         val blobs = listOf(
@@ -360,14 +449,15 @@ class AnalyticsClientUnitTest {
                 sessionId = sessionId
             )
         )
-        every { analyticsEventBlobDao.getBlobsBySessionId(sessionId) } returns blobs
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
 
-        val analyticsJSONSlot = slot<String>()
-        every { httpClient.post(any(), capture(analyticsJSONSlot), any(), any()) }
+        val analyticsJSONSlot = slot<ByteArray>()
+        every { httpClient.post(any(), capture(analyticsJSONSlot), any(), any(), any(), any()) } returns ""
 
         sut.performAnalyticsUpload(inputData)
 
-        val analyticsJson = JSONObject(analyticsJSONSlot.captured)
+        val analyticsJson = JSONObject(String(analyticsJSONSlot.captured, Charsets.UTF_8))
+        assertEquals("encoded_auth_fingerprint", analyticsJson["authorizationFingerprint"])
 
         val eventJSON = analyticsJson.getJSONArray("events")[0] as JSONObject
         val batchParams = eventJSON["batch_params"] as JSONObject
@@ -375,19 +465,102 @@ class AnalyticsClientUnitTest {
     }
 
     @Test
-    @Throws(JSONException::class)
-    fun uploadAnalytics_whenSessionIdIsNull_doesNothing() {
+    @Throws(Exception::class)
+    fun uploadAnalytics_convertsEncodedEventsToJSONAndSkipsCorruptOnes() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+        every {
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
+        } returns createSampleDeviceMetadata()
+
+        val event = AnalyticsEvent(
+            name = eventName,
+            timestamp = timestamp,
+            appSwitchUrl = returnUrlScheme,
+            sampleRate = 0.25
+        )
+        val blobs = listOf(
+            AnalyticsEventBlob(
+                id = 1L,
+                jsonString = "",
+                sessionId = sessionId,
+                payload = AnalyticsEventCodec.encode(event)
+            ),
+            AnalyticsEventBlob(
+                id = 2L,
+                jsonString = "",
+                sessionId = sessionId,
+                payload = byteArrayOf(0)
+            )
+        )
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
+
+        val analyticsJSONSlot = slot<ByteArray>()
+        every { httpClient.post(any(), capture(analyticsJSONSlot), any(), any(), any(), any()) } returns ""
+
+        val result = sut.performAnalyticsUpload(inputData)
+
+        assertTrue(result is ListenableWorker.Result.Success)
+        val analyticsJson = JSONObject(String(analyticsJSONSlot.captured, Charsets.UTF_8))
+        val eventParams = analyticsJson.getJSONArray("events").getJSONObject(0)
+            .getJSONArray("event_params")
+        assertEquals(1, eventParams.length())
+
+        // language=JSON
+        val expectedJSON = """
+        {
+          "event_name": "sample-event-name",
+          "t": 123,
+          "is_vault": false,
+          "tenant_name": "Braintree",
+          "url": "$returnUrlScheme",
+          "sample_rate": 0.25
+        }
+        """
+        JSONAssert.assertEquals(JSONObject(expectedJSON), eventParams.getJSONObject(0), true)
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange(sessionId, 1L, 2L) }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_uploadsEventsOfEverySessionWithTheirOwnBatchParams() {
         val inputData = Data.Builder()
             .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
             .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
             .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
             .build()
+        every {
+            deviceInspector.getDeviceMetadata(context, any(), any(), "session-a", integration)
+        } returns createSampleDeviceMetadata().copy(sessionId = "session-a")
+        every {
+            deviceInspector.getDeviceMetadata(context, any(), any(), "session-b", integration)
+        } returns createSampleDeviceMetadata().copy(sessionId = "session-b")
+
+        val blobs = listOf(
+            AnalyticsEventBlob(id = 1L, jsonString = """{ "fake": "a1" }""", sessionId = "session-a"),
+            AnalyticsEventBlob(id = 2L, jsonString = """{ "fake": "b1" }""", sessionId = "session-b"),
+            AnalyticsEventBlob(id = 3L, jsonString = """{ "fake": "a2" }""", sessionId = "session-a")
+        )
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
+
+        val analyticsJSONs = mutableListOf<ByteArray>()
+        every { httpClient.post(any(), capture(analyticsJSONs), any(), any(), any(), any()) } returns ""
 
         val result = sut.performAnalyticsUpload(inputData)
-        assertTrue(result is ListenableWorker.Result.Failure)
 
-        // or confirmVerified(httpClient)
-        verify { httpClient wasNot Called }
+        assertTrue(result is ListenableWorker.Result.Success)
+        assertEquals(2, analyticsJSONs.size)
+        val sessionIds = analyticsJSONs.map {
+            val json = JSONObject(String(it, Charsets.UTF_8))
+            val events = json.getJSONArray("events").getJSONObject(0)
+            events.getJSONObject("batch_params").getString("session_id") to
+                events.getJSONArray("event_params").length()
+        }
+        assertEquals(listOf("session-a" to 2, "session-b" to 1), sessionIds)
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange("session-a", 1L, 3L) }
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange("session-b", 2L, 2L) }
     }
 
     @Test
@@ -406,6 +579,71 @@ class AnalyticsClientUnitTest {
         verify { httpClient wasNot Called }
     }
 
+    @Test
+    fun uploadAnalytics_usesAuthorizationStoredForEachSession() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+        val blobs = listOf(
+            AnalyticsEventBlob(id = 1L, jsonString = """{ "fake": "json" }""", sessionId = "a"),
+            AnalyticsEventBlob(id = 2L, jsonString = """{ "fake": "json" }""", sessionId = "b")
+        )
+        every {
+            deviceInspector.getDeviceMetadata(context, any(), any(), any(), integration)
+        } returns createSampleDeviceMetadata()
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
+        every { analyticsEventBlobDao.getSessionAuthorization("a") } returns
+            Fixtures.BASE64_CLIENT_TOKEN2
+        // events stored before sessions had an authorization use the one of the job
+        every { analyticsEventBlobDao.getSessionAuthorization("b") } returns null
+
+        val authorizationSlots = mutableListOf<Authorization>()
+        every {
+            httpClient.post(any(), any(), any(), any(), capture(authorizationSlots), any())
+        } returns ""
+
+        sut.performAnalyticsUpload(inputData)
+
+        assertEquals(2, authorizationSlots.size)
+        assertTrue(authorizationSlots[0] is ClientToken)
+        assertEquals(authorization.toString(), authorizationSlots[1].toString())
+        verify { analyticsEventBlobDao.deleteSessionsWithoutEvents() }
+    }
+
+    @Test
+    fun uploadAnalytics_whenEventsWereRecordedDuringUpload_appendsAnotherUpload() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+        every { analyticsEventBlobDao.getEventBlobCount() } returns 1
+
+        sut.performAnalyticsUpload(inputData)
+
+        verify {
+            workManager.enqueueUniqueWork(
+                WORK_NAME_ANALYTICS_UPLOAD,
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
+                any<OneTimeWorkRequest>()
+            )
+        }
+    }
+
+    @Test
+    fun uploadAnalytics_whenNoEventsWereRecordedDuringUpload_doesNotScheduleAnotherUpload() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+
+        sut.performAnalyticsUpload(inputData)
+
+        verify(exactly = 0) {
+            workManager.enqueueUniqueWork(any(), any(), any<OneTimeWorkRequest>())
+        }
+    }
+
     @Test
     @Throws(Exception::class)
     fun uploadAnalytics_deletesDatabaseEventsOnSuccessResponse() {
@@ -418,7 +656,7 @@ class AnalyticsClientUnitTest {
 
         val metadata = createSampleDeviceMetadata()
         every {
-            deviceInspector.getDeviceMetadata(context, any(), sessionId, integration)
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
         } returns metadata
 
         val blobs = listOf(
@@ -427,16 +665,65 @@ class AnalyticsClientUnitTest {
                 sessionId = sessionId
             )
         )
-        every { analyticsEventBlobDao.getBlobsBySessionId(sessionId) } returns blobs
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
 
         sut.performAnalyticsUpload(inputData)
 
-        verify { analyticsEventBlobDao.deleteEventBlobs(blobs) }
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange(sessionId, 0L, 0L) }
     }
 
     @Test
     @Throws(Exception::class)
-    fun uploadAnalytics_whenAnalyticsSendFails_returnsError() {
+    fun uploadAnalytics_whenEventsExceedBatchSize_uploadsAndDeletesEventsInBatches() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+        every {
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
+        } returns createSampleDeviceMetadata()
+
+        val firstBatch = (1L..100L).map {
+            AnalyticsEventBlob(id = it, jsonString = """{ "fake": "json" }""", sessionId = sessionId)
+        }
+        val secondBatch = listOf(
+            AnalyticsEventBlob(id = 101L, jsonString = """{ "fake": "json" }""", sessionId = sessionId)
+        )
+        every { analyticsEventBlobDao.getEventBlobs(0L, 100) } returns firstBatch
+        every { analyticsEventBlobDao.getEventBlobs(100L, 100) } returns secondBatch
+
+        val result = sut.performAnalyticsUpload(inputData)
+
+        assertTrue(result is ListenableWorker.Result.Success)
+        verify(exactly = 2) { httpClient.post(any(), any<ByteArray>(), any(), any(), any(), any()) }
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange(sessionId, 1L, 100L) }
+        verify { analyticsEventBlobDao.deleteEventBlobsInRange(sessionId, 101L, 101L) }
+        verify(exactly = 0) { analyticsEventBlobDao.getEventBlobs(101L, any()) }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_flushesEventBufferBeforeReadingDatabase() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_SESSION_ID, sessionId)
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+
+        sut.performAnalyticsUpload(inputData)
+
+        verifyOrder {
+            analyticsEventBuffer.flush()
+            analyticsEventBlobDao.getEventBlobs(0L, any())
+        }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_whenAnalyticsSendFails_returnsRetry() {
         val inputData = Data.Builder()
             .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
             .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
@@ -445,7 +732,7 @@ class AnalyticsClientUnitTest {
             .build()
 
         every {
-            deviceInspector.getDeviceMetadata(context, any(), sessionId, integration)
+            deviceInspector.getDeviceMetadata(context, any(), any(), sessionId, integration)
         } returns createSampleDeviceMetadata()
 
         val blobs = listOf(
@@ -454,12 +741,35 @@ class AnalyticsClientUnitTest {
                 sessionId = sessionId
             )
         )
-        every { analyticsEventBlobDao.getBlobsBySessionId(sessionId) } returns blobs
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
 
         val httpError = Exception("error")
-        every { httpClient.post(any(), any(), any(), any()) } throws httpError
+        every { httpClient.post(any(), any<ByteArray>(), any(), any(), any(), any()) } throws httpError
 
         val result = sut.performAnalyticsUpload(inputData)
+        assertTrue(result is ListenableWorker.Result.Retry)
+        verify(exactly = 0) { analyticsEventBlobDao.deleteEventBlobsInRange(any(), any(), any()) }
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun uploadAnalytics_whenAnalyticsSendFailsOnLastAttempt_returnsFailure() {
+        val inputData = Data.Builder()
+            .putString(AnalyticsClient.WORK_INPUT_KEY_AUTHORIZATION, authorization.toString())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION, configuration.toJson())
+            .putString(AnalyticsClient.WORK_INPUT_KEY_INTEGRATION, integration.stringValue)
+            .build()
+
+        val blobs = listOf(
+            AnalyticsEventBlob(
+                jsonString = """{ "fake": "json" }""",
+                sessionId = sessionId
+            )
+        )
+        every { analyticsEventBlobDao.getEventBlobs(0L, any()) } returns blobs
+        every { httpClient.post(any(), any<ByteArray>(), any(), any(), any(), any()) } throws Exception("error")
+
+        val result = sut.performAnalyticsUpload(inputData, runAttemptCount = 4)
         assertTrue(result is ListenableWorker.Result.Failure)
     }
 
@@ -481,6 +791,7 @@ class AnalyticsClientUnitTest {
                 data = capture(analyticsJSONSlot),
                 configuration = any(),
                 authorization = authorization,
+                priority = TaskPriority.TELEMETRY,
                 callback = any()
             )
         } returns Unit
@@ -545,16 +856,40 @@ class AnalyticsClientUnitTest {
     }
 
     @Test
-    fun `sendEvent enqueues work to upload analytic events with sessionId in the name`() {
+    fun `sendEvent only buffers the event without scheduling an upload`() {
         sut.sendEvent("event-name")
 
-        verify {
+        verify { analyticsEventBuffer.add(any(), authorization.toString()) }
+        verify { workManager wasNot Called }
+    }
+
+    @Test
+    fun `onAnalyticsEventsFlushed enqueues a single coalesced work to upload analytic events`() {
+        val workRequestSlot = slot<OneTimeWorkRequest>()
+        every {
             workManager.enqueueUniqueWork(
-                WORK_NAME_ANALYTICS_UPLOAD + sessionId,
+                WORK_NAME_ANALYTICS_UPLOAD,
                 ExistingWorkPolicy.KEEP,
-                any<OneTimeWorkRequest>()
+                capture(workRequestSlot)
             )
-        }
+        } returns mockk()
+
+        sut.onAnalyticsEventsFlushed(listOf(AnalyticsSession(sessionId, authorization.toString())))
+
+        val workSpec = workRequestSlot.captured.workSpec
+        assertEquals(AnalyticsUploadWorker::class.java.name, workSpec.workerClassName)
+        assertEquals(NetworkType.CONNECTED, workSpec.constraints.requiredNetworkType)
+        assertTrue(workSpec.constraints.requiresBatteryNotLow())
+        assertEquals(BackoffPolicy.EXPONENTIAL, workSpec.backoffPolicy)
+        assertNull(workSpec.input.getString(WORK_INPUT_KEY_SESSION_ID))
+        assertNull(workSpec.input.getString(AnalyticsClient.WORK_INPUT_KEY_CONFIGURATION))
+    }
+
+    @Test
+    fun `onAnalyticsEventsFlushed without flushed sessions does not schedule an upload`() {
+        sut.onAnalyticsEventsFlushed(emptyList())
+
+        verify { workManager wasNot Called }
     }
 
     companion object {
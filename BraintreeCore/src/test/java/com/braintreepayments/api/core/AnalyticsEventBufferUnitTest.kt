@@ -0,0 +1,255 @@
+package com.braintreepayments.api.core
+
+import android.content.Context
+import android.database.sqlite.SQLiteException
+import androidx.lifecycle.DefaultLifecycleObserver
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import io.mockk.verifyOrder
+import com.braintreepayments.api.sharedutils.Time
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class AnalyticsEventBufferUnitTest {
+
+    private val analyticsDatabase: AnalyticsDatabase = mockk(relaxed = true)
+    private val analyticsEventBlobDao: AnalyticsEventBlobDao = mockk(relaxed = true)
+    private val executor: ScheduledExecutorService = mockk(relaxed = true)
+    private val retention: AnalyticsEventRetention = mockk(relaxed = true)
+    private val time: Time = mockk(relaxed = true)
+    private val processLifecycleOwner: LifecycleOwner = mockk(relaxed = true)
+    private val processLifecycle: Lifecycle = mockk(relaxed = true)
+
+    @Before
+    fun beforeEach() {
+        every { analyticsDatabase.analyticsEventBlobDao() } returns analyticsEventBlobDao
+        every { analyticsDatabase.runInTransaction(any<Runnable>()) } answers {
+            firstArg<Runnable>().run()
+        }
+        every { processLifecycleOwner.lifecycle } returns processLifecycle
+    }
+
+    private fun createBuffer(capacity: Int = 10, flushThreshold: Int = 3) = AnalyticsEventBuffer(
+        analyticsDatabaseProvider = { analyticsDatabase },
+        executor = executor,
+        capacity = capacity,
+        flushThreshold = flushThreshold,
+        flushDelayMillis = 1000L,
+        retention = retention,
+        time = time,
+        processLifecycleOwnerProvider = { processLifecycleOwner },
+        mainThreadExecutor = { it.run() }
+    )
+
+    private fun createBlob(index: Int, sessionId: String = "session-id") =
+        AnalyticsEventBlob(jsonString = "{\"event\": $index}", sessionId = sessionId)
+
+    @Test
+    fun add_belowThreshold_schedulesSingleDelayedFlush() {
+        val sut = createBuffer()
+
+        sut.add(createBlob(1), AUTHORIZATION)
+        sut.add(createBlob(2), AUTHORIZATION)
+
+        verify(exactly = 1) { executor.schedule(any<Runnable>(), 1000L, TimeUnit.MILLISECONDS) }
+        verify(exactly = 0) { executor.execute(any()) }
+        verify(exactly = 0) { analyticsEventBlobDao.insertEventBlobs(any()) }
+        assertEquals(2, sut.size)
+    }
+
+    @Test
+    fun add_whenThresholdReached_flushesOnExecutor() {
+        val runnableSlot = slot<Runnable>()
+        every { executor.execute(capture(runnableSlot)) } answers { runnableSlot.captured.run() }
+        val sut = createBuffer()
+
+        (1..3).forEach { sut.add(createBlob(it), AUTHORIZATION) }
+
+        verify(exactly = 1) {
+            analyticsEventBlobDao.insertEventBlobs((1..3).map { createBlob(it) })
+        }
+        assertEquals(0, sut.size)
+    }
+
+    @Test
+    fun flush_writesAllEventsInSingleBatch() {
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+        sut.add(createBlob(2), AUTHORIZATION)
+
+        sut.flush()
+
+        verify(exactly = 1) {
+            analyticsEventBlobDao.insertEventBlobs(listOf(createBlob(1), createBlob(2)))
+        }
+        verify(exactly = 0) { analyticsEventBlobDao.insertEventBlob(any()) }
+    }
+
+    @Test
+    fun flush_storesAuthorizationOfEachSessionWithEvents() {
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+        sut.add(createBlob(2, sessionId = "other-session-id"), "other-authorization")
+
+        sut.flush()
+
+        verifyOrder {
+            analyticsEventBlobDao.insertSessions(
+                listOf(
+                    AnalyticsSession("session-id", AUTHORIZATION),
+                    AnalyticsSession("other-session-id", "other-authorization")
+                )
+            )
+            analyticsEventBlobDao.insertEventBlobs(
+                listOf(createBlob(1), createBlob(2, sessionId = "other-session-id"))
+            )
+        }
+    }
+
+    @Test
+    fun flush_evictsEventsAfterInsertingBatch() {
+        every { time.currentTime } returns 123L
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.flush()
+
+        verifyOrder {
+            analyticsEventBlobDao.insertEventBlobs(listOf(createBlob(1)))
+            retention.evict(analyticsEventBlobDao, 123L)
+        }
+    }
+
+    @Test
+    fun flush_whenEmpty_doesNotAccessDatabase() {
+        createBuffer().flush()
+
+        verify(exactly = 0) { analyticsDatabase.analyticsEventBlobDao() }
+    }
+
+    @Test
+    fun flush_notifiesFlushListenerOnceWithFlushedSessions() {
+        val flushedSessions = mutableListOf<List<AnalyticsSession>>()
+        val sut = createBuffer(flushThreshold = 10)
+        sut.onFlushListener = { flushedSessions.add(it) }
+        sut.add(createBlob(1), AUTHORIZATION)
+        sut.add(createBlob(2), AUTHORIZATION)
+
+        sut.flush()
+
+        assertEquals(listOf(listOf(AnalyticsSession("session-id", AUTHORIZATION))), flushedSessions)
+    }
+
+    @Test
+    fun flush_whenInsertFails_doesNotNotifyFlushListener() {
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws SQLiteException("error")
+        var flushCount = 0
+        val sut = createBuffer()
+        sut.onFlushListener = { flushCount++ }
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.flush()
+
+        assertEquals(0, flushCount)
+    }
+
+    @Test
+    fun flush_whenInsertFails_keepsEventsForNextFlush() {
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws SQLiteException("error")
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.flush()
+
+        assertEquals(1, sut.size)
+    }
+
+    @Test
+    fun flush_whenInsertFails_keepsSessionAuthorizationsForNextFlush() {
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws
+            SQLiteException("error") andThen Unit
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.flush()
+        sut.flush()
+
+        verify(exactly = 2) {
+            analyticsEventBlobDao.insertSessions(listOf(AnalyticsSession("session-id", AUTHORIZATION)))
+        }
+    }
+
+    @Test
+    fun flush_whenInsertFails_schedulesRetryWithBackoff() {
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws SQLiteException("error")
+        val sut = createBuffer(flushThreshold = 10)
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.flush()
+        sut.flush()
+
+        verifyOrder {
+            // delayed flush scheduled by add
+            executor.schedule(any<Runnable>(), 1000L, TimeUnit.MILLISECONDS)
+            executor.schedule(any<Runnable>(), 1000L, TimeUnit.MILLISECONDS)
+            executor.schedule(any<Runnable>(), 2000L, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    @Test
+    fun flush_afterRetrySucceeds_resetsBackoff() {
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws
+            SQLiteException("error") andThen Unit
+        val sut = createBuffer(flushThreshold = 10)
+        sut.add(createBlob(1), AUTHORIZATION)
+        sut.flush()
+        sut.flush()
+
+        every { analyticsEventBlobDao.insertEventBlobs(any()) } throws SQLiteException("error")
+        sut.add(createBlob(2), AUTHORIZATION)
+        sut.flush()
+
+        verify(exactly = 0) { executor.schedule(any<Runnable>(), 2000L, TimeUnit.MILLISECONDS) }
+    }
+
+    @Test
+    fun registerLifecycleCallbacks_whenAppIsStopped_flushesOnExecutor() {
+        val context: Context = mockk(relaxed = true)
+        every { context.applicationContext } returns context
+        val observerSlot = slot<LifecycleObserver>()
+        every { processLifecycle.addObserver(capture(observerSlot)) } returns Unit
+        val runnableSlot = slot<Runnable>()
+        every { executor.execute(capture(runnableSlot)) } answers { runnableSlot.captured.run() }
+        val sut = createBuffer()
+        sut.add(createBlob(1), AUTHORIZATION)
+
+        sut.registerLifecycleCallbacks(context)
+        (observerSlot.captured as DefaultLifecycleObserver).onStop(processLifecycleOwner)
+
+        verify { analyticsEventBlobDao.insertEventBlobs(listOf(createBlob(1))) }
+        assertEquals(0, sut.size)
+    }
+
+    @Test
+    fun add_whenCapacityReached_dropsOldestEvent() {
+        val sut = createBuffer(capacity = 2, flushThreshold = 10)
+
+        (1..3).forEach { sut.add(createBlob(it), AUTHORIZATION) }
+        sut.flush()
+
+        assertEquals(1L, sut.droppedEventCount)
+        verify { analyticsEventBlobDao.insertEventBlobs(listOf(createBlob(2), createBlob(3))) }
+    }
+
+    companion object {
+        private const val AUTHORIZATION = "sandbox_tmxhyf7d_dcpspy2brwdjr3qn"
+    }
+}
@@ -0,0 +1,100 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+
+@RunWith(RobolectricTestRunner::class)
+class AnalyticsEventCodecUnitTest {
+
+    private val event = AnalyticsEvent(
+        name = "paypal:tokenize:started",
+        timestamp = 1_700_000_000_000L,
+        payPalContextId = "EC-HERMES-SANDBOX-EC-TOKEN",
+        linkType = "universal",
+        isVaultRequest = true,
+        startTime = 1_700_000_000_000L,
+        endTime = -1L,
+        endpoint = "/v1/tracking/batch/events",
+        experiment = "{\"experiment\":\"é\"}",
+        appSwitchUrl = "com.braintreepayments.demo://onetouch/v1/success",
+        shopperSessionId = "shopper-session-id",
+        buttonType = "PayPal",
+        buttonOrder = "1",
+        pageType = "checkout",
+        queueDuration = 3L,
+        poolWaitDuration = 7L,
+        connectDuration = 120L,
+        requestWriteDuration = 4L,
+        timeToFirstByte = 250L,
+        responseReadDuration = 12L,
+        sampleRate = 0.25
+    )
+
+    @Test
+    fun decode_returnsEncodedEvent() {
+        assertEquals(event, AnalyticsEventCodec.decode(AnalyticsEventCodec.encode(event)))
+    }
+
+    @Test
+    fun decode_withRequiredParamsOnly_returnsEncodedEvent() {
+        val requiredOnly = AnalyticsEvent(name = "event", timestamp = 123L)
+
+        assertEquals(
+            requiredOnly,
+            AnalyticsEventCodec.decode(AnalyticsEventCodec.encode(requiredOnly))
+        )
+    }
+
+    @Test
+    fun encode_isSmallerThanFPTIJSON() {
+        val json = JSONObject()
+            .put("event_name", event.name)
+            .put("t", event.timestamp)
+            .put("is_vault", event.isVaultRequest)
+            .put("tenant_name", "Braintree")
+            .put("paypal_context_id", event.payPalContextId)
+            .put("link_type", event.linkType)
+            .put("start_time", event.startTime)
+            .put("end_time", event.endTime)
+            .put("endpoint", event.endpoint)
+            .put("experiment", event.experiment)
+            .put("url", event.appSwitchUrl)
+            .put("shopper_session_id", event.shopperSessionId)
+            .put("button_type", event.buttonType)
+            .put("button_position", event.buttonOrder)
+            .put("page_type", event.pageType)
+            .toString()
+
+        assertTrue(AnalyticsEventCodec.encode(event).size < json.toByteArray().size)
+    }
+
+    @Test
+    fun decode_withUnknownVersion_throwsIOException() {
+        val payload = AnalyticsEventCodec.encode(event)
+        payload[0] = 2
+
+        assertThrows(IOException::class.java) { AnalyticsEventCodec.decode(payload) }
+    }
+
+    @Test
+    fun decode_withTruncatedPayload_throwsIOException() {
+        val payload = AnalyticsEventCodec.encode(event)
+
+        assertThrows(IOException::class.java) {
+            AnalyticsEventCodec.decode(payload.copyOf(payload.size - 1))
+        }
+    }
+
+    @Test
+    fun decode_withUnknownField_throwsIOException() {
+        assertThrows(IOException::class.java) {
+            AnalyticsEventCodec.decode(byteArrayOf(1, 99))
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.braintreepayments.api.core
+
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class AnalyticsEventRetentionUnitTest {
+
+    private val analyticsEventBlobDao: AnalyticsEventBlobDao = mockk(relaxed = true)
+
+    @Test
+    fun evict_deletesEventsOlderThanMaxAge() {
+        every { analyticsEventBlobDao.deleteEventBlobsOlderThan(900L) } returns 2
+
+        val sut = AnalyticsEventRetention(maxRows = 10, maxBytes = 1000L, maxAgeMillis = 100L)
+        sut.evict(analyticsEventBlobDao, 1000L)
+
+        assertEquals(2L, sut.expiredEventCount)
+        assertEquals(2L, sut.evictedEventCount)
+    }
+
+    @Test
+    fun evict_whenRowLimitExceeded_deletesOldestEvents() {
+        every { analyticsEventBlobDao.getEventBlobCount() } returns 13
+        every { analyticsEventBlobDao.deleteOldestEventBlobs(3) } returns 3
+
+        val sut = AnalyticsEventRetention(maxRows = 10, maxBytes = 1000L, maxAgeMillis = 100L)
+        sut.evict(analyticsEventBlobDao, 1000L)
+
+        verify { analyticsEventBlobDao.deleteOldestEventBlobs(3) }
+        assertEquals(3L, sut.rowLimitEvictedEventCount)
+    }
+
+    @Test
+    fun evict_whenWithinRowLimit_doesNotDeleteOldestEvents() {
+        every { analyticsEventBlobDao.getEventBlobCount() } returns 10
+
+        val sut = AnalyticsEventRetention(maxRows = 10, maxBytes = 1000L, maxAgeMillis = 100L)
+        sut.evict(analyticsEventBlobDao, 1000L)
+
+        verify(exactly = 0) { analyticsEventBlobDao.deleteOldestEventBlobs(any()) }
+    }
+
+    @Test
+    fun evict_whenSizeLimitExceeded_deletesOldestEventsUntilWithinLimit() {
+        every { analyticsEventBlobDao.getEventBlobsSize() } returns 1250L
+        every { analyticsEventBlobDao.getOldestEventBlobSizes(10) } returns listOf(
+            AnalyticsEventBlobSize(id = 1L, size = 100L),
+            AnalyticsEventBlobSize(id = 2L, size = 200L),
+            AnalyticsEventBlobSize(id = 3L, size = 300L)
+        )
+        every { analyticsEventBlobDao.deleteEventBlobsUpTo(2L) } returns 2
+
+        val sut = AnalyticsEventRetention(maxRows = 10, maxBytes = 1000L, maxAgeMillis = 100L)
+        sut.evict(analyticsEventBlobDao, 1000L)
+
+        verify { analyticsEventBlobDao.deleteEventBlobsUpTo(2L) }
+        assertEquals(2L, sut.sizeLimitEvictedEventCount)
+    }
+
+    @Test
+    fun evict_whenWithinSizeLimit_doesNotReadEventSizes() {
+        every { analyticsEventBlobDao.getEventBlobsSize() } returns 1000L
+
+        val sut = AnalyticsEventRetention(maxRows = 10, maxBytes = 1000L, maxAgeMillis = 100L)
+        sut.evict(analyticsEventBlobDao, 1000L)
+
+        verify(exactly = 0) { analyticsEventBlobDao.getOldestEventBlobSizes(any()) }
+    }
+}
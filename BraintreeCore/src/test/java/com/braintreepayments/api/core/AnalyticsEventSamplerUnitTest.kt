@@ -0,0 +1,78 @@
+package com.braintreepayments.api.core
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class AnalyticsEventSamplerUnitTest {
+
+    @Test
+    fun shouldSend_whenEventHasNoRule_returnsTrue() {
+        val sut = AnalyticsEventSampler(emptyMap())
+
+        repeat(100) { assertTrue(sut.shouldSend("funnel-event", "session-id")) }
+        assertEquals(0L, sut.sampledOutEventCount)
+    }
+
+    @Test
+    fun getSampleRate_returnsSampleRateOfRule() {
+        val sut = AnalyticsEventSampler(mapOf("event" to AnalyticsSamplingRule(sampleRate = 0.25)))
+
+        assertEquals(0.25, sut.getSampleRate("event")!!, 0.0)
+        assertNull(sut.getSampleRate("funnel-event"))
+    }
+
+    @Test
+    fun shouldSend_whenSampleRateIsZero_returnsFalse() {
+        val sut = AnalyticsEventSampler(mapOf("event" to AnalyticsSamplingRule(sampleRate = 0.0)))
+
+        assertFalse(sut.shouldSend("event", "session-id"))
+        assertEquals(1L, sut.sampledOutEventCount)
+    }
+
+    @Test
+    fun shouldSend_isDeterministicPerSession() {
+        val sut = AnalyticsEventSampler(mapOf("event" to AnalyticsSamplingRule(sampleRate = 0.5)))
+
+        val sessionIds = (1..100).map { "session-$it" }
+        val firstDecisions = sessionIds.map { sut.shouldSend("event", it) }
+        val secondDecisions = sessionIds.map { sut.shouldSend("event", it) }
+
+        assertEquals(firstDecisions, secondDecisions)
+        assertTrue(firstDecisions.contains(true))
+        assertTrue(firstDecisions.contains(false))
+    }
+
+    @Test
+    fun shouldSend_whenSessionExceedsMaxEvents_returnsFalse() {
+        val sut = AnalyticsEventSampler(
+            mapOf("event" to AnalyticsSamplingRule(maxEventsPerSession = 2))
+        )
+
+        assertTrue(sut.shouldSend("event", "session-id"))
+        assertTrue(sut.shouldSend("event", "session-id"))
+        assertFalse(sut.shouldSend("event", "session-id"))
+        assertEquals(1L, sut.sampledOutEventCount)
+    }
+
+    @Test
+    fun shouldSend_whenSessionChanges_resetsMaxEventsCount() {
+        val sut = AnalyticsEventSampler(
+            mapOf("event" to AnalyticsSamplingRule(maxEventsPerSession = 1))
+        )
+
+        assertTrue(sut.shouldSend("event", "first-session-id"))
+        assertFalse(sut.shouldSend("event", "first-session-id"))
+        assertTrue(sut.shouldSend("event", "second-session-id"))
+    }
+
+    @Test
+    fun getSessionBucket_returnsValueBetweenZeroAndOne() {
+        (1..1000).forEach {
+            val bucket = AnalyticsEventSampler.getSessionBucket("session-$it")
+            assertTrue(bucket >= 0.0 && bucket < 1.0)
+        }
+    }
+}
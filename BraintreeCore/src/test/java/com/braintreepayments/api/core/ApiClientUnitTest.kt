@@ -4,6 +4,7 @@ import com.braintreepayments.api.card.Card
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.MockkBraintreeClientBuilder
 import io.mockk.*
+import kotlinx.coroutines.runBlocking
 import org.json.JSONException
 import org.json.JSONObject
 import org.junit.Assert.assertEquals
@@ -97,6 +98,31 @@ class ApiClientUnitTest {
         verify { braintreeClient.sendPOST(any(), any(), emptyMap(), any()) }
     }
 
+    @Test
+    fun suspendTokenizeREST_returnsParsedResponse() = runBlocking {
+        val braintreeClient = MockkBraintreeClientBuilder().build()
+        every { analyticsParamRepository.sessionId } returns "session-id"
+        coEvery { braintreeClient.sendPOST(any(), any(), any()) } returns """{"key": "value"}"""
+
+        val sut = ApiClient(braintreeClient, analyticsParamRepository)
+        val card = spyk(Card())
+        val result = sut.tokenizeREST(card)
+
+        assertEquals("value", result.getString("key"))
+        verify { card.sessionId = "session-id" }
+    }
+
+    @Test
+    fun suspendTokenizeGraphQL_returnsParsedResponse() = runBlocking {
+        val braintreeClient = MockkBraintreeClientBuilder().build()
+        coEvery { braintreeClient.sendGraphQLPOST(any()) } returns """{"key": "value"}"""
+
+        val sut = ApiClient(braintreeClient)
+        val result = sut.tokenizeGraphQL(JSONObject())
+
+        assertEquals("value", result.getString("key"))
+    }
+
     @Test
     fun versionedPath_returnsv1Path() {
         assertEquals("/v1/test/path", ApiClient.versionedPath("test/path"))
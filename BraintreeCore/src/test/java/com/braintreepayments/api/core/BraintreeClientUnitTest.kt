@@ -7,11 +7,18 @@ import androidx.fragment.app.FragmentActivity
 import androidx.test.core.app.ApplicationProvider
 import androidx.work.testing.WorkManagerTestInitHelper
 import com.braintreepayments.api.BrowserSwitchClient
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.Deadline
+import com.braintreepayments.api.sharedutils.DeadlineExceededException
+import com.braintreepayments.api.sharedutils.HttpResponse
 import com.braintreepayments.api.sharedutils.HttpResponseCallback
+import com.braintreepayments.api.sharedutils.HttpResponseTiming
 import com.braintreepayments.api.sharedutils.ManifestValidator
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.testutils.Fixtures
 import io.mockk.*
+import kotlinx.coroutines.runBlocking
 import org.json.JSONException
 import org.json.JSONObject
 import org.junit.Assert.*
@@ -119,6 +126,8 @@ class BraintreeClientUnitTest {
                 "sample-url",
                 configuration,
                 authorization,
+                null,
+                null,
                 capture(networkResponseCallbackSlot)
             )
         }
@@ -246,6 +255,157 @@ class BraintreeClientUnitTest {
         }
     }
 
+    @Test
+    fun sendPOST_withDeadline_forwardsDeadlineToHttpClient() {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val deadline = Deadline.after(60_000L)
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), deadline, mockk(relaxed = true))
+
+        verify {
+            braintreeHttpClient.post(
+                path = "sample-url",
+                data = "{}",
+                configuration = configuration,
+                authorization = authorization,
+                deadline = deadline,
+                callback = any()
+            )
+        }
+    }
+
+    @Test
+    fun sendPOST_whenDeadlinePassesWhileLoadingConfiguration_callsBackDeadlineExceeded() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk<Configuration>(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), Deadline.after(0L), httpResponseCallback)
+
+        verify { httpResponseCallback.onResult(null, ofType(DeadlineExceededException::class)) }
+        verify(exactly = 0) {
+            braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), any(), any(), any())
+        }
+    }
+
+    @Test
+    fun sendPOST_withCancellationToken_forwardsTokenToHttpClient() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk<Configuration>(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val cancellationToken = CancellationToken()
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), null, cancellationToken, mockk(relaxed = true))
+
+        verify {
+            braintreeHttpClient.post(
+                path = "sample-url",
+                data = "{}",
+                configuration = any(),
+                authorization = any(),
+                cancellationToken = cancellationToken,
+                callback = any()
+            )
+        }
+    }
+
+    @Test
+    fun sendPOST_whenCancelledWhileLoadingConfiguration_doesNotSendOrNotify() {
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(mockk<Configuration>(relaxed = true))
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+        val cancellationToken = CancellationToken().apply { cancel() }
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), null, cancellationToken, httpResponseCallback)
+
+        verify(exactly = 0) {
+            braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), any(), any(), any())
+        }
+        verify(exactly = 0) { httpResponseCallback.onResult(any(), any()) }
+    }
+
+    @Test
+    fun sendGraphQLPOST_withCancellationToken_forwardsTokenToGraphQLClient() {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val cancellationToken = CancellationToken()
+
+        sut.sendGraphQLPOST(JSONObject(), cancellationToken, mockk(relaxed = true))
+
+        verify {
+            braintreeGraphQLClient.post(
+                "{}", configuration, authorization, null, cancellationToken, any()
+            )
+        }
+    }
+
+    @Test
+    fun sendGET_withDeadline_boundsConfigurationLoadAndForwardsDeadlineToHttpClient() {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val deadline = Deadline.after(60_000L)
+
+        sut.sendGET("sample-url", deadline, mockk(relaxed = true))
+
+        verify {
+            configurationLoader.loadConfiguration(TaskPriority.USER_INITIATED, deadline, any())
+        }
+        verify {
+            braintreeHttpClient.get("sample-url", configuration, authorization, deadline, null, any())
+        }
+    }
+
+    @Test
+    fun sendGraphQLPOST_withDeadline_boundsConfigurationLoadAndForwardsDeadlineToGraphQLClient() {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val deadline = Deadline.after(60_000L)
+
+        sut.sendGraphQLPOST(JSONObject(), deadline, mockk(relaxed = true))
+
+        verify {
+            configurationLoader.loadConfiguration(TaskPriority.USER_INITIATED, deadline, any())
+        }
+        verify {
+            braintreeGraphQLClient.post("{}", configuration, authorization, deadline, null, any())
+        }
+    }
+
+    @Test
+    fun sendPOST_withDeadline_whenConfigurationLoadTimesOut_forwardsDeadlineExceeded() {
+        val error = DeadlineExceededException("deadline exceeded")
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configurationError(error)
+            .build()
+        val sut = createBraintreeClient(configurationLoader)
+        val httpResponseCallback = mockk<HttpResponseCallback>(relaxed = true)
+
+        sut.sendPOST("sample-url", "{}", emptyMap(), Deadline.after(60_000L), httpResponseCallback)
+
+        verify { httpResponseCallback.onResult(null, error) }
+        verify(exactly = 0) {
+            braintreeHttpClient.post(any(), any(), any(), any(), any(), any(), any(), any(), any())
+        }
+    }
+
     @Test
     fun sendPOST_whenInvalidAuth_callsBackAuthError() {
         val sut = BraintreeClient(context, "invalid-auth-string")
@@ -276,6 +436,8 @@ class BraintreeClientUnitTest {
                 "{}",
                 configuration,
                 authorization,
+                null,
+                null,
                 capture(networkResponseCallbackSlot)
             )
         }
@@ -310,6 +472,89 @@ class BraintreeClientUnitTest {
         assertEquals(expectedAuthException.message, authErrorSlot.captured.message)
     }
 
+    @Test
+    fun suspendSendPOST_onGetConfigurationSuccess_returnsResponseBody() = runBlocking {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        every {
+            braintreeHttpClient.executePost("sample-url", "{}", configuration, authorization, emptyMap())
+        } returns HttpResponse("response body", HttpResponseTiming(1, 2))
+
+        val sut = createBraintreeClient(configurationLoader)
+
+        assertEquals("response body", sut.sendPOST("sample-url", "{}"))
+    }
+
+    @Test
+    fun suspendSendPOST_sendsLatencyEventWithPhaseTimings() = runBlocking {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        val timing = HttpResponseTiming(1, 200).apply {
+            queueDuration = 3L
+            poolWaitDuration = 5L
+            connectDuration = 40L
+            requestWriteDuration = 2L
+            timeToFirstByte = 100L
+            responseReadDuration = 10L
+        }
+        every {
+            braintreeHttpClient.executePost("sample-url", "{}", configuration, authorization, emptyMap())
+        } returns HttpResponse("response body", timing)
+
+        val sut = createBraintreeClient(configurationLoader)
+        sut.sendPOST("sample-url", "{}")
+
+        verify {
+            analyticsClient.sendEvent(
+                CoreAnalytics.API_REQUEST_LATENCY,
+                AnalyticsEventParams(
+                    startTime = 1,
+                    endTime = 200,
+                    endpoint = "sample-url",
+                    queueDuration = 3L,
+                    poolWaitDuration = 5L,
+                    connectDuration = 40L,
+                    requestWriteDuration = 2L,
+                    timeToFirstByte = 100L,
+                    responseReadDuration = 10L
+                )
+            )
+        }
+    }
+
+    @Test
+    fun suspendSendPOST_onGetConfigurationFailure_throwsError() = runBlocking {
+        val exception = Exception("configuration error")
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configurationError(exception)
+            .build()
+
+        val sut = createBraintreeClient(configurationLoader)
+
+        val error = runCatching { sut.sendPOST("sample-url", "{}") }.exceptionOrNull()
+        assertEquals("configuration error", error?.message)
+        verify(exactly = 0) { braintreeHttpClient.executePost(any(), any(), any(), any(), any()) }
+    }
+
+    @Test
+    fun suspendSendGraphQLPOST_onGetConfigurationSuccess_returnsResponseBody() = runBlocking {
+        val configuration = mockk<Configuration>(relaxed = true)
+        val configurationLoader = MockkConfigurationLoaderBuilder()
+            .configuration(configuration)
+            .build()
+        every {
+            braintreeGraphQLClient.executePost("{}", configuration, authorization)
+        } returns HttpResponse("response body", HttpResponseTiming(1, 2))
+
+        val sut = createBraintreeClient(configurationLoader)
+
+        assertEquals("response body", sut.sendGraphQLPOST(JSONObject()))
+    }
+
     @Test
     @Throws(JSONException::class)
     fun sendAnalyticsEvent_sendsEventToAnalyticsClient() {
@@ -426,10 +671,46 @@ class BraintreeClientUnitTest {
         verify(exactly = 0) { merchantRepository.appLinkReturnUri = null }
     }
 
+    @Test
+    fun prewarm_forwardsToPrewarmer() {
+        val prewarmer = mockk<Prewarmer>(relaxed = true)
+        val prewarmCallback = mockk<PrewarmCallback>(relaxed = true)
+
+        val sut = createBraintreeClient(prewarmer = prewarmer)
+        sut.prewarm(true, prewarmCallback)
+
+        verify { prewarmer.prewarm(true, prewarmCallback) }
+    }
+
+    @Test
+    fun constructor_withConfigurationCachePolicy_setsPolicyOfConfigurationLoader() {
+        val configurationLoader = mockk<ConfigurationLoader>(relaxed = true)
+
+        createBraintreeClient(
+            configurationLoader = configurationLoader,
+            configurationCachePolicy = ConfigurationCachePolicy.NO_STALE_CONFIGURATION
+        )
+
+        verify {
+            configurationLoader.cachePolicy = ConfigurationCachePolicy.NO_STALE_CONFIGURATION
+        }
+    }
+
+    @Test
+    fun constructor_withoutConfigurationCachePolicy_keepsPolicyOfConfigurationLoader() {
+        val configurationLoader = mockk<ConfigurationLoader>(relaxed = true)
+
+        createBraintreeClient(configurationLoader = configurationLoader)
+
+        verify(exactly = 0) { configurationLoader.cachePolicy = any() }
+    }
+
     private fun createBraintreeClient(
         configurationLoader: ConfigurationLoader = mockk(),
         appLinkReturnUri: Uri? = Uri.parse("https://example.com"),
-        merchantRepository: MerchantRepository = MerchantRepository.instance
+        merchantRepository: MerchantRepository = MerchantRepository.instance,
+        prewarmer: Prewarmer = mockk(relaxed = true),
+        configurationCachePolicy: ConfigurationCachePolicy? = null
     ) = BraintreeClient(
         applicationContext = applicationContext,
         integrationType = IntegrationType.CUSTOM,
@@ -442,5 +723,7 @@ class BraintreeClientUnitTest {
         manifestValidator = manifestValidator,
         configurationLoader = configurationLoader,
         merchantRepository = merchantRepository,
+        prewarmer = prewarmer,
+        configurationCachePolicy = configurationCachePolicy,
     )
 }
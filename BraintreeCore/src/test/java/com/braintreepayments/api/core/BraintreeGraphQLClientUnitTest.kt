@@ -1,6 +1,7 @@
 package com.braintreepayments.api.core
 
 import com.braintreepayments.api.testutils.Fixtures
+import com.braintreepayments.api.sharedutils.Deadline
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.HttpRequest
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
@@ -9,6 +10,7 @@ import io.mockk.mockk
 import io.mockk.slot
 import org.json.JSONException
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -79,6 +81,20 @@ class BraintreeGraphQLClientUnitTest {
         assertEquals("2024-08-23", headers["Braintree-Version"])
     }
 
+    @Test
+    fun post_withDeadline_setsDeadlineOnRequest() {
+        val httpRequestSlot = slot<HttpRequest>()
+        every {
+            httpClient.sendRequest(capture(httpRequestSlot), httpResponseCallback)
+        } returns Unit
+        val deadline = Deadline.after(5_000L)
+
+        val sut = BraintreeGraphQLClient(httpClient)
+        sut.post("data", configuration, authorization, deadline, null, httpResponseCallback)
+
+        assertSame(deadline, httpRequestSlot.captured.deadline)
+    }
+
     @Test
     @Throws(Exception::class)
     fun post_withPathAndDataAndConfiguration_sendsHttpRequest() {
@@ -1,8 +1,11 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.Deadline
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.HttpRequest
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.testutils.Fixtures
 import com.braintreepayments.api.testutils.FixturesHelper
 import io.mockk.every
@@ -96,6 +99,38 @@ class BraintreeHttpClientUnitTest {
         assertEquals("GET", httpRequest.method)
     }
 
+    @Test
+    @Throws(MalformedURLException::class, URISyntaxException::class)
+    fun get_withAdditionalHeaders_addsHeadersToRequest() {
+        val tokenizationKey: Authorization = TokenizationKey(Fixtures.TOKENIZATION_KEY)
+        val configuration = mockk<Configuration>()
+        every { configuration.clientApiUrl } returns "https://example.com"
+
+        val httpRequestSlot = slot<HttpRequest>()
+        val callback = mockk<NetworkResponseCallback>()
+        every {
+            httpClient.sendRequest(
+                capture(httpRequestSlot),
+                callback,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES
+            )
+        } returns Unit
+
+        val sut = BraintreeHttpClient(httpClient)
+        sut.get(
+            "sample/path",
+            configuration,
+            tokenizationKey,
+            HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+            additionalHeaders = mapOf("If-None-Match" to "\"etag\""),
+            callback = callback
+        )
+
+        val headers = httpRequestSlot.captured.headers
+        assertEquals("\"etag\"", headers["If-None-Match"])
+        assertEquals(Fixtures.TOKENIZATION_KEY, headers["Client-Key"])
+    }
+
     @Test
     @Throws(MalformedURLException::class, URISyntaxException::class)
     fun get_withClientToken_forwardsHttpRequestToHttpClient() {
@@ -249,6 +284,37 @@ class BraintreeHttpClientUnitTest {
         }
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun postSync_withSerializedData_forwardsDataAndContentEncodingAsIs() {
+        val clientToken = Authorization.fromString(
+            FixturesHelper.base64Encode(Fixtures.CLIENT_TOKEN)
+        ) as ClientToken
+        val data = "{}".toByteArray(StandardCharsets.UTF_8)
+
+        val httpRequestSlot = slot<HttpRequest>()
+        every { httpClient.sendRequest(capture(httpRequestSlot)) } returns "sample result"
+
+        val sut = BraintreeHttpClient(httpClient)
+        val result = sut.post(
+            "https://example.com/sample/path",
+            data,
+            HttpRequest.CONTENT_ENCODING_GZIP,
+            null,
+            clientToken,
+            TaskPriority.TELEMETRY
+        )
+        assertEquals("sample result", result)
+
+        val httpRequest = httpRequestSlot.captured
+        assertEquals(URL("https://example.com/sample/path"), httpRequest.url)
+        assertEquals("braintree/android/" + BuildConfig.VERSION_NAME, httpRequest.headers["User-Agent"])
+        assertEquals("POST", httpRequest.method)
+        assertEquals("gzip", httpRequest.contentEncoding)
+        assertSame(data, httpRequest.data)
+        assertEquals(TaskPriority.TELEMETRY, httpRequest.priority)
+    }
+
     @Test
     @Throws(MalformedURLException::class, URISyntaxException::class)
     fun postAsync_withTokenizationKey_forwardsHttpRequestToHttpClient() {
@@ -478,4 +544,56 @@ class BraintreeHttpClientUnitTest {
             }, callback)
         }
     }
+
+    @Test
+    fun `when post is called with a deadline, the deadline is set on the request`() {
+        val deadline = Deadline.after(5_000L)
+        val callback = mockk<NetworkResponseCallback>()
+        val sut = BraintreeHttpClient(httpClient)
+
+        sut.post(
+            path = "sample/path",
+            data = "{}",
+            configuration = mockk(relaxed = true),
+            authorization = mockk(relaxed = true),
+            deadline = deadline,
+            callback = callback
+        )
+
+        verify {
+            httpClient.sendRequest(withArg {
+                assertSame(deadline, it.deadline)
+            }, callback)
+        }
+    }
+
+    @Test
+    fun `when get is called with a cancellation token, the token is set on the request`() {
+        val cancellationToken = CancellationToken()
+        val callback = mockk<NetworkResponseCallback>()
+        val sut = BraintreeHttpClient(httpClient)
+
+        sut.get("https://example.com/path", null, mockk(relaxed = true), cancellationToken, callback)
+
+        verify {
+            httpClient.sendRequest(withArg {
+                assertSame(cancellationToken, it.cancellationToken)
+            }, callback, HttpClient.RetryStrategy.NO_RETRY)
+        }
+    }
+
+    @Test
+    fun `when get is called with a deadline, the deadline is set on the request`() {
+        val deadline = Deadline.after(5_000L)
+        val callback = mockk<NetworkResponseCallback>()
+        val sut = BraintreeHttpClient(httpClient)
+
+        sut.get("https://example.com/path", null, mockk(relaxed = true), deadline, null, callback)
+
+        verify {
+            httpClient.sendRequest(withArg {
+                assertSame(deadline, it.deadline)
+            }, callback, HttpClient.RetryStrategy.NO_RETRY)
+        }
+    }
 }
@@ -31,6 +31,52 @@ class ConfigurationCacheUnitTest {
         }
     }
 
+    @Test
+    fun saveAnalyticsConfiguration_savesEnvironmentAndMerchantIdInSharedPrefs() {
+        val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveAnalyticsConfiguration(configuration)
+        verify {
+            braintreeSharedPreferences.putString(
+                "com.braintreepayments.api.core.ANALYTICS_ENVIRONMENT",
+                configuration.environment
+            )
+            braintreeSharedPreferences.putString(
+                "com.braintreepayments.api.core.ANALYTICS_MERCHANT_ID",
+                configuration.merchantId
+            )
+        }
+    }
+
+    @Test
+    fun getAnalyticsConfiguration_returnsEnvironmentAndMerchantIdFromSharedPrefs() {
+        every {
+            braintreeSharedPreferences.getString(
+                "com.braintreepayments.api.core.ANALYTICS_ENVIRONMENT",
+                null
+            )
+        } returns "sandbox"
+        every {
+            braintreeSharedPreferences.getString(
+                "com.braintreepayments.api.core.ANALYTICS_MERCHANT_ID",
+                null
+            )
+        } returns "merchant-id"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertEquals(AnalyticsConfiguration("sandbox", "merchant-id"), sut.getAnalyticsConfiguration())
+    }
+
+    @Test
+    fun getAnalyticsConfiguration_whenNothingSaved_returnsNull() {
+        every { braintreeSharedPreferences.getString(any(), null) } returns null
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertNull(sut.getAnalyticsConfiguration())
+    }
+
     @Test
     fun getConfiguration_returnsConfigurationFromSharedPrefs() {
         val configuration = fromJson(Fixtures.CONFIGURATION_WITHOUT_ACCESS_TOKEN)
@@ -59,4 +105,64 @@ class ConfigurationCacheUnitTest {
 
         assertNull(sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(20)))
     }
+
+    @Test
+    fun getConfiguration_withTimeToLive_returnsConfigurationOlderThanDefaultTimeToLive() {
+        every { braintreeSharedPreferences.containsKey("cacheKey_timestamp") } returns true
+        every { braintreeSharedPreferences.getLong("cacheKey_timestamp") } returns 0L
+        every { braintreeSharedPreferences.getString("cacheKey", "") } returns "configuration"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertEquals(
+            "configuration",
+            sut.getConfiguration("cacheKey", TimeUnit.MINUTES.toMillis(20), TimeUnit.HOURS.toMillis(1))
+        )
+        assertNull(
+            sut.getConfiguration("cacheKey", TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(1))
+        )
+    }
+
+    @Test
+    fun saveValidators_savesETagAndLastModifiedInSharedPrefs() {
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+        sut.saveValidators("cacheKey", "\"etag\"", "Wed, 21 Oct 2015 07:28:00 GMT")
+
+        verify { braintreeSharedPreferences.putString("cacheKey_etag", "\"etag\"") }
+        verify {
+            braintreeSharedPreferences.putString(
+                "cacheKey_last_modified",
+                "Wed, 21 Oct 2015 07:28:00 GMT"
+            )
+        }
+    }
+
+    @Test
+    fun getETag_whenNoETagSaved_returnsNull() {
+        every { braintreeSharedPreferences.getString("cacheKey_etag", null) } returns null
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertNull(sut.getETag("cacheKey"))
+    }
+
+    @Test
+    fun refreshConfiguration_updatesTimestampAndReturnsCachedConfiguration() {
+        every { braintreeSharedPreferences.getString("cacheKey", null) } returns "configuration"
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertEquals("configuration", sut.refreshConfiguration("cacheKey", 123L))
+        verify { braintreeSharedPreferences.putLong("cacheKey_timestamp", 123L) }
+    }
+
+    @Test
+    fun refreshConfiguration_whenNoConfigurationCached_returnsNull() {
+        every { braintreeSharedPreferences.getString("cacheKey", null) } returns null
+
+        val sut = ConfigurationCache(braintreeSharedPreferences)
+
+        assertNull(sut.refreshConfiguration("cacheKey", 123L))
+        verify(exactly = 0) { braintreeSharedPreferences.putLong(any(), any()) }
+    }
 }
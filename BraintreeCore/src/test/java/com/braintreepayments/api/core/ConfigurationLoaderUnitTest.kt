@@ -1,22 +1,36 @@
 package com.braintreepayments.api.core
 
 import android.util.Base64
+import com.braintreepayments.api.sharedutils.CancellationToken
+import com.braintreepayments.api.sharedutils.CircuitBreakerOpenException
+import com.braintreepayments.api.sharedutils.Deadline
+import com.braintreepayments.api.sharedutils.DeadlineExceededException
 import com.braintreepayments.api.sharedutils.HttpClient
 import com.braintreepayments.api.sharedutils.HttpResponse
 import com.braintreepayments.api.sharedutils.HttpResponseTiming
 import com.braintreepayments.api.sharedutils.NetworkResponseCallback
+import com.braintreepayments.api.sharedutils.TaskPriority
 import com.braintreepayments.api.sharedutils.Time
 import com.braintreepayments.api.testutils.Fixtures
 import io.mockk.every
 import io.mockk.mockk
 import io.mockk.slot
 import io.mockk.verify
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
 import org.json.JSONException
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Executor
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 import kotlin.test.assertEquals
+import kotlin.test.assertFalse
 import kotlin.test.assertTrue
 
 @RunWith(RobolectricTestRunner::class)
@@ -51,6 +65,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
                 capture(callbackSlot)
             )
         }
@@ -82,6 +100,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
                 capture(callbackSlot)
             )
         }
@@ -97,6 +119,7 @@ class ConfigurationLoaderUnitTest {
 
         verify {
             configurationCache.saveConfiguration(ofType(Configuration::class), cacheKey)
+            configurationCache.saveAnalyticsConfiguration(ofType(Configuration::class))
         }
     }
 
@@ -113,6 +136,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
                 capture(callbackSlot)
             )
         }
@@ -139,6 +166,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
                 capture(callbackSlot)
             )
         }
@@ -155,6 +186,389 @@ class ConfigurationLoaderUnitTest {
         )
     }
 
+    @Test
+    fun loadConfiguration_whenFetchInFlight_sharesSingleRequestBetweenCallers() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val secondCallback: ConfigurationLoaderCallback = mockk(relaxed = true)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+        sut.loadConfiguration(secondCallback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
+                capture(callbackSlot)
+            )
+        }
+
+        callbackSlot.captured.onResult(
+            HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 10)), null
+        )
+
+        val firstResultSlot = slot<ConfigurationLoaderResult>()
+        val secondResultSlot = slot<ConfigurationLoaderResult>()
+        verify { callback.onResult(capture(firstResultSlot)) }
+        verify { secondCallback.onResult(capture(secondResultSlot)) }
+
+        val firstResult = firstResultSlot.captured as ConfigurationLoaderResult.Success
+        val secondResult = secondResultSlot.captured as ConfigurationLoaderResult.Success
+        assertEquals(firstResult.configuration, secondResult.configuration)
+        assertEquals(HttpResponseTiming(0, 10), firstResult.timing)
+        assertEquals(null, secondResult.timing)
+    }
+
+    @Test
+    fun awaitConfiguration_returnsFetchedConfigurationWithoutGoingThroughMainThread() =
+        runBlocking {
+            every { authorization.configUrl } returns "https://example.com/config"
+            val callbackSlot = slot<NetworkResponseCallback>()
+            every {
+                braintreeHttpClient.get(
+                    any(), null, authorization, any(), any(), any(), any(), false, capture(callbackSlot)
+                )
+            } answers {
+                callbackSlot.captured.onResult(
+                    HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 10)),
+                    null
+                )
+            }
+
+            val sut = ConfigurationLoader(
+                httpClient = braintreeHttpClient,
+                merchantRepository = merchantRepository,
+                configurationCache = configurationCache,
+                mainThreadExecutor = Executor { throw AssertionError("posted to the main thread") }
+            )
+            val result = sut.awaitConfiguration() as ConfigurationLoaderResult.Success
+
+            assertEquals(HttpResponseTiming(0, 10), result.timing)
+        }
+
+    @Test
+    fun awaitConfiguration_whenCancelled_cancelsFetch() = runBlocking {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val tokenSlot = slot<CancellationToken>()
+        every {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), capture(tokenSlot), false, any()
+            )
+        } returns Unit
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        val job = launch(start = CoroutineStart.UNDISPATCHED) { sut.awaitConfiguration() }
+        job.cancelAndJoin()
+
+        assertTrue(tokenSlot.captured.isCancelled)
+    }
+
+    @Test
+    fun awaitConfiguration_whenCancelledWhileOtherCallerWaits_keepsFetch() = runBlocking {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val tokenSlot = slot<CancellationToken>()
+        every {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), capture(tokenSlot), false, any()
+            )
+        } returns Unit
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+        val job = launch(start = CoroutineStart.UNDISPATCHED) { sut.awaitConfiguration() }
+        job.cancelAndJoin()
+
+        assertFalse(tokenSlot.captured.isCancelled)
+    }
+
+    @Test
+    fun loadConfiguration_withDeadline_whenDeadlinePassesBeforeFetchCompletes_failsAndCancelsFetch() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val tokenSlot = slot<CancellationToken>()
+        every {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), capture(tokenSlot), false, any()
+            )
+        } returns Unit
+        val deadlineExecutor = mockk<ScheduledExecutorService>()
+        val timeoutSlot = slot<Runnable>()
+        every {
+            deadlineExecutor.schedule(capture(timeoutSlot), 5_000L, TimeUnit.MILLISECONDS)
+        } returns mockk(relaxed = true)
+        val deadline = mockk<Deadline>()
+        every { deadline.remainingMillis } returns 5_000L
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            deadlineExecutor = deadlineExecutor
+        )
+        sut.loadConfiguration(TaskPriority.USER_INITIATED, deadline, callback)
+        timeoutSlot.captured.run()
+
+        val resultSlot = slot<ConfigurationLoaderResult>()
+        verify { callback.onResult(capture(resultSlot)) }
+        val failure = resultSlot.captured as ConfigurationLoaderResult.Failure
+        assertTrue(failure.error is DeadlineExceededException)
+        assertTrue(tokenSlot.captured.isCancelled)
+    }
+
+    @Test
+    fun loadConfiguration_withDeadline_whenFetchCompletesFirst_cancelsTimeout() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val callbackSlot = slot<NetworkResponseCallback>()
+        every {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), any(), false, capture(callbackSlot)
+            )
+        } returns Unit
+        val deadlineExecutor = mockk<ScheduledExecutorService>()
+        val timeout = mockk<ScheduledFuture<*>>(relaxed = true)
+        every { deadlineExecutor.schedule(any<Runnable>(), any(), any()) } returns timeout
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            deadlineExecutor = deadlineExecutor
+        )
+        sut.loadConfiguration(TaskPriority.USER_INITIATED, Deadline.after(5_000L), callback)
+        callbackSlot.captured.onResult(
+            HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 0)), null
+        )
+
+        verify { callback.onResult(ofType(ConfigurationLoaderResult.Success::class)) }
+        verify { timeout.cancel(false) }
+    }
+
+    @Test
+    fun loadConfiguration_withPrefetchPriority_fetchesInPrefetchLane() {
+        every { authorization.configUrl } returns "https://example.com/config"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(TaskPriority.PREFETCH, callback)
+
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.PREFETCH,
+                any(),
+                any(),
+                false,
+                any()
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_whenJoinedPrefetchIsRejectedByCircuitBreaker_refetchesForUserInitiatedCaller() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val prefetchCallback = mockk<ConfigurationLoaderCallback>(relaxed = true)
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(TaskPriority.PREFETCH, prefetchCallback)
+        sut.loadConfiguration(callback)
+
+        val prefetchCallbackSlot = slot<NetworkResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.PREFETCH,
+                any(),
+                any(),
+                false,
+                capture(prefetchCallbackSlot)
+            )
+        }
+        prefetchCallbackSlot.captured.onResult(null, mockk<CircuitBreakerOpenException>())
+
+        // the speculative caller fails fast, the waiting caller is fetched in its own lane
+        verify { prefetchCallback.onResult(ofType(ConfigurationLoaderResult.Failure::class)) }
+        verify(exactly = 0) { callback.onResult(any()) }
+
+        val userInitiatedCallbackSlot = slot<NetworkResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
+                capture(userInitiatedCallbackSlot)
+            )
+        }
+        userInitiatedCallbackSlot.captured.onResult(
+            HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 0)), null
+        )
+
+        verify { callback.onResult(ofType(ConfigurationLoaderResult.Success::class)) }
+    }
+
+    @Test
+    fun loadConfiguration_afterInFlightFetchCompletes_startsNewFetch() {
+        every { authorization.configUrl } returns "https://example.com/config"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
+                capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(null, Exception("http error"))
+
+        sut.loadConfiguration(callback)
+        verify(exactly = 2) {
+            braintreeHttpClient.get(
+                ofType(String::class),
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
+                any()
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_withCachedValidators_sendsConditionalRequest() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { configurationCache.getETag(any()) } returns "\"etag\""
+        every { configurationCache.getLastModified(any()) } returns "Wed, 21 Oct 2015 07:28:00 GMT"
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+
+        verify {
+            braintreeHttpClient.get(
+                "https://example.com/config?configVersion=3",
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                mapOf(
+                    "If-None-Match" to "\"etag\"",
+                    "If-Modified-Since" to "Wed, 21 Oct 2015 07:28:00 GMT"
+                ),
+                any(),
+                false,
+                any()
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_onSuccess_savesValidatorsFromResponse() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), any(), false, capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(
+            HttpResponse(
+                body = Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN,
+                timing = HttpResponseTiming(0, 0),
+                headers = mapOf("etag" to "\"etag\"")
+            ),
+            null
+        )
+
+        verify { configurationCache.saveValidators(any(), "\"etag\"", null) }
+    }
+
+    @Test
+    fun loadConfiguration_onNotModified_refreshesCachedConfigurationWithoutSavingIt() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { time.currentTime } returns 123
+        every {
+            configurationCache.refreshConfiguration(any(), 123)
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time
+        )
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), any(), false, capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(
+            HttpResponse(timing = HttpResponseTiming(0, 10), statusCode = 304),
+            null
+        )
+
+        verify { configurationCache.refreshConfiguration(any(), 123) }
+        verify(exactly = 0) { configurationCache.saveConfiguration(any(), any()) }
+        verify { callback.onResult(ofType(ConfigurationLoaderResult.Success::class)) }
+    }
+
+    @Test
+    fun loadConfiguration_onNotModifiedWithoutCachedConfiguration_forwardsError() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { configurationCache.refreshConfiguration(any(), any()) } returns null
+
+        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        sut.loadConfiguration(callback)
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), any(), false, capture(callbackSlot)
+            )
+        }
+        callbackSlot.captured.onResult(
+            HttpResponse(timing = HttpResponseTiming(0, 10), statusCode = 304),
+            null
+        )
+
+        val errorSlot = slot<ConfigurationLoaderResult>()
+        verify { callback.onResult(capture(errorSlot)) }
+        assertTrue {
+            (errorSlot.captured as ConfigurationLoaderResult.Failure).error is ConfigurationException
+        }
+    }
+
     @Test
     fun loadConfiguration_whenInvalidToken_exception_is_returned() {
         every { merchantRepository.authorization } returns InvalidAuthorization("invalid", "token invalid")
@@ -179,9 +593,16 @@ class ConfigurationLoaderUnitTest {
         )
         every { authorization.configUrl } returns "https://example.com/config"
         every { authorization.bearer } returns "bearer"
-        every { configurationCache.getConfiguration(cacheKey) } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every {
+            configurationCache.getConfiguration(cacheKey, any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
 
-        val sut = ConfigurationLoader(braintreeHttpClient, merchantRepository, configurationCache)
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time
+        )
         sut.loadConfiguration(callback)
 
         verify(exactly = 0) {
@@ -190,6 +611,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 any(),
+                any(),
+                any(),
+                any(),
+                false,
                 ofType(NetworkResponseCallback::class)
             )
         }
@@ -200,6 +625,150 @@ class ConfigurationLoaderUnitTest {
         assertTrue { successSlot.captured is ConfigurationLoaderResult.Success }
     }
 
+    @Test
+    fun loadConfiguration_whenConfigurationInMemory_doesNotReadSharedPreferencesCache() {
+        val cacheKey = Base64.encodeToString(
+            "https://example.com/config?configVersion=3bearer".toByteArray(),
+            0
+        )
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every { time.currentTime } returns 100
+        every {
+            configurationCache.getConfiguration(cacheKey, any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getConfigurationTimestamp(cacheKey) } returns 50
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time
+        )
+        sut.loadConfiguration(callback)
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 1) { configurationCache.getConfiguration(cacheKey, any(), any()) }
+        verify(exactly = 2) { callback.onResult(ofType(ConfigurationLoaderResult.Success::class)) }
+    }
+
+    @Test
+    fun loadConfiguration_whenInMemoryConfigurationExpired_fallsBackToSharedPreferencesCache() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every { authorization.bearer } returns "bearer"
+        every {
+            configurationCache.getConfiguration(any(), any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getConfigurationTimestamp(any()) } returns 0
+        every { time.currentTime } returns 0
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time,
+            cachePolicy = ConfigurationCachePolicy.NO_STALE_CONFIGURATION
+        )
+        sut.loadConfiguration(callback)
+
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 2) { configurationCache.getConfiguration(any(), any(), any()) }
+    }
+
+    @Test
+    fun loadConfiguration_whenCachedConfigurationStale_returnsItAndRevalidatesInBackground() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every {
+            configurationCache.getConfiguration(any(), any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getConfigurationTimestamp(any()) } returns 0
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time,
+            lazyAnalyticsClient = lazy { analyticsClient }
+        )
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 1) {
+            callback.onResult(ofType(ConfigurationLoaderResult.Success::class))
+        }
+
+        val callbackSlot = slot<NetworkResponseCallback>()
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                "https://example.com/config?configVersion=3",
+                null,
+                authorization,
+                HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.PREFETCH,
+                any(),
+                any(),
+                false,
+                capture(callbackSlot)
+            )
+        }
+
+        callbackSlot.captured.onResult(
+            HttpResponse(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN, HttpResponseTiming(0, 10)), null
+        )
+
+        verify { configurationCache.saveConfiguration(ofType(Configuration::class), any()) }
+        verify(exactly = 1) { callback.onResult(any()) }
+    }
+
+    @Test
+    fun loadConfiguration_whenStaleConfigurationNotAllowed_waitsForNetwork() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every {
+            configurationCache.getConfiguration(any(), any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getConfigurationTimestamp(any()) } returns 0
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time,
+            cachePolicy = ConfigurationCachePolicy(isStaleConfigurationAllowed = { false })
+        )
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 0) { callback.onResult(any()) }
+        verify(exactly = 1) {
+            braintreeHttpClient.get(
+                any(), null, authorization, any(), any(), any(), any(), false, any()
+            )
+        }
+    }
+
+    @Test
+    fun loadConfiguration_afterCachePolicyChanged_usesNewPolicy() {
+        every { authorization.configUrl } returns "https://example.com/config"
+        every {
+            configurationCache.getConfiguration(any(), any(), any())
+        } returns Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN
+        every { configurationCache.getConfigurationTimestamp(any()) } returns 0
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+
+        val sut = ConfigurationLoader(
+            httpClient = braintreeHttpClient,
+            merchantRepository = merchantRepository,
+            configurationCache = configurationCache,
+            time = time
+        )
+        sut.cachePolicy = ConfigurationCachePolicy.NO_STALE_CONFIGURATION
+        sut.loadConfiguration(callback)
+
+        verify(exactly = 0) { callback.onResult(any()) }
+    }
+
     @Test
     fun `when loadConfiguration is called and configuration is fetched from the API, analytics event is sent`() {
         every { authorization.configUrl } returns "https://example.com/config"
@@ -223,6 +792,10 @@ class ConfigurationLoaderUnitTest {
                 null,
                 authorization,
                 HttpClient.RetryStrategy.RETRY_MAX_3_TIMES,
+                TaskPriority.USER_INITIATED,
+                any(),
+                any(),
+                false,
                 capture(callbackSlot)
             )
         }
@@ -49,6 +49,7 @@ class DeviceInspectorUnitTest {
         sut = DeviceInspector(
             appHelper,
             signatureVerifier,
+            DeviceMetadataCache()
         )
     }
 
@@ -360,6 +361,31 @@ class DeviceInspectorUnitTest {
         assertEquals("integration_merchant_id", metadata.merchantId)
     }
 
+    @Test
+    @Throws(PackageManager.NameNotFoundException::class)
+    fun getDeviceMetadata_readsPackageManagerOnceAndKeepsPerCallValues() {
+        sut.getDeviceMetadata(context, btConfiguration, "session-id", IntegrationType.CUSTOM)
+        val metadata =
+            sut.getDeviceMetadata(context, null, "other-session-id", IntegrationType.DROP_IN)
+
+        verify(exactly = 1) { packageManager.getApplicationInfo("com.sample.app", 0) }
+        verify(exactly = 1) { packageManager.getPackageInfo("com.sample.app", 0) }
+        assertEquals("other-session-id", metadata.sessionId)
+        assertEquals(IntegrationType.DROP_IN, metadata.integrationType)
+        assertNull(metadata.environment)
+        assertNull(metadata.merchantId)
+    }
+
+    @Test
+    fun isPayPalInstalled_cachesResultFromAppHelper() {
+        every { appHelper.isAppInstalled(context, "com.paypal.android.p2pmobile") } returns true
+
+        sut.isPayPalInstalled(context)
+        sut.isPayPalInstalled(context)
+
+        verify(exactly = 1) { appHelper.isAppInstalled(context, "com.paypal.android.p2pmobile") }
+    }
+
     @Test
     fun isPayPalInstalled_forwardsIsPayPalInstalledResultFromAppHelper() {
         every { appHelper.isAppInstalled(context, "com.paypal.android.p2pmobile") } returns true
@@ -0,0 +1,78 @@
+package com.braintreepayments.api.core
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class DeviceMetadataCacheUnitTest {
+
+    private val context: Context = mockk(relaxed = true)
+    private val applicationContext: Context = mockk(relaxed = true)
+    private val receiverSlot = slot<BroadcastReceiver>()
+
+    private lateinit var sut: DeviceMetadataCache
+
+    @Before
+    fun beforeEach() {
+        every { context.applicationContext } returns applicationContext
+        every { applicationContext.registerReceiver(capture(receiverSlot), any()) } returns null
+        sut = DeviceMetadataCache()
+    }
+
+    @Test
+    fun getDeviceMetadata_createsSnapshotOnce() {
+        var createCount = 0
+        val first = sut.getDeviceMetadata { createCount++; DeviceMetadata(appId = "app") }
+        val second = sut.getDeviceMetadata { createCount++; DeviceMetadata(appId = "other") }
+
+        assertSame(first, second)
+        assertEquals(1, createCount)
+    }
+
+    @Test
+    fun isAppInstalled_registersPackageChangeReceiverOnce() {
+        sut.isAppInstalled(context, "com.venmo") { true }
+        sut.isAppInstalled(context, "com.paypal.android.p2pmobile") { true }
+
+        verify(exactly = 1) { applicationContext.registerReceiver(any(), any()) }
+    }
+
+    @Test
+    fun isAppInstalled_whenPackageChanges_readsValueAgain() {
+        assertTrue(sut.isAppInstalled(context, "com.venmo") { true })
+        assertTrue(sut.isAppInstalled(context, "com.venmo") { false })
+
+        receiverSlot.captured.onReceive(
+            applicationContext,
+            Intent(Intent.ACTION_PACKAGE_REMOVED, Uri.parse("package:com.venmo"))
+        )
+
+        assertFalse(sut.isAppInstalled(context, "com.venmo") { false })
+    }
+
+    @Test
+    fun isAppInstalled_whenOtherPackageChanges_keepsCachedValue() {
+        sut.isAppInstalled(context, "com.venmo") { true }
+
+        receiverSlot.captured.onReceive(
+            applicationContext,
+            Intent(Intent.ACTION_PACKAGE_ADDED, Uri.parse("package:com.example"))
+        )
+
+        assertTrue(sut.isAppInstalled(context, "com.venmo") { false })
+    }
+}
@@ -0,0 +1,98 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class FPTIJSONWriterUnitTest {
+
+    @Test
+    fun write_matchesJSONObjectOutput() {
+        val expected = JSONObject()
+            .put("event_name", "paypal:tokenize:started")
+            .put("t", 1_700_000_000_000L)
+            .put("is_vault", false)
+            .put("start_time", -1L)
+            .put("url", "com.braintreepayments.demo://onetouch/v1/success?token=a&b=c")
+            .toString()
+
+        val sut = FPTIJSONWriter()
+            .beginObject()
+            .field("event_name", "paypal:tokenize:started")
+            .field("t", 1_700_000_000_000L)
+            .field("is_vault", false)
+            .field("start_time", -1L)
+            .field("url", "com.braintreepayments.demo://onetouch/v1/success?token=a&b=c")
+            .endObject()
+
+        assertEquals(expected, sut.toString())
+    }
+
+    @Test
+    fun write_decimals_matchesJSONObjectOutput() {
+        val expected = JSONObject()
+            .put("sample_rate", 0.25)
+            .put("whole", 1.0)
+            .toString()
+
+        val sut = FPTIJSONWriter()
+            .beginObject()
+            .field("sample_rate", 0.25)
+            .field("whole", 1.0)
+            .endObject()
+
+        assertEquals(expected, sut.toString())
+    }
+
+    @Test
+    fun write_omitsNullValuesLikeJSONObject() {
+        val nullString: String? = null
+        val nullLong: Long? = null
+        val expected = JSONObject()
+            .putOpt("first", nullString)
+            .put("second", "value")
+            .putOpt("third", nullLong)
+            .toString()
+
+        val sut = FPTIJSONWriter()
+            .beginObject()
+            .field("first", nullString)
+            .field("second", "value")
+            .field("third", nullLong)
+            .endObject()
+
+        assertEquals(expected, sut.toString())
+    }
+
+    @Test
+    fun write_escapesStringsLikeJSONObject() {
+        val value = "quote\" backslash\\ slash/ tab\t backspace\b newline\n return\r " +
+            "formfeed\u000C null\u0000 unit separator\u001F delete\u007F unicode é ✓ 😀"
+        val expected = JSONObject().put("key\"/", value).toString()
+
+        val sut = FPTIJSONWriter()
+            .beginObject()
+            .field("key\"/", value)
+            .endObject()
+
+        assertEquals(expected, sut.toString())
+    }
+
+    @Test
+    fun beginObject_reusesBufferForNextObject() {
+        val sut = FPTIJSONWriter()
+        sut.beginObject().field("first", "value").endObject()
+
+        sut.beginObject().field("second", true).endObject()
+
+        assertEquals("""{"second":true}""", sut.json.toString())
+    }
+
+    @Test
+    fun write_emptyObject_matchesJSONObjectOutput() {
+        assertEquals(JSONObject().toString(), FPTIJSONWriter().beginObject().endObject().toString())
+    }
+}
@@ -0,0 +1,50 @@
+package com.braintreepayments.api.core
+
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.skyscreamer.jsonassert.JSONAssert
+import java.io.StringWriter
+
+@RunWith(RobolectricTestRunner::class)
+class FPTIPayloadWriterUnitTest {
+
+    private val batchParams = """{"session_id":"sample-session-id"}"""
+
+    @Test
+    fun write_copiesEventsIntoSingleBatch() {
+        val eventJSONs = listOf("""{"event_name":"first"}""", """{"event_name":"second"}""")
+        val writer = StringWriter()
+
+        FPTIPayloadWriter.write(writer, batchParams, eventJSONs.asSequence())
+
+        assertEquals(
+            """{"events":[{"batch_params":{"session_id":"sample-session-id"},""" +
+                """"event_params":[{"event_name":"first"},{"event_name":"second"}]}]}""",
+            writer.toString()
+        )
+    }
+
+    @Test
+    fun write_withAuthorizationFingerprint_addsItAtTopLevel() {
+        val writer = StringWriter()
+
+        FPTIPayloadWriter.write(writer, batchParams, emptySequence(), "fingerprint\"with-quote")
+
+        // language=JSON
+        val expectedJSON = """
+        {
+          "events": [
+            {
+              "batch_params": { "session_id": "sample-session-id" },
+              "event_params": []
+            }
+          ],
+          "authorizationFingerprint": "fingerprint\"with-quote"
+        }
+        """
+        JSONAssert.assertEquals(JSONObject(expectedJSON), JSONObject(writer.toString()), true)
+    }
+}
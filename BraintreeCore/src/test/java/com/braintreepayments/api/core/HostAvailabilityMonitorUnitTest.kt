@@ -0,0 +1,73 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.CircuitBreaker
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+class HostAvailabilityMonitorUnitTest {
+
+    private lateinit var circuitBreaker: CircuitBreaker
+    private lateinit var listener: HostAvailabilityListener
+
+    @Before
+    fun beforeEach() {
+        circuitBreaker = CircuitBreaker(
+            failureRateThreshold = 0.5,
+            windowSize = 2,
+            minimumCallCount = 1,
+            coolDownMillis = 30_000L
+        )
+        listener = mockk(relaxed = true)
+    }
+
+    @Test
+    fun getAvailability_returnsAvailabilityOfHost() {
+        val sut = HostAvailabilityMonitor(circuitBreaker)
+        assertEquals(HostAvailability.AVAILABLE, sut.getAvailability(HOST))
+
+        circuitBreaker.onFailure(HOST)
+
+        assertEquals(HostAvailability.UNAVAILABLE, sut.getAvailability(HOST))
+    }
+
+    @Test
+    fun addListener_notifiesListenerWhenHostBecomesUnavailable() {
+        val sut = HostAvailabilityMonitor(circuitBreaker)
+        sut.addListener(listener)
+
+        circuitBreaker.onFailure(HOST)
+
+        verify(exactly = 1) {
+            listener.onHostAvailabilityChanged(HOST, HostAvailability.UNAVAILABLE)
+        }
+    }
+
+    @Test
+    fun addListener_whenAddedTwice_notifiesListenerOnce() {
+        val sut = HostAvailabilityMonitor(circuitBreaker)
+        sut.addListener(listener)
+        sut.addListener(listener)
+
+        circuitBreaker.onFailure(HOST)
+
+        verify(exactly = 1) { listener.onHostAvailabilityChanged(any(), any()) }
+    }
+
+    @Test
+    fun removeListener_stopsNotifyingListener() {
+        val sut = HostAvailabilityMonitor(circuitBreaker)
+        sut.addListener(listener)
+
+        sut.removeListener(listener)
+        circuitBreaker.onFailure(HOST)
+
+        verify(exactly = 0) { listener.onHostAvailabilityChanged(any(), any()) }
+    }
+
+    companion object {
+        private const val HOST = "api.braintreegateway.com"
+    }
+}
@@ -0,0 +1,65 @@
+package com.braintreepayments.api.core
+
+import com.braintreepayments.api.sharedutils.Time
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class InMemoryConfigurationCacheUnitTest {
+
+    private val time: Time = mockk(relaxed = true)
+    private val configuration: Configuration = mockk(relaxed = true)
+
+    @Test
+    fun getConfiguration_whenWithinTimeToLive_returnsParsedConfiguration() {
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE - 1
+
+        val sut = InMemoryConfigurationCache(time)
+        sut.putConfiguration("key", configuration, 0)
+
+        assertSame(configuration, sut.getConfiguration("key"))
+    }
+
+    @Test
+    fun getConfiguration_whenTimeToLiveElapsed_returnsNull() {
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+
+        val sut = InMemoryConfigurationCache(time)
+        sut.putConfiguration("key", configuration, 0)
+
+        assertNull(sut.getConfiguration("key"))
+    }
+
+    @Test
+    fun getEntry_whenYoungerThanTimeToLive_returnsEntryWithTimestamp() {
+        every { time.currentTime } returns ConfigurationCache.TIME_TO_LIVE
+
+        val sut = InMemoryConfigurationCache(time)
+        sut.putConfiguration("key", configuration, 10)
+
+        val entry = sut.getEntry("key", ConfigurationCache.TIME_TO_LIVE * 2)
+        assertSame(configuration, entry?.configuration)
+        assertEquals(10L, entry?.timestamp)
+    }
+
+    @Test
+    fun getConfiguration_whenKeyNotCached_returnsNull() {
+        val sut = InMemoryConfigurationCache(time)
+        sut.putConfiguration("key", configuration, 0)
+
+        assertNull(sut.getConfiguration("other-key"))
+    }
+
+    @Test
+    fun clear_removesAllEntries() {
+        val sut = InMemoryConfigurationCache(time)
+        sut.putConfiguration("key", configuration, 0)
+
+        sut.clear()
+
+        assertNull(sut.getConfiguration("key"))
+    }
+}
@@ -0,0 +1,50 @@
+package com.braintreepayments.api.core
+
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
+import com.braintreepayments.api.sharedutils.CancellationToken
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class LifecycleCancellationUnitTest {
+
+    private lateinit var lifecycleOwner: LifecycleOwner
+    private lateinit var lifecycle: LifecycleRegistry
+
+    @Before
+    fun beforeEach() {
+        lifecycleOwner = mockk()
+        lifecycle = LifecycleRegistry.createUnsafe(lifecycleOwner)
+        every { lifecycleOwner.lifecycle } returns lifecycle
+        lifecycle.currentState = Lifecycle.State.RESUMED
+    }
+
+    @Test
+    fun createToken_cancelsTokenWhenLifecycleIsDestroyed() {
+        val token = LifecycleCancellation.createToken(lifecycleOwner)
+
+        lifecycle.currentState = Lifecycle.State.CREATED
+        assertFalse(token.isCancelled)
+
+        lifecycle.currentState = Lifecycle.State.DESTROYED
+        assertTrue(token.isCancelled)
+    }
+
+    @Test
+    fun bind_whenLifecycleIsAlreadyDestroyed_cancelsTokenImmediately() {
+        lifecycle.currentState = Lifecycle.State.DESTROYED
+        val token = CancellationToken()
+
+        LifecycleCancellation.bind(token, lifecycleOwner)
+
+        assertTrue(token.isCancelled)
+    }
+}
@@ -1,5 +1,7 @@
 package com.braintreepayments.api.core
 
+import com.braintreepayments.api.sharedutils.Deadline
+import io.mockk.coEvery
 import io.mockk.every
 import io.mockk.mockk
 
@@ -21,13 +23,18 @@ internal class MockkConfigurationLoaderBuilder {
     fun build(): ConfigurationLoader {
         val configurationLoader = mockk<ConfigurationLoader>(relaxed = true)
         every { configurationLoader.loadConfiguration(any()) } answers {
-            val callback = firstArg<ConfigurationLoaderCallback>()
-            configuration?.let {
-                callback.onResult(ConfigurationLoaderResult.Success(it))
-            } ?: run {
-                callback.onResult(ConfigurationLoaderResult.Failure(configurationError))
-            }
+            firstArg<ConfigurationLoaderCallback>().onResult(createResult())
         }
+        every {
+            configurationLoader.loadConfiguration(any(), any<Deadline>(), any())
+        } answers {
+            thirdArg<ConfigurationLoaderCallback>().onResult(createResult())
+        }
+        coEvery { configurationLoader.awaitConfiguration(any()) } answers { createResult() }
         return configurationLoader
     }
+
+    private fun createResult(): ConfigurationLoaderResult = configuration?.let {
+        ConfigurationLoaderResult.Success(it)
+    } ?: ConfigurationLoaderResult.Failure(configurationError)
 }
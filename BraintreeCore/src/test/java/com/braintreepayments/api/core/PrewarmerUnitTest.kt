@@ -0,0 +1,116 @@
+package com.braintreepayments.api.core
+
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import com.braintreepayments.api.sharedutils.TaskPriority
+import com.braintreepayments.api.testutils.Fixtures
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Executor
+import javax.net.ssl.SSLException
+import javax.net.ssl.SSLSocketFactory
+
+@RunWith(RobolectricTestRunner::class)
+class PrewarmerUnitTest {
+
+    private val configurationLoader: ConfigurationLoader = mockk(relaxed = true)
+    private val openHelper: SupportSQLiteOpenHelper = mockk(relaxed = true)
+    private val analyticsDatabase: AnalyticsDatabase = mockk(relaxed = true)
+    private val socketFactory: SSLSocketFactory = mockk(relaxed = true)
+    private val directExecutor = Executor { it.run() }
+
+    private fun createPrewarmer(
+        socketFactoryProvider: () -> SSLSocketFactory = { socketFactory }
+    ) = Prewarmer(
+        configurationLoader = configurationLoader,
+        analyticsDatabase = analyticsDatabase,
+        socketFactoryProvider = socketFactoryProvider,
+        backgroundExecutor = directExecutor,
+        mainThreadExecutor = directExecutor
+    )
+
+    @Test
+    fun prewarm_runsEveryStepAndReportsResults() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        every { analyticsDatabase.openHelper } returns openHelper
+        every { configurationLoader.loadConfiguration(TaskPriority.PREFETCH, any()) } answers {
+            secondArg<ConfigurationLoaderCallback>()
+                .onResult(ConfigurationLoaderResult.Success(configuration))
+        }
+
+        val resultsSlot = slot<List<PrewarmStepResult>>()
+        val callback = mockk<PrewarmCallback>(relaxed = true)
+        createPrewarmer().prewarm(false, callback)
+
+        verify { openHelper.writableDatabase }
+        verify { callback.onResult(capture(resultsSlot)) }
+        val results = resultsSlot.captured
+        assertEquals(
+            listOf(
+                PrewarmStep.TLS_SOCKET_FACTORY,
+                PrewarmStep.ANALYTICS_DATABASE,
+                PrewarmStep.CONFIGURATION
+            ),
+            results.map { it.step }
+        )
+        assertTrue(results.all { it.isSuccessful })
+    }
+
+    @Test
+    fun prewarm_whenStepFails_reportsErrorAndContinues() {
+        val sslException = SSLException("tls error")
+        val configurationError = BraintreeException("configuration error")
+        every { analyticsDatabase.openHelper } returns openHelper
+        every { configurationLoader.loadConfiguration(TaskPriority.PREFETCH, any()) } answers {
+            secondArg<ConfigurationLoaderCallback>()
+                .onResult(ConfigurationLoaderResult.Failure(configurationError))
+        }
+
+        val resultsSlot = slot<List<PrewarmStepResult>>()
+        val callback = mockk<PrewarmCallback>(relaxed = true)
+        createPrewarmer(socketFactoryProvider = { throw sslException }).prewarm(true, callback)
+
+        verify { callback.onResult(capture(resultsSlot)) }
+        val results = resultsSlot.captured
+        assertSame(sslException, results[0].error)
+        assertTrue(results[1].isSuccessful)
+        assertFalse(results[2].isSuccessful)
+        assertSame(configurationError, results[2].error)
+        // nothing to pre-connect to without configuration
+        assertEquals(3, results.size)
+    }
+
+    @Test
+    fun prewarm_whenConfigurationIsPending_returnsAndReportsResultsOnceLoaded() {
+        val configuration = Configuration.fromJson(Fixtures.CONFIGURATION_WITH_ACCESS_TOKEN)
+        val configurationCallbackSlot = slot<ConfigurationLoaderCallback>()
+        every { analyticsDatabase.openHelper } returns openHelper
+        every {
+            configurationLoader.loadConfiguration(
+                TaskPriority.PREFETCH,
+                capture(configurationCallbackSlot)
+            )
+        } returns Unit
+
+        val resultsSlot = slot<List<PrewarmStepResult>>()
+        val callback = mockk<PrewarmCallback>(relaxed = true)
+        createPrewarmer().prewarm(false, callback)
+
+        verify(exactly = 0) { callback.onResult(any()) }
+
+        configurationCallbackSlot.captured
+            .onResult(ConfigurationLoaderResult.Success(configuration))
+
+        verify { callback.onResult(capture(resultsSlot)) }
+        assertEquals(PrewarmStep.CONFIGURATION, resultsSlot.captured.last().step)
+        assertTrue(resultsSlot.captured.last().isSuccessful)
+    }
+}
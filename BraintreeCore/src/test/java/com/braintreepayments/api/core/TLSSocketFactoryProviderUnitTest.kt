@@ -0,0 +1,15 @@
+package com.braintreepayments.api.core
+
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class TLSSocketFactoryProviderUnitTest {
+
+    @Test
+    fun getSocketFactory_returnsTheSameInstanceOnEveryCall() {
+        val first = TLSSocketFactoryProvider.getSocketFactory()
+        val second = TLSSocketFactoryProvider.getSocketFactory()
+
+        assertSame(first, second)
+    }
+}
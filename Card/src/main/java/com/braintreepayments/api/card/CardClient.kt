@@ -8,6 +8,9 @@ import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.GraphQLConstants
+import com.braintreepayments.api.core.LifecycleCancellation
+import com.braintreepayments.api.core.PrewarmCallback
+import com.braintreepayments.api.sharedutils.CancellationToken
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -34,6 +37,19 @@ class CardClient internal constructor(
         )
     )
 
+    /**
+     * Prepares the SDK for the first tokenization request ahead of time: on a background thread,
+     * initializes the TLS context, opens the analytics database and loads configuration.
+     * Call this when the user is likely to reach checkout soon, e.g. at app start.
+     *
+     * @param preconnect also open a connection to the Braintree hosts of the configuration
+     * @param callback optional [PrewarmCallback] notified on the main thread with the outcome and
+     * duration of each step
+     */
+    @JvmOverloads
+    fun prewarm(preconnect: Boolean = false, callback: PrewarmCallback? = null) =
+        braintreeClient.prewarm(preconnect, callback)
+
     /**
      * Create a [CardNonce].
      *
@@ -60,10 +76,31 @@ class CardClient internal constructor(
      * @param card     [Card]
      * @param callback [CardTokenizeCallback]
      */
-    fun tokenize(card: Card, callback: CardTokenizeCallback) {
+    fun tokenize(card: Card, callback: CardTokenizeCallback) = tokenize(card, null, callback)
+
+    /**
+     * Create a [CardNonce] with a request that can be cancelled, e.g. when the user leaves the
+     * checkout screen. See [LifecycleCancellation] to cancel it when a lifecycle is destroyed.
+     *
+     * The result is returned via a [CardTokenizeCallback] as described in the overload without a
+     * [CancellationToken]. Once [cancellationToken] is cancelled, the request is aborted and
+     * [callback] is not invoked.
+     *
+     * @param card              [Card]
+     * @param cancellationToken [CancellationToken] that aborts the tokenization, or null
+     * @param callback          [CardTokenizeCallback]
+     */
+    fun tokenize(
+        card: Card,
+        cancellationToken: CancellationToken?,
+        callback: CardTokenizeCallback
+    ) {
         analyticsParamRepository.resetSessionId()
         braintreeClient.sendAnalyticsEvent(CardAnalytics.CARD_TOKENIZE_STARTED)
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
+            if (cancellationToken?.isCancelled == true) {
+                return@getConfiguration
+            }
             if (error != null) {
                 callbackFailure(callback, CardResult.Failure(error))
                 return@getConfiguration
@@ -79,7 +116,8 @@ class CardClient internal constructor(
                 try {
                     val tokenizePayload = card.buildJSONForGraphQL()
                     apiClient.tokenizeGraphQL(
-                        tokenizePayload
+                        tokenizePayload,
+                        cancellationToken
                     ) { tokenizationResponse: JSONObject?, exception: Exception? ->
                         handleTokenizeResponse(
                             tokenizationResponse, exception, callback
@@ -92,7 +130,8 @@ class CardClient internal constructor(
                 }
             } else {
                 apiClient.tokenizeREST(
-                    card
+                    card,
+                    cancellationToken
                 ) { tokenizationResponse: JSONObject?, exception: Exception? ->
                     handleTokenizeResponse(
                         tokenizationResponse, exception, callback
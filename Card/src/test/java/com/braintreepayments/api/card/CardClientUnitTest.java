@@ -4,16 +4,21 @@ import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.braintreepayments.api.core.AnalyticsParamRepository;
 import com.braintreepayments.api.core.ApiClient;
 import com.braintreepayments.api.core.BraintreeClient;
 import com.braintreepayments.api.core.Configuration;
+import com.braintreepayments.api.core.PrewarmCallback;
 import com.braintreepayments.api.core.TokenizeCallback;
+import com.braintreepayments.api.sharedutils.CancellationToken;
 import com.braintreepayments.api.testutils.Fixtures;
 import com.braintreepayments.api.testutils.MockApiClientBuilder;
 import com.braintreepayments.api.testutils.MockBraintreeClientBuilder;
@@ -88,7 +93,7 @@ public class CardClientUnitTest {
 
         InOrder inOrder = Mockito.inOrder(card, apiClient);
         inOrder.verify(card).setSessionId("session-id");
-        inOrder.verify(apiClient).tokenizeGraphQL(any(JSONObject.class), any(TokenizeCallback.class));
+        inOrder.verify(apiClient).tokenizeGraphQL(any(JSONObject.class), isNull(), any(TokenizeCallback.class));
     }
 
     @Test
@@ -114,6 +119,34 @@ public class CardClientUnitTest {
         assertEquals("3744a73e-b1ab-0dbd-85f0-c12a0a4bd3d1", cardNonce.getString());
     }
 
+    @Test
+    public void tokenize_withCancellationToken_forwardsTokenToApiClient() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLDisabledConfig)
+                .build();
+        CancellationToken cancellationToken = new CancellationToken();
+
+        CardClient sut = new CardClient(braintreeClient, apiClient, analyticsParamRepository);
+        sut.tokenize(card, cancellationToken, cardTokenizeCallback);
+
+        verify(apiClient).tokenizeREST(eq(card), eq(cancellationToken), any(TokenizeCallback.class));
+    }
+
+    @Test
+    public void tokenize_whenCancelled_doesNotTokenizeOrNotifyCallback() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+                .configuration(graphQLDisabledConfig)
+                .build();
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        CardClient sut = new CardClient(braintreeClient, apiClient, analyticsParamRepository);
+        sut.tokenize(card, cancellationToken, cardTokenizeCallback);
+
+        verify(apiClient, never()).tokenizeREST(any(), any(), any());
+        verifyNoInteractions(cardTokenizeCallback);
+    }
+
     @Test
     public void tokenize_whenGraphQLDisabled_tokenizesWithREST() throws JSONException {
         BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
@@ -267,4 +300,15 @@ public class CardClientUnitTest {
         Exception actualError = ((CardResult.Failure) result).getError();
         assertEquals(configError, actualError);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void prewarm_forwardsToBraintreeClient() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+        PrewarmCallback prewarmCallback = mock(PrewarmCallback.class);
+
+        CardClient sut = new CardClient(braintreeClient, apiClient, analyticsParamRepository);
+        sut.prewarm(true, prewarmCallback);
+
+        verify(braintreeClient).prewarm(true, prewarmCallback);
+    }
+}
@@ -11,10 +11,13 @@ import com.braintreepayments.api.core.BraintreeRequestCodes
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.ExperimentalBetaApi
 import com.braintreepayments.api.core.GetReturnLinkUseCase
+import com.braintreepayments.api.core.LifecycleCancellation
 import com.braintreepayments.api.core.LinkType
 import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.core.PrewarmCallback
 import com.braintreepayments.api.core.UserCanceledException
 import com.braintreepayments.api.paypal.PayPalPaymentIntent.Companion.fromString
+import com.braintreepayments.api.sharedutils.CancellationToken
 import com.braintreepayments.api.sharedutils.Json
 import org.json.JSONException
 import org.json.JSONObject
@@ -22,6 +25,7 @@ import org.json.JSONObject
 /**
  * Used to tokenize PayPal accounts. For more information see the [documentation](https://developer.paypal.com/braintree/docs/guides/paypal/overview/android/v4)
  */
+@Suppress("TooManyFunctions")
 class PayPalClient internal constructor(
     private val braintreeClient: BraintreeClient,
     private val internalPayPalClient: PayPalInternalClient = PayPalInternalClient(braintreeClient),
@@ -78,6 +82,19 @@ class PayPalClient internal constructor(
         )
     )
 
+    /**
+     * Prepares the SDK for the first PayPal request ahead of time: on a background thread,
+     * initializes the TLS context, opens the analytics database and loads configuration.
+     * Call this when the user is likely to reach checkout soon, e.g. at app start.
+     *
+     * @param preconnect also open a connection to the Braintree hosts of the configuration
+     * @param callback optional [PrewarmCallback] notified on the main thread with the outcome and
+     * duration of each step
+     */
+    @JvmOverloads
+    fun prewarm(preconnect: Boolean = false, callback: PrewarmCallback? = null) =
+        braintreeClient.prewarm(preconnect, callback)
+
     /**
      * Starts the PayPal payment flow by creating a [PayPalPaymentAuthRequestParams] to be
      * used to launch the PayPal web authentication flow in
@@ -87,10 +104,31 @@ class PayPalClient internal constructor(
      * @param payPalRequest a [PayPalRequest] used to customize the request.
      * @param callback      [PayPalPaymentAuthCallback]
      */
+    fun createPaymentAuthRequest(
+        context: Context,
+        payPalRequest: PayPalRequest,
+        callback: PayPalPaymentAuthCallback
+    ) = createPaymentAuthRequest(context, payPalRequest, null, callback)
+
+    /**
+     * Starts the PayPal payment flow with a request that can be cancelled, e.g. when the user
+     * leaves the checkout screen. See [LifecycleCancellation] to cancel it when a lifecycle is
+     * destroyed.
+     *
+     * The result is returned via a [PayPalPaymentAuthCallback] as described in the overload
+     * without a [CancellationToken]. Once [cancellationToken] is cancelled, the request is aborted
+     * and [callback] is not invoked.
+     *
+     * @param context           Android Context
+     * @param payPalRequest     a [PayPalRequest] used to customize the request.
+     * @param cancellationToken [CancellationToken] that aborts the request, or null
+     * @param callback          [PayPalPaymentAuthCallback]
+     */
     @OptIn(ExperimentalBetaApi::class)
     fun createPaymentAuthRequest(
         context: Context,
         payPalRequest: PayPalRequest,
+        cancellationToken: CancellationToken?,
         callback: PayPalPaymentAuthCallback
     ) {
         shopperSessionId = payPalRequest.shopperSessionId
@@ -99,6 +137,9 @@ class PayPalClient internal constructor(
         braintreeClient.sendAnalyticsEvent(PayPalAnalytics.TOKENIZATION_STARTED, analyticsParams)
 
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
+            if (cancellationToken?.isCancelled == true) {
+                return@getConfiguration
+            }
             if (error != null) {
                 callbackCreatePaymentAuthFailure(callback, PayPalPaymentAuthRequest.Failure(error))
             } else if (payPalConfigInvalid(configuration)) {
@@ -107,7 +148,7 @@ class PayPalClient internal constructor(
                     PayPalPaymentAuthRequest.Failure(createPayPalError())
                 )
             } else {
-                sendPayPalRequest(context, payPalRequest, callback)
+                sendPayPalRequest(context, payPalRequest, cancellationToken, callback)
             }
         }
     }
@@ -116,11 +157,13 @@ class PayPalClient internal constructor(
     private fun sendPayPalRequest(
         context: Context,
         payPalRequest: PayPalRequest,
+        cancellationToken: CancellationToken?,
         callback: PayPalPaymentAuthCallback
     ) {
         internalPayPalClient.sendRequest(
             context,
-            payPalRequest
+            payPalRequest,
+            cancellationToken
         ) { payPalResponse: PayPalPaymentAuthRequestParams?,
             error: Exception? ->
             if (payPalResponse != null) {
@@ -206,11 +249,33 @@ class PayPalClient internal constructor(
      * from  [PayPalLauncher.handleReturnToApp]
      * @param callback          [PayPalTokenizeCallback]
      */
+    fun tokenize(
+        paymentAuthResult: PayPalPaymentAuthResult.Success,
+        callback: PayPalTokenizeCallback
+    ) = tokenize(paymentAuthResult, null, callback)
+
+    /**
+     * Tokenize the PayPal account with a request that can be cancelled, e.g. when the user leaves
+     * the checkout screen.
+     *
+     * The result is returned via a [PayPalTokenizeCallback] as described in the overload without
+     * a [CancellationToken]. Once [cancellationToken] is cancelled, the request is aborted and
+     * [callback] is not invoked.
+     *
+     * @param paymentAuthResult a [PayPalPaymentAuthResult.Success] received in the callback
+     * from  [PayPalLauncher.handleReturnToApp]
+     * @param cancellationToken [CancellationToken] that aborts the tokenization, or null
+     * @param callback          [PayPalTokenizeCallback]
+     */
     @Suppress("SwallowedException")
     fun tokenize(
         paymentAuthResult: PayPalPaymentAuthResult.Success,
+        cancellationToken: CancellationToken?,
         callback: PayPalTokenizeCallback
     ) {
+        if (cancellationToken?.isCancelled == true) {
+            return
+        }
         val browserSwitchResult = paymentAuthResult.browserSwitchSuccess
         val metadata = browserSwitchResult.requestMetadata
         val clientMetadataId = Json.optString(metadata, "client-metadata-id", null)
@@ -251,7 +316,10 @@ class PayPalClient internal constructor(
                 paymentType
             )
 
-            internalPayPalClient.tokenize(payPalAccount) { payPalAccountNonce: PayPalAccountNonce?, error: Exception? ->
+            internalPayPalClient.tokenize(
+                payPalAccount,
+                cancellationToken
+            ) { payPalAccountNonce: PayPalAccountNonce?, error: Exception? ->
                 if (payPalAccountNonce != null) {
                     callbackTokenizeSuccess(
                         callback,
@@ -12,6 +12,7 @@ import com.braintreepayments.api.core.MerchantRepository
 import com.braintreepayments.api.datacollector.DataCollector
 import com.braintreepayments.api.datacollector.DataCollectorInternalRequest
 import com.braintreepayments.api.paypal.PayPalPaymentResource.Companion.fromJson
+import com.braintreepayments.api.sharedutils.CancellationToken
 import org.json.JSONException
 import org.json.JSONObject
 
@@ -24,12 +25,17 @@ internal class PayPalInternalClient(
     private val getReturnLinkUseCase: GetReturnLinkUseCase = GetReturnLinkUseCase(merchantRepository)
 ) {
 
+    @JvmOverloads
     fun sendRequest(
         context: Context,
         payPalRequest: PayPalRequest,
+        cancellationToken: CancellationToken? = null,
         callback: PayPalInternalClientCallback
     ) {
         braintreeClient.getConfiguration { configuration: Configuration?, configError: Exception? ->
+            if (cancellationToken?.isCancelled == true) {
+                return@getConfiguration
+            }
             if (configuration == null) {
                 callback.onResult(null, configError)
                 return@getConfiguration
@@ -82,6 +88,7 @@ internal class PayPalInternalClient(
                     payPalRequest = payPalRequest,
                     context = context,
                     configuration = configuration,
+                    cancellationToken = cancellationToken,
                     callback = callback
                 )
             } catch (exception: JSONException) {
@@ -90,8 +97,16 @@ internal class PayPalInternalClient(
         }
     }
 
-    fun tokenize(payPalAccount: PayPalAccount, callback: PayPalInternalTokenizeCallback) {
-        apiClient.tokenizeREST(payPalAccount) { tokenizationResponse: JSONObject?, exception: Exception? ->
+    @JvmOverloads
+    fun tokenize(
+        payPalAccount: PayPalAccount,
+        cancellationToken: CancellationToken? = null,
+        callback: PayPalInternalTokenizeCallback
+    ) {
+        apiClient.tokenizeREST(
+            payPalAccount,
+            cancellationToken
+        ) { tokenizationResponse: JSONObject?, exception: Exception? ->
             if (tokenizationResponse != null) {
                 try {
                     callback.onResult(PayPalAccountNonce.fromJSON(tokenizationResponse), null)
@@ -110,11 +125,15 @@ internal class PayPalInternalClient(
         payPalRequest: PayPalRequest,
         context: Context,
         configuration: Configuration,
+        cancellationToken: CancellationToken?,
         callback: PayPalInternalClientCallback
     ) {
         braintreeClient.sendPOST(
             url = url,
             data = requestBody,
+            additionalHeaders = emptyMap(),
+            deadline = null,
+            cancellationToken = cancellationToken
         ) { responseBody: String?, httpError: Exception? ->
 
             if (responseBody == null) {
@@ -38,7 +38,7 @@ public class MockPayPalInternalClientBuilder {
             @Override
             public Void answer(InvocationOnMock invocation) {
                 PayPalInternalClientCallback callback =
-                        (PayPalInternalClientCallback) invocation.getArguments()[2];
+                        (PayPalInternalClientCallback) invocation.getArguments()[3];
                 if (successResponse != null) {
                     callback.onResult(successResponse, null);
                 } else if (error != null) {
@@ -47,18 +47,19 @@ public class MockPayPalInternalClientBuilder {
                 return null;
             }
         }).when(payPalInternalClient).sendRequest(any(Context.class), any(PayPalRequest.class),
-                any(PayPalInternalClientCallback.class));
+                any(), any(PayPalInternalClientCallback.class));
 
         doAnswer(new Answer<Void>() {
             @Override
             public Void answer(InvocationOnMock invocation) {
                 PayPalInternalTokenizeCallback callback =
-                        (PayPalInternalTokenizeCallback) invocation.getArguments()[1];
+                        (PayPalInternalTokenizeCallback) invocation.getArguments()[2];
                 callback.onResult(tokenizeSuccess, null);
                 return null;
             }
         }).when(payPalInternalClient)
-                .tokenize(any(PayPalAccount.class), any(PayPalInternalTokenizeCallback.class));
+                .tokenize(any(PayPalAccount.class), any(),
+                        any(PayPalInternalTokenizeCallback.class));
 
         return payPalInternalClient;
     }
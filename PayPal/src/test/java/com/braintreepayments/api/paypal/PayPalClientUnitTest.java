@@ -4,9 +4,12 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.TestCase.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import android.net.Uri;
@@ -23,6 +26,8 @@ import com.braintreepayments.api.core.BraintreeRequestCodes;
 import com.braintreepayments.api.core.Configuration;
 import com.braintreepayments.api.core.GetReturnLinkUseCase;
 import com.braintreepayments.api.core.MerchantRepository;
+import com.braintreepayments.api.core.PrewarmCallback;
+import com.braintreepayments.api.sharedutils.CancellationToken;
 import com.braintreepayments.api.testutils.Fixtures;
 import com.braintreepayments.api.testutils.MockBraintreeClientBuilder;
 
@@ -363,7 +368,7 @@ public class PayPalClientUnitTest {
         PayPalClient sut = new PayPalClient(braintreeClient, payPalInternalClient, merchantRepository, getReturnLinkUseCase);
         sut.createPaymentAuthRequest(activity, payPalRequest, paymentAuthCallback);
 
-        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest),
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), isNull(),
             any(PayPalInternalClientCallback.class));
     }
 
@@ -379,10 +384,45 @@ public class PayPalClientUnitTest {
         PayPalClient sut = new PayPalClient(braintreeClient, payPalInternalClient, merchantRepository, getReturnLinkUseCase);
         sut.createPaymentAuthRequest(activity, payPalRequest, paymentAuthCallback);
 
-        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest),
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest), isNull(),
             any(PayPalInternalClientCallback.class));
     }
 
+    @Test
+    public void createPaymentAuthRequest_withCancellationToken_forwardsTokenToInternalClient() {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+
+        BraintreeClient braintreeClient =
+            new MockBraintreeClientBuilder().configuration(payPalEnabledConfig).build();
+
+        PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00", true);
+        CancellationToken cancellationToken = new CancellationToken();
+
+        PayPalClient sut = new PayPalClient(braintreeClient, payPalInternalClient, merchantRepository, getReturnLinkUseCase);
+        sut.createPaymentAuthRequest(activity, payPalRequest, cancellationToken, paymentAuthCallback);
+
+        verify(payPalInternalClient).sendRequest(same(activity), same(payPalRequest),
+            same(cancellationToken), any(PayPalInternalClientCallback.class));
+    }
+
+    @Test
+    public void createPaymentAuthRequest_whenCancelled_doesNotSendRequestOrNotifyCallback() {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+
+        BraintreeClient braintreeClient =
+            new MockBraintreeClientBuilder().configuration(payPalEnabledConfig).build();
+
+        PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00", true);
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        PayPalClient sut = new PayPalClient(braintreeClient, payPalInternalClient, merchantRepository, getReturnLinkUseCase);
+        sut.createPaymentAuthRequest(activity, payPalRequest, cancellationToken, paymentAuthCallback);
+
+        verify(payPalInternalClient, never()).sendRequest(any(), any(), any(), any());
+        verifyNoInteractions(paymentAuthCallback);
+    }
+
     @Test
     public void createPaymentAuthRequest_whenVaultRequest_sendsAppSwitchStartedEvent() {
         PayPalVaultRequest payPalVaultRequest = new PayPalVaultRequest(true);
@@ -433,6 +473,50 @@ public class PayPalClientUnitTest {
         verify(braintreeClient).sendAnalyticsEvent(PayPalAnalytics.APP_SWITCH_STARTED, params);
     }
 
+    @Test
+    public void tokenize_withCancellationToken_forwardsTokenToInternalClient() throws JSONException {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+        CancellationToken cancellationToken = new CancellationToken();
+
+        PayPalClient sut = new PayPalClient(new MockBraintreeClientBuilder().build(),
+            payPalInternalClient, merchantRepository, getReturnLinkUseCase);
+        sut.tokenize(createBillingAgreementAuthResult(), cancellationToken, payPalTokenizeCallback);
+
+        verify(payPalInternalClient).tokenize(any(PayPalAccount.class), same(cancellationToken),
+            any(PayPalInternalTokenizeCallback.class));
+    }
+
+    @Test
+    public void tokenize_whenCancelled_doesNotTokenizeOrNotifyCallback() throws JSONException {
+        PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        PayPalClient sut = new PayPalClient(new MockBraintreeClientBuilder().build(),
+            payPalInternalClient, merchantRepository, getReturnLinkUseCase);
+        sut.tokenize(createBillingAgreementAuthResult(), cancellationToken, payPalTokenizeCallback);
+
+        verify(payPalInternalClient, never()).tokenize(any(), any(), any());
+        verifyNoInteractions(payPalTokenizeCallback);
+    }
+
+    private PayPalPaymentAuthResult.Success createBillingAgreementAuthResult()
+        throws JSONException {
+        String approvalUrl =
+            "sample-scheme://onetouch/v1/success?PayerID=HERMES-SANDBOX-PAYER-ID&paymentId=HERMES-SANDBOX-PAYMENT-ID&ba_token=EC-HERMES-SANDBOX-EC-TOKEN";
+
+        BrowserSwitchFinalResult.Success browserSwitchResult = mock(BrowserSwitchFinalResult.Success.class);
+        when(browserSwitchResult.getRequestMetadata()).thenReturn(
+            new JSONObject().put("client-metadata-id", "sample-client-metadata-id")
+                .put("merchant-account-id", "sample-merchant-account-id")
+                .put("intent", "authorize").put("approval-url", approvalUrl)
+                .put("success-url", "https://example.com/success")
+                .put("payment-type", "billing-agreement"));
+        when(browserSwitchResult.getReturnUrl()).thenReturn(Uri.parse(approvalUrl));
+
+        return new PayPalPaymentAuthResult.Success(browserSwitchResult);
+    }
+
     @Test
     public void tokenize_withBillingAgreement_tokenizesResponseOnSuccess() throws JSONException {
         PayPalInternalClient payPalInternalClient = new MockPayPalInternalClientBuilder().build();
@@ -460,7 +544,7 @@ public class PayPalClientUnitTest {
         sut.tokenize(payPalPaymentAuthResult, payPalTokenizeCallback);
 
         ArgumentCaptor<PayPalAccount> captor = ArgumentCaptor.forClass(PayPalAccount.class);
-        verify(payPalInternalClient).tokenize(captor.capture(),
+        verify(payPalInternalClient).tokenize(captor.capture(), isNull(),
             any(PayPalInternalTokenizeCallback.class));
 
         PayPalAccount payPalAccount = captor.getValue();
@@ -504,7 +588,7 @@ public class PayPalClientUnitTest {
         sut.tokenize(payPalPaymentAuthResult, payPalTokenizeCallback);
 
         ArgumentCaptor<PayPalAccount> captor = ArgumentCaptor.forClass(PayPalAccount.class);
-        verify(payPalInternalClient).tokenize(captor.capture(),
+        verify(payPalInternalClient).tokenize(captor.capture(), isNull(),
             any(PayPalInternalTokenizeCallback.class));
 
         PayPalAccount payPalAccount = captor.getValue();
@@ -737,4 +821,16 @@ public class PayPalClientUnitTest {
         verify(braintreeClient).sendAnalyticsEvent(PayPalAnalytics.BROWSER_LOGIN_CANCELED, params);
         verify(braintreeClient).sendAnalyticsEvent(PayPalAnalytics.APP_SWITCH_CANCELED, params);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void prewarm_forwardsToBraintreeClient() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+        PayPalInternalClient payPalInternalClient = mock(PayPalInternalClient.class);
+        PrewarmCallback prewarmCallback = mock(PrewarmCallback.class);
+
+        PayPalClient sut = new PayPalClient(braintreeClient, payPalInternalClient, merchantRepository, getReturnLinkUseCase);
+        sut.prewarm(false, prewarmCallback);
+
+        verify(braintreeClient).prewarm(false, prewarmCallback);
+    }
+}
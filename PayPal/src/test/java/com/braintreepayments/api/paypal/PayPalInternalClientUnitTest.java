@@ -12,7 +12,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -31,6 +33,7 @@ import com.braintreepayments.api.core.TokenizationKey;
 import com.braintreepayments.api.core.TokenizeCallback;
 import com.braintreepayments.api.datacollector.DataCollector;
 import com.braintreepayments.api.datacollector.DataCollectorInternalRequest;
+import com.braintreepayments.api.sharedutils.CancellationToken;
 import com.braintreepayments.api.sharedutils.HttpResponseCallback;
 import com.braintreepayments.api.testutils.Fixtures;
 import com.braintreepayments.api.testutils.MockApiClientBuilder;
@@ -130,6 +133,8 @@ public class PayPalInternalClientUnitTest {
             eq("/v1/paypal_hermes/setup_billing_agreement"),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -211,6 +216,8 @@ public class PayPalInternalClientUnitTest {
             eq("/v1/paypal_hermes/setup_billing_agreement"),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -300,6 +307,8 @@ public class PayPalInternalClientUnitTest {
             eq("/v1/paypal_hermes/create_payment_resource"),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -370,6 +379,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -407,6 +418,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -443,6 +456,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -479,6 +494,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -515,6 +532,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -554,6 +573,8 @@ public class PayPalInternalClientUnitTest {
             eq("/v1/paypal_hermes/setup_billing_agreement"),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -590,6 +611,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -625,6 +648,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -660,6 +685,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -763,6 +790,8 @@ public class PayPalInternalClientUnitTest {
             anyString(),
             captor.capture(),
             anyMap(),
+            isNull(),
+            isNull(),
             any(HttpResponseCallback.class)
         );
 
@@ -1011,6 +1040,62 @@ public class PayPalInternalClientUnitTest {
         verify(payPalInternalClientCallback).onResult(null, configurationError);
     }
 
+    @Test
+    public void sendRequest_withCancellationToken_forwardsTokenToPOST() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+            .configuration(configuration)
+            .build();
+        CancellationToken cancellationToken = new CancellationToken();
+
+        when(merchantRepository.getAuthorization()).thenReturn(clientToken);
+
+        PayPalInternalClient sut = new PayPalInternalClient(
+            braintreeClient,
+            dataCollector,
+            apiClient,
+            deviceInspector,
+            merchantRepository,
+            getReturnLinkUseCase
+        );
+
+        PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00", true);
+        sut.sendRequest(context, payPalRequest, cancellationToken, payPalInternalClientCallback);
+
+        verify(braintreeClient).sendPOST(
+            eq("/v1/paypal_hermes/create_payment_resource"),
+            anyString(),
+            anyMap(),
+            isNull(),
+            same(cancellationToken),
+            any(HttpResponseCallback.class)
+        );
+    }
+
+    @Test
+    public void sendRequest_whenCancelled_doesNotSendPOSTOrNotifyCallback() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+            .configuration(configuration)
+            .build();
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        PayPalInternalClient sut = new PayPalInternalClient(
+            braintreeClient,
+            dataCollector,
+            apiClient,
+            deviceInspector,
+            merchantRepository,
+            getReturnLinkUseCase
+        );
+
+        PayPalCheckoutRequest payPalRequest = new PayPalCheckoutRequest("1.00", true);
+        sut.sendRequest(context, payPalRequest, cancellationToken, payPalInternalClientCallback);
+
+        verify(braintreeClient, never()).sendPOST(anyString(), anyString(), anyMap(), any(), any(),
+            any(HttpResponseCallback.class));
+        verifyNoInteractions(payPalInternalClientCallback);
+    }
+
     @Test
     public void sendRequest_returnLinkResultFailure_forwardsError() {
         BraintreeException exception = new BraintreeException();
@@ -1055,7 +1140,29 @@ public class PayPalInternalClientUnitTest {
 
         sut.tokenize(payPalAccount, callback);
 
-        verify(apiClient).tokenizeREST(same(payPalAccount), any(TokenizeCallback.class));
+        verify(apiClient).tokenizeREST(same(payPalAccount), isNull(), any(TokenizeCallback.class));
+    }
+
+    @Test
+    public void tokenize_withCancellationToken_forwardsTokenToApiClient() {
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+        PayPalAccount payPalAccount = mock(PayPalAccount.class);
+        PayPalInternalTokenizeCallback callback = mock(PayPalInternalTokenizeCallback.class);
+        CancellationToken cancellationToken = new CancellationToken();
+
+        PayPalInternalClient sut = new PayPalInternalClient(
+            braintreeClient,
+            dataCollector,
+            apiClient,
+            deviceInspector,
+            merchantRepository,
+            getReturnLinkUseCase
+        );
+
+        sut.tokenize(payPalAccount, cancellationToken, callback);
+
+        verify(apiClient).tokenizeREST(same(payPalAccount), same(cancellationToken),
+            any(TokenizeCallback.class));
     }
 
     @Test
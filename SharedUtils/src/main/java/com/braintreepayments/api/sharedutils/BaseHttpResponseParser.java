@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
@@ -12,6 +13,7 @@ import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_CREATED;
 import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
@@ -28,16 +30,21 @@ public class BaseHttpResponseParser implements HttpResponseParser {
     private static final int HTTP_UPGRADE_REQUIRED = 426;
     private static final int HTTP_TOO_MANY_REQUESTS = 429;
 
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
     /**
      * @param responseCode the response code returned when the http request was made.
      * @param connection the connection through which the http request was made.
-     * @return the body of the http response.
+     * @return the body of the http response, or null for a 304 Not Modified response to a
+     * conditional request.
      */
     public String parse(int responseCode, HttpURLConnection connection) throws Exception {
         String responseBody = parseBody(responseCode, connection);
         switch (responseCode) {
             case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
                 return responseBody;
+            case HTTP_NOT_MODIFIED:
+                return null;
             case HTTP_BAD_REQUEST: case HTTP_UNPROCESSABLE_ENTITY:
                 throw new UnprocessableEntityException(responseBody);
             case HTTP_UNAUTHORIZED:
@@ -47,11 +54,12 @@ public class BaseHttpResponseParser implements HttpResponseParser {
             case HTTP_UPGRADE_REQUIRED:
                 throw new UpgradeRequiredException(responseBody);
             case HTTP_TOO_MANY_REQUESTS:
-                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.");
+                throw new RateLimitException("You are being rate-limited. Please try again in a few minutes.",
+                        parseRetryAfter(connection));
             case HTTP_INTERNAL_ERROR:
                 throw new ServerException(responseBody);
             case HTTP_UNAVAILABLE:
-                throw new ServiceUnavailableException(responseBody);
+                throw new ServiceUnavailableException(responseBody, parseRetryAfter(connection));
             default:
                 throw new UnexpectedException(responseBody);
         }
@@ -62,6 +70,7 @@ public class BaseHttpResponseParser implements HttpResponseParser {
         switch (responseCode) {
             case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
                 return readStream(connection.getInputStream(), gzip);
+            case HTTP_NOT_MODIFIED:
             case HTTP_TOO_MANY_REQUESTS:
                 return null;
             case HTTP_UNAUTHORIZED:
@@ -76,6 +85,23 @@ public class BaseHttpResponseParser implements HttpResponseParser {
         }
     }
 
+    /**
+     * @return the delay in milliseconds requested by the Retry-After header, which is either a
+     * number of seconds or an HTTP date, or null if the header is missing or malformed.
+     */
+    private static Long parseRetryAfter(HttpURLConnection connection) {
+        String retryAfter = connection.getHeaderField(RETRY_AFTER_HEADER);
+        if (retryAfter == null) {
+            return null;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            long date = connection.getHeaderFieldDate(RETRY_AFTER_HEADER, -1);
+            return date == -1 ? null : Math.max(0, date - System.currentTimeMillis());
+        }
+    }
+
     private String readStream(InputStream in, boolean gzip) throws IOException {
         if (in == null) {
             return null;
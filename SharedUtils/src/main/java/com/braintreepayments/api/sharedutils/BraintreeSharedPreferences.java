@@ -68,6 +68,11 @@ public class BraintreeSharedPreferences {
         return sharedPreferences.getLong(key, 0);
     }
 
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public void putLong(String key, long value) {
+        sharedPreferences.edit().putLong(key, value).apply();
+    }
+
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     public void putStringAndLong(String stringKey, String stringValue, String longKey, long longValue) {
         sharedPreferences
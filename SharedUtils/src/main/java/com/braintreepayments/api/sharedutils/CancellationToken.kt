@@ -0,0 +1,49 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Signal used to cancel in-flight requests, e.g. when the user leaves the screen that started
+ * them.
+ *
+ * Once [cancel] is called, requests bound to the token are aborted and their callbacks are not
+ * invoked. A token cannot be reset; create a new token for new requests.
+ */
+class CancellationToken {
+
+    private val listeners = ArrayList<Runnable>()
+
+    @Volatile
+    var isCancelled: Boolean = false
+        private set
+
+    /**
+     * Cancels the requests bound to this token. Calling this method more than once has no effect.
+     */
+    fun cancel() {
+        val listenersToNotify = synchronized(this) {
+            if (isCancelled) return
+            isCancelled = true
+            listeners.toList().also { listeners.clear() }
+        }
+        listenersToNotify.forEach { it.run() }
+    }
+
+    /**
+     * Adds a [listener] that is run on the thread that calls [cancel], or immediately on the
+     * calling thread if the token is already cancelled.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun addCancellationListener(listener: Runnable) {
+        val isAlreadyCancelled = synchronized(this) {
+            if (!isCancelled) listeners.add(listener)
+            isCancelled
+        }
+        if (isAlreadyCancelled) listener.run()
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    fun removeCancellationListener(listener: Runnable) {
+        synchronized(this) { listeners.remove(listener) }
+    }
+}
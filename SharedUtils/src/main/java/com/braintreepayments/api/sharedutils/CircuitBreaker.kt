@@ -0,0 +1,180 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Per-host circuit breaker used by [HttpClient] to fail fast while a host is degraded.
+ *
+ * The circuit of a host is [State.CLOSED] while requests succeed. It opens once at least
+ * [minimumCallCount] of the last [windowSize] requests to the host were sent and more than
+ * [failureRateThreshold] of them failed. While the circuit is [State.OPEN], non-critical requests
+ * are rejected instead of waiting on connect and read timeouts; [TaskPriority.USER_INITIATED]
+ * requests are still sent. After [coolDownMillis] the circuit is [State.HALF_OPEN] and a single
+ * probe request is let through: the circuit closes if it succeeds and opens again if it fails.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class CircuitBreaker internal constructor(
+    private val failureRateThreshold: Double,
+    private val windowSize: Int,
+    private val minimumCallCount: Int,
+    private val coolDownMillis: Long,
+    private val time: Time
+) {
+
+    @JvmOverloads
+    constructor(
+        failureRateThreshold: Double = DEFAULT_FAILURE_RATE_THRESHOLD,
+        windowSize: Int = DEFAULT_WINDOW_SIZE,
+        minimumCallCount: Int = DEFAULT_MINIMUM_CALL_COUNT,
+        coolDownMillis: Long = DEFAULT_COOL_DOWN_MILLIS
+    ) : this(failureRateThreshold, windowSize, minimumCallCount, coolDownMillis, Time())
+
+    enum class State { CLOSED, OPEN, HALF_OPEN }
+
+    private class HostCircuit(windowSize: Int) {
+        var state = State.CLOSED
+        var openedAt = 0L
+        var isProbeInFlight = false
+
+        // ring buffer of the outcomes of the last requests, true for a failure
+        private val outcomes = BooleanArray(windowSize)
+        private var nextIndex = 0
+        var callCount = 0
+            private set
+        var failureCount = 0
+            private set
+
+        fun record(isFailure: Boolean) {
+            if (callCount == outcomes.size) {
+                if (outcomes[nextIndex]) failureCount--
+            } else {
+                callCount++
+            }
+            outcomes[nextIndex] = isFailure
+            if (isFailure) failureCount++
+            nextIndex = (nextIndex + 1) % outcomes.size
+        }
+
+        fun reset() {
+            outcomes.fill(false)
+            nextIndex = 0
+            callCount = 0
+            failureCount = 0
+        }
+    }
+
+    private val circuits = HashMap<String, HostCircuit>()
+    private val listeners = CopyOnWriteArrayList<CircuitBreakerListener>()
+
+    fun addListener(listener: CircuitBreakerListener) {
+        listeners.add(listener)
+    }
+
+    fun removeListener(listener: CircuitBreakerListener) {
+        listeners.remove(listener)
+    }
+
+    fun getState(host: String): State = synchronized(this) {
+        circuits[host]?.state ?: State.CLOSED
+    }
+
+    /**
+     * @return true if a request to [host] in the [priority] lane may be sent. The outcome of
+     * every allowed request must be reported with [onSuccess], [onFailure] or [onCancelled].
+     */
+    fun allowRequest(host: String, priority: TaskPriority): Boolean {
+        var transition: State? = null
+        val isAllowed = synchronized(this) {
+            val circuit = getCircuit(host)
+            if (circuit.state == State.OPEN &&
+                time.currentTime - circuit.openedAt >= coolDownMillis
+            ) {
+                circuit.state = State.HALF_OPEN
+                circuit.isProbeInFlight = false
+                transition = State.HALF_OPEN
+            }
+            when (circuit.state) {
+                State.CLOSED -> true
+                State.HALF_OPEN -> if (circuit.isProbeInFlight) {
+                    priority == TaskPriority.USER_INITIATED
+                } else {
+                    circuit.isProbeInFlight = true
+                    true
+                }
+                State.OPEN -> priority == TaskPriority.USER_INITIATED
+            }
+        }
+        transition?.let { notifyListeners(host, it) }
+        return isAllowed
+    }
+
+    fun onSuccess(host: String) = recordOutcome(host, false)
+
+    fun onFailure(host: String) = recordOutcome(host, true)
+
+    /**
+     * Reports that an allowed request to [host] was cancelled by the caller. No outcome is
+     * recorded, but the probe of a half-open circuit is released so another request can probe.
+     */
+    fun onCancelled(host: String) = synchronized(this) {
+        getCircuit(host).isProbeInFlight = false
+    }
+
+    private fun recordOutcome(host: String, isFailure: Boolean) {
+        val transition = synchronized(this) {
+            val circuit = getCircuit(host)
+            when {
+                circuit.state == State.CLOSED -> {
+                    circuit.record(isFailure)
+                    if (shouldOpen(circuit)) open(circuit) else null
+                }
+                isFailure -> open(circuit)
+                else -> close(circuit)
+            }
+        }
+        transition?.let { notifyListeners(host, it) }
+    }
+
+    private fun shouldOpen(circuit: HostCircuit) =
+        circuit.callCount >= minimumCallCount &&
+            circuit.failureCount > failureRateThreshold * circuit.callCount
+
+    /**
+     * Opens [circuit], or restarts its cool-down if it is already open.
+     *
+     * @return the new state if it changed
+     */
+    private fun open(circuit: HostCircuit): State? {
+        val previousState = circuit.state
+        circuit.state = State.OPEN
+        circuit.openedAt = time.currentTime
+        circuit.isProbeInFlight = false
+        return if (previousState != State.OPEN) State.OPEN else null
+    }
+
+    private fun close(circuit: HostCircuit): State {
+        circuit.state = State.CLOSED
+        circuit.isProbeInFlight = false
+        circuit.reset()
+        return State.CLOSED
+    }
+
+    private fun getCircuit(host: String) = circuits.getOrPut(host) { HostCircuit(windowSize) }
+
+    private fun notifyListeners(host: String, state: State) {
+        listeners.forEach { it.onStateChanged(host, state) }
+    }
+
+    companion object {
+        private const val DEFAULT_FAILURE_RATE_THRESHOLD = 0.5
+        private const val DEFAULT_WINDOW_SIZE = 20
+        private const val DEFAULT_MINIMUM_CALL_COUNT = 10
+        private const val DEFAULT_COOL_DOWN_MILLIS = 30_000L
+
+        /**
+         * Process-wide circuit breaker shared by all [HttpClient] instances.
+         */
+        val instance: CircuitBreaker by lazy { CircuitBreaker() }
+    }
+}
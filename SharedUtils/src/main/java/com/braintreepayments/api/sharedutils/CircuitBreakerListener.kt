@@ -0,0 +1,17 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+import androidx.annotation.WorkerThread
+
+/**
+ * Notified when the [CircuitBreaker] of a host changes state.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+fun interface CircuitBreakerListener {
+
+    /**
+     * Called on the thread of the request that caused the transition.
+     */
+    @WorkerThread
+    fun onStateChanged(host: String, state: CircuitBreaker.State)
+}
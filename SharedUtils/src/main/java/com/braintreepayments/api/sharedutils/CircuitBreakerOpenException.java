@@ -0,0 +1,15 @@
+package com.braintreepayments.api.sharedutils;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Exception thrown when a request is not sent because requests to its host have been failing
+ * and the {@link CircuitBreaker} of the host is open. The request can be tried again later.
+ */
+public class CircuitBreakerOpenException extends HttpClientException {
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
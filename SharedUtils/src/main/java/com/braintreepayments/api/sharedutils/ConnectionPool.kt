@@ -0,0 +1,151 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.net.HttpURLConnection
+import java.net.SocketTimeoutException
+import java.net.URL
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Per-host limit on the number of concurrent [HttpURLConnection]s used by
+ * [SynchronousHttpClient].
+ *
+ * [HttpURLConnection] keeps sockets alive in a platform-wide pool as long as a connection is not
+ * disconnected after its response body has been fully read. Connections released as reusable are
+ * therefore left connected, and reusing and evicting idle sockets is left to the platform. The
+ * pool only caps the number of connections open to the same host at once, so that a burst of
+ * requests does not open more sockets than the platform keeps alive.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class ConnectionPool @JvmOverloads constructor(
+    private val maxConnectionsPerHost: Int = DEFAULT_MAX_CONNECTIONS_PER_HOST
+) {
+
+    private class HostPool {
+        val lock = ReentrantLock()
+        val connectionReleased = lock.newCondition()
+        var activeConnectionCount = 0
+    }
+
+    private val hostPools = HashMap<String, HostPool>()
+
+    /**
+     * Opens a connection to [url]. While the maximum number of connections to the same host are
+     * in use, waits for up to [timeoutMillis] for one of them to be released, or until
+     * [cancellationToken] is cancelled. Like the timeouts of [HttpURLConnection], a
+     * [timeoutMillis] of 0 means waiting without a timeout.
+     *
+     * @throws SocketTimeoutException if no connection was released in time
+     * @throws RequestCancelledException if [cancellationToken] was cancelled while waiting
+     */
+    @JvmOverloads
+    @Throws(IOException::class, RequestCancelledException::class)
+    fun acquire(
+        url: URL,
+        timeoutMillis: Long,
+        cancellationToken: CancellationToken? = null
+    ): HttpURLConnection {
+        val hostPool = getHostPool(url)
+        awaitConnectionSlot(url, hostPool, timeoutMillis, cancellationToken)
+        try {
+            return url.openConnection() as HttpURLConnection
+        } catch (e: IOException) {
+            releaseConnectionSlot(hostPool)
+            throw e
+        }
+    }
+
+    /**
+     * Returns a connection previously obtained from [acquire]. Connections whose response body
+     * was fully consumed should be released as [reusable] so the platform can keep their socket
+     * alive; any other connection is disconnected.
+     */
+    fun release(url: URL, connection: HttpURLConnection, reusable: Boolean) {
+        try {
+            if (!reusable) {
+                connection.disconnect()
+            }
+        } finally {
+            releaseConnectionSlot(getHostPool(url))
+        }
+    }
+
+    private fun awaitConnectionSlot(
+        url: URL,
+        hostPool: HostPool,
+        timeoutMillis: Long,
+        cancellationToken: CancellationToken?
+    ) {
+        // wakes up the waiters of the host so that the cancelled one stops waiting
+        val wakeUp = Runnable { hostPool.lock.withLock { hostPool.connectionReleased.signalAll() } }
+        cancellationToken?.addCancellationListener(wakeUp)
+        try {
+            waitForConnectionSlot(url, hostPool, timeoutMillis, cancellationToken)
+        } finally {
+            cancellationToken?.removeCancellationListener(wakeUp)
+        }
+    }
+
+    private fun waitForConnectionSlot(
+        url: URL,
+        hostPool: HostPool,
+        timeoutMillis: Long,
+        cancellationToken: CancellationToken?
+    ) {
+        hostPool.lock.withLock {
+            val hasTimeout = timeoutMillis > 0L
+            var remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+            while (true) {
+                // a cancelled request must not take a slot another waiter could use
+                if (cancellationToken?.isCancelled == true) {
+                    throw RequestCancelledException("The request was cancelled.")
+                }
+                if (hostPool.activeConnectionCount < maxConnectionsPerHost) break
+                if (hasTimeout && remainingNanos <= 0L) {
+                    throw SocketTimeoutException(
+                        "Timed out waiting for a connection to ${url.host}"
+                    )
+                }
+                try {
+                    if (hasTimeout) {
+                        remainingNanos = hostPool.connectionReleased.awaitNanos(remainingNanos)
+                    } else {
+                        hostPool.connectionReleased.await()
+                    }
+                } catch (e: InterruptedException) {
+                    Thread.currentThread().interrupt()
+                    throw InterruptedIOException("Interrupted waiting for a connection")
+                }
+            }
+            hostPool.activeConnectionCount++
+        }
+    }
+
+    private fun releaseConnectionSlot(hostPool: HostPool) {
+        hostPool.lock.withLock {
+            hostPool.activeConnectionCount--
+            // a single woken waiter could leave on timeout or cancellation without taking the
+            // slot, so every waiter checks for it
+            hostPool.connectionReleased.signalAll()
+        }
+    }
+
+    private fun getHostPool(url: URL): HostPool = synchronized(this) {
+        hostPools.getOrPut(hostKey(url)) { HostPool() }
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_CONNECTIONS_PER_HOST = 4
+
+        private fun hostKey(url: URL) = "${url.protocol}://${url.host}:${url.port}"
+
+        /**
+         * Process-wide pool shared by all [HttpClient] instances.
+         */
+        val instance: ConnectionPool by lazy { ConnectionPool() }
+    }
+}
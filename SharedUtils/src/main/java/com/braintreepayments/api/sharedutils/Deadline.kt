@@ -0,0 +1,40 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Point in time by which a chain of work, e.g. loading configuration and then tokenizing, must
+ * be complete.
+ *
+ * A deadline is created once at the start of the chain and passed along to every request of the
+ * chain, so that time spent in earlier steps counts against the budget of the later ones. Requests
+ * with a deadline have their connect and read timeouts shortened to the remaining time and are not
+ * sent, or retried, once it has passed.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class Deadline internal constructor(
+    private val expiresAt: Long,
+    private val time: Time
+) {
+
+    /**
+     * The time left before the deadline in milliseconds, or 0 once it has passed.
+     */
+    val remainingMillis: Long
+        get() = (expiresAt - time.monotonicTime).coerceAtLeast(0L)
+
+    val isExpired: Boolean
+        get() = remainingMillis == 0L
+
+    companion object {
+
+        /**
+         * Creates a deadline [timeoutMillis] from now.
+         */
+        @JvmStatic
+        fun after(timeoutMillis: Long): Deadline = after(timeoutMillis, Time())
+
+        internal fun after(timeoutMillis: Long, time: Time) =
+            Deadline(time.monotonicTime + timeoutMillis, time)
+    }
+}
@@ -0,0 +1,15 @@
+package com.braintreepayments.api.sharedutils;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Exception thrown when a request is not sent because the {@link Deadline} of the work it
+ * belongs to has passed.
+ */
+public class DeadlineExceededException extends HttpClientException {
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
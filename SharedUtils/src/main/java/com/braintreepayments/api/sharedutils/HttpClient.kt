@@ -1,107 +1,203 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
-import java.net.MalformedURLException
-import java.net.URISyntaxException
-import java.net.URL
+import java.io.IOException
 import javax.net.ssl.SSLSocketFactory
 
+/**
+ * Sends [HttpRequest]s on the calling thread or on background threads.
+ *
+ * Asynchronous requests sent with [RetryStrategy.RETRY_MAX_3_TIMES] are retried according to
+ * a [RetryPolicy]. The retry state is kept per request, so concurrent requests to the same URL
+ * do not share their attempt counts.
+ *
+ * Every request goes through the [CircuitBreaker] of its host, which rejects non-critical
+ * requests with a [CircuitBreakerOpenException] while the host is failing. Requests whose
+ * [Deadline] has passed are not sent and fail with a [DeadlineExceededException].
+ *
+ * Requests whose [CancellationToken] is cancelled are aborted and never retried. Asynchronous
+ * requests do not notify their callback once cancelled, while synchronous requests throw a
+ * [RequestCancelledException].
+ *
+ * Callbacks of asynchronous requests are notified on the main thread, unless the request is sent
+ * with [HttpRequest.callbackOnMainThread] set to false.
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class HttpClient internal constructor(
     private val syncHttpClient: SynchronousHttpClient,
-    private val scheduler: Scheduler
+    private val scheduler: Scheduler,
+    private val retryPolicy: RetryPolicy = RetryPolicy(),
+    private val circuitBreaker: CircuitBreaker = CircuitBreaker.instance,
+    private val time: Time = Time()
 ) {
     enum class RetryStrategy { NO_RETRY, RETRY_MAX_3_TIMES }
 
-    private val retryCountMap: MutableMap<URL, Int> = HashMap()
-
     constructor(
         socketFactory: SSLSocketFactory,
         httpResponseParser: HttpResponseParser
     ) : this(
         syncHttpClient = SynchronousHttpClient(socketFactory, httpResponseParser),
-        scheduler = ThreadScheduler()
+        scheduler = ThreadScheduler.getInstance()
+    )
+
+    /**
+     * Creates an [HttpClient] that runs asynchronous requests on its own pool of
+     * [backgroundThreadCount] threads instead of the pool shared by all http clients.
+     */
+    constructor(
+        socketFactory: SSLSocketFactory,
+        httpResponseParser: HttpResponseParser,
+        backgroundThreadCount: Int
+    ) : this(
+        syncHttpClient = SynchronousHttpClient(socketFactory, httpResponseParser),
+        scheduler = ThreadScheduler(backgroundThreadCount)
     )
 
     @Throws(Exception::class)
     fun sendRequest(request: HttpRequest): String {
-        return syncHttpClient.request(request).body ?: ""
+        return send(request).body ?: ""
     }
 
+    /**
+     * Sends [request] on the calling thread and returns the full [HttpResponse].
+     */
+    @Throws(Exception::class)
+    fun execute(request: HttpRequest): HttpResponse = send(request)
+
     fun sendRequest(
         request: HttpRequest,
         callback: NetworkResponseCallback?,
         retryStrategy: RetryStrategy = RetryStrategy.NO_RETRY,
     ) {
-        scheduleRequest(request, retryStrategy, callback)
+        val maxAttempts = when (retryStrategy) {
+            RetryStrategy.NO_RETRY -> 1
+            RetryStrategy.RETRY_MAX_3_TIMES -> MAX_RETRY_ATTEMPTS
+        }
+        // the body must survive the first attempt to be sent again
+        request.retainData(maxAttempts > 1)
+        scheduleRequest(request, maxAttempts, 0, 0L, callback)
     }
 
     @Suppress("TooGenericExceptionCaught")
     private fun scheduleRequest(
         request: HttpRequest,
-        retryStrategy: RetryStrategy,
+        maxAttempts: Int,
+        attempt: Int,
+        delayMillis: Long,
         callback: NetworkResponseCallback?
     ) {
-        resetRetryCount(request)
-
-        scheduler.runOnBackground {
+        // a retry delay is intended, so only the time past it counts as waiting in the queue
+        val scheduledAt = time.monotonicTime + delayMillis
+        scheduler.runOnBackground({
+            val queueDuration = (time.monotonicTime - scheduledAt).coerceAtLeast(0L)
             try {
-                val httpResponse = syncHttpClient.request(request)
-                callback?.let {
-                    scheduler.runOnMain { callback.onResult(httpResponse, null) }
-                }
+                val httpResponse = send(request)
+                httpResponse.timing.queueDuration = queueDuration
+                request.dispose()
+                callback?.let { notifyCallback(request) { it.onResult(httpResponse, null) } }
             } catch (e: Exception) {
-                when (retryStrategy) {
-                    RetryStrategy.NO_RETRY -> notifyErrorOnMainThread(callback, e)
-                    RetryStrategy.RETRY_MAX_3_TIMES -> retryGet(request, retryStrategy, callback)
-                }
+                onRequestFailure(request, maxAttempts, attempt, e, callback)
             }
+        }, request.priority, delayMillis)
+    }
+
+    @Suppress("TooGenericExceptionCaught")
+    @Throws(Exception::class)
+    private fun send(request: HttpRequest): HttpResponse {
+        if (request.isCancelled) {
+            throw RequestCancelledException("The request was cancelled.")
+        }
+        if (request.deadline?.isExpired == true) {
+            throw DeadlineExceededException("The deadline of the request has passed.")
+        }
+        // let the synchronous client report a missing path
+        val host = request.path?.let { request.url.host } ?: return syncHttpClient.request(request)
+        if (!circuitBreaker.allowRequest(host, request.priority)) {
+            throw CircuitBreakerOpenException("Requests to $host are failing. Try again later.")
+        }
+        try {
+            return syncHttpClient.request(request).also {
+                circuitBreaker.onSuccess(host)
+                // synchronous and asynchronous requests both refill the retry budget
+                retryPolicy.onSuccess()
+            }
+        } catch (e: Exception) {
+            when {
+                // the caller gave up on the request, which says nothing about the host
+                e is RequestCancelledException || e is DeadlineExceededException ->
+                    circuitBreaker.onCancelled(host)
+                isHostFailure(e) -> circuitBreaker.onFailure(host)
+                // other errors are not caused by a degraded host
+                else -> circuitBreaker.onSuccess(host)
+            }
+            throw e
         }
     }
 
-    private fun retryGet(
+    private fun onRequestFailure(
         request: HttpRequest,
-        retryStrategy: RetryStrategy,
+        maxAttempts: Int,
+        attempt: Int,
+        error: Exception,
         callback: NetworkResponseCallback?
     ) {
-        var url: URL? = null
-        try {
-            url = request.url
-        } catch (ignore: MalformedURLException) {
-        } catch (ignore: URISyntaxException) {
-        }
+        when {
+            // the caller is no longer interested in the result
+            request.isCancelled -> request.dispose()
+
+            maxAttempts <= 1 || !retryPolicy.isRetryable(request, error) ->
+                failRequest(request, callback, error)
 
-        if (url != null) {
-            val retryCount = getCurrentRetryCount(url)
-            val shouldRetry = ((retryCount + 1) < MAX_RETRY_ATTEMPTS)
-            if (shouldRetry) {
-                scheduleRequest(request, retryStrategy, callback)
-                retryCountMap[url] = retryCount + 1
-            } else {
+            attempt + 1 >= maxAttempts -> {
                 val message = "Retry limit has been exceeded. Try again later."
-                val retryLimitException = HttpClientException(message)
-                notifyErrorOnMainThread(callback, retryLimitException)
+                failRequest(request, callback, HttpClientException(message))
+            }
+
+            else -> {
+                val delayMillis = retryPolicy.getRetryDelay(error, attempt)
+                    // a retry that cannot start before the deadline is pointless
+                    ?.takeIf { it < (request.deadline?.remainingMillis ?: Long.MAX_VALUE) }
+                if (delayMillis != null) {
+                    scheduleRequest(request, maxAttempts, attempt + 1, delayMillis, callback)
+                } else {
+                    failRequest(request, callback, error)
+                }
             }
         }
     }
 
-    private fun getCurrentRetryCount(url: URL) = retryCountMap[url] ?: 0
-
-    private fun resetRetryCount(request: HttpRequest) {
-        try {
-            request.url?.let { retryCountMap.remove(it) }
-        } catch (ignore: MalformedURLException) {
-        } catch (ignore: URISyntaxException) {
-        }
+    private fun failRequest(
+        request: HttpRequest,
+        callback: NetworkResponseCallback?,
+        error: Exception
+    ) {
+        request.dispose()
+        callback?.let { notifyCallback(request) { it.onResult(null, error) } }
     }
 
-    private fun notifyErrorOnMainThread(callback: NetworkResponseCallback?, e: Exception) {
-        if (callback != null) {
-            scheduler.runOnMain { callback.onResult(null, e) }
+    /**
+     * Returns the number of requests in the given [priority] lane waiting for a background thread.
+     */
+    fun getQueueDepth(priority: TaskPriority): Int = scheduler.getQueueDepth(priority)
+
+    /**
+     * Runs [notification] on the thread [request] asks for, unless it has been cancelled.
+     */
+    private fun notifyCallback(request: HttpRequest, notification: () -> Unit) {
+        val runnable = Runnable { if (!request.isCancelled) notification() }
+        if (request.isCallbackOnMainThread) {
+            scheduler.runOnMain(runnable)
+        } else {
+            runnable.run()
         }
     }
 
     companion object {
         private const val MAX_RETRY_ATTEMPTS: Int = 3
+
+        private fun isHostFailure(error: Exception) = error is IOException ||
+            error is ServerException ||
+            error is ServiceUnavailableException ||
+            error is RateLimitException
     }
 }
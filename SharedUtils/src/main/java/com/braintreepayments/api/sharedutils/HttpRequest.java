@@ -17,6 +17,11 @@ import java.util.Map;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class HttpRequest {
 
+    /**
+     * Content encoding that compresses the request body with gzip when it is sent.
+     */
+    public static final String CONTENT_ENCODING_GZIP = "gzip";
+
     private static final int THIRTY_SECONDS_MS = 30000;
 
     private String path;
@@ -24,9 +29,16 @@ public class HttpRequest {
 
     private byte[] data;
     private String method;
+    private String contentEncoding;
+    private TaskPriority priority;
+    private Boolean idempotent;
+    private boolean retainData;
 
-    private final int readTimeout;
-    private final int connectTimeout;
+    private int readTimeout;
+    private int connectTimeout;
+    private Deadline deadline;
+    private CancellationToken cancellationToken;
+    private boolean callbackOnMainThread;
 
     private Map<String, String> headers;
     private final Map<String, String> additionalHeaders;
@@ -39,6 +51,8 @@ public class HttpRequest {
         headers = null;
         additionalHeaders = new HashMap<>();
         baseUrl = "";
+        priority = TaskPriority.USER_INITIATED;
+        callbackOnMainThread = true;
 
         readTimeout = THIRTY_SECONDS_MS;
         connectTimeout = THIRTY_SECONDS_MS;
@@ -59,11 +73,91 @@ public class HttpRequest {
         return this;
     }
 
+    /**
+     * @param data the request body, already encoded as UTF-8. The array is owned by the request
+     *             from now on and is zeroed out once the request has been sent.
+     */
+    public HttpRequest data(byte[] data) {
+        this.data = data;
+        return this;
+    }
+
+    /**
+     * @param contentEncoding the encoding applied to the request body when it is sent, e.g.
+     *                        {@link #CONTENT_ENCODING_GZIP}. The body is sent as is when null.
+     */
+    public HttpRequest contentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+        return this;
+    }
+
+    /**
+     * @param readTimeout the maximum time in milliseconds to wait for data from the server.
+     */
+    public HttpRequest readTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    /**
+     * @param connectTimeout the maximum time in milliseconds to wait for a connection to the
+     *                       server.
+     */
+    public HttpRequest connectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * @param deadline the {@link Deadline} of the work this request belongs to. The timeouts of
+     *                 the request are shortened to the time left before it.
+     */
+    public HttpRequest deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    /**
+     * @param cancellationToken a {@link CancellationToken} that aborts the request when cancelled.
+     */
+    public HttpRequest cancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
+    /**
+     * @param callbackOnMainThread whether the callback of an asynchronous request is notified on
+     *                             the main thread, which is the default, or on the background
+     *                             thread that sent the request.
+     */
+    public HttpRequest callbackOnMainThread(boolean callbackOnMainThread) {
+        this.callbackOnMainThread = callbackOnMainThread;
+        return this;
+    }
+
     public HttpRequest method(String method) {
         this.method = method;
         return this;
     }
 
+    /**
+     * @param priority the priority lane this request is scheduled in when sent asynchronously.
+     */
+    public HttpRequest priority(TaskPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * @param idempotent whether sending this request more than once has the same effect as
+     *                   sending it once, which allows it to be retried after the server may have
+     *                   received it. By default only POST requests are not idempotent.
+     */
+    public HttpRequest idempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
     public HttpRequest addHeader(String name, String value) {
         additionalHeaders.put(name, value);
         return this;
@@ -77,6 +171,19 @@ public class HttpRequest {
         return data;
     }
 
+    /**
+     * @param retainData whether the body is kept once the request has been sent, so that the
+     *                   request can be sent again. The owner of a request that retains its body
+     *                   must {@link #dispose()} it once the request is complete.
+     */
+    void retainData(boolean retainData) {
+        this.retainData = retainData;
+    }
+
+    boolean isDataRetained() {
+        return retainData;
+    }
+
     void dispose() {
         // overwrite data content with zeros
         if (data != null) {
@@ -84,10 +191,25 @@ public class HttpRequest {
         }
     }
 
+    public TaskPriority getPriority() {
+        return priority;
+    }
+
     public String getMethod() {
         return method;
     }
 
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public boolean isIdempotent() {
+        if (idempotent != null) {
+            return idempotent;
+        }
+        return !"POST".equals(method);
+    }
+
     public Map<String, String> getHeaders() {
         if (headers == null) {
             headers = new HashMap<>();
@@ -98,12 +220,36 @@ public class HttpRequest {
         return Collections.unmodifiableMap(headers);
     }
 
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    boolean isCallbackOnMainThread() {
+        return callbackOnMainThread;
+    }
+
+    boolean isCancelled() {
+        return cancellationToken != null && cancellationToken.isCancelled();
+    }
+
     int getReadTimeout() {
-        return readTimeout;
+        return clampToDeadline(readTimeout);
     }
 
     int getConnectTimeout() {
-        return connectTimeout;
+        return clampToDeadline(connectTimeout);
+    }
+
+    private int clampToDeadline(int timeout) {
+        if (deadline == null) {
+            return timeout;
+        }
+        // a timeout of 0 means no timeout to HttpURLConnection, so at least 1 ms is kept
+        return (int) Math.max(1, Math.min(timeout, deadline.getRemainingMillis()));
     }
 
     public URL getURL() throws MalformedURLException, URISyntaxException {
@@ -1,9 +1,34 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
+import java.net.HttpURLConnection
 
+/**
+ * @property body the body of the response, or null when the server did not send one
+ * @property timing timing information for the request
+ * @property statusCode the HTTP status code of the response
+ * @property headers the response headers; when a header is sent more than once only the first
+ * value is kept
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-data class HttpResponse(
+data class HttpResponse @JvmOverloads constructor(
     val body: String? = null,
-    val timing: HttpResponseTiming
-)
+    val timing: HttpResponseTiming,
+    val statusCode: Int = HttpURLConnection.HTTP_OK,
+    val headers: Map<String, String> = emptyMap()
+) {
+
+    /**
+     * True when the server answered a conditional request with 304 Not Modified, meaning the
+     * cached representation of the resource is still valid.
+     */
+    val isNotModified: Boolean
+        get() = statusCode == HttpURLConnection.HTTP_NOT_MODIFIED
+
+    /**
+     * Returns the value of the header [name], compared case-insensitively, or null if the
+     * response does not contain it.
+     */
+    fun getHeader(name: String): String? =
+        headers.entries.firstOrNull { it.key.equals(name, ignoreCase = true) }?.value
+}
@@ -3,8 +3,31 @@ package com.braintreepayments.api.sharedutils;
 import androidx.annotation.RestrictTo;
 
 import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public interface HttpResponseParser {
     String parse(int responseCode, HttpURLConnection connection) throws Exception;
+
+    /**
+     * @param connection the connection through which the http request was made.
+     * @return the response headers, keeping the first value of headers sent more than once.
+     */
+    default Map<String, String> parseHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<>();
+        Map<String, List<String>> headerFields = connection.getHeaderFields();
+        if (headerFields == null) {
+            return headers;
+        }
+        for (Map.Entry<String, List<String>> header : headerFields.entrySet()) {
+            // the status line is reported with a null key
+            List<String> values = header.getValue();
+            if (header.getKey() != null && values != null && !values.isEmpty()) {
+                headers.put(header.getKey(), values.get(0));
+            }
+        }
+        return headers;
+    }
 }
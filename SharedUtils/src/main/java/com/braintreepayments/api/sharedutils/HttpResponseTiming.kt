@@ -2,8 +2,33 @@ package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
 
+/**
+ * Timing information for an http request.
+ *
+ * [startTime] and [endTime] are wall-clock times. The phase durations are measured in
+ * milliseconds with a monotonic clock and are null when the phase was not measured, e.g.
+ * [queueDuration] for a synchronous request.
+ *
+ * @property startTime wall-clock time at which the request was started
+ * @property endTime wall-clock time at which the response status was received
+ * @property queueDuration time the request waited for a background thread
+ * @property connectDuration time spent connecting, which includes the DNS lookup, TCP connect and
+ * TLS handshake of a new connection
+ * @property requestWriteDuration time spent writing the request body
+ * @property timeToFirstByte time from the end of the request until the response status was
+ * received
+ * @property responseReadDuration time spent reading, decompressing and parsing the response
+ * @property poolWaitDuration time the request waited for a connection to its host to be released
+ * while the per-host connection limit was reached
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-data class HttpResponseTiming(
+data class HttpResponseTiming @JvmOverloads constructor(
     var startTime: Long,
     var endTime: Long,
+    var queueDuration: Long? = null,
+    var connectDuration: Long? = null,
+    var requestWriteDuration: Long? = null,
+    var timeToFirstByte: Long? = null,
+    var responseReadDuration: Long? = null,
+    var poolWaitDuration: Long? = null,
 )
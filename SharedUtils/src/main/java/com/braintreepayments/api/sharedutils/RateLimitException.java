@@ -1,5 +1,6 @@
 package com.braintreepayments.api.sharedutils;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 
 /**
@@ -8,8 +9,26 @@ import androidx.annotation.RestrictTo;
  */
 public class RateLimitException extends Exception {
 
+    private final Long retryAfterMillis;
+
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     RateLimitException(String message) {
+        this(message, null);
+    }
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    RateLimitException(String message, Long retryAfterMillis) {
         super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return how long the server asked the client to wait before trying again, from the
+     * Retry-After header of the response, or null if the response did not contain one.
+     */
+    @Nullable
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public Long getRetryAfterMillis() {
+        return retryAfterMillis;
     }
 }
@@ -0,0 +1,15 @@
+package com.braintreepayments.api.sharedutils;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Exception thrown when a request is aborted because its {@link CancellationToken} was
+ * cancelled.
+ */
+public class RequestCancelledException extends HttpClientException {
+
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public RequestCancelledException(String message) {
+        super(message);
+    }
+}
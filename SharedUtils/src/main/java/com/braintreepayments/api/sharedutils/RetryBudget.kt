@@ -0,0 +1,49 @@
+package com.braintreepayments.api.sharedutils
+
+/**
+ * Process-wide token bucket that limits how many requests are retried while the gateway is
+ * degraded.
+ *
+ * Every retry spends one token and every successful request, synchronous or asynchronous, earns
+ * back [tokenRatio] tokens. A retry is only allowed when spending its token leaves more than
+ * [minTokens], and a refused retry spends nothing. So when most requests fail, the client stops
+ * retrying until requests succeed again instead of multiplying the load on the gateway.
+ *
+ * The defaults are sized for the request volume of a checkout, which is around a dozen requests
+ * rather than the thousands a server sees: a full budget allows 4 retries, and once it is spent
+ * every 2 successful requests earn back one retry.
+ */
+internal class RetryBudget(
+    private val maxTokens: Double = DEFAULT_MAX_TOKENS,
+    private val tokenRatio: Double = DEFAULT_TOKEN_RATIO,
+    private val minTokens: Double = maxTokens / 2
+) {
+
+    private var tokens = maxTokens
+
+    /**
+     * Records a failed attempt.
+     *
+     * @return true if the budget allows the attempt to be retried, in which case a token is spent
+     */
+    @Synchronized
+    fun tryAcquireRetry(): Boolean {
+        if (tokens - 1 <= minTokens) {
+            return false
+        }
+        tokens -= 1
+        return true
+    }
+
+    @Synchronized
+    fun onSuccess() {
+        tokens = (tokens + tokenRatio).coerceAtMost(maxTokens)
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_TOKENS = 10.0
+        private const val DEFAULT_TOKEN_RATIO = 0.5
+
+        val instance: RetryBudget by lazy { RetryBudget() }
+    }
+}
@@ -0,0 +1,72 @@
+package com.braintreepayments.api.sharedutils
+
+import java.io.IOException
+import java.net.ConnectException
+import java.net.NoRouteToHostException
+import java.net.UnknownHostException
+import javax.net.ssl.SSLPeerUnverifiedException
+import kotlin.random.Random
+
+/**
+ * Decides whether and when [HttpClient] retries a failed request.
+ *
+ * - Only transient errors are retried. Errors that may have been processed by the server, like
+ * a 500 or a read timeout, are only retried for [HttpRequest.isIdempotent] requests, while
+ * client errors like a 422 are never retried.
+ * - Retries are delayed with exponential backoff and full jitter, or by the Retry-After delay
+ * of 429 and 503 responses, so that devices failing at the same time do not retry in lockstep.
+ * - Retries are limited by a process-wide [RetryBudget] so that a degraded gateway is not
+ * hammered by retries.
+ */
+internal class RetryPolicy(
+    private val baseDelayMillis: Long = DEFAULT_BASE_DELAY_MILLIS,
+    private val maxDelayMillis: Long = DEFAULT_MAX_DELAY_MILLIS,
+    private val maxRetryAfterMillis: Long = DEFAULT_MAX_RETRY_AFTER_MILLIS,
+    private val retryBudget: RetryBudget = RetryBudget.instance,
+    private val random: Random = Random.Default
+) {
+
+    fun isRetryable(request: HttpRequest, error: Exception): Boolean = when (error) {
+        // the server rejected the request without processing it
+        is RateLimitException, is ServiceUnavailableException -> true
+        // the request never reached the server
+        is ConnectException, is UnknownHostException, is NoRouteToHostException -> true
+        // the certificate will not change by trying again
+        is SSLPeerUnverifiedException -> false
+        is ServerException, is IOException -> request.isIdempotent
+        else -> false
+    }
+
+    /**
+     * @param attempt the zero-based index of the attempt that failed with [error]
+     * @return the delay in milliseconds before the request is sent again, or null if the retry
+     * budget is exhausted or the server asked to wait longer than [maxRetryAfterMillis]
+     */
+    fun getRetryDelay(error: Exception, attempt: Int): Long? {
+        val retryAfterMillis = when (error) {
+            is RateLimitException -> error.retryAfterMillis
+            is ServiceUnavailableException -> error.retryAfterMillis
+            else -> null
+        }
+        if (retryAfterMillis != null && retryAfterMillis > maxRetryAfterMillis) return null
+        if (!retryBudget.tryAcquireRetry()) return null
+
+        return if (retryAfterMillis != null) {
+            // spread the devices told to come back at the same time
+            retryAfterMillis + random.nextLong(baseDelayMillis + 1)
+        } else {
+            val ceiling = (baseDelayMillis shl attempt.coerceAtMost(MAX_BACKOFF_SHIFT))
+                .coerceAtMost(maxDelayMillis)
+            random.nextLong(ceiling + 1)
+        }
+    }
+
+    fun onSuccess() = retryBudget.onSuccess()
+
+    companion object {
+        private const val DEFAULT_BASE_DELAY_MILLIS = 500L
+        private const val DEFAULT_MAX_DELAY_MILLIS = 30_000L
+        private const val DEFAULT_MAX_RETRY_AFTER_MILLIS = 60_000L
+        private const val MAX_BACKOFF_SHIFT = 20
+    }
+}
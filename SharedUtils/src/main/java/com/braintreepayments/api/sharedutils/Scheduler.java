@@ -6,4 +6,7 @@ import androidx.annotation.RestrictTo;
 interface Scheduler {
     void runOnMain(Runnable runnable);
     void runOnBackground(Runnable runnable);
+    void runOnBackground(Runnable runnable, TaskPriority priority);
+    void runOnBackground(Runnable runnable, TaskPriority priority, long delayMillis);
+    int getQueueDepth(TaskPriority priority);
 }
@@ -1,18 +1,41 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
+import java.io.IOException
 import java.net.HttpURLConnection
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+import java.util.zip.GZIPOutputStream
 import javax.net.ssl.HttpsURLConnection
 import javax.net.ssl.SSLSocketFactory
 
 /**
  * This class performs an http request on the calling thread. The external caller is
  * responsible for thread scheduling to ensure that this is not called on the main thread.
+ *
+ * Connections are obtained from a [ConnectionPool] and handed back to it once the response has
+ * been parsed so that sockets to the same host can be kept alive between requests.
+ *
+ * POST bodies are compressed on the fly when the request sets
+ * [HttpRequest.CONTENT_ENCODING_GZIP] as its content encoding.
+ *
+ * Cancelling the [CancellationToken] of a request stops it from waiting for a connection, or
+ * disconnects its connection, which aborts a blocked connect, write or read with a
+ * [RequestCancelledException].
+ *
+ * The connect and read timeouts of a request only bound each connect and each read, so a request
+ * with a [Deadline] is also aborted by a timer once its deadline passes and fails with a
+ * [DeadlineExceededException].
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-internal class SynchronousHttpClient(
+internal class SynchronousHttpClient @JvmOverloads constructor(
     private val socketFactory: SSLSocketFactory,
-    private val parser: HttpResponseParser
+    private val parser: HttpResponseParser,
+    private val connectionPool: ConnectionPool = ConnectionPool.instance,
+    private val time: Time = Time(),
+    private val deadlineTimer: ScheduledExecutorService = sharedDeadlineTimer
 ) {
 
     @Throws(Exception::class)
@@ -21,46 +44,159 @@ internal class SynchronousHttpClient(
 
         val url = httpRequest.url
         val startTime = System.currentTimeMillis()
+        val poolWaitStart = time.monotonicTime
 
-        val connection = url.openConnection() as HttpURLConnection
-        if (connection is HttpsURLConnection) {
-            connection.sslSocketFactory = socketFactory
+        val acquiredConnection = AtomicReference<HttpURLConnection>()
+        // registered before waiting for a connection, so that cancelling also stops the wait
+        val cancellationToken = httpRequest.cancellationToken
+        val abort = Runnable { acquiredConnection.get()?.disconnect() }
+        cancellationToken?.addCancellationListener(abort)
+        val deadline = httpRequest.deadline
+        val deadlineTimeout = deadline?.let {
+            deadlineTimer.schedule(abort, it.remainingMillis, TimeUnit.MILLISECONDS)
         }
+        var reusable = false
+        try {
+            val connection = connectionPool.acquire(
+                url,
+                httpRequest.connectTimeout.toLong(),
+                cancellationToken
+            )
+            acquiredConnection.set(connection)
+            val connectStart = time.monotonicTime
+            // a cancellation before the connection was acquired had nothing to disconnect
+            if (httpRequest.isCancelled) {
+                throw RequestCancelledException("The request was cancelled.")
+            }
+
+            if (connection is HttpsURLConnection) {
+                connection.sslSocketFactory = socketFactory
+            }
+
+            val requestMethod = httpRequest.method
+            connection.requestMethod = requestMethod
+
+            connection.readTimeout = httpRequest.readTimeout
+            connection.connectTimeout = httpRequest.connectTimeout
+
+            // apply request headers
+            val headers = httpRequest.headers
+            for ((key, value) in headers) {
+                connection.setRequestProperty(key, value)
+            }
+
+            val isPost = requestMethod == "POST"
+            if (isPost) {
+                preparePost(connection, httpRequest)
+            }
 
-        val requestMethod = httpRequest.method
-        connection.requestMethod = requestMethod
+            // connect explicitly so that the handshakes are not counted as writing or waiting
+            connection.connect()
+            val connectEnd = time.monotonicTime
+            checkDeadline(deadline)
 
-        connection.readTimeout = httpRequest.readTimeout
-        connection.connectTimeout = httpRequest.connectTimeout
+            if (isPost) {
+                writeBody(connection, httpRequest)
+                if (!httpRequest.isDataRetained) {
+                    httpRequest.dispose()
+                }
+            }
+            val requestEnd = time.monotonicTime
+            checkDeadline(deadline)
+
+            val responseCode = connection.responseCode
+            val endTime = System.currentTimeMillis()
+            val firstByteTime = time.monotonicTime
+
+            val body = parser.parse(responseCode, connection)
+            val responseHeaders = parser.parseHeaders(connection)
+            val response = HttpResponse(
+                body = body,
+                timing = HttpResponseTiming(
+                    startTime = startTime,
+                    endTime = endTime,
+                    connectDuration = connectEnd - connectStart,
+                    requestWriteDuration = requestEnd - connectEnd,
+                    timeToFirstByte = firstByteTime - requestEnd,
+                    responseReadDuration = time.monotonicTime - firstByteTime,
+                    poolWaitDuration = connectStart - poolWaitStart
+                ),
+                statusCode = responseCode,
+                headers = responseHeaders
+            )
+            // the parser has consumed the response body, so the socket can be kept alive
+            reusable = !httpRequest.isCancelled
+            return response
+        } catch (e: IOException) {
+            if (httpRequest.isCancelled) {
+                throw RequestCancelledException("The request was cancelled.")
+            }
+            if (deadline?.isExpired == true) {
+                throw DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE)
+            }
+            throw e
+        } finally {
+            deadlineTimeout?.cancel(false)
+            cancellationToken?.removeCancellationListener(abort)
+            acquiredConnection.get()?.let { connectionPool.release(url, it, reusable) }
+        }
+    }
 
-        // apply request headers
-        val headers = httpRequest.headers
-        for ((key, value) in headers) {
-            connection.setRequestProperty(key, value)
+    private fun checkDeadline(deadline: Deadline?) {
+        if (deadline?.isExpired == true) {
+            throw DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE)
         }
+    }
+
+    /**
+     * Sets up [connection] to send a body. This must happen before the connection is opened.
+     */
+    private fun preparePost(connection: HttpURLConnection, httpRequest: HttpRequest) {
+        connection.setRequestProperty("Content-Type", "application/json")
+        connection.doOutput = true
+
+        when (val contentEncoding = httpRequest.contentEncoding) {
+            // stream the body as it is written instead of letting the connection buffer all of
+            // it until the response is requested
+            null -> httpRequest.data?.let { connection.setFixedLengthStreamingMode(it.size) }
+            HttpRequest.CONTENT_ENCODING_GZIP -> {
+                connection.setRequestProperty("Content-Encoding", contentEncoding)
+                // the compressed length is unknown upfront, so the body is streamed in
+                // chunks instead of being buffered by the connection
+                connection.setChunkedStreamingMode(0)
+            }
 
-        if (requestMethod != null && requestMethod == "POST") {
-            connection.setRequestProperty("Content-Type", "application/json")
-            connection.doOutput = true
+            else -> throw IllegalArgumentException(
+                "Unsupported content encoding: $contentEncoding"
+            )
+        }
+    }
 
+    private fun writeBody(connection: HttpURLConnection, httpRequest: HttpRequest) {
+        if (httpRequest.contentEncoding == HttpRequest.CONTENT_ENCODING_GZIP) {
+            GZIPOutputStream(connection.outputStream).use {
+                it.write(httpRequest.data)
+            }
+        } else {
             val outputStream = connection.outputStream
             outputStream.write(httpRequest.data)
             outputStream.flush()
             outputStream.close()
-
-            httpRequest.dispose()
         }
+    }
 
-        try {
-            val responseCode = connection.responseCode
-            val endTime = System.currentTimeMillis()
+    companion object {
+        private const val DEADLINE_EXCEEDED_MESSAGE =
+            "The deadline of the request passed while it was in flight."
 
-            return HttpResponse(
-                body = parser.parse(responseCode, connection),
-                timing = HttpResponseTiming(startTime, endTime)
-            )
-        } finally {
-            connection.disconnect()
+        /**
+         * Timer shared by all requests to abort the ones whose deadline passes. Aborting only
+         * disconnects a connection, so a single daemon thread is enough.
+         */
+        private val sharedDeadlineTimer: ScheduledExecutorService by lazy {
+            ScheduledThreadPoolExecutor(1) { runnable ->
+                Thread(runnable, "braintree-deadline-timer").apply { isDaemon = true }
+            }.apply { removeOnCancelPolicy = true }
         }
     }
 }
@@ -15,9 +15,12 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
@@ -25,12 +28,29 @@ import javax.net.ssl.TrustManagerFactory;
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class TLSSocketFactory extends SSLSocketFactory {
 
+    static final int DEFAULT_SESSION_CACHE_SIZE = 32;
+    static final int DEFAULT_SESSION_TIMEOUT_SECONDS = (int) TimeUnit.HOURS.toSeconds(1);
+
     private final SSLSocketFactory internalSSLSocketFactory;
 
+    private final AtomicLong sessionCacheHitCount = new AtomicLong();
+    private final AtomicLong sessionCacheMissCount = new AtomicLong();
+
     /**
      * @see <a href="http://developer.android.com/training/articles/security-ssl.html#UnknownCa">Android Documentation</a>
      */
     public TLSSocketFactory(InputStream certificateStream) throws SSLException {
+        this(certificateStream, DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * @param certificateStream the trusted certificates.
+     * @param sessionCacheSize the maximum number of TLS sessions kept for resumption.
+     * @param sessionTimeoutSeconds how long a cached TLS session can be resumed for.
+     * @see <a href="http://developer.android.com/training/articles/security-ssl.html#UnknownCa">Android Documentation</a>
+     */
+    public TLSSocketFactory(InputStream certificateStream, int sessionCacheSize,
+            int sessionTimeoutSeconds) throws SSLException {
         try {
             KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
             keyStore.load(null, null);
@@ -52,6 +72,14 @@ public class TLSSocketFactory extends SSLSocketFactory {
 
             SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, tmf.getTrustManagers(), null);
+
+            // sessions are cached per host and port; sharing this factory between http clients
+            // allows them to resume each other's sessions with an abbreviated handshake
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (sessionContext != null) {
+                sessionContext.setSessionCacheSize(sessionCacheSize);
+                sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+            }
             internalSSLSocketFactory = sslContext.getSocketFactory();
         } catch (Exception e) {
             throw new SSLException(e.getMessage());
@@ -62,6 +90,20 @@ public class TLSSocketFactory extends SSLSocketFactory {
         }
     }
 
+    /**
+     * @return the number of TLS handshakes that resumed a cached session.
+     */
+    public long getSessionCacheHitCount() {
+        return sessionCacheHitCount.get();
+    }
+
+    /**
+     * @return the number of TLS handshakes that negotiated a new session.
+     */
+    public long getSessionCacheMissCount() {
+        return sessionCacheMissCount.get();
+    }
+
     @Override
     public String[] getDefaultCipherSuites() {
         return internalSSLSocketFactory.getDefaultCipherSuites();
@@ -109,6 +151,16 @@ public class TLSSocketFactory extends SSLSocketFactory {
             supportedProtocols.retainAll(Arrays.asList("TLSv1.2", "TLSv1.3"));
 
             ((SSLSocket) socket).setEnabledProtocols(supportedProtocols.toArray(new String[supportedProtocols.size()]));
+
+            final long socketCreationTime = System.currentTimeMillis();
+            ((SSLSocket) socket).addHandshakeCompletedListener(event -> {
+                // a session created before this socket was resumed from the session cache
+                if (event.getSession().getCreationTime() < socketCreationTime) {
+                    sessionCacheHitCount.incrementAndGet();
+                } else {
+                    sessionCacheMissCount.incrementAndGet();
+                }
+            });
         }
 
         return socket;
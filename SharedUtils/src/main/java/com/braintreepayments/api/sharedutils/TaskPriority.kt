@@ -0,0 +1,25 @@
+package com.braintreepayments.api.sharedutils
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Priority lanes for work scheduled on a [Scheduler] background thread. Queued work with a
+ * higher priority runs before queued work with a lower priority.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+enum class TaskPriority {
+    /**
+     * Work the user is actively waiting on, e.g. tokenization or a 3DS lookup.
+     */
+    USER_INITIATED,
+
+    /**
+     * Work that prepares for user-facing work, e.g. fetching configuration.
+     */
+    PREFETCH,
+
+    /**
+     * Fire-and-forget work, e.g. analytics.
+     */
+    TELEMETRY
+}
@@ -3,20 +3,57 @@ package com.braintreepayments.api.sharedutils;
 import android.os.Handler;
 import android.os.Looper;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs work on the main thread or on a bounded pool of background threads. Queued background
+ * work is ordered by {@link TaskPriority} so user-facing requests are not stuck behind
+ * configuration prefetches or analytics.
+ */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class ThreadScheduler implements Scheduler {
 
+    static final int DEFAULT_THREAD_COUNT = 4;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile ThreadScheduler instance;
+
     private final Handler mainThreadHandler;
     private final ExecutorService backgroundThreadService;
 
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final AtomicIntegerArray queueDepths =
+            new AtomicIntegerArray(TaskPriority.values().length);
+
+    /**
+     * @return the process-wide scheduler shared by all {@link HttpClient} instances.
+     */
+    static ThreadScheduler getInstance() {
+        if (instance == null) {
+            synchronized (ThreadScheduler.class) {
+                if (instance == null) {
+                    instance = new ThreadScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
     ThreadScheduler() {
-        this(new Handler(Looper.getMainLooper()), Executors.newCachedThreadPool());
+        this(DEFAULT_THREAD_COUNT);
+    }
+
+    ThreadScheduler(int threadCount) {
+        this(new Handler(Looper.getMainLooper()), createBackgroundThreadPool(threadCount));
     }
 
     @VisibleForTesting
@@ -26,10 +63,76 @@ class ThreadScheduler implements Scheduler {
     }
 
     public void runOnBackground(Runnable runnable) {
-        backgroundThreadService.submit(runnable);
+        runOnBackground(runnable, TaskPriority.USER_INITIATED);
+    }
+
+    public void runOnBackground(Runnable runnable, TaskPriority priority) {
+        queueDepths.incrementAndGet(priority.ordinal());
+        // execute() instead of submit(): the priority queue needs the runnable itself to
+        // be comparable, which a wrapping Future is not
+        backgroundThreadService.execute(
+                new PrioritizedRunnable(runnable, priority, sequenceNumber.getAndIncrement()));
+    }
+
+    /**
+     * Runs {@code runnable} in the {@code priority} lane once {@code delayMillis} have elapsed.
+     * The delay is kept by the main thread handler so that no background thread is held while
+     * waiting.
+     */
+    public void runOnBackground(Runnable runnable, TaskPriority priority, long delayMillis) {
+        if (delayMillis <= 0) {
+            runOnBackground(runnable, priority);
+        } else {
+            mainThreadHandler.postDelayed(() -> runOnBackground(runnable, priority), delayMillis);
+        }
     }
 
     public void runOnMain(Runnable runnable) {
         mainThreadHandler.post(runnable);
     }
+
+    /**
+     * @param priority the priority lane.
+     * @return the number of tasks in the given lane that are waiting for a background thread.
+     */
+    public int getQueueDepth(TaskPriority priority) {
+        return queueDepths.get(priority.ordinal());
+    }
+
+    private static ExecutorService createBackgroundThreadPool(int threadCount) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private final class PrioritizedRunnable
+            implements Runnable, Comparable<PrioritizedRunnable> {
+
+        private final Runnable runnable;
+        private final TaskPriority priority;
+        private final long sequenceNumber;
+
+        PrioritizedRunnable(Runnable runnable, TaskPriority priority, long sequenceNumber) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public void run() {
+            queueDepths.decrementAndGet(priority.ordinal());
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PrioritizedRunnable other) {
+            int result = priority.compareTo(other.priority);
+            if (result == 0) {
+                // first in, first out within the same priority lane
+                result = Long.compare(sequenceNumber, other.sequenceNumber);
+            }
+            return result;
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.braintreepayments.api.sharedutils
 
 import androidx.annotation.RestrictTo
+import java.util.concurrent.TimeUnit
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 class Time {
@@ -10,4 +11,11 @@ class Time {
      */
     val currentTime: Long
         get() = System.currentTimeMillis()
+
+    /**
+     * Returns a monotonic time in milliseconds, which is not affected by changes to the wall
+     * clock and is only meaningful when compared with another monotonic time
+     */
+    val monotonicTime: Long
+        get() = TimeUnit.NANOSECONDS.toMillis(System.nanoTime())
 }
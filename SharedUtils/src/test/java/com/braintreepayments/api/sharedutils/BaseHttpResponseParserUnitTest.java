@@ -14,6 +14,10 @@ import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPOutputStream;
 
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
@@ -25,8 +29,11 @@ import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -186,6 +193,79 @@ public class BaseHttpResponseParserUnitTest {
                     "You are being rate-limited. Please try again in a few minutes.";
             assertEquals(expectedMessage, exception.getMessage());
         }
+
+        @Test
+        public void parse_withRetryAfterSeconds_exposesRetryAfterDelay() {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getHeaderField("Retry-After")).thenReturn("120");
+
+            final BaseHttpResponseParser sut = new BaseHttpResponseParser();
+            RateLimitException exception = assertThrows(RateLimitException.class,
+                    () -> sut.parse(429, connection));
+
+            assertEquals(Long.valueOf(120000L), exception.getRetryAfterMillis());
+        }
+
+        @Test
+        public void parse_withRetryAfterDate_exposesDelayUntilDate() {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+            long date = System.currentTimeMillis() + 60000L;
+            when(connection.getHeaderField("Retry-After"))
+                    .thenReturn("Wed, 21 Oct 2015 07:28:00 GMT");
+            when(connection.getHeaderFieldDate("Retry-After", -1)).thenReturn(date);
+
+            final BaseHttpResponseParser sut = new BaseHttpResponseParser();
+            RateLimitException exception = assertThrows(RateLimitException.class,
+                    () -> sut.parse(429, connection));
+
+            long retryAfterMillis = exception.getRetryAfterMillis();
+            assertTrue(retryAfterMillis > 0 && retryAfterMillis <= 60000L);
+        }
+
+        @Test
+        public void parse_withoutRetryAfter_hasNoRetryAfterDelay() {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+
+            final BaseHttpResponseParser sut = new BaseHttpResponseParser();
+            RateLimitException exception = assertThrows(RateLimitException.class,
+                    () -> sut.parse(429, connection));
+
+            assertNull(exception.getRetryAfterMillis());
+        }
+    }
+
+    public static class HttpNotModifiedTest {
+
+        @Test
+        public void parse_returnsNullWithoutReadingResponseBody() throws Exception {
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+
+            BaseHttpResponseParser sut = new BaseHttpResponseParser();
+
+            assertNull(sut.parse(304, connection));
+            verify(connection, never()).getInputStream();
+            verify(connection, never()).getErrorStream();
+        }
+    }
+
+    public static class ParseHeadersTest {
+
+        @Test
+        public void parseHeaders_returnsFirstValueOfEachHeaderAndSkipsStatusLine() {
+            Map<String, List<String>> headerFields = new HashMap<>();
+            headerFields.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+            headerFields.put("ETag", Arrays.asList("\"etag-1\"", "\"etag-2\""));
+            headerFields.put("Last-Modified", Collections.singletonList("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+            when(connection.getHeaderFields()).thenReturn(headerFields);
+
+            Map<String, String> headers = new BaseHttpResponseParser().parseHeaders(connection);
+
+            assertEquals(2, headers.size());
+            assertEquals("\"etag-1\"", headers.get("ETag"));
+            assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", headers.get("Last-Modified"));
+        }
     }
 
     private static InputStream createPlainTextInputStream(String input) {
@@ -0,0 +1,46 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.mockito.Mockito
+
+class CancellationTokenUnitTest {
+
+    @Test
+    fun cancel_marksTokenCancelledAndRunsListenersOnce() {
+        val sut = CancellationToken()
+        val listener = Mockito.mock(Runnable::class.java)
+        sut.addCancellationListener(listener)
+
+        assertFalse(sut.isCancelled)
+        sut.cancel()
+        sut.cancel()
+
+        assertTrue(sut.isCancelled)
+        Mockito.verify(listener, Mockito.times(1)).run()
+    }
+
+    @Test
+    fun addCancellationListener_whenAlreadyCancelled_runsListenerImmediately() {
+        val sut = CancellationToken()
+        sut.cancel()
+        val listener = Mockito.mock(Runnable::class.java)
+
+        sut.addCancellationListener(listener)
+
+        Mockito.verify(listener).run()
+    }
+
+    @Test
+    fun removeCancellationListener_stopsListenerFromRunning() {
+        val sut = CancellationToken()
+        val listener = Mockito.mock(Runnable::class.java)
+        sut.addCancellationListener(listener)
+
+        sut.removeCancellationListener(listener)
+        sut.cancel()
+
+        Mockito.verifyNoInteractions(listener)
+    }
+}
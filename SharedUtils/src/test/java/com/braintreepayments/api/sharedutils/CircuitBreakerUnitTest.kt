@@ -0,0 +1,134 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+
+class CircuitBreakerUnitTest {
+
+    private val host = "api.braintreegateway.com"
+
+    private lateinit var time: Time
+    private lateinit var listener: CircuitBreakerListener
+    private lateinit var sut: CircuitBreaker
+
+    @Before
+    fun beforeEach() {
+        time = Mockito.mock(Time::class.java)
+        listener = Mockito.mock(CircuitBreakerListener::class.java)
+        Mockito.`when`(time.currentTime).thenReturn(0L)
+
+        sut = CircuitBreaker(0.5, 4, 4, 1000L, time)
+        sut.addListener(listener)
+    }
+
+    @Test
+    fun onFailure_whenFailureRateExceedsThreshold_opensCircuit() {
+        sut.onSuccess(host)
+        repeat(3) { sut.onFailure(host) }
+
+        assertEquals(CircuitBreaker.State.OPEN, sut.getState(host))
+        Mockito.verify(listener).onStateChanged(host, CircuitBreaker.State.OPEN)
+    }
+
+    @Test
+    fun onFailure_beforeMinimumCallCount_keepsCircuitClosed() {
+        repeat(3) { sut.onFailure(host) }
+
+        assertEquals(CircuitBreaker.State.CLOSED, sut.getState(host))
+        Mockito.verifyNoInteractions(listener)
+    }
+
+    @Test
+    fun onFailure_whenFailureRateIsAtThreshold_keepsCircuitClosed() {
+        repeat(2) { sut.onSuccess(host) }
+        repeat(2) { sut.onFailure(host) }
+
+        assertEquals(CircuitBreaker.State.CLOSED, sut.getState(host))
+    }
+
+    @Test
+    fun onFailure_onlyCountsLastWindowOfRequests() {
+        repeat(8) { sut.onSuccess(host) }
+        repeat(3) { sut.onFailure(host) }
+
+        assertEquals(CircuitBreaker.State.OPEN, sut.getState(host))
+    }
+
+    @Test
+    fun allowRequest_whenOpen_rejectsNonCriticalRequestsOnly() {
+        openCircuit()
+
+        assertFalse(sut.allowRequest(host, TaskPriority.TELEMETRY))
+        assertFalse(sut.allowRequest(host, TaskPriority.PREFETCH))
+        assertTrue(sut.allowRequest(host, TaskPriority.USER_INITIATED))
+        assertTrue(sut.allowRequest("other.host", TaskPriority.TELEMETRY))
+    }
+
+    @Test
+    fun allowRequest_afterCoolDown_letsSingleProbeThrough() {
+        openCircuit()
+        Mockito.`when`(time.currentTime).thenReturn(1000L)
+
+        assertTrue(sut.allowRequest(host, TaskPriority.TELEMETRY))
+        assertFalse(sut.allowRequest(host, TaskPriority.TELEMETRY))
+        assertEquals(CircuitBreaker.State.HALF_OPEN, sut.getState(host))
+        Mockito.verify(listener).onStateChanged(host, CircuitBreaker.State.HALF_OPEN)
+    }
+
+    @Test
+    fun onSuccess_whenHalfOpen_closesCircuit() {
+        openCircuit()
+        Mockito.`when`(time.currentTime).thenReturn(1000L)
+        sut.allowRequest(host, TaskPriority.TELEMETRY)
+
+        sut.onSuccess(host)
+
+        assertEquals(CircuitBreaker.State.CLOSED, sut.getState(host))
+        assertTrue(sut.allowRequest(host, TaskPriority.TELEMETRY))
+        Mockito.verify(listener).onStateChanged(host, CircuitBreaker.State.CLOSED)
+    }
+
+    @Test
+    fun onFailure_whenHalfOpen_reopensCircuitForAnotherCoolDown() {
+        openCircuit()
+        Mockito.`when`(time.currentTime).thenReturn(1000L)
+        sut.allowRequest(host, TaskPriority.TELEMETRY)
+
+        sut.onFailure(host)
+
+        assertEquals(CircuitBreaker.State.OPEN, sut.getState(host))
+        Mockito.`when`(time.currentTime).thenReturn(1999L)
+        assertFalse(sut.allowRequest(host, TaskPriority.TELEMETRY))
+        Mockito.`when`(time.currentTime).thenReturn(2000L)
+        assertTrue(sut.allowRequest(host, TaskPriority.TELEMETRY))
+    }
+
+    @Test
+    fun onCancelled_whenHalfOpen_releasesProbeWithoutClosingCircuit() {
+        openCircuit()
+        Mockito.`when`(time.currentTime).thenReturn(1000L)
+        sut.allowRequest(host, TaskPriority.TELEMETRY)
+
+        sut.onCancelled(host)
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, sut.getState(host))
+        assertTrue(sut.allowRequest(host, TaskPriority.TELEMETRY))
+    }
+
+    @Test
+    fun removeListener_stopsNotifications() {
+        sut.removeListener(listener)
+
+        openCircuit()
+
+        Mockito.verifyNoInteractions(listener)
+    }
+
+    private fun openCircuit() {
+        repeat(4) { sut.onFailure(host) }
+    }
+}
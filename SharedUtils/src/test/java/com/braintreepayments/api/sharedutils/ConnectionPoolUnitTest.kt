@@ -0,0 +1,160 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.SocketTimeoutException
+import java.net.URL
+
+class ConnectionPoolUnitTest {
+
+    private lateinit var url: URL
+    private lateinit var connection: HttpURLConnection
+
+    @Before
+    fun beforeEach() {
+        url = Mockito.mock(URL::class.java)
+        connection = Mockito.mock(HttpURLConnection::class.java)
+
+        Mockito.`when`(url.protocol).thenReturn("https")
+        Mockito.`when`(url.host).thenReturn("api.braintreegateway.com")
+        Mockito.`when`(url.port).thenReturn(-1)
+        Mockito.`when`(url.openConnection()).thenReturn(connection)
+    }
+
+    @Test
+    fun acquire_opensConnection() {
+        val sut = ConnectionPool(2)
+
+        assertEquals(connection, sut.acquire(url, 0L))
+    }
+
+    @Test
+    fun acquire_whenHostIsAtConnectionLimit_throwsAfterTimeout() {
+        val sut = ConnectionPool(1)
+        sut.acquire(url, 0L)
+
+        assertThrows(SocketTimeoutException::class.java) { sut.acquire(url, 10L) }
+    }
+
+    @Test
+    fun acquire_whenConnectionIsReleasedWhileWaiting_opensConnection() {
+        val sut = ConnectionPool(1)
+        val first = sut.acquire(url, 0L)
+
+        val releaser = Thread {
+            Thread.sleep(50L)
+            sut.release(url, first, true)
+        }
+        releaser.start()
+
+        assertEquals(connection, sut.acquire(url, 5000L))
+        releaser.join()
+    }
+
+    @Test
+    fun acquire_whenCancelledWhileWaiting_throwsRequestCancelledException() {
+        val sut = ConnectionPool(1)
+        sut.acquire(url, 0L)
+        val cancellationToken = CancellationToken()
+
+        val canceller = Thread {
+            Thread.sleep(50L)
+            cancellationToken.cancel()
+        }
+        canceller.start()
+
+        assertThrows(RequestCancelledException::class.java) {
+            sut.acquire(url, 5000L, cancellationToken)
+        }
+        canceller.join()
+    }
+
+    @Test
+    fun acquire_withoutTimeout_waitsUntilConnectionIsReleased() {
+        val sut = ConnectionPool(1)
+        val first = sut.acquire(url, 0L)
+
+        val releaser = Thread {
+            Thread.sleep(50L)
+            sut.release(url, first, true)
+        }
+        releaser.start()
+
+        assertEquals(connection, sut.acquire(url, 0L))
+        releaser.join()
+    }
+
+    @Test
+    fun release_whenOtherWaiterIsCancelled_wakesRemainingWaiter() {
+        val sut = ConnectionPool(1)
+        val first = sut.acquire(url, 0L)
+        val cancellationToken = CancellationToken()
+        val cancelledWaiter = Thread {
+            try {
+                sut.acquire(url, 5000L, cancellationToken)
+            } catch (ignored: RequestCancelledException) {
+            }
+        }
+        cancelledWaiter.start()
+
+        val releaser = Thread {
+            Thread.sleep(50L)
+            cancellationToken.cancel()
+            sut.release(url, first, true)
+        }
+        releaser.start()
+
+        assertEquals(connection, sut.acquire(url, 5000L))
+        releaser.join()
+        cancelledWaiter.join()
+    }
+
+    @Test
+    fun acquire_doesNotLimitConnectionsToOtherHosts() {
+        val otherUrl = Mockito.mock(URL::class.java)
+        Mockito.`when`(otherUrl.protocol).thenReturn("https")
+        Mockito.`when`(otherUrl.host).thenReturn("payments.braintree-api.com")
+        Mockito.`when`(otherUrl.port).thenReturn(-1)
+        Mockito.`when`(otherUrl.openConnection()).thenReturn(connection)
+        val sut = ConnectionPool(1)
+        sut.acquire(url, 0L)
+
+        assertEquals(connection, sut.acquire(otherUrl, 0L))
+    }
+
+    @Test
+    fun acquire_whenOpeningConnectionFails_freesConnectionSlot() {
+        val sut = ConnectionPool(1)
+        Mockito.`when`(url.openConnection())
+            .thenThrow(IOException("error"))
+            .thenReturn(connection)
+
+        assertThrows(IOException::class.java) { sut.acquire(url, 0L) }
+        assertEquals(connection, sut.acquire(url, 0L))
+    }
+
+    @Test
+    fun release_whenReusable_keepsConnectionAliveAndFreesConnectionSlot() {
+        val sut = ConnectionPool(1)
+
+        sut.release(url, sut.acquire(url, 0L), true)
+
+        Mockito.verify(connection, Mockito.never()).disconnect()
+        assertEquals(connection, sut.acquire(url, 0L))
+    }
+
+    @Test
+    fun release_whenNotReusable_disconnectsConnection() {
+        val sut = ConnectionPool(1)
+
+        sut.release(url, sut.acquire(url, 0L), false)
+
+        Mockito.verify(connection).disconnect()
+        assertEquals(connection, sut.acquire(url, 0L))
+    }
+}
@@ -0,0 +1,41 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mockito
+
+class DeadlineUnitTest {
+
+    private lateinit var time: Time
+
+    @Before
+    fun beforeEach() {
+        time = Mockito.mock(Time::class.java)
+        Mockito.`when`(time.monotonicTime).thenReturn(1000L)
+    }
+
+    @Test
+    fun after_expiresTimeoutFromNow() {
+        val sut = Deadline.after(500L, time)
+
+        assertEquals(500L, sut.remainingMillis)
+        assertFalse(sut.isExpired)
+
+        Mockito.`when`(time.monotonicTime).thenReturn(1200L)
+        assertEquals(300L, sut.remainingMillis)
+        assertFalse(sut.isExpired)
+    }
+
+    @Test
+    fun remainingMillis_whenDeadlineHasPassed_returnsZero() {
+        val sut = Deadline.after(500L, time)
+
+        Mockito.`when`(time.monotonicTime).thenReturn(2000L)
+
+        assertEquals(0L, sut.remainingMillis)
+        assertTrue(sut.isExpired)
+    }
+}
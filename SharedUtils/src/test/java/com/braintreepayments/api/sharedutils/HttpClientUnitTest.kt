@@ -6,6 +6,9 @@ import org.junit.Test
 import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers
 import org.mockito.Mockito
+import java.io.IOException
+import java.net.SocketTimeoutException
+import kotlin.random.Random
 
 class HttpClientUnitTest {
     private lateinit var syncHttpClient: SynchronousHttpClient
@@ -20,7 +23,7 @@ class HttpClientUnitTest {
         threadScheduler = Mockito.spy(MockThreadScheduler())
         httpRequest = HttpRequest().path("https://example.com")
 
-        sut = HttpClient(syncHttpClient, threadScheduler)
+        sut = HttpClient(syncHttpClient, threadScheduler, createRetryPolicy(), CircuitBreaker())
     }
 
     @Test
@@ -68,6 +71,23 @@ class HttpClientUnitTest {
         Mockito.verify(callback).onResult(response, null)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenCallbackNotOnMainThread_notifiesSuccessOnBackgroundThread() {
+        val response = HttpResponse("response body", HttpResponseTiming(123, 456))
+        httpRequest.callbackOnMainThread(false)
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenReturn(response)
+
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.NO_RETRY)
+
+        threadScheduler.flushBackgroundThread()
+        Mockito.verify(callback).onResult(response, null)
+        Mockito.verify(threadScheduler, Mockito.never())?.runOnMain(
+            ArgumentMatchers.any(Runnable::class.java)
+        )
+    }
+
     @Test
     @Throws(Exception::class)
     fun sendRequest_whenCallbackIsNull_doesNotNotifySuccess() {
@@ -101,7 +121,7 @@ class HttpClientUnitTest {
     @Test
     @Throws(Exception::class)
     fun sendRequest_whenRetryMax3TimesEnabled_retriesRequest3Times() {
-        val exception = Exception("error")
+        val exception = IOException("error")
         Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
 
         val callback = Mockito.mock(NetworkResponseCallback::class.java)
@@ -114,7 +134,7 @@ class HttpClientUnitTest {
     @Test
     @Throws(Exception::class)
     fun sendRequest_whenRetryMax3TimesEnabled_notifiesMaxRetriesLimitExceededOnForegroundThread() {
-        val exception = Exception("error")
+        val exception = IOException("error")
         Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
 
         val callback = Mockito.mock(NetworkResponseCallback::class.java)
@@ -141,7 +161,7 @@ class HttpClientUnitTest {
     fun sendRequest_whenRetryMax3TimesEnabled_futureRequestsAreAllowed() {
         val response = HttpResponse("response body", HttpResponseTiming(123, 456))
 
-        val exception = Exception("error")
+        val exception = IOException("error")
         Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
 
         val callback = Mockito.mock(NetworkResponseCallback::class.java)
@@ -161,6 +181,123 @@ class HttpClientUnitTest {
         Mockito.verify(callback).onResult(response, null)
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenRetryMax3TimesEnabled_delaysRetriesWithExponentialBackoff() {
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(IOException("error"))
+
+        sut.sendRequest(httpRequest, null, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        threadScheduler.flushBackgroundThread()
+
+        val delays = threadScheduler.backgroundThreadDelays
+        Assert.assertEquals(3, delays.size)
+        Assert.assertEquals(0L, delays[0])
+        Assert.assertTrue(delays[1] in 0L..100L)
+        Assert.assertTrue(delays[2] in 0L..200L)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenRateLimited_retriesAfterRetryAfterDelay() {
+        Mockito.`when`(syncHttpClient.request(httpRequest))
+            .thenThrow(RateLimitException("rate limited", 2000L))
+            .thenReturn(HttpResponse("response body", HttpResponseTiming(123, 456)))
+
+        sut.sendRequest(httpRequest, null, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        threadScheduler.flushBackgroundThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(2)).request(httpRequest)
+        Assert.assertTrue(threadScheduler.backgroundThreadDelays[1] in 2000L..2100L)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenErrorIsNotRetryable_notifiesErrorWithoutRetrying() {
+        val exception = UnprocessableEntityException("invalid")
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
+
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(1)).request(httpRequest)
+        Mockito.verify(callback).onResult(null, exception)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenPostTimesOut_doesNotRetry() {
+        val postRequest = HttpRequest().path("https://example.com").method("POST").data("body")
+        Mockito.`when`(syncHttpClient.request(postRequest)).thenThrow(SocketTimeoutException())
+
+        sut.sendRequest(postRequest, null, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        threadScheduler.flushBackgroundThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(1)).request(postRequest)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenIdempotentPostTimesOut_retriesWithRetainedBody() {
+        val postRequest = HttpRequest().path("https://example.com").method("POST").data("body")
+            .idempotent(true)
+        val sentBodies = mutableListOf<String>()
+        Mockito.`when`(syncHttpClient.request(postRequest)).thenAnswer {
+            sentBodies.add(String(postRequest.data, Charsets.UTF_8))
+            throw SocketTimeoutException()
+        }
+
+        sut.sendRequest(postRequest, null, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        threadScheduler.flushBackgroundThread()
+
+        Assert.assertEquals(listOf("body", "body", "body"), sentBodies)
+        Assert.assertTrue(postRequest.data.all { it == 0.toByte() })
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenRetryBudgetIsExhausted_notifiesErrorWithoutRetrying() {
+        sut = HttpClient(
+            syncHttpClient,
+            threadScheduler,
+            createRetryPolicy(RetryBudget(maxTokens = 2.0)),
+            CircuitBreaker()
+        )
+        val exception = IOException("error")
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
+
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(1)).request(httpRequest)
+        Mockito.verify(callback).onResult(null, exception)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequestSynchronous_onSuccess_refillsRetryBudget() {
+        val retryBudget = RetryBudget(maxTokens = 4.0, tokenRatio = 1.0)
+        sut = HttpClient(
+            syncHttpClient,
+            threadScheduler,
+            createRetryPolicy(retryBudget),
+            CircuitBreaker()
+        )
+        retryBudget.tryAcquireRetry()
+        Assert.assertFalse(retryBudget.tryAcquireRetry())
+        val response = HttpResponse("response body", HttpResponseTiming(123, 456))
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenReturn(response)
+
+        sut.sendRequest(httpRequest)
+
+        Assert.assertTrue(retryBudget.tryAcquireRetry())
+    }
+
     @Test
     @Throws(Exception::class)
     fun sendRequestSynchronous_sendsHttpRequest() {
@@ -171,4 +308,187 @@ class HttpClientUnitTest {
         val result = sut.sendRequest(httpRequest)
         Assert.assertEquals("response body", result)
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenCircuitIsOpen_failsNonCriticalRequestsFast() {
+        val circuitBreaker = CircuitBreaker(windowSize = 2, minimumCallCount = 2)
+        sut = HttpClient(syncHttpClient, threadScheduler, createRetryPolicy(), circuitBreaker)
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(IOException("error"))
+        repeat(2) {
+            Assert.assertThrows(IOException::class.java) { sut.sendRequest(httpRequest) }
+        }
+
+        val telemetryRequest = HttpRequest().path("https://example.com/events")
+            .priority(TaskPriority.TELEMETRY)
+        Assert.assertThrows(CircuitBreakerOpenException::class.java) {
+            sut.sendRequest(telemetryRequest)
+        }
+
+        Mockito.verify(syncHttpClient, Mockito.never()).request(telemetryRequest)
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState("example.com"))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenClientErrorIsReturned_doesNotOpenCircuit() {
+        val circuitBreaker = CircuitBreaker(windowSize = 2, minimumCallCount = 2)
+        sut = HttpClient(syncHttpClient, threadScheduler, createRetryPolicy(), circuitBreaker)
+        Mockito.`when`(syncHttpClient.request(httpRequest))
+            .thenThrow(UnprocessableEntityException("invalid"))
+        repeat(2) {
+            Assert.assertThrows(UnprocessableEntityException::class.java) {
+                sut.sendRequest(httpRequest)
+            }
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState("example.com"))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenDeadlinePassesInFlight_recordsNoOutcomeForHost() {
+        val circuitBreaker = CircuitBreaker(windowSize = 2, minimumCallCount = 2)
+        sut = HttpClient(syncHttpClient, threadScheduler, createRetryPolicy(), circuitBreaker)
+        Mockito.`when`(syncHttpClient.request(httpRequest))
+            .thenThrow(IOException("error"))
+            .thenThrow(DeadlineExceededException("deadline exceeded"))
+            .thenThrow(IOException("error"))
+
+        Assert.assertThrows(IOException::class.java) { sut.sendRequest(httpRequest) }
+        Assert.assertThrows(DeadlineExceededException::class.java) { sut.sendRequest(httpRequest) }
+        Assert.assertThrows(IOException::class.java) { sut.sendRequest(httpRequest) }
+
+        // only the two failures count, so the circuit opens
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState("example.com"))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenDeadlineHasPassed_notifiesDeadlineExceededWithoutSending() {
+        val time = Mockito.mock(Time::class.java)
+        Mockito.`when`(time.monotonicTime).thenReturn(2000L)
+        httpRequest.deadline(Deadline(1000L, time))
+
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.never()).request(httpRequest)
+        Mockito.verify(callback).onResult(
+            ArgumentMatchers.isNull(),
+            ArgumentMatchers.any(DeadlineExceededException::class.java)
+        )
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenRetryDelayExceedsDeadline_notifiesErrorWithoutRetrying() {
+        val time = Mockito.mock(Time::class.java)
+        Mockito.`when`(time.monotonicTime).thenReturn(0L)
+        httpRequest.deadline(Deadline(1000L, time))
+        val exception = RateLimitException("rate limited", 2000L)
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenThrow(exception)
+
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(1)).request(httpRequest)
+        Mockito.verify(callback).onResult(null, exception)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenCancelledBeforeSending_doesNotSendOrNotify() {
+        val cancellationToken = CancellationToken()
+        httpRequest.cancellationToken(cancellationToken)
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        cancellationToken.cancel()
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.never()).request(httpRequest)
+        Mockito.verifyNoInteractions(callback)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenCancelledDuringRequest_doesNotRetryOrNotify() {
+        val cancellationToken = CancellationToken()
+        httpRequest.cancellationToken(cancellationToken)
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenAnswer {
+            cancellationToken.cancel()
+            throw RequestCancelledException("cancelled")
+        }
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.RETRY_MAX_3_TIMES)
+        threadScheduler.flushBackgroundThread()
+        threadScheduler.flushMainThread()
+
+        Mockito.verify(syncHttpClient, Mockito.times(1)).request(httpRequest)
+        Mockito.verifyNoInteractions(callback)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_whenCancelledBeforeResponseIsDelivered_doesNotNotify() {
+        val cancellationToken = CancellationToken()
+        httpRequest.cancellationToken(cancellationToken)
+        Mockito.`when`(syncHttpClient.request(httpRequest))
+            .thenReturn(HttpResponse("response body", HttpResponseTiming(123, 456)))
+        val callback = Mockito.mock(NetworkResponseCallback::class.java)
+
+        sut.sendRequest(httpRequest, callback, HttpClient.RetryStrategy.NO_RETRY)
+        threadScheduler.flushBackgroundThread()
+        cancellationToken.cancel()
+        threadScheduler.flushMainThread()
+
+        Mockito.verifyNoInteractions(callback)
+    }
+
+    @Test
+    fun sendRequestSynchronous_whenCancelled_throwsRequestCancelledException() {
+        httpRequest.cancellationToken(CancellationToken().apply { cancel() })
+
+        Assert.assertThrows(RequestCancelledException::class.java) {
+            sut.sendRequest(httpRequest)
+        }
+        Mockito.verifyNoInteractions(syncHttpClient)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun sendRequest_recordsTimeWaitedForBackgroundThreadOnResponseTiming() {
+        val time = Mockito.mock(Time::class.java)
+        sut = HttpClient(
+            syncHttpClient,
+            threadScheduler,
+            createRetryPolicy(),
+            CircuitBreaker(),
+            time
+        )
+        val response = HttpResponse("response body", HttpResponseTiming(123, 456))
+        Mockito.`when`(syncHttpClient.request(httpRequest)).thenReturn(response)
+
+        Mockito.`when`(time.monotonicTime).thenReturn(1000L)
+        sut.sendRequest(httpRequest, null, HttpClient.RetryStrategy.NO_RETRY)
+        Mockito.`when`(time.monotonicTime).thenReturn(1040L)
+        threadScheduler.flushBackgroundThread()
+
+        Assert.assertEquals(40L, response.timing.queueDuration)
+    }
+
+    private fun createRetryPolicy(retryBudget: RetryBudget = RetryBudget()) = RetryPolicy(
+        baseDelayMillis = 100L,
+        retryBudget = retryBudget,
+        random = Random(0)
+    )
 }
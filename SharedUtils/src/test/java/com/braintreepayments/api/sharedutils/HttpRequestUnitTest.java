@@ -15,6 +15,8 @@ import java.util.Collection;
 import java.util.Locale;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.braintreepayments.api.sharedutils.HttpRequest;
 
@@ -40,6 +42,30 @@ public class HttpRequestUnitTest {
             assertEquals("sample data", new String(sut.getData(), StandardCharsets.UTF_8));
         }
 
+        @Test
+        public void getData_whenDataIsBytes_returnsSameBytes() {
+            byte[] data = "sample data".getBytes(StandardCharsets.UTF_8);
+            HttpRequest sut = HttpRequest.newInstance()
+                    .data(data);
+
+            assertSame(data, sut.getData());
+        }
+
+        @Test
+        public void getContentEncoding_returnsContentEncoding() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .contentEncoding(HttpRequest.CONTENT_ENCODING_GZIP);
+
+            assertEquals("gzip", sut.getContentEncoding());
+        }
+
+        @Test
+        public void getContentEncoding_defaultsToNull() {
+            HttpRequest sut = HttpRequest.newInstance();
+
+            assertNull(sut.getContentEncoding());
+        }
+
         @Test
         public void dispose_whenDataIsNull_doesNothing() {
             HttpRequest sut = HttpRequest.newInstance();
@@ -57,6 +83,31 @@ public class HttpRequestUnitTest {
             assertArrayEquals(new byte[actual.length], actual);
         }
 
+        @Test
+        public void isIdempotent_whenPost_returnsFalse() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .method("POST");
+
+            assertFalse(sut.isIdempotent());
+        }
+
+        @Test
+        public void isIdempotent_whenGet_returnsTrue() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .method("GET");
+
+            assertTrue(sut.isIdempotent());
+        }
+
+        @Test
+        public void isIdempotent_whenPostIsMarkedIdempotent_returnsTrue() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .method("POST")
+                    .idempotent(true);
+
+            assertTrue(sut.isIdempotent());
+        }
+
         @Test
         public void getMethod_returnsMethod() {
             HttpRequest sut = HttpRequest.newInstance()
@@ -107,6 +158,49 @@ public class HttpRequestUnitTest {
             assertEquals(30000, sut.getReadTimeout());
         }
 
+        @Test
+        public void timeouts_canBeOverridden() {
+            HttpRequest sut = HttpRequest.newInstance()
+                    .connectTimeout(10000)
+                    .readTimeout(20000);
+
+            assertEquals(10000, sut.getConnectTimeout());
+            assertEquals(20000, sut.getReadTimeout());
+        }
+
+        @Test
+        public void timeouts_whenDeadlineIsCloserThanTimeout_areShortenedToRemainingTime() {
+            Time time = mock(Time.class);
+            when(time.getMonotonicTime()).thenReturn(1000L);
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(new Deadline(6000L, time));
+
+            assertEquals(5000, sut.getConnectTimeout());
+            assertEquals(5000, sut.getReadTimeout());
+        }
+
+        @Test
+        public void timeouts_whenDeadlineIsFurtherThanTimeout_areKept() {
+            Time time = mock(Time.class);
+            when(time.getMonotonicTime()).thenReturn(0L);
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(new Deadline(60000L, time));
+
+            assertEquals(30000, sut.getConnectTimeout());
+            assertEquals(30000, sut.getReadTimeout());
+        }
+
+        @Test
+        public void timeouts_whenDeadlineHasPassed_areNotZero() {
+            Time time = mock(Time.class);
+            when(time.getMonotonicTime()).thenReturn(2000L);
+            HttpRequest sut = HttpRequest.newInstance()
+                    .deadline(new Deadline(1000L, time));
+
+            assertEquals(1, sut.getConnectTimeout());
+            assertEquals(1, sut.getReadTimeout());
+        }
+
         @Test
         public void getURL_throwsMalformedURLExceptionIfBaseURLIsNull() {
             HttpRequest sut = HttpRequest.newInstance()
@@ -9,10 +9,12 @@ class MockThreadScheduler implements Scheduler {
 
     private final List<Runnable> mainThreadRunnables;
     private final List<Runnable> backgroundThreadRunnables;
+    private final List<Long> backgroundThreadDelays;
 
     MockThreadScheduler() {
         mainThreadRunnables = new ArrayList<>();
         backgroundThreadRunnables = new ArrayList<>();
+        backgroundThreadDelays = new ArrayList<>();
     }
 
     @Override
@@ -25,6 +27,30 @@ class MockThreadScheduler implements Scheduler {
         backgroundThreadRunnables.add(runnable);
     }
 
+    @Override
+    public void runOnBackground(Runnable runnable, TaskPriority priority) {
+        backgroundThreadRunnables.add(runnable);
+    }
+
+    @Override
+    public void runOnBackground(Runnable runnable, TaskPriority priority, long delayMillis) {
+        backgroundThreadDelays.add(delayMillis);
+        backgroundThreadRunnables.add(runnable);
+    }
+
+    @Override
+    public int getQueueDepth(TaskPriority priority) {
+        return backgroundThreadRunnables.size();
+    }
+
+    /**
+     * @return the delays of the delayed background runnables, in the order they were scheduled.
+     * Delayed runnables run on the next flush of the background thread.
+     */
+    List<Long> getBackgroundThreadDelays() {
+        return backgroundThreadDelays;
+    }
+
     void flushMainThread() {
         List<Runnable> remainingRunnables = new ArrayList<>(mainThreadRunnables);
         mainThreadRunnables.clear();
@@ -0,0 +1,57 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RetryBudgetUnitTest {
+
+    @Test
+    fun tryAcquireRetry_allowsRetriesWhileMoreThanHalfOfTokensAreLeft() {
+        val sut = RetryBudget(maxTokens = 4.0)
+
+        assertTrue(sut.tryAcquireRetry())
+        assertFalse(sut.tryAcquireRetry())
+    }
+
+    @Test
+    fun tryAcquireRetry_whenRetryIsRefused_doesNotSpendToken() {
+        val sut = RetryBudget(maxTokens = 4.0, tokenRatio = 1.0)
+        sut.tryAcquireRetry()
+        repeat(10) { assertFalse(sut.tryAcquireRetry()) }
+
+        sut.onSuccess()
+
+        assertTrue(sut.tryAcquireRetry())
+    }
+
+    @Test
+    fun tryAcquireRetry_withMinTokens_allowsRetriesUntilMinTokensAreLeft() {
+        val sut = RetryBudget(maxTokens = 4.0, minTokens = 1.0)
+
+        assertTrue(sut.tryAcquireRetry())
+        assertTrue(sut.tryAcquireRetry())
+        assertFalse(sut.tryAcquireRetry())
+    }
+
+    @Test
+    fun onSuccess_refillsTokens() {
+        val sut = RetryBudget(maxTokens = 4.0, tokenRatio = 0.5)
+        sut.tryAcquireRetry()
+        sut.tryAcquireRetry()
+
+        repeat(4) { sut.onSuccess() }
+
+        assertTrue(sut.tryAcquireRetry())
+    }
+
+    @Test
+    fun onSuccess_doesNotExceedMaxTokens() {
+        val sut = RetryBudget(maxTokens = 4.0, tokenRatio = 1.0)
+
+        repeat(10) { sut.onSuccess() }
+
+        assertTrue(sut.tryAcquireRetry())
+        assertFalse(sut.tryAcquireRetry())
+    }
+}
@@ -0,0 +1,89 @@
+package com.braintreepayments.api.sharedutils
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.IOException
+import java.net.ConnectException
+import java.net.SocketTimeoutException
+import javax.net.ssl.SSLPeerUnverifiedException
+import kotlin.random.Random
+
+class RetryPolicyUnitTest {
+
+    private val getRequest = HttpRequest().method("GET")
+    private val postRequest = HttpRequest().method("POST")
+
+    private val sut = RetryPolicy(
+        baseDelayMillis = 100L,
+        maxDelayMillis = 1000L,
+        maxRetryAfterMillis = 5000L,
+        retryBudget = RetryBudget(),
+        random = Random(0)
+    )
+
+    @Test
+    fun isRetryable_whenServerRejectedRequest_returnsTrueForAnyMethod() {
+        assertTrue(sut.isRetryable(postRequest, RateLimitException("rate limited")))
+        assertTrue(sut.isRetryable(postRequest, ServiceUnavailableException("unavailable")))
+    }
+
+    @Test
+    fun isRetryable_whenRequestNeverReachedServer_returnsTrueForAnyMethod() {
+        assertTrue(sut.isRetryable(postRequest, ConnectException()))
+    }
+
+    @Test
+    fun isRetryable_whenServerMayHaveProcessedRequest_returnsTrueOnlyForIdempotentRequests() {
+        assertTrue(sut.isRetryable(getRequest, SocketTimeoutException()))
+        assertTrue(sut.isRetryable(getRequest, ServerException("error")))
+        assertFalse(sut.isRetryable(postRequest, SocketTimeoutException()))
+        assertFalse(sut.isRetryable(postRequest, ServerException("error")))
+    }
+
+    @Test
+    fun isRetryable_whenErrorIsPermanent_returnsFalse() {
+        assertFalse(sut.isRetryable(getRequest, UnprocessableEntityException("invalid")))
+        assertFalse(sut.isRetryable(getRequest, AuthenticationException("unauthorized")))
+        assertFalse(sut.isRetryable(getRequest, SSLPeerUnverifiedException("pinning")))
+        assertFalse(sut.isRetryable(getRequest, IllegalArgumentException()))
+    }
+
+    @Test
+    fun getRetryDelay_growsExponentiallyUpToMaxDelay() {
+        val sut = RetryPolicy(
+            baseDelayMillis = 100L,
+            maxDelayMillis = 1000L,
+            retryBudget = RetryBudget(maxTokens = 1000.0),
+            random = Random(0)
+        )
+
+        repeat(20) {
+            assertTrue(sut.getRetryDelay(IOException(), 0)!! in 0L..100L)
+            assertTrue(sut.getRetryDelay(IOException(), 2)!! in 0L..400L)
+            assertTrue(sut.getRetryDelay(IOException(), 10)!! in 0L..1000L)
+        }
+    }
+
+    @Test
+    fun getRetryDelay_withRetryAfter_waitsAtLeastRetryAfter() {
+        val delay = sut.getRetryDelay(ServiceUnavailableException("unavailable", 3000L), 0)!!
+
+        assertTrue(delay in 3000L..3100L)
+    }
+
+    @Test
+    fun getRetryDelay_whenRetryAfterExceedsMax_returnsNull() {
+        assertNull(sut.getRetryDelay(RateLimitException("rate limited", 10000L), 0))
+    }
+
+    @Test
+    fun getRetryDelay_whenRetryBudgetIsExhausted_returnsNull() {
+        val delays = (0 until 6).map { sut.getRetryDelay(IOException(), 0) }
+
+        assertEquals(4, delays.count { it != null })
+        assertNull(delays.last())
+    }
+}
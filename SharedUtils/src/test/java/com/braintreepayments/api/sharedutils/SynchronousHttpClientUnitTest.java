@@ -2,8 +2,15 @@ package com.braintreepayments.api.sharedutils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -16,12 +23,21 @@ import com.braintreepayments.api.sharedutils.TLSSocketFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLException;
@@ -31,11 +47,13 @@ public class SynchronousHttpClientUnitTest {
 
     BaseHttpResponseParser httpResponseParser;
     SSLSocketFactory sslSocketFactory;
+    ConnectionPool connectionPool;
 
     @Before
     public void beforeEach() {
         httpResponseParser = mock(BaseHttpResponseParser.class);
         sslSocketFactory = mock(SSLSocketFactory.class);
+        connectionPool = new ConnectionPool();
     }
 
     @Test
@@ -46,7 +64,7 @@ public class SynchronousHttpClientUnitTest {
                 .baseUrl("/:/");
 
         final SynchronousHttpClient sut =
-                new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         assertThrows(MalformedURLException.class, new ThrowingRunnable() {
             @Override
             public void run() throws Throwable {
@@ -61,7 +79,7 @@ public class SynchronousHttpClientUnitTest {
                 .path(null);
 
         final SynchronousHttpClient sut =
-                new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         IllegalArgumentException exception =
                 assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
                     @Override
@@ -89,7 +107,7 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setRequestMethod("GET");
     }
@@ -110,7 +128,7 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setSSLSocketFactory(sslSocketFactory);
     }
@@ -133,7 +151,7 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setReadTimeout(123);
     }
@@ -156,7 +174,7 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setConnectTimeout(456);
     }
@@ -178,7 +196,7 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setRequestProperty("Sample-Header", "Sample Value");
     }
@@ -199,13 +217,40 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         String result = sut.request(httpRequest).getBody();
         assertEquals("http_ok", result);
     }
 
     @Test
-    public void request_onSuccess_closesUrlConnection() throws Exception {
+    public void request_returnsStatusCodeAndHeaders() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpsURLConnection connection = mock(HttpsURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(304);
+        when(httpResponseParser.parse(304, connection)).thenReturn(null);
+        when(httpResponseParser.parseHeaders(connection))
+                .thenReturn(Collections.singletonMap("ETag", "\"etag\""));
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        HttpResponse response = sut.request(httpRequest);
+
+        assertEquals(304, response.getStatusCode());
+        assertTrue(response.isNotModified());
+        assertEquals("\"etag\"", response.getHeader("etag"));
+    }
+
+    @Test
+    public void request_onSuccess_releasesUrlConnectionToPoolWithoutDisconnecting()
+            throws Exception {
         final HttpRequest httpRequest = spy(new HttpRequest()
                 .path("sample/path")
                 .method("GET")
@@ -220,9 +265,9 @@ public class SynchronousHttpClientUnitTest {
         when(connection.getResponseCode()).thenReturn(200);
         when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
-        verify(connection).disconnect();
+        verify(connection, never()).disconnect();
     }
 
     @Test
@@ -243,7 +288,7 @@ public class SynchronousHttpClientUnitTest {
         when(httpResponseParser.parse(200, connection)).thenThrow(new Exception("error"));
 
         final SynchronousHttpClient sut =
-                new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         assertThrows(Exception.class, new ThrowingRunnable() {
             @Override
             public void run() throws Throwable {
@@ -272,7 +317,7 @@ public class SynchronousHttpClientUnitTest {
 
         when(connection.getOutputStream()).thenReturn(mock(OutputStream.class));
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
         verify(connection).setRequestProperty("Content-Type", "application/json");
     }
@@ -297,7 +342,7 @@ public class SynchronousHttpClientUnitTest {
         OutputStream outputStream = mock(OutputStream.class);
         when(connection.getOutputStream()).thenReturn(outputStream);
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
 
         verify(connection).setDoOutput(true);
@@ -327,7 +372,7 @@ public class SynchronousHttpClientUnitTest {
         OutputStream outputStream = mock(OutputStream.class);
         when(connection.getOutputStream()).thenReturn(outputStream);
 
-        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser);
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
         sut.request(httpRequest);
 
         verify(connection).setDoOutput(true);
@@ -337,6 +382,247 @@ public class SynchronousHttpClientUnitTest {
         verify(httpRequest).dispose();
     }
 
+    @Test
+    public void request_whenPostWithGzipContentEncoding_writesCompressedBody() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .contentEncoding(HttpRequest.CONTENT_ENCODING_GZIP)
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(connection.getOutputStream()).thenReturn(outputStream);
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        sut.request(httpRequest);
+
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection).setChunkedStreamingMode(0);
+        GZIPInputStream inputStream =
+                new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            decompressed.write(buffer, 0, read);
+        }
+        assertEquals("test data", new String(decompressed.toByteArray(), StandardCharsets.UTF_8));
+        verify(httpRequest).dispose();
+    }
+
+    @Test
+    public void request_whenPostWithoutContentEncoding_doesNotAddContentEncodingHeader()
+            throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+        when(connection.getOutputStream()).thenReturn(mock(OutputStream.class));
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        sut.request(httpRequest);
+
+        verify(connection, never()).setRequestProperty(eq("Content-Encoding"), anyString());
+    }
+
+    @Test
+    public void request_whenPostWithoutContentEncoding_streamsBodyWithFixedLength()
+            throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+        when(connection.getOutputStream()).thenReturn(mock(OutputStream.class));
+
+        SynchronousHttpClient sut = new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        sut.request(httpRequest);
+
+        verify(connection).setFixedLengthStreamingMode("test data".length());
+        verify(connection, never()).setChunkedStreamingMode(anyInt());
+    }
+
+    @Test
+    public void request_whenCancelledDuringRequest_disconnectsAndThrowsRequestCancelledException()
+            throws Exception {
+        final CancellationToken cancellationToken = new CancellationToken();
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com")
+                .cancellationToken(cancellationToken));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        final HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+        when(connection.getResponseCode()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                cancellationToken.cancel();
+                throw new IOException("Socket closed");
+            }
+        });
+
+        final SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        assertThrows(RequestCancelledException.class, new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                sut.request(httpRequest);
+            }
+        });
+        verify(connection, atLeastOnce()).disconnect();
+    }
+
+    @Test
+    public void request_whenCancelledWhileWaitingForConnection_throwsRequestCancelledException()
+            throws Exception {
+        final CancellationToken cancellationToken = new CancellationToken();
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com")
+                .cancellationToken(cancellationToken));
+
+        URL url = mock(URL.class);
+        when(url.getProtocol()).thenReturn("https");
+        when(url.getHost()).thenReturn("www.sample.com");
+        when(url.getPort()).thenReturn(-1);
+        when(httpRequest.getURL()).thenReturn(url);
+        when(url.openConnection()).thenReturn(mock(HttpURLConnection.class));
+
+        ConnectionPool exhaustedConnectionPool = new ConnectionPool(1);
+        exhaustedConnectionPool.acquire(url, 0L);
+
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException ignored) {
+                }
+                cancellationToken.cancel();
+            }
+        });
+        canceller.start();
+
+        final SynchronousHttpClient sut = new SynchronousHttpClient(
+                sslSocketFactory, httpResponseParser, exhaustedConnectionPool);
+        assertThrows(RequestCancelledException.class, new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                sut.request(httpRequest);
+            }
+        });
+        canceller.join();
+    }
+
+    @Test
+    public void request_whenDeadlinePassesDuringRequest_disconnectsAndThrowsDeadlineExceededException()
+            throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("GET")
+                .baseUrl("https://www.sample.com")
+                .deadline(Deadline.after(50L)));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        final CountDownLatch disconnected = new CountDownLatch(1);
+        final HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                disconnected.countDown();
+                return null;
+            }
+        }).when(connection).disconnect();
+        // a server that keeps trickling data never trips the read timeout
+        when(connection.getResponseCode()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                disconnected.await(5, TimeUnit.SECONDS);
+                throw new IOException("Socket closed");
+            }
+        });
+
+        final SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool);
+        assertThrows(DeadlineExceededException.class, new ThrowingRunnable() {
+            @Override
+            public void run() throws Throwable {
+                sut.request(httpRequest);
+            }
+        });
+        verify(connection, atLeastOnce()).disconnect();
+    }
+
+    @Test
+    public void request_recordsPhaseTimingsWithMonotonicClock() throws Exception {
+        final HttpRequest httpRequest = spy(new HttpRequest()
+                .path("sample/path")
+                .method("POST")
+                .data("test data")
+                .baseUrl("https://www.sample.com"));
+
+        URL url = mock(URL.class);
+        when(httpRequest.getURL()).thenReturn(url);
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(url.openConnection()).thenReturn(connection);
+        when(connection.getOutputStream()).thenReturn(mock(OutputStream.class));
+        when(connection.getResponseCode()).thenReturn(200);
+        when(httpResponseParser.parse(200, connection)).thenReturn("http_ok");
+
+        Time time = mock(Time.class);
+        // request start, connection acquired, connected, body written, first byte, response read
+        when(time.getMonotonicTime()).thenReturn(1000L, 1002L, 1032L, 1037L, 1137L, 1147L);
+
+        SynchronousHttpClient sut =
+                new SynchronousHttpClient(sslSocketFactory, httpResponseParser, connectionPool, time);
+        HttpResponseTiming timing = sut.request(httpRequest).getTiming();
+
+        verify(connection).connect();
+        assertEquals(Long.valueOf(2L), timing.getPoolWaitDuration());
+        assertEquals(Long.valueOf(30L), timing.getConnectDuration());
+        assertEquals(Long.valueOf(5L), timing.getRequestWriteDuration());
+        assertEquals(Long.valueOf(100L), timing.getTimeToFirstByte());
+        assertEquals(Long.valueOf(10L), timing.getResponseReadDuration());
+    }
+
     private static byte[] toByteArray(String data) {
         return data.getBytes(StandardCharsets.UTF_8);
     }
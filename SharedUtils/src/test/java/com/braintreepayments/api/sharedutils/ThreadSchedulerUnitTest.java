@@ -6,10 +6,24 @@ import com.braintreepayments.api.sharedutils.ThreadScheduler;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class ThreadSchedulerUnitTest {
@@ -24,13 +38,85 @@ public class ThreadSchedulerUnitTest {
     }
 
     @Test
-    public void runOnBackground_submitsRunnableToThreadPool() {
+    public void runOnBackground_executesRunnableOnThreadPool() {
         ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, backgroundThreadPool);
-        Runnable runnable = () -> {};
+        Runnable runnable = mock(Runnable.class);
 
         sut.runOnBackground(runnable);
 
-        verify(backgroundThreadPool).submit(runnable);
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(backgroundThreadPool).execute(captor.capture());
+
+        captor.getValue().run();
+        verify(runnable).run();
+    }
+
+    @Test
+    public void runOnBackground_withDelay_postsToThreadPoolAfterDelay() {
+        ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, backgroundThreadPool);
+        Runnable runnable = mock(Runnable.class);
+
+        sut.runOnBackground(runnable, TaskPriority.PREFETCH, 500L);
+
+        ArgumentCaptor<Runnable> delayedCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mainThreadHandler).postDelayed(delayedCaptor.capture(), eq(500L));
+        verify(backgroundThreadPool, never()).execute(any(Runnable.class));
+
+        delayedCaptor.getValue().run();
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(backgroundThreadPool).execute(captor.capture());
+
+        captor.getValue().run();
+        verify(runnable).run();
+    }
+
+    @Test
+    public void runOnBackground_tracksQueueDepthPerPriority() {
+        ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, backgroundThreadPool);
+
+        sut.runOnBackground(() -> {}, TaskPriority.TELEMETRY);
+        sut.runOnBackground(() -> {}, TaskPriority.TELEMETRY);
+        sut.runOnBackground(() -> {}, TaskPriority.USER_INITIATED);
+
+        assertEquals(2, sut.getQueueDepth(TaskPriority.TELEMETRY));
+        assertEquals(1, sut.getQueueDepth(TaskPriority.USER_INITIATED));
+        assertEquals(0, sut.getQueueDepth(TaskPriority.PREFETCH));
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(backgroundThreadPool, times(3)).execute(captor.capture());
+        captor.getAllValues().get(0).run();
+
+        assertEquals(1, sut.getQueueDepth(TaskPriority.TELEMETRY));
+    }
+
+    @Test
+    public void runOnBackground_runsHigherPriorityWorkFirst() throws InterruptedException {
+        ExecutorService singleThreadPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>());
+        ThreadScheduler sut = new ThreadScheduler(mainThreadHandler, singleThreadPool);
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<TaskPriority> order = Collections.synchronizedList(new ArrayList<>());
+
+        sut.runOnBackground(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {}
+        }, TaskPriority.TELEMETRY);
+        for (TaskPriority priority : new TaskPriority[] {
+                TaskPriority.TELEMETRY, TaskPriority.PREFETCH, TaskPriority.USER_INITIATED }) {
+            sut.runOnBackground(() -> {
+                order.add(priority);
+                done.countDown();
+            }, priority);
+        }
+        blocker.countDown();
+        done.await(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(TaskPriority.USER_INITIATED, TaskPriority.PREFETCH,
+                TaskPriority.TELEMETRY), order);
+        singleThreadPool.shutdown();
     }
 
 
@@ -48,12 +48,24 @@ public class MockApiClientBuilder {
             return null;
         }).when(apiClient).tokenizeREST(any(PaymentMethod.class), any(TokenizeCallback.class));
 
+        doAnswer((Answer<Void>) invocation -> {
+            TokenizeCallback listener = (TokenizeCallback) invocation.getArguments()[2];
+            listener.onResult(tokenizeRESTSuccess, tokenizeRESTError);
+            return null;
+        }).when(apiClient).tokenizeREST(any(PaymentMethod.class), any(), any(TokenizeCallback.class));
+
         doAnswer((Answer<Void>) invocation -> {
             TokenizeCallback listener = (TokenizeCallback) invocation.getArguments()[1];
             listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError);
             return null;
         }).when(apiClient).tokenizeGraphQL(any(JSONObject.class), any(TokenizeCallback.class));
 
+        doAnswer((Answer<Void>) invocation -> {
+            TokenizeCallback listener = (TokenizeCallback) invocation.getArguments()[2];
+            listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError);
+            return null;
+        }).when(apiClient).tokenizeGraphQL(any(JSONObject.class), any(), any(TokenizeCallback.class));
+
         return apiClient;
     }
 }
@@ -145,6 +145,17 @@ public class MockBraintreeClientBuilder {
         }).when(braintreeClient)
             .sendPOST(anyString(), anyString(), anyMap(), any(HttpResponseCallback.class));
 
+        doAnswer((Answer<Void>) invocation -> {
+            HttpResponseCallback callback = (HttpResponseCallback) invocation.getArguments()[5];
+            if (sendPOSTSuccess != null) {
+                callback.onResult(sendPOSTSuccess, null);
+            } else if (sendPOSTError != null) {
+                callback.onResult(null, sendPOSTError);
+            }
+            return null;
+        }).when(braintreeClient).sendPOST(anyString(), anyString(), anyMap(), any(), any(),
+            any(HttpResponseCallback.class));
+
         doAnswer((Answer<Void>) invocation -> {
             HttpResponseCallback callback = (HttpResponseCallback) invocation.getArguments()[1];
             if (sendGraphQLPOSTSuccess != null) {
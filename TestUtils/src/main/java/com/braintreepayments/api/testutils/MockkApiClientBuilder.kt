@@ -46,6 +46,16 @@ class MockkApiClientBuilder {
             val listener = lastArg() as TokenizeCallback
             listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError)
         }
+
+        every { apiClient.tokenizeREST(any(), any(), any()) } answers {
+            val listener = lastArg() as TokenizeCallback
+            listener.onResult(tokenizeRESTSuccess, tokenizeRESTError)
+        }
+
+        every { apiClient.tokenizeGraphQL(any(), any(), any()) } answers {
+            val listener = lastArg() as TokenizeCallback
+            listener.onResult(tokenizeGraphQLSuccess, tokenizeGraphQLError)
+        }
         return apiClient
     }
 }
@@ -4,6 +4,7 @@ import com.braintreepayments.api.core.ApiClient
 import com.braintreepayments.api.core.ApiClient.Companion.versionedPath
 import com.braintreepayments.api.core.BraintreeClient
 import com.braintreepayments.api.core.BraintreeException
+import com.braintreepayments.api.sharedutils.CancellationToken
 import com.braintreepayments.api.threedsecure.ThreeDSecureParams.Companion.fromJson
 import org.json.JSONException
 import org.json.JSONObject
@@ -12,16 +13,21 @@ internal class ThreeDSecureAPI(
     private val braintreeClient: BraintreeClient
 ) {
 
+    @JvmOverloads
     fun performLookup(
         request: ThreeDSecureRequest,
         cardinalConsumerSessionId: String?,
+        cancellationToken: CancellationToken? = null,
         callback: ThreeDSecureResultCallback
     ) {
         braintreeClient.sendPOST(
             url = versionedPath(
                 "${ApiClient.PAYMENT_METHOD_ENDPOINT}/${request.nonce}/three_d_secure/lookup"
             ),
-            data = request.build(cardinalConsumerSessionId)
+            data = request.build(cardinalConsumerSessionId),
+            additionalHeaders = emptyMap(),
+            deadline = null,
+            cancellationToken = cancellationToken
         ) { responseBody: String?, httpError: Exception? ->
             if (responseBody != null) {
                 try {
@@ -36,9 +42,11 @@ internal class ThreeDSecureAPI(
         }
     }
 
+    @JvmOverloads
     fun authenticateCardinalJWT(
         threeDSecureParams: ThreeDSecureParams?,
         cardinalJWT: String?,
+        cancellationToken: CancellationToken? = null,
         callback: ThreeDSecureResultCallback
     ) {
         if (threeDSecureParams == null || cardinalJWT == null) {
@@ -61,7 +69,10 @@ internal class ThreeDSecureAPI(
 
         braintreeClient.sendPOST(
             url = url,
-            data = body.toString()
+            data = body.toString(),
+            additionalHeaders = emptyMap(),
+            deadline = null,
+            cancellationToken = cancellationToken
         ) { responseBody: String?, httpError: Exception? ->
             if (responseBody != null) {
                 try {
@@ -7,7 +7,9 @@ import com.braintreepayments.api.core.BraintreeException
 import com.braintreepayments.api.core.BuildConfig
 import com.braintreepayments.api.core.Configuration
 import com.braintreepayments.api.core.InvalidArgumentException
+import com.braintreepayments.api.core.LifecycleCancellation
 import com.braintreepayments.api.core.MerchantRepository
+import com.braintreepayments.api.sharedutils.CancellationToken
 import com.braintreepayments.api.threedsecure.ThreeDSecureParams.Companion.fromJson
 import com.cardinalcommerce.cardinalmobilesdk.models.CardinalActionCode
 import org.json.JSONException
@@ -60,6 +62,26 @@ class ThreeDSecureClient internal constructor(
         context: Context,
         request: ThreeDSecureRequest,
         callback: ThreeDSecurePaymentAuthRequestCallback
+    ) = createPaymentAuthRequest(context, request, null, callback)
+
+    /**
+     * Initiate the 3D Secure flow with a lookup that can be cancelled, e.g. when the user leaves
+     * the checkout screen. See [LifecycleCancellation] to cancel it when a lifecycle is destroyed.
+     *
+     * The result is returned via a [ThreeDSecurePaymentAuthRequestCallback] as described in the
+     * overload without a [CancellationToken]. Once [cancellationToken] is cancelled, the lookup is
+     * aborted and [callback] is not invoked.
+     *
+     * @param context           Android context
+     * @param request           the [ThreeDSecureRequest] with information used for authentication.
+     * @param cancellationToken [CancellationToken] that aborts the lookup, or null
+     * @param callback          [ThreeDSecurePaymentAuthRequestCallback]
+     */
+    fun createPaymentAuthRequest(
+        context: Context,
+        request: ThreeDSecureRequest,
+        cancellationToken: CancellationToken?,
+        callback: ThreeDSecurePaymentAuthRequestCallback
     ) {
         braintreeClient.sendAnalyticsEvent(ThreeDSecureAnalytics.VERIFY_STARTED)
         if (request.amount == null || request.nonce == null) {
@@ -75,6 +97,9 @@ class ThreeDSecureClient internal constructor(
         }
 
         braintreeClient.getConfiguration { configuration: Configuration?, error: Exception? ->
+            if (cancellationToken?.isCancelled == true) {
+                return@getConfiguration
+            }
             val failure = when {
                 configuration == null -> {
                     error ?: BraintreeException("Configuration is null")
@@ -95,7 +120,13 @@ class ThreeDSecureClient internal constructor(
                 }
 
                 else -> {
-                    initializeCardinalClient(context, configuration, request, callback)
+                    initializeCardinalClient(
+                        context,
+                        configuration,
+                        request,
+                        cancellationToken,
+                        callback
+                    )
                     return@getConfiguration
                 }
             }
@@ -111,6 +142,7 @@ class ThreeDSecureClient internal constructor(
         context: Context,
         configuration: Configuration,
         request: ThreeDSecureRequest,
+        cancellationToken: CancellationToken?,
         callback: ThreeDSecurePaymentAuthRequestCallback
     ) {
         try {
@@ -119,9 +151,13 @@ class ThreeDSecureClient internal constructor(
                 configuration = configuration,
                 request = request
             ) { _, _ ->
+                if (cancellationToken?.isCancelled == true) {
+                    return@initialize
+                }
                 api.performLookup(
                     request = request,
-                    cardinalConsumerSessionId = cardinalClient.consumerSessionId
+                    cardinalConsumerSessionId = cardinalClient.consumerSessionId,
+                    cancellationToken = cancellationToken
                 ) { threeDSecureResult: ThreeDSecureParams?, performLookupError: Exception? ->
                     if (threeDSecureResult != null) {
                         braintreeClient.sendAnalyticsEvent(ThreeDSecureAnalytics.LOOKUP_SUCCEEDED)
@@ -315,11 +351,33 @@ class ThreeDSecureClient internal constructor(
      * @param paymentAuthResult a [ThreeDSecurePaymentAuthResult] received in [ThreeDSecureLauncherCallback]
      * @param callback       a [ThreeDSecureResultCallback]
      */
+    fun tokenize(
+        paymentAuthResult: ThreeDSecurePaymentAuthResult,
+        callback: ThreeDSecureTokenizeCallback
+    ) = tokenize(paymentAuthResult, null, callback)
+
+    /**
+     * Authenticate the result of the 3DS challenge with a request that can be cancelled, e.g. when
+     * the user leaves the checkout screen.
+     *
+     * The result is returned via a [ThreeDSecureTokenizeCallback] as described in the overload
+     * without a [CancellationToken]. Once [cancellationToken] is cancelled, the authentication is
+     * aborted and [callback] is not invoked.
+     *
+     * @param paymentAuthResult a [ThreeDSecurePaymentAuthResult] received in
+     * [ThreeDSecureLauncherCallback]
+     * @param cancellationToken [CancellationToken] that aborts the authentication, or null
+     * @param callback          a [ThreeDSecureTokenizeCallback]
+     */
     @Suppress("LongMethod")
     fun tokenize(
         paymentAuthResult: ThreeDSecurePaymentAuthResult,
+        cancellationToken: CancellationToken?,
         callback: ThreeDSecureTokenizeCallback
     ) {
+        if (cancellationToken?.isCancelled == true) {
+            return
+        }
         val threeDSecureError = paymentAuthResult.error
         if (threeDSecureError != null) {
             callbackTokenizeFailure(callback, ThreeDSecureResult.Failure(threeDSecureError, null))
@@ -333,7 +391,8 @@ class ThreeDSecureClient internal constructor(
                 CardinalActionCode.NOACTION,
                 CardinalActionCode.SUCCESS -> api.authenticateCardinalJWT(
                     threeDSecureParams = threeDSecureParams,
-                    cardinalJWT = jwt
+                    cardinalJWT = jwt,
+                    cancellationToken = cancellationToken
                 ) { threeDSecureResult: ThreeDSecureParams?, error: Exception? ->
                     if (threeDSecureResult != null) {
                         if (threeDSecureResult.hasError()) {
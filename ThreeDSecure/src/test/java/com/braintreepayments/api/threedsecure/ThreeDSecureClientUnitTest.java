@@ -8,10 +8,13 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import androidx.fragment.app.FragmentActivity;
@@ -22,6 +25,7 @@ import com.braintreepayments.api.core.BraintreeClient;
 import com.braintreepayments.api.core.BraintreeException;
 import com.braintreepayments.api.core.Configuration;
 import com.braintreepayments.api.core.MerchantRepository;
+import com.braintreepayments.api.sharedutils.CancellationToken;
 import com.braintreepayments.api.testutils.Fixtures;
 import com.braintreepayments.api.sharedutils.HttpResponseCallback;
 import com.braintreepayments.api.testutils.MockBraintreeClientBuilder;
@@ -300,7 +304,7 @@ public class ThreeDSecureClientUnitTest {
         String expectedUrl = "/v1/payment_methods/a-nonce/three_d_secure/lookup";
         ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
         verify(braintreeClient).sendPOST(eq(expectedUrl), bodyCaptor.capture(), anyMap(),
-            any(HttpResponseCallback.class));
+            isNull(), isNull(), any(HttpResponseCallback.class));
 
         JSONObject body = new JSONObject(bodyCaptor.getValue());
         assertEquals("amount", body.getString("amount"));
@@ -340,7 +344,7 @@ public class ThreeDSecureClientUnitTest {
         ArgumentCaptor<String> pathCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
         verify(braintreeClient).sendPOST(pathCaptor.capture(), bodyCaptor.capture(), anyMap(),
-            any(HttpResponseCallback.class));
+            isNull(), isNull(), any(HttpResponseCallback.class));
 
         String path = pathCaptor.getValue();
         String body = bodyCaptor.getValue();
@@ -386,6 +390,60 @@ public class ThreeDSecureClientUnitTest {
         verify(paymentAuthRequestCallback).onThreeDSecurePaymentAuthRequest(any(ThreeDSecurePaymentAuthRequest.class));
     }
 
+    @Test
+    public void createPaymentAuthRequest_withCancellationToken_forwardsTokenToLookup()
+        throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder()
+            .successReferenceId("sample-session-id")
+            .build();
+
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+            .configuration(threeDSecureEnabledConfig)
+            .build();
+        CancellationToken cancellationToken = new CancellationToken();
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            new ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        );
+        sut.createPaymentAuthRequest(activity, basicRequest, cancellationToken,
+            paymentAuthRequestCallback);
+
+        verify(braintreeClient).sendPOST(eq("/v1/payment_methods/a-nonce/three_d_secure/lookup"),
+            anyString(), anyMap(), isNull(), same(cancellationToken),
+            any(HttpResponseCallback.class));
+    }
+
+    @Test
+    public void createPaymentAuthRequest_whenCancelled_doesNotPerformLookupOrNotifyCallback()
+        throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder()
+            .successReferenceId("sample-session-id")
+            .build();
+
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder()
+            .configuration(threeDSecureEnabledConfig)
+            .sendPOSTSuccessfulResponse(Fixtures.THREE_D_SECURE_V2_LOOKUP_RESPONSE)
+            .build();
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            new ThreeDSecureAPI(braintreeClient),
+            merchantRepository
+        );
+        sut.createPaymentAuthRequest(activity, basicRequest, cancellationToken,
+            paymentAuthRequestCallback);
+
+        verify(braintreeClient, never()).sendPOST(anyString(), anyString(), anyMap(), any(), any(),
+            any(HttpResponseCallback.class));
+        verifyNoInteractions(paymentAuthRequestCallback);
+    }
+
     @Test
     public void createPaymentAuthRequest_withInvalidRequest_postsException() throws BraintreeException {
         CardinalClient cardinalClient = new MockCardinalClientBuilder().build();
@@ -731,11 +789,11 @@ public class ThreeDSecureClientUnitTest {
 
         doAnswer((Answer<Void>) invocation -> {
             ThreeDSecureResultCallback callback =
-                (ThreeDSecureResultCallback) invocation.getArguments()[2];
+                (ThreeDSecureResultCallback) invocation.getArguments()[3];
             callback.onThreeDSecureResult(threeDSecureParams, null);
             return null;
         }).when(threeDSecureAPI).authenticateCardinalJWT(any(ThreeDSecureParams.class), anyString(),
-            any(ThreeDSecureResultCallback.class));
+            isNull(), any(ThreeDSecureResultCallback.class));
 
         ThreeDSecureClient sut = new ThreeDSecureClient(
             braintreeClient,
@@ -771,11 +829,11 @@ public class ThreeDSecureClientUnitTest {
 
         doAnswer((Answer<Void>) invocation -> {
             ThreeDSecureResultCallback callback =
-                (ThreeDSecureResultCallback) invocation.getArguments()[2];
+                (ThreeDSecureResultCallback) invocation.getArguments()[3];
             callback.onThreeDSecureResult(threeDSecureParams, null);
             return null;
         }).when(threeDSecureAPI).authenticateCardinalJWT(any(ThreeDSecureParams.class), anyString(),
-            any(ThreeDSecureResultCallback.class));
+            isNull(), any(ThreeDSecureResultCallback.class));
 
         ThreeDSecureClient sut = new ThreeDSecureClient(
             braintreeClient,
@@ -812,11 +870,11 @@ public class ThreeDSecureClientUnitTest {
 
         doAnswer((Answer<Void>) invocation -> {
             ThreeDSecureResultCallback callback =
-                (ThreeDSecureResultCallback) invocation.getArguments()[2];
+                (ThreeDSecureResultCallback) invocation.getArguments()[3];
             callback.onThreeDSecureResult(null, exception);
             return null;
         }).when(threeDSecureAPI).authenticateCardinalJWT(any(ThreeDSecureParams.class), anyString(),
-            any(ThreeDSecureResultCallback.class));
+            isNull(), any(ThreeDSecureResultCallback.class));
 
         ThreeDSecureClient sut = new ThreeDSecureClient(
             braintreeClient,
@@ -839,5 +897,56 @@ public class ThreeDSecureClientUnitTest {
         verify(braintreeClient).sendAnalyticsEvent(ThreeDSecureAnalytics.VERIFY_FAILED, new AnalyticsEventParams());
     }
 
+    @Test
+    public void tokenize_withCancellationToken_forwardsTokenToAuthentication()
+        throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder().build();
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+
+        ValidateResponse validateResponse = mock(ValidateResponse.class);
+        when(validateResponse.getActionCode()).thenReturn(CardinalActionCode.SUCCESS);
+        CancellationToken cancellationToken = new CancellationToken();
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            threeDSecureAPI,
+            merchantRepository
+        );
+
+        ThreeDSecurePaymentAuthResult paymentAuthResult =
+            new ThreeDSecurePaymentAuthResult("jwt", validateResponse, threeDSecureParams, null);
+        sut.tokenize(paymentAuthResult, cancellationToken, threeDSecureTokenizeCallback);
+
+        verify(threeDSecureAPI).authenticateCardinalJWT(same(threeDSecureParams), eq("jwt"),
+            same(cancellationToken), any(ThreeDSecureResultCallback.class));
+    }
+
+    @Test
+    public void tokenize_whenCancelled_doesNotAuthenticateOrNotifyCallback()
+        throws BraintreeException {
+        CardinalClient cardinalClient = new MockCardinalClientBuilder().build();
+        BraintreeClient braintreeClient = new MockBraintreeClientBuilder().build();
+
+        ValidateResponse validateResponse = mock(ValidateResponse.class);
+        when(validateResponse.getActionCode()).thenReturn(CardinalActionCode.SUCCESS);
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        ThreeDSecureClient sut = new ThreeDSecureClient(
+            braintreeClient,
+            cardinalClient,
+            threeDSecureAPI,
+            merchantRepository
+        );
+
+        ThreeDSecurePaymentAuthResult paymentAuthResult =
+            new ThreeDSecurePaymentAuthResult("jwt", validateResponse, threeDSecureParams, null);
+        sut.tokenize(paymentAuthResult, cancellationToken, threeDSecureTokenizeCallback);
+
+        verifyNoInteractions(threeDSecureAPI);
+        verifyNoInteractions(threeDSecureTokenizeCallback);
+    }
+
     // endregion
 }